@@ -9,6 +9,7 @@ import org.joda.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import static java.util.Arrays.asList;
 import static org.ei.drishti.dto.AlertStatus.*;
@@ -134,6 +135,25 @@ public class AlertRepositoryTest extends AndroidTestCase {
         assertEquals(asList(condomRefillAlert, completedAlert, ocpRefillAlert), alerts);
     }
 
+    public void testShouldFindAlertsOfManyEntitiesGroupedByEntity() throws Exception {
+        Alert ocpRefillAlert = new Alert("entity id 1", "OCP Refill", "OCP Refill", normal, "2012-01-02", "2012-01-11");
+        Alert condomRefillAlert = new Alert("entity id 1", "Condom Refill", "Condom Refill", normal, "2012-01-01", "2012-01-11");
+        Alert ocpRefillAlertForAnotherEntity = new Alert("entity id 2", "OCP Refill", "OCP Refill", normal, "2012-01-01", "2012-01-11");
+        Alert notOCPRefillAlert = new Alert("entity id 1", "Not OCP Refill", "Not OCP Refill", normal, "2012-01-01", "2012-01-11");
+        Alert ocpRefillAlertForUnaskedEntity = new Alert("entity id 3", "OCP Refill", "OCP Refill", normal, "2012-01-01", "2012-01-11");
+        alertRepository.createAlert(ocpRefillAlert);
+        alertRepository.createAlert(condomRefillAlert);
+        alertRepository.createAlert(ocpRefillAlertForAnotherEntity);
+        alertRepository.createAlert(notOCPRefillAlert);
+        alertRepository.createAlert(ocpRefillAlertForUnaskedEntity);
+
+        Map<String, List<Alert>> alerts = alertRepository.findByEntityIdsAndAlertNames(asList("entity id 1", "entity id 2", "entity id 4"), "OCP Refill", "Condom Refill");
+
+        assertEquals(2, alerts.size());
+        assertEquals(asList(condomRefillAlert, ocpRefillAlert), alerts.get("entity id 1"));
+        assertEquals(asList(ocpRefillAlertForAnotherEntity), alerts.get("entity id 2"));
+    }
+
     public void testShouldChangeAlertStatusToInProcessBasedOnEntityIdAndVisitCode() throws Exception {
         alertRepository.createAlert(new Alert("Case X", "Ante Natal Care - Normal", "ANC 1", normal, "2012-01-01", "2012-01-11"));
         alertRepository.createAlert(new Alert("Case Y", "Ante Natal Care - Normal", "ANC 2", urgent, "2012-01-01", "2012-01-11"));
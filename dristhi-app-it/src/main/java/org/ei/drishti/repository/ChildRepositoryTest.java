@@ -207,6 +207,28 @@ public class ChildRepositoryTest extends AndroidTestCase {
         assertFalse(children.contains(anotherChild));
     }
 
+    public void testShouldFetchTheYoungestOpenChildrenOfEveryECOldestFirst() throws Exception {
+        motherRepository.add(new Mother("mother id 1", "ec id 1", "thayi no 1", "2010-01-01"));
+        motherRepository.add(new Mother("mother id 2", "ec id 1", "thayi no 2", "2013-01-01"));
+        motherRepository.add(new Mother("mother id 3", "ec id 2", "thayi no 3", "2013-01-01"));
+        Child firstChild = new Child("child id 1", "mother id 1", "thayi no 1", "2010-01-02", "female", EXTRA_DETAILS);
+        Child secondChild = new Child("child id 2", "mother id 1", "thayi no 1", "2011-05-02", "male", EXTRA_DETAILS);
+        Child thirdChild = new Child("child id 3", "mother id 2", "thayi no 2", "2013-01-02", "female", EXTRA_DETAILS);
+        Child closedChild = new Child("child id 4", "mother id 2", "thayi no 2", "2013-01-03", "female", EXTRA_DETAILS).setIsClosed(true);
+        Child anotherECsChild = new Child("child id 5", "mother id 3", "thayi no 3", "2013-01-02", "male", EXTRA_DETAILS);
+        repository.add(thirdChild);
+        repository.add(firstChild);
+        repository.add(closedChild);
+        repository.add(secondChild);
+        repository.add(anotherECsChild);
+
+        Map<String, List<Child>> children = repository.allYoungestOpenChildrenByECId(2);
+
+        assertEquals(asList(secondChild, thirdChild), children.get("ec id 1"));
+        assertEquals(asList(anotherECsChild), children.get("ec id 2"));
+        assertEquals(mapOf("ec id 2", asList(anotherECsChild)), repository.findYoungestOpenChildrenByECIds(2, "ec id 2"));
+    }
+
     public void testShouldDeleteChild() throws Exception {
         repository.add(new Child("child id 1", "mother id 1", "TC 1", "2012-06-09", "female", EXTRA_DETAILS));
 
@@ -0,0 +1,51 @@
+package org.ei.drishti.repository;
+
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+import org.ei.drishti.domain.EligibleCouple;
+import org.ei.drishti.domain.Mother;
+import org.ei.drishti.util.Session;
+
+import java.util.Date;
+
+import static org.ei.drishti.util.EasyMap.mapOf;
+
+public class DataVersionRepositoryTest extends AndroidTestCase {
+    private DataVersionRepository dataVersionRepository;
+    private EligibleCoupleRepository ecRepository;
+    private MotherRepository motherRepository;
+    private SettingsRepository settingsRepository;
+
+    @Override
+    protected void setUp() throws Exception {
+        dataVersionRepository = new DataVersionRepository();
+        ecRepository = new EligibleCoupleRepository();
+        motherRepository = new MotherRepository();
+        settingsRepository = new SettingsRepository();
+        Session session = new Session().setPassword("password").setRepositoryName("drishti.db" + new Date().getTime());
+        new Repository(new RenamingDelegatingContext(getContext(), "test_"), session, ecRepository, motherRepository,
+                new ChildRepository(), new AlertRepository(), new ServiceProvidedRepository(), settingsRepository, dataVersionRepository);
+    }
+
+    public void testShouldChangeDataVersionWhenRegisterDataIsWritten() throws Exception {
+        String initialVersion = dataVersionRepository.dataVersion();
+
+        ecRepository.add(new EligibleCouple("ec id", "Wife", "Husband", "1", "Village", "SubCenter", mapOf("currentMethod", "condom")));
+        String versionAfterInsert = dataVersionRepository.dataVersion();
+        motherRepository.add(new Mother("mother id", "ec id", "TC 1", "2012-01-01"));
+        ecRepository.close("ec id");
+        String versionAfterUpdate = dataVersionRepository.dataVersion();
+
+        assertNotNull(initialVersion);
+        assertFalse(initialVersion.equals(versionAfterInsert));
+        assertFalse(versionAfterInsert.equals(versionAfterUpdate));
+    }
+
+    public void testShouldNotChangeDataVersionWhenOnlySettingsAreWritten() throws Exception {
+        String initialVersion = dataVersionRepository.dataVersion();
+
+        settingsRepository.updateSetting("key", "value");
+
+        assertEquals(initialVersion, dataVersionRepository.dataVersion());
+    }
+}
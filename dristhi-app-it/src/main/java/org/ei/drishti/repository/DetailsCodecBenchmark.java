@@ -0,0 +1,86 @@
+package org.ei.drishti.repository;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.System.nanoTime;
+import static java.text.MessageFormat.format;
+
+public class DetailsCodecBenchmark extends AndroidTestCase {
+    private static final String TAG = "DetailsCodecBenchmark";
+    private static final int ROWS = 2000;
+    private static final int FIELDS_PER_ROW = 60;
+
+    private List<Map<String, String>> rows;
+
+    @Override
+    protected void setUp() throws Exception {
+        rows = new ArrayList<Map<String, String>>();
+        for (int row = 0; row < ROWS; row++) {
+            Map<String, String> details = new HashMap<String, String>();
+            for (int field = 0; field < FIELDS_PER_ROW; field++) {
+                details.put("field" + field, "value of field " + field + " for row " + row);
+            }
+            rows.add(details);
+        }
+    }
+
+    public void testShouldEncodeTheSameDetailsAsGson() throws Exception {
+        long start = nanoTime();
+        List<String> blobsFromGson = new ArrayList<String>();
+        for (Map<String, String> details : rows) {
+            blobsFromGson.add(new Gson().toJson(details));
+        }
+        long gsonTime = nanoTime() - start;
+
+        start = nanoTime();
+        List<String> blobsFromCodec = new ArrayList<String>();
+        for (Map<String, String> details : rows) {
+            blobsFromCodec.add(DetailsCodec.encode(details));
+        }
+        long codecTime = nanoTime() - start;
+
+        Log.i(TAG, format("Encoding details of {0} rows took {1} ms with Gson and {2} ms with DetailsCodec",
+                ROWS, gsonTime / 1000000, codecTime / 1000000));
+        for (int row = 0; row < ROWS; row++) {
+            assertEquals(rows.get(row), fromGson(blobsFromCodec.get(row)));
+        }
+    }
+
+    public void testShouldDecodeTheSameDetailsAsGson() throws Exception {
+        List<String> blobs = new ArrayList<String>();
+        for (Map<String, String> details : rows) {
+            blobs.add(new Gson().toJson(details));
+        }
+
+        long start = nanoTime();
+        List<Map<String, String>> detailsFromGson = new ArrayList<Map<String, String>>();
+        for (String blob : blobs) {
+            detailsFromGson.add(fromGson(blob));
+        }
+        long gsonTime = nanoTime() - start;
+
+        start = nanoTime();
+        List<Map<String, String>> detailsFromCodec = new ArrayList<Map<String, String>>();
+        for (String blob : blobs) {
+            detailsFromCodec.add(DetailsCodec.decode(blob));
+        }
+        long codecTime = nanoTime() - start;
+
+        Log.i(TAG, format("Decoding details of {0} rows took {1} ms with Gson and {2} ms with DetailsCodec",
+                ROWS, gsonTime / 1000000, codecTime / 1000000));
+        assertEquals(detailsFromGson, detailsFromCodec);
+    }
+
+    private Map<String, String> fromGson(String blob) {
+        return new Gson().fromJson(blob, new TypeToken<Map<String, String>>() {
+        }.getType());
+    }
+}
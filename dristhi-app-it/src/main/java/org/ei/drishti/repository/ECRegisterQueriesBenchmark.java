@@ -0,0 +1,68 @@
+package org.ei.drishti.repository;
+
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+import android.util.Log;
+import org.ei.drishti.domain.Child;
+import org.ei.drishti.domain.EligibleCouple;
+import org.ei.drishti.domain.Mother;
+import org.ei.drishti.util.Session;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.System.nanoTime;
+import static java.text.MessageFormat.format;
+import static org.ei.drishti.util.EasyMap.mapOf;
+
+public class ECRegisterQueriesBenchmark extends AndroidTestCase {
+    private static final String TAG = "ECRegisterQueriesBenchmark";
+    private static final int NUMBER_OF_ECS = 2000;
+    private static final int CHILDREN_PER_EC = 3;
+
+    private EligibleCoupleRepository ecRepository;
+    private MotherRepository motherRepository;
+    private ChildRepository childRepository;
+
+    @Override
+    protected void setUp() throws Exception {
+        ecRepository = new EligibleCoupleRepository();
+        motherRepository = new MotherRepository();
+        childRepository = new ChildRepository();
+        Session session = new Session().setPassword("password").setRepositoryName("drishti.db" + new Date().getTime());
+        new Repository(new RenamingDelegatingContext(getContext(), "test_"), session, ecRepository, motherRepository, childRepository);
+        for (int ec = 0; ec < NUMBER_OF_ECS; ec++) {
+            ecRepository.add(new EligibleCouple("ec id " + ec, "Wife " + ec, "Husband " + ec, "" + ec, "Village", "SubCenter", mapOf("currentMethod", "condom")));
+            motherRepository.add(new Mother("mother id " + ec, "ec id " + ec, "TC " + ec, "2012-01-01").withType("PNC"));
+            for (int child = 0; child < CHILDREN_PER_EC; child++) {
+                childRepository.add(new Child("child id " + ec + "-" + child, "mother id " + ec, "TC " + ec, "201" + child + "-01-01", "female", mapOf("name", "child")));
+            }
+        }
+    }
+
+    public void testShouldFetchTheSameMothersAndChildrenWithBulkQueriesAsWithQueriesPerEC() throws Exception {
+        List<EligibleCouple> ecs = ecRepository.allEligibleCouples();
+
+        long start = nanoTime();
+        Map<String, Mother> mothersPerEC = new HashMap<String, Mother>();
+        Map<String, List<Child>> childrenPerEC = new HashMap<String, List<Child>>();
+        for (EligibleCouple ec : ecs) {
+            mothersPerEC.put(ec.caseId(), motherRepository.findMotherWithOpenStatusByECId(ec.caseId()));
+            List<Child> children = childRepository.findAllChildrenByECId(ec.caseId());
+            childrenPerEC.put(ec.caseId(), children.subList(children.size() - 2, children.size()));
+        }
+        long queriesPerECTime = nanoTime() - start;
+
+        start = nanoTime();
+        Map<String, Mother> mothersInBulk = motherRepository.allOpenMothersByECId();
+        Map<String, List<Child>> childrenInBulk = childRepository.allYoungestOpenChildrenByECId(2);
+        long bulkQueriesTime = nanoTime() - start;
+
+        Log.i(TAG, format("Fetching mothers and children of {0} ECs took {1} ms with queries per EC and {2} ms with bulk queries",
+                NUMBER_OF_ECS, queriesPerECTime / 1000000, bulkQueriesTime / 1000000));
+        assertEquals(mothersPerEC, mothersInBulk);
+        assertEquals(childrenPerEC, childrenInBulk);
+    }
+}
@@ -3,6 +3,7 @@ package org.ei.drishti.repository;
 import android.test.AndroidTestCase;
 import android.test.RenamingDelegatingContext;
 import org.ei.drishti.domain.EligibleCouple;
+import org.ei.drishti.domain.Mother;
 import org.ei.drishti.util.Session;
 
 import java.util.Date;
@@ -92,6 +93,40 @@ public class EligibleCoupleRepositoryTest extends AndroidTestCase {
         assertEquals(secondEligibleCouple.setIsClosed(true), repository.findByCaseID(secondEligibleCouple.caseId()));
     }
 
+    public void testShouldPageThroughEligibleCouplesOrderedByNameAfterTheLastSeenCouple() throws Exception {
+        EligibleCouple ec = new EligibleCouple("CASE X", "bina", "Husband 1", "EC Number 1", "Village 1", "SubCenter 1", new HashMap<String, String>());
+        EligibleCouple anotherEC = new EligibleCouple("CASE Y", "Anita", "Husband 2", "EC Number 2", "Village 2", "SubCenter 2", new HashMap<String, String>());
+        EligibleCouple sameNameEC = new EligibleCouple("CASE Z", "anita", "Husband 3", "EC Number 3", "Village 3", "SubCenter 3", new HashMap<String, String>());
+        EligibleCouple closedEC = new EligibleCouple("CASE B", "Asha", "Husband 5", "", "Village 5", "SubCenter 5", new HashMap<String, String>()).setIsClosed(true);
+        repository.add(ec);
+        repository.add(anotherEC);
+        repository.add(sameNameEC);
+        repository.add(closedEC);
+
+        List<EligibleCouple> firstPage = repository.eligibleCouplesOrderedByName(Keyset.FIRST_PAGE, 2);
+        List<EligibleCouple> secondPage = repository.eligibleCouplesOrderedByName(new Keyset("anita", "CASE Z"), 2);
+
+        assertEquals(asList(anotherEC, sameNameEC), firstPage);
+        assertEquals(asList(ec), secondPage);
+    }
+
+    public void testShouldFetchOnlyECsWithoutAnOpenANC() throws Exception {
+        EligibleCouple ec = new EligibleCouple("CASE X", "Wife 1", "Husband 1", "EC Number 1", "Village 1", "SubCenter 1", new HashMap<String, String>());
+        EligibleCouple pregnantEC = new EligibleCouple("CASE Y", "Wife 2", "Husband 2", "EC Number 2", "Village 2", "SubCenter 2", new HashMap<String, String>());
+        EligibleCouple ecWithClosedANC = new EligibleCouple("CASE Z", "Wife 3", "Husband 3", "EC Number 3", "Village 3", "SubCenter 3", new HashMap<String, String>());
+        EligibleCouple ecWithPNC = new EligibleCouple("CASE A", "Wife 4", "Husband 4", "EC Number 4", "Village 4", "SubCenter 4", new HashMap<String, String>());
+        repository.add(ec);
+        repository.add(pregnantEC);
+        repository.add(ecWithClosedANC);
+        repository.add(ecWithPNC);
+        motherRepository.add(new Mother("mother id 1", "CASE Y", "TC 1", "2012-06-08"));
+        motherRepository.add(new Mother("mother id 2", "CASE Z", "TC 2", "2012-06-08").setIsClosed(true));
+        motherRepository.add(new Mother("mother id 3", "CASE A", "TC 3", "2012-06-08"));
+        motherRepository.switchToPNC("mother id 3");
+
+        assertEquals(asList(ec, ecWithClosedANC, ecWithPNC), repository.allNonPregnantEligibleCouples());
+    }
+
     public void testFindECByCaseID() throws Exception {
         EligibleCouple ec = new EligibleCouple("CASE X", "Wife 1", "Husband 1", "EC Number 1", "Village 1", "SubCenter 1", new HashMap<String, String>());
         EligibleCouple anotherEC = new EligibleCouple("CASE Y", "Wife 2", "Husband 2", "EC Number 2", "Village 2", "SubCenter 2", new HashMap<String, String>());
@@ -219,4 +254,16 @@ public class EligibleCoupleRepositoryTest extends AndroidTestCase {
         repository.add(outOfAreaEC);
         assertEquals(1, repository.fpCount());
     }
+
+    public void testShouldCountFPMethodsWhateverTheirCaseAndIgnoreBlankOnes() throws Exception {
+        repository.add(new EligibleCouple("CASE X", "Wife 1", "Husband 1", "EC Number 1", "Village 1", "SubCenter 1", mapOf("currentMethod", "None")));
+        repository.add(new EligibleCouple("CASE Y", "Wife 2", "Husband 2", "EC Number 2", "Village 2", "SubCenter 2", mapOf("currentMethod", " \t\n")));
+        repository.add(new EligibleCouple("CASE Z", "Wife 3", "Husband 3", "EC Number 3", "Village 3", "SubCenter 3", mapOf("currentMethod", "IUD")));
+
+        assertEquals(1, repository.fpCount());
+
+        repository.mergeDetails("CASE Y", mapOf("currentMethod", "Condom"));
+        assertEquals(2, repository.fpCount());
+        assertEquals("Condom", repository.findByCaseID("CASE Y").details().get("currentMethod"));
+    }
 }
@@ -5,6 +5,7 @@ import android.test.AndroidTestCase;
 import android.test.RenamingDelegatingContext;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import org.ei.drishti.domain.Child;
 import org.ei.drishti.domain.EligibleCouple;
 import org.ei.drishti.domain.Mother;
 import org.ei.drishti.domain.form.FormData;
@@ -16,6 +17,7 @@ import org.ei.drishti.util.Session;
 
 import java.text.MessageFormat;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,13 +31,14 @@ public class FormDataRepositoryTest extends AndroidTestCase {
     private FormDataRepository repository;
     private EligibleCoupleRepository eligibleCoupleRepository;
     private MotherRepository motherRepository;
+    private ChildRepository childRepository;
 
     @Override
     protected void setUp() throws Exception {
         repository = new FormDataRepository();
         AlertRepository alertRepository = new AlertRepository();
         TimelineEventRepository timelineEventRepository = new TimelineEventRepository();
-        ChildRepository childRepository = new ChildRepository();
+        childRepository = new ChildRepository();
         motherRepository = new MotherRepository();
         eligibleCoupleRepository = new EligibleCoupleRepository();
         Session session = new Session().setPassword("password").setRepositoryName("drishti.db" + new Date().getTime());
@@ -110,6 +113,16 @@ public class FormDataRepositoryTest extends AndroidTestCase {
         assertEquals("id 1", instanceId);
     }
 
+    public void testShouldKeepTheFirstCopyWhenAFormSubmissionIsSavedAgain() throws Exception {
+        FormSubmission firstFormSubmission = FormSubmissionBuilder.create().withInstanceId("instance id 1").withVersion("122").build();
+        FormSubmission sameFormSubmission = FormSubmissionBuilder.create().withInstanceId("instance id 1").withVersion("123").build();
+        repository.saveFormSubmission(firstFormSubmission);
+
+        repository.saveFormSubmission(sameFormSubmission);
+
+        assertEquals("122", repository.fetchFromSubmission("instance id 1").version());
+    }
+
     public void testShouldCheckFormSubmissionExistence() throws Exception {
         FormSubmission firstFormSubmission = FormSubmissionBuilder.create().withInstanceId("instance id 1").withVersion("122").build();
         repository.saveFormSubmission(firstFormSubmission);
@@ -187,6 +200,25 @@ public class FormDataRepositoryTest extends AndroidTestCase {
         assertEquals(expectedMother, savedMother);
     }
 
+    public void testShouldSaveMotherAndChildrenOfAFormInOneBatch() throws Exception {
+        motherRepository.add(new Mother("mother id 1", "ec 123", "thayi1", "2013-01-01").withDetails(mapOf("deliveryPlace", "home")));
+        Map<String, List<Map<String, String>>> entities = new LinkedHashMap<String, List<Map<String, String>>>();
+        entities.put("mother", asList(create("id", "mother id 1").put("deliveryOutcome", "live_birth").map()));
+        entities.put("child", asList(
+                create("id", "child id 1").put("motherCaseId", "mother id 1").put("gender", "female").put("weight", "2.5").map(),
+                create("id", "child id 2").put("motherCaseId", "mother id 1").put("gender", "male").put("weight", "2.8").map()));
+
+        List<String> entityIds = repository.saveEntities(entities);
+
+        assertEquals(asList("mother id 1", "child id 1", "child id 2"), entityIds);
+        Mother savedMother = motherRepository.findById("mother id 1");
+        assertEquals("thayi1", savedMother.thayiCardNumber());
+        assertEquals(create("deliveryPlace", "home").put("deliveryOutcome", "live_birth").map(), savedMother.details());
+        Child savedChild = childRepository.find("child id 2");
+        assertEquals("male", savedChild.gender());
+        assertEquals(mapOf("weight", "2.8"), savedChild.details());
+    }
+
     public void testShouldFetchPendingFormSubmissions() throws Exception {
         FormInstance instance1 = new FormInstance(new FormData("entity 1", "default", asList(new FormField("field1.1", "value1.1", "source1.1")), null), "1");
         FormInstance instance2 = new FormInstance(new FormData("entity 2", "default", asList(new FormField("field2.1", "value2.1", "source2.1")), null), "1");
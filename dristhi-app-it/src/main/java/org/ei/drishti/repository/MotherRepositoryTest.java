@@ -211,6 +211,50 @@ public class MotherRepositoryTest extends AndroidTestCase {
         assertEquals(null, repository.findMotherWithOpenStatusByECId("non existent EC"));
     }
 
+    public void testShouldFindTheOpenMotherOfEveryECInOneGo() throws Exception {
+        repository.add(new Mother("mother id 1", "ec id 1", "TC 1", "2012-06-08").withType("ANC"));
+        repository.add(new Mother("mother id 3", "ec id 1", "TC 1", "2012-06-08").withType("ANC").setIsClosed(true));
+        repository.add(new Mother("mother id 2", "ec id 2", "TC 2", "2012-06-08").setIsClosed(true).withType("EC"));
+        repository.add(new Mother("mother id 4", "ec id 3", "TC 3", "2012-06-08").withType("PNC"));
+
+        Map<String, Mother> mothers = repository.allOpenMothersByECId();
+
+        assertEquals(2, mothers.size());
+        assertEquals(new Mother("mother id 1", "ec id 1", "TC 1", "2012-06-08").withType("ANC"), mothers.get("ec id 1"));
+        assertEquals(new Mother("mother id 4", "ec id 3", "TC 3", "2012-06-08").withType("PNC"), mothers.get("ec id 3"));
+        assertEquals(mapOf("ec id 3", new Mother("mother id 4", "ec id 3", "TC 3", "2012-06-08").withType("PNC")),
+                repository.findOpenMothersByECIds("ec id 2", "ec id 3"));
+    }
+
+    public void testShouldFindOpenMothersOfMoreECsThanSQLiteCanBindInOneQuery() throws Exception {
+        repository.add(new Mother("mother id 1", "ec id 1", "TC 1", "2012-06-08").withType("ANC"));
+        repository.add(new Mother("mother id 2", "ec id 1500", "TC 2", "2012-06-08").withType("PNC"));
+        String[] ecIds = new String[2000];
+        for (int i = 0; i < ecIds.length; i++) {
+            ecIds[i] = "ec id " + i;
+        }
+
+        Map<String, Mother> mothers = repository.findOpenMothersByECIds(ecIds);
+
+        assertEquals(2, mothers.size());
+        assertEquals("mother id 2", mothers.get("ec id 1500").caseId());
+        assertEquals(2, repository.findAllCasesForECs(ecIds).size());
+    }
+
+    public void testShouldFindAllMothersOfTheGivenECsIrrespectiveOfTheirStatus() throws Exception {
+        Mother openMother = new Mother("mother id 1", "ec id 1", "TC 1", "2012-06-08").withType("ANC");
+        Mother closedMother = new Mother("mother id 2", "ec id 1", "TC 2", "2011-06-08").withType("PNC").setIsClosed(true);
+        Mother motherOfAnotherEC = new Mother("mother id 3", "ec id 2", "TC 3", "2012-06-08").withType("ANC");
+        repository.add(openMother);
+        repository.add(closedMother);
+        repository.add(motherOfAnotherEC);
+
+        List<Mother> mothers = repository.findAllCasesForECs("ec id 1", "ec id 3");
+
+        assertEquals(2, mothers.size());
+        assertTrue(mothers.containsAll(asList(openMother, closedMother)));
+    }
+
     public void testShouldFindIfTheMotherIsPregnantByECId() throws Exception {
         repository.add(new Mother("mother id 1", "ec id 1", "TC 1", "2012-06-08").withType("ANC"));
         repository.add(new Mother("mother id 2 ", "ec id 2", "TC 2", "2012-06-08").setIsClosed(true).withType("EC"));
@@ -2,13 +2,17 @@ package org.ei.drishti.repository;
 
 import android.test.AndroidTestCase;
 import android.test.RenamingDelegatingContext;
+import net.sqlcipher.database.SQLiteDatabase;
 import org.ei.drishti.domain.Alert;
 import org.ei.drishti.util.Session;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 import static java.util.Arrays.asList;
+import static net.sqlcipher.DatabaseUtils.longForQuery;
+import static net.sqlcipher.DatabaseUtils.stringForQuery;
 import static org.ei.drishti.dto.AlertStatus.normal;
 
 public class RepositoryTest extends AndroidTestCase {
@@ -39,4 +43,198 @@ public class RepositoryTest extends AndroidTestCase {
         assertTrue(alerts.isEmpty());
         assertTrue(repository.canUseThisPassword("password"));
     }
+
+    public void testShouldCommitAllWritesOfAUnitOfWorkTogether() throws Exception {
+        final AlertRepository alertRepository = new AlertRepository();
+        Session session = new Session().setPassword("password").setRepositoryName("drishti.db" + new Date().getTime());
+        Repository repository = new Repository(new RenamingDelegatingContext(getContext(), "test_"), session, alertRepository);
+
+        repository.inTransaction(new UnitOfWork<Void>() {
+            @Override
+            public Void run() {
+                alertRepository.createAlert(new Alert("Case X", "Ante Natal Care - Normal", "ANC 1", normal, "2012-01-01", "2012-01-11"));
+                alertRepository.createAlert(new Alert("Case Y", "Ante Natal Care - Normal", "ANC 1", normal, "2012-01-01", "2012-01-11"));
+                return null;
+            }
+        });
+
+        assertEquals(2, alertRepository.allAlerts().size());
+    }
+
+    public void testShouldRollbackAllWritesOfAUnitOfWorkWhenItFails() throws Exception {
+        final AlertRepository alertRepository = new AlertRepository();
+        Session session = new Session().setPassword("password").setRepositoryName("drishti.db" + new Date().getTime());
+        Repository repository = new Repository(new RenamingDelegatingContext(getContext(), "test_"), session, alertRepository);
+
+        try {
+            repository.inTransaction(new UnitOfWork<Void>() {
+                @Override
+                public Void run() {
+                    alertRepository.createAlert(new Alert("Case X", "Ante Natal Care - Normal", "ANC 1", normal, "2012-01-01", "2012-01-11"));
+                    throw new RuntimeException("Failed in the middle of a unit of work");
+                }
+            });
+            fail("Expected the failure to be rethrown");
+        } catch (RuntimeException expected) {
+        }
+
+        assertTrue(alertRepository.allAlerts().isEmpty());
+        assertFalse(repository.isInTransaction());
+    }
+
+    public void testShouldRollbackOnlyTheNestedUnitOfWorkWhenItFails() throws Exception {
+        final AlertRepository alertRepository = new AlertRepository();
+        Session session = new Session().setPassword("password").setRepositoryName("drishti.db" + new Date().getTime());
+        final Repository repository = new Repository(new RenamingDelegatingContext(getContext(), "test_"), session, alertRepository);
+
+        repository.inTransaction(new UnitOfWork<Void>() {
+            @Override
+            public Void run() {
+                alertRepository.createAlert(new Alert("Case X", "Ante Natal Care - Normal", "ANC 1", normal, "2012-01-01", "2012-01-11"));
+                try {
+                    repository.inTransaction(new UnitOfWork<Void>() {
+                        @Override
+                        public Void run() {
+                            alertRepository.createAlert(new Alert("Case Y", "Ante Natal Care - Normal", "ANC 1", normal, "2012-01-01", "2012-01-11"));
+                            throw new RuntimeException("Nested unit of work failed");
+                        }
+                    });
+                } catch (RuntimeException ignored) {
+                }
+                return null;
+            }
+        });
+
+        assertEquals(asList(new Alert("Case X", "Ante Natal Care - Normal", "ANC 1", normal, "2012-01-01", "2012-01-11")), alertRepository.allAlerts());
+    }
+
+    public void testShouldApplyMigrationsOfAllRepositoriesWhenCreatingANewDatabase() throws Exception {
+        AlertRepository alertRepository = new AlertRepository();
+        MotherRepository motherRepository = new MotherRepository();
+        Session session = new Session().setPassword("password").setRepositoryName("drishti.db" + new Date().getTime());
+        Repository repository = new Repository(new RenamingDelegatingContext(getContext(), "test_"), session, alertRepository, motherRepository);
+
+        SQLiteDatabase database = repository.getReadableDatabase();
+
+        assertEquals(7, database.getVersion());
+        assertEquals(1, longForQuery(database, "SELECT COUNT(1) FROM sqlite_master WHERE type = 'index' AND name = ?", new String[]{"alerts_caseID_visitCode_index"}));
+        assertEquals(1, longForQuery(database, "SELECT COUNT(1) FROM sqlite_master WHERE type = 'index' AND name = ?", new String[]{"mother_ecCaseId_isClosed_index"}));
+    }
+
+    public void testShouldOnlyIndexThePromotedDetailsThatAreRead() throws Exception {
+        Session session = new Session().setPassword("password").setRepositoryName("drishti.db" + new Date().getTime());
+        Repository repository = new Repository(new RenamingDelegatingContext(getContext(), "test_"), session,
+                new EligibleCoupleRepository(), new MotherRepository());
+
+        SQLiteDatabase database = repository.getReadableDatabase();
+
+        assertEquals(1, longForQuery(database, "SELECT COUNT(1) FROM sqlite_master WHERE type = 'index' AND name = ?", new String[]{"eligible_couple_currentMethod_index"}));
+        assertEquals(0, longForQuery(database, "SELECT COUNT(1) FROM sqlite_master WHERE type = 'index' AND name = ?", new String[]{"mother_edd_index"}));
+        assertEquals(0, longForQuery(database, "SELECT COUNT(1) FROM sqlite_master WHERE type = 'index' AND name = ?", new String[]{"mother_type_isClosed_edd_index"}));
+        assertEquals(0, longForQuery(database, "SELECT COUNT(1) FROM sqlite_master WHERE type = 'index' AND name = ?", new String[]{"eligible_couple_caste_index"}));
+        assertEquals(0, longForQuery(database, "SELECT COUNT(1) FROM sqlite_master WHERE type = 'index' AND name = ?", new String[]{"eligible_couple_isHighPriority_index"}));
+    }
+
+    public void testShouldReadFromASeparateConnectionOutsideAUnitOfWorkAndSeeItsOwnWritesInsideOne() throws Exception {
+        final AlertRepository alertRepository = new AlertRepository();
+        Session session = new Session().setPassword("password").setRepositoryName("drishti.db" + new Date().getTime());
+        final Repository repository = new Repository(new RenamingDelegatingContext(getContext(), "test_"), session, alertRepository);
+
+        SQLiteDatabase writerDatabase = repository.getWritableDatabase();
+        assertEquals("wal", stringForQuery(writerDatabase, "PRAGMA journal_mode", new String[0]));
+        assertNotSame(writerDatabase, repository.getReadableDatabase());
+
+        repository.inTransaction(new UnitOfWork<Void>() {
+            @Override
+            public Void run() {
+                alertRepository.createAlert(new Alert("Case X", "Ante Natal Care - Normal", "ANC 1", normal, "2012-01-01", "2012-01-11"));
+                assertSame(repository.getWritableDatabase(), repository.getReadableDatabase());
+                assertEquals(1, alertRepository.allAlerts().size());
+                return null;
+            }
+        });
+
+        assertEquals(1, alertRepository.allAlerts().size());
+    }
+
+    public void testShouldSeeOneSnapshotForAllReadsOfAReadTransaction() throws Exception {
+        final AlertRepository alertRepository = new AlertRepository();
+        Session session = new Session().setPassword("password").setRepositoryName("drishti.db" + new Date().getTime());
+        final Repository repository = new Repository(new RenamingDelegatingContext(getContext(), "test_"), session, alertRepository);
+        assertEquals(4096, longForQuery(repository.getWritableDatabase(), "PRAGMA wal_autocheckpoint", new String[0]));
+
+        repository.inReadTransaction(new UnitOfWork<Void>() {
+            @Override
+            public Void run() {
+                assertEquals(0, alertRepository.allAlerts().size());
+                alertRepository.createAlert(new Alert("Case X", "Ante Natal Care - Normal", "ANC 1", normal, "2012-01-01", "2012-01-11"));
+                assertEquals(0, alertRepository.allAlerts().size());
+                return null;
+            }
+        });
+
+        assertEquals(1, alertRepository.allAlerts().size());
+    }
+
+    public void testShouldRunActionsAfterCommitOnlyOnceTheOutermostUnitOfWorkCommits() throws Exception {
+        final AlertRepository alertRepository = new AlertRepository();
+        Session session = new Session().setPassword("password").setRepositoryName("drishti.db" + new Date().getTime());
+        final Repository repository = new Repository(new RenamingDelegatingContext(getContext(), "test_"), session, alertRepository);
+        final List<String> committedAlerts = new ArrayList<String>();
+
+        repository.inTransaction(new UnitOfWork<Void>() {
+            @Override
+            public Void run() {
+                repository.inTransaction(new UnitOfWork<Void>() {
+                    @Override
+                    public Void run() {
+                        alertRepository.createAlert(new Alert("Case X", "Ante Natal Care - Normal", "ANC 1", normal, "2012-01-01", "2012-01-11"));
+                        repository.afterCommit(new Runnable() {
+                            @Override
+                            public void run() {
+                                committedAlerts.add("Case X");
+                            }
+                        });
+                        return null;
+                    }
+                });
+                assertTrue(committedAlerts.isEmpty());
+                return null;
+            }
+        });
+
+        assertEquals(asList("Case X"), committedAlerts);
+    }
+
+    public void testShouldDiscardActionsAfterCommitWhenTheUnitOfWorkFails() throws Exception {
+        final AlertRepository alertRepository = new AlertRepository();
+        Session session = new Session().setPassword("password").setRepositoryName("drishti.db" + new Date().getTime());
+        final Repository repository = new Repository(new RenamingDelegatingContext(getContext(), "test_"), session, alertRepository);
+        final List<String> committedAlerts = new ArrayList<String>();
+
+        try {
+            repository.inTransaction(new UnitOfWork<Void>() {
+                @Override
+                public Void run() {
+                    repository.afterCommit(new Runnable() {
+                        @Override
+                        public void run() {
+                            committedAlerts.add("Case X");
+                        }
+                    });
+                    throw new RuntimeException("Failed in the middle of a unit of work");
+                }
+            });
+            fail("Expected the failure to be rethrown");
+        } catch (RuntimeException expected) {
+        }
+        repository.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                committedAlerts.add("Case Y");
+            }
+        });
+
+        assertEquals(asList("Case Y"), committedAlerts);
+    }
 }
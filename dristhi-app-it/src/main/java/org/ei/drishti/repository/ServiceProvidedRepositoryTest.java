@@ -8,6 +8,7 @@ import org.ei.drishti.util.Session;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import static java.util.Arrays.asList;
 import static org.ei.drishti.util.EasyMap.mapOf;
@@ -45,6 +46,25 @@ public class ServiceProvidedRepositoryTest extends AndroidTestCase {
         assertEquals(asList(name1Entity1, name2Entity1), actualServicesProvided);
     }
 
+    public void testShouldFindServicesProvidedOfManyEntitiesGroupedByEntity() throws Exception {
+        ServiceProvided name1Entity1 = new ServiceProvided("entity id 1", "name 1", "2013-01-03", mapOf("key 1", "value 1"));
+        ServiceProvided name2Entity1 = new ServiceProvided("entity id 1", "name 2", "2013-01-02", mapOf("key 1", "value 1"));
+        ServiceProvided name3Entity1 = new ServiceProvided("entity id 1", "name 3", "2013-01-02", mapOf("key 1", "value 1"));
+        ServiceProvided name1Entity2 = new ServiceProvided("entity id 2", "name 1", "2013-01-02", mapOf("key 1", "value 1"));
+        ServiceProvided name1Entity3 = new ServiceProvided("entity id 3", "name 1", "2013-01-02", mapOf("key 1", "value 1"));
+        repository.add(name1Entity1);
+        repository.add(name2Entity1);
+        repository.add(name3Entity1);
+        repository.add(name1Entity2);
+        repository.add(name1Entity3);
+
+        Map<String, List<ServiceProvided>> actualServicesProvided = repository.findByEntityIdsAndServiceNames(asList("entity id 1", "entity id 2"), "name 1", "name 2");
+
+        assertEquals(2, actualServicesProvided.size());
+        assertEquals(asList(name2Entity1, name1Entity1), actualServicesProvided.get("entity id 1"));
+        assertEquals(asList(name1Entity2), actualServicesProvided.get("entity id 2"));
+    }
+
     public void testShouldReturnEmptyServicesProvidedWhenNoneExistsWithGivenEntityIdAndServiceNames() throws Exception {
         assertEquals(Collections.<ServiceProvided>emptyList(), repository.findByEntityIdAndServiceNames("entity id 1", "name 1", "name 2"));
     }
@@ -9,12 +9,13 @@ import java.util.Date;
 
 public class SettingsRepositoryTest extends AndroidTestCase {
     private SettingsRepository settingsRepository;
+    private Repository repository;
 
     @Override
     protected void setUp() throws Exception {
         settingsRepository = new SettingsRepository();
         Session session = new Session().setPassword("password").setRepositoryName("drishti.db" + new Date().getTime());
-        new Repository(new RenamingDelegatingContext(getContext(), "test_"), session, settingsRepository);
+        repository = new Repository(new RenamingDelegatingContext(getContext(), "test_"), session, settingsRepository);
     }
 
     public void testShouldGetDefaultValueIfNothingHasBeenSet() throws Exception {
@@ -46,4 +47,64 @@ public class SettingsRepositoryTest extends AndroidTestCase {
 
         assertEquals("ghi", settingsRepository.querySetting("abc", "someDefaultValue"));
     }
+
+    public void testShouldServeSettingsWrittenInAUnitOfWorkAndSaveThemWhenItCommits() throws Exception {
+        repository.inTransaction(new UnitOfWork<Void>() {
+            @Override
+            public Void run() {
+                settingsRepository.updateSetting("abc", "def");
+                settingsRepository.updateSetting("abc", "ghi");
+                assertEquals("ghi", settingsRepository.querySetting("abc", "someDefaultValue"));
+                return null;
+            }
+        });
+        repository.close();
+
+        assertEquals("ghi", settingsRepository.querySetting("abc", "someDefaultValue"));
+    }
+
+    public void testShouldDiscardSettingsWrittenInAUnitOfWorkWhichFails() throws Exception {
+        settingsRepository.updateSetting("abc", "def");
+        try {
+            repository.inTransaction(new UnitOfWork<Void>() {
+                @Override
+                public Void run() {
+                    settingsRepository.updateSetting("abc", "ghi");
+                    throw new RuntimeException("Failed in the middle of a unit of work");
+                }
+            });
+            fail("Expected the failure to be rethrown");
+        } catch (RuntimeException expected) {
+        }
+
+        assertEquals("def", settingsRepository.querySetting("abc", "someDefaultValue"));
+        repository.close();
+        assertEquals("def", settingsRepository.querySetting("abc", "someDefaultValue"));
+    }
+
+    public void testShouldKeepOnlySettingsOfNestedUnitsOfWorkWhichSucceed() throws Exception {
+        repository.inTransaction(new UnitOfWork<Void>() {
+            @Override
+            public Void run() {
+                settingsRepository.updateSetting("abc", "def");
+                try {
+                    repository.inTransaction(new UnitOfWork<Void>() {
+                        @Override
+                        public Void run() {
+                            settingsRepository.updateSetting("abc", "ghi");
+                            settingsRepository.updateSetting("xyz", "uvw");
+                            throw new RuntimeException("Nested unit of work failed");
+                        }
+                    });
+                } catch (RuntimeException ignored) {
+                }
+                assertEquals("def", settingsRepository.querySetting("abc", "someDefaultValue"));
+                return null;
+            }
+        });
+        repository.close();
+
+        assertEquals("def", settingsRepository.querySetting("abc", "someDefaultValue"));
+        assertEquals("someDefaultValue", settingsRepository.querySetting("xyz", "someDefaultValue"));
+    }
 }
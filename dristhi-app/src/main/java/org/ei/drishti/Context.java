@@ -7,17 +7,36 @@ import org.ei.drishti.service.*;
 import org.ei.drishti.service.formSubmissionHandler.*;
 import org.ei.drishti.sync.SaveANMLocationTask;
 import org.ei.drishti.util.Cache;
+import org.ei.drishti.util.CacheStore;
 import org.ei.drishti.util.Session;
+import org.ei.drishti.util.Weigher;
 import org.ei.drishti.view.contract.*;
+import org.ei.drishti.view.contract.pnc.PNCClient;
 import org.ei.drishti.view.contract.pnc.PNCClients;
 import org.ei.drishti.view.controller.ANMController;
 import org.ei.drishti.view.controller.ANMLocationController;
+import org.ei.drishti.view.controller.ANCSmartRegisterController;
+import org.ei.drishti.view.controller.ChildSmartRegisterController;
+import org.ei.drishti.view.controller.ECSmartRegisterController;
+import org.ei.drishti.view.controller.FPSmartRegisterController;
+import org.ei.drishti.view.controller.PNCSmartRegisterController;
+import org.ei.drishti.view.controller.SmartRegisterPreloader;
+
+import java.io.File;
 
 import static android.preference.PreferenceManager.getDefaultSharedPreferences;
+import static org.ei.drishti.util.CachePolicy.staleWhileRevalidate;
+import static org.ei.drishti.util.CacheTag.*;
+import static org.ei.drishti.util.Weighers.*;
 
 public class Context {
     private android.content.Context applicationContext;
     private static Context context = new Context();
+    private static final int CACHE_SHARE_OF_HEAP = 8;
+    private static final long BYTES_PER_CLIENT = 4 * 1024;
+    private static final long BYTES_PER_VILLAGE = 128;
+    private static final long BYTES_PER_TYPEFACE = 64 * 1024;
+    private static final String SNAPSHOTS_DIRECTORY = "snapshots";
 
     private Repository repository;
     private EligibleCoupleRepository eligibleCoupleRepository;
@@ -29,6 +48,8 @@ public class Context {
     private ReportRepository reportRepository;
     private FormDataRepository formDataRepository;
     private ServiceProvidedRepository serviceProvidedRepository;
+    private DataVersionRepository dataVersionRepository;
+    private SnapshotRepository snapshotRepository;
 
     private AllSettings allSettings;
     private AllSharedPreferences allSharedPreferences;
@@ -55,16 +76,24 @@ public class Context {
     private PendingFormSubmissionService pendingFormSubmissionService;
 
     private Session session;
+    private CacheStore cacheStore;
     private Cache<String> listCache;
-    private Cache<SmartRegisterClients> smartRegisterClientsCache;
+    private Cache<SmartRegisterSnapshot<SmartRegisterClients>> childClientsCache;
     private Cache<HomeContext> homeContextCache;
-    private Cache<ECClients> ecClientsCache;
+    private Cache<SmartRegisterSnapshot<ECClients>> ecClientsCache;
     private Cache<FPClients> fpClientsCache;
     private Cache<ANCClients> ancClientsCache;
     private Cache<PNCClients> pncClientsCache;
     private Cache<Villages> villagesCache;
     private Cache<Typeface> typefaceCache;
 
+    private ECSmartRegisterController ecSmartRegisterController;
+    private FPSmartRegisterController fpSmartRegisterController;
+    private ANCSmartRegisterController ancSmartRegisterController;
+    private PNCSmartRegisterController pncSmartRegisterController;
+    private ChildSmartRegisterController childSmartRegisterController;
+    private SmartRegisterPreloader smartRegisterPreloader;
+
     private HTTPAgent httpAgent;
     private ZiggyFileLoader ziggyFileLoader;
 
@@ -139,7 +168,7 @@ public class Context {
 
     public ActionService actionService() {
         if (actionService == null) {
-            actionService = new ActionService(drishtiService(), allSettings(), allSharedPreferences(), allReports());
+            actionService = new ActionService(drishtiService(), allSettings(), allSharedPreferences(), allReports(), initRepository());
         }
         return actionService;
     }
@@ -147,7 +176,7 @@ public class Context {
     public FormSubmissionService formSubmissionService() {
         initRepository();
         if (formSubmissionService == null) {
-            formSubmissionService = new FormSubmissionService(ziggyService(), formDataRepository(), allSettings());
+            formSubmissionService = new FormSubmissionService(ziggyService(), formDataRepository(), allSettings(), initRepository());
         }
         return formSubmissionService;
     }
@@ -155,7 +184,7 @@ public class Context {
     public FormSubmissionRouter formSubmissionRouter() {
         initRepository();
         if (formSubmissionRouter == null) {
-            formSubmissionRouter = new FormSubmissionRouter(formDataRepository(), ecRegistrationHandler(),
+            formSubmissionRouter = new FormSubmissionRouter(formDataRepository(), initRepository(), ecRegistrationHandler(),
                     fpComplicationsHandler(), fpChangeHandler(), renewFPProductHandler(), ecCloseHandler(),
                     ancRegistrationHandler(), ancRegistrationOAHandler(), ancVisitHandler(), ancCloseHandler(),
                     ttHandler(), ifaHandler(), hbTestHandler(), deliveryOutcomeHandler(), pncRegistrationOAHandler(),
@@ -374,7 +403,7 @@ public class Context {
         if (repository == null) {
             repository = new Repository(this.applicationContext, session(), settingsRepository(), alertRepository(),
                     eligibleCoupleRepository(), childRepository(), timelineEventRepository(), motherRepository(), reportRepository(),
-                    formDataRepository(), serviceProvidedRepository());
+                    formDataRepository(), serviceProvidedRepository(), dataVersionRepository());
         }
         return repository;
     }
@@ -505,17 +534,33 @@ public class Context {
         return serviceProvidedRepository;
     }
 
+    private DataVersionRepository dataVersionRepository() {
+        if (dataVersionRepository == null) {
+            dataVersionRepository = new DataVersionRepository();
+        }
+        return dataVersionRepository;
+    }
+
+    private SnapshotRepository snapshotRepository() {
+        initRepository();
+        if (snapshotRepository == null) {
+            snapshotRepository = new SnapshotRepository(new File(applicationContext().getFilesDir(), SNAPSHOTS_DIRECTORY),
+                    session(), dataVersionRepository());
+        }
+        return snapshotRepository;
+    }
+
     public UserService userService() {
         if (userService == null) {
             Repository repo = initRepository();
-            userService = new UserService(repo, allSettings(), allSharedPreferences(), httpAgent(), session(), configuration(), saveANMLocationTask());
+            userService = new UserService(repo, snapshotRepository(), allSettings(), allSharedPreferences(), httpAgent(), session(), configuration(), saveANMLocationTask());
         }
         return userService;
     }
 
     private SaveANMLocationTask saveANMLocationTask() {
         if (saveANMLocationTask == null) {
-            saveANMLocationTask = new SaveANMLocationTask(allSettings());
+            saveANMLocationTask = new SaveANMLocationTask(allSettings(), cacheStore());
         }
         return saveANMLocationTask;
     }
@@ -550,7 +595,8 @@ public class Context {
 
     public ChildService childService() {
         if (childService == null) {
-            childService = new ChildService(allBeneficiaries(), motherRepository(), childRepository(), allTimelineEvents(), serviceProvidedService(), allAlerts());
+            childService = new ChildService(allBeneficiaries(), motherRepository(), childRepository(), allTimelineEvents(), serviceProvidedService(), allAlerts(),
+                    formDataRepository());
         }
         return childService;
     }
@@ -571,21 +617,25 @@ public class Context {
 
     public Cache<String> listCache() {
         if (listCache == null) {
-            listCache = new Cache<String>();
+            listCache = new Cache<String>(cacheStore(), "list", strings(), ec, mother, child, alert, report);
         }
         return listCache;
     }
 
-    public Cache<SmartRegisterClients> smartRegisterClientsCache() {
-        if (smartRegisterClientsCache == null) {
-            smartRegisterClientsCache = new Cache<SmartRegisterClients>();
+    public Cache<SmartRegisterSnapshot<SmartRegisterClients>> childClientsCache() {
+        if (childClientsCache == null) {
+            childClientsCache = new Cache<SmartRegisterSnapshot<SmartRegisterClients>>(cacheStore(), "childClients", snapshots(),
+                    snapshotRepository().persistence("childClients", new SmartRegisterSnapshotCodec<SmartRegisterClients>(
+                            SmartRegisterClients.class, ChildClient.class, ChildSmartRegisterController.BY_MOTHER_NAME)),
+                    staleWhileRevalidate, ec, mother, child, alert);
         }
-        return smartRegisterClientsCache;
+        return childClientsCache;
     }
 
     public Cache<HomeContext> homeContextCache() {
         if (homeContextCache == null) {
-            homeContextCache = new Cache<HomeContext>();
+            homeContextCache = new Cache<HomeContext>(cacheStore(), "homeContext", fixed(BYTES_PER_CLIENT),
+                    ec, mother, child, alert, report);
         }
         return homeContextCache;
     }
@@ -622,54 +672,121 @@ public class Context {
         return anmLocationController;
     }
 
-    //#TODO: Refactor to use one cache object
-    public Cache<ECClients> ecClientsCache() {
+    public ECSmartRegisterController ecSmartRegisterController() {
+        if (ecSmartRegisterController == null) {
+            ecSmartRegisterController = new ECSmartRegisterController(allEligibleCouples(), allBeneficiaries(), ecClientsCache());
+        }
+        return ecSmartRegisterController;
+    }
+
+    public FPSmartRegisterController fpSmartRegisterController() {
+        if (fpSmartRegisterController == null) {
+            fpSmartRegisterController = new FPSmartRegisterController(allEligibleCouples(), allBeneficiaries(), alertService(),
+                    listCache(), fpClientsCache());
+        }
+        return fpSmartRegisterController;
+    }
+
+    public ANCSmartRegisterController ancSmartRegisterController() {
+        if (ancSmartRegisterController == null) {
+            ancSmartRegisterController = new ANCSmartRegisterController(serviceProvidedService(), alertService(), allBeneficiaries(),
+                    listCache(), ancClientsCache());
+        }
+        return ancSmartRegisterController;
+    }
+
+    public PNCSmartRegisterController pncSmartRegisterController() {
+        if (pncSmartRegisterController == null) {
+            pncSmartRegisterController = new PNCSmartRegisterController(serviceProvidedService(), alertService(), allEligibleCouples(),
+                    allBeneficiaries(), listCache(), pncClientsCache());
+        }
+        return pncSmartRegisterController;
+    }
+
+    public ChildSmartRegisterController childSmartRegisterController() {
+        if (childSmartRegisterController == null) {
+            childSmartRegisterController = new ChildSmartRegisterController(serviceProvidedService(), alertService(), allBeneficiaries(),
+                    childClientsCache());
+        }
+        return childSmartRegisterController;
+    }
+
+    public SmartRegisterPreloader smartRegisterPreloader() {
+        if (smartRegisterPreloader == null) {
+            smartRegisterPreloader = new SmartRegisterPreloader(anmController(), ecSmartRegisterController(),
+                    fpSmartRegisterController(), ancSmartRegisterController(), pncSmartRegisterController(),
+                    childSmartRegisterController());
+        }
+        return smartRegisterPreloader;
+    }
+
+    public CacheStore cacheStore() {
+        if (cacheStore == null) {
+            cacheStore = new CacheStore(Runtime.getRuntime().maxMemory() / CACHE_SHARE_OF_HEAP);
+        }
+        return cacheStore;
+    }
+
+    public Cache<SmartRegisterSnapshot<ECClients>> ecClientsCache() {
         if (ecClientsCache == null) {
-            ecClientsCache = new Cache<ECClients>();
+            ecClientsCache = new Cache<SmartRegisterSnapshot<ECClients>>(cacheStore(), "ecClients", snapshots(),
+                    snapshotRepository().persistence("ecClients", new SmartRegisterSnapshotCodec<ECClients>(
+                            ECClients.class, ECClient.class, ECSmartRegisterController.BY_WIFE_NAME)),
+                    staleWhileRevalidate, ec, mother, child);
         }
         return ecClientsCache;
-
     }
 
-    //#TODO: Refactor to use one cache object
     public Cache<FPClients> fpClientsCache() {
         if (fpClientsCache == null) {
-            fpClientsCache = new Cache<FPClients>();
+            fpClientsCache = new Cache<FPClients>(cacheStore(), "fpClients", perElement(BYTES_PER_CLIENT),
+                    snapshotRepository().persistence("fpClients", new SmartRegisterClientsCodec<FPClients>(FPClients.class, FPClient.class)),
+                    staleWhileRevalidate, ec, mother, alert);
         }
         return fpClientsCache;
-
     }
 
-    //#TODO: Refactor to use one cache object
-
     public Cache<ANCClients> ancClientsCache() {
         if (ancClientsCache == null) {
-            ancClientsCache = new Cache<ANCClients>();
+            ancClientsCache = new Cache<ANCClients>(cacheStore(), "ancClients", perElement(BYTES_PER_CLIENT),
+                    snapshotRepository().persistence("ancClients", new SmartRegisterClientsCodec<ANCClients>(ANCClients.class, ANCClient.class)),
+                    staleWhileRevalidate, ec, mother, alert);
         }
         return ancClientsCache;
     }
 
     public Cache<PNCClients> pncClientsCache() {
         if (pncClientsCache == null) {
-            pncClientsCache = new Cache<PNCClients>();
+            pncClientsCache = new Cache<PNCClients>(cacheStore(), "pncClients", perElement(BYTES_PER_CLIENT),
+                    snapshotRepository().persistence("pncClients", new SmartRegisterClientsCodec<PNCClients>(PNCClients.class, PNCClient.class)),
+                    staleWhileRevalidate, ec, mother, child, alert);
         }
         return pncClientsCache;
     }
 
     public Cache<Villages> villagesCache() {
         if (villagesCache == null) {
-            villagesCache = new Cache<Villages>();
+            villagesCache = new Cache<Villages>(cacheStore(), "villages", perElement(BYTES_PER_VILLAGE), ec);
         }
         return villagesCache;
     }
 
     public Cache<Typeface> typefaceCache() {
         if (typefaceCache == null) {
-            typefaceCache = new Cache<Typeface>();
+            typefaceCache = new Cache<Typeface>(cacheStore(), "typeface", fixed(BYTES_PER_TYPEFACE));
         }
         return typefaceCache;
     }
 
+    private Weigher<SmartRegisterSnapshot<?>> snapshots() {
+        return new Weigher<SmartRegisterSnapshot<?>>() {
+            @Override
+            public long weigh(SmartRegisterSnapshot<?> snapshot) {
+                return BYTES_PER_CLIENT * snapshot.clients().size();
+            }
+        };
+    }
+
     public String getStringResource(int id) {
         return applicationContext().getResources().getString(id);
     }
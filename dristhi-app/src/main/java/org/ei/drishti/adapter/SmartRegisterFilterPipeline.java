@@ -0,0 +1,130 @@
+package org.ei.drishti.adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import org.ei.drishti.view.contract.SmartRegisterClients;
+import org.ei.drishti.view.dialog.FilterOption;
+import org.ei.drishti.view.dialog.ServiceModeOption;
+import org.ei.drishti.view.dialog.SortOption;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+
+public class SmartRegisterFilterPipeline {
+    private static final long TYPING_DEBOUNCE_DELAY_MILLIS = 300;
+    private static final ExecutorService FILTER_EXECUTOR = newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "SmartRegisterFilterPipeline");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final SmartRegisterPaginatedAdapter adapter;
+    private final ExecutorService executor;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger latestRequest = new AtomicInteger();
+    private Runnable pendingRequest;
+    private Future<?> runningRequest;
+
+    public SmartRegisterFilterPipeline(SmartRegisterPaginatedAdapter adapter) {
+        this(adapter, FILTER_EXECUTOR);
+    }
+
+    public SmartRegisterFilterPipeline(SmartRegisterPaginatedAdapter adapter, ExecutorService executor) {
+        this.adapter = adapter;
+        this.executor = executor;
+    }
+
+    public void refreshListAfterTyping(FilterOption villageFilter, ServiceModeOption serviceModeOption,
+                                       FilterOption searchFilter, SortOption sortOption) {
+        refreshList(villageFilter, serviceModeOption, searchFilter, sortOption, TYPING_DEBOUNCE_DELAY_MILLIS);
+    }
+
+    public void refreshList(FilterOption villageFilter, ServiceModeOption serviceModeOption,
+                            FilterOption searchFilter, SortOption sortOption) {
+        refreshList(villageFilter, serviceModeOption, searchFilter, sortOption, 0);
+    }
+
+    public void refreshListKeepingPage(FilterOption villageFilter, ServiceModeOption serviceModeOption,
+                                       FilterOption searchFilter, SortOption sortOption) {
+        refreshList(villageFilter, serviceModeOption, searchFilter, sortOption, 0, true);
+    }
+
+    public void cancel() {
+        latestRequest.incrementAndGet();
+        cancelSupersededRequest();
+    }
+
+    private void refreshList(FilterOption villageFilter, ServiceModeOption serviceModeOption,
+                             FilterOption searchFilter, SortOption sortOption, long delayMillis) {
+        refreshList(villageFilter, serviceModeOption, searchFilter, sortOption, delayMillis, false);
+    }
+
+    private void refreshList(final FilterOption villageFilter, final ServiceModeOption serviceModeOption,
+                             final FilterOption searchFilter, final SortOption sortOption, long delayMillis,
+                             final boolean keepCurrentPage) {
+        final int request = latestRequest.incrementAndGet();
+        cancelSupersededRequest();
+        pendingRequest = new Runnable() {
+            @Override
+            public void run() {
+                pendingRequest = null;
+                runningRequest = executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isSuperseded(request)) {
+                            return;
+                        }
+                        if (adapter.canPage(villageFilter, searchFilter, sortOption)) {
+                            showPages(request, serviceModeOption, keepCurrentPage);
+                            return;
+                        }
+                        final SmartRegisterClients filteredClients =
+                                adapter.filterClients(villageFilter, serviceModeOption, searchFilter, sortOption);
+                        uiHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (!isSuperseded(request)) {
+                                    adapter.showClients(filteredClients, serviceModeOption, keepCurrentPage);
+                                }
+                            }
+                        });
+                    }
+                });
+            }
+        };
+        uiHandler.postDelayed(pendingRequest, delayMillis);
+    }
+
+    private void showPages(final int request, final ServiceModeOption serviceModeOption, final boolean keepCurrentPage) {
+        uiHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!isSuperseded(request)) {
+                    adapter.showPages(serviceModeOption, keepCurrentPage);
+                }
+            }
+        });
+    }
+
+    private boolean isSuperseded(int request) {
+        return request != latestRequest.get();
+    }
+
+    private void cancelSupersededRequest() {
+        if (pendingRequest != null) {
+            uiHandler.removeCallbacks(pendingRequest);
+            pendingRequest = null;
+        }
+        if (runningRequest != null) {
+            runningRequest.cancel(false);
+            runningRequest = null;
+        }
+    }
+}
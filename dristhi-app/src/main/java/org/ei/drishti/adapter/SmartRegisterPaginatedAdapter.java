@@ -1,46 +1,194 @@
 package org.ei.drishti.adapter;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
+import org.ei.drishti.provider.SmartRegisterClientsPager;
 import org.ei.drishti.provider.SmartRegisterClientsProvider;
 import org.ei.drishti.view.contract.SmartRegisterClient;
 import org.ei.drishti.view.contract.SmartRegisterClients;
+import org.ei.drishti.view.dialog.AllClientsFilter;
 import org.ei.drishti.view.dialog.FilterOption;
+import org.ei.drishti.view.dialog.NameSort;
+import org.ei.drishti.view.dialog.SearchFilterOption;
 import org.ei.drishti.view.dialog.ServiceModeOption;
 import org.ei.drishti.view.dialog.SortOption;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
 public class SmartRegisterPaginatedAdapter extends BaseAdapter {
     private static final int CLIENTS_PER_PAGE = 20;
+    private static final int PREFETCH_PAGES = 1;
+    private static final ExecutorService PAGE_EXECUTOR = newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "SmartRegisterPaginatedAdapter");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
 
     private int clientCount;
     private int pageCount;
     private int currentPage = 0;
     private SmartRegisterClients filteredClients;
 
+    private boolean pagedMode;
+    private int pagingRequest;
+    private final Map<Integer, SmartRegisterClients> loadedPages = new HashMap<Integer, SmartRegisterClients>();
+    private final Set<Integer> pagesBeingLoaded = new HashSet<Integer>();
+
     private final int clientsPerPage;
     private final SmartRegisterClientsProvider listItemProvider;
+    private final SmartRegisterClientsPager pager;
+    private final ExecutorService pageExecutor;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private final PageLoader pageLoader = new PageLoader();
 
     public SmartRegisterPaginatedAdapter(SmartRegisterClientsProvider listItemProvider) {
         this(CLIENTS_PER_PAGE, listItemProvider);
     }
 
+    public SmartRegisterPaginatedAdapter(SmartRegisterClientsProvider listItemProvider, SmartRegisterClientsPager pager) {
+        this(CLIENTS_PER_PAGE, listItemProvider, pager);
+    }
+
     public SmartRegisterPaginatedAdapter(
             int clientsPerPage, SmartRegisterClientsProvider listItemProvider) {
+        this(clientsPerPage, listItemProvider, null);
+    }
+
+    public SmartRegisterPaginatedAdapter(
+            int clientsPerPage, SmartRegisterClientsProvider listItemProvider, SmartRegisterClientsPager pager) {
+        this(clientsPerPage, listItemProvider, pager, PAGE_EXECUTOR);
+    }
+
+    public SmartRegisterPaginatedAdapter(int clientsPerPage, SmartRegisterClientsProvider listItemProvider,
+                                         SmartRegisterClientsPager pager, ExecutorService pageExecutor) {
         this.clientsPerPage = clientsPerPage;
         this.listItemProvider = listItemProvider;
-        refreshClients(listItemProvider.getClients());
+        this.pager = pager;
+        this.pageExecutor = pageExecutor;
+        if (pager == null) {
+            refreshClients(listItemProvider.getClients());
+        } else {
+            startPaging(false);
+        }
     }
 
     private void refreshClients(SmartRegisterClients filteredClients) {
+        refreshClients(filteredClients, false);
+    }
+
+    private void refreshClients(SmartRegisterClients filteredClients, boolean keepCurrentPage) {
+        pagedMode = false;
+        pagingRequest++;
+        loadedPages.clear();
+        pagesBeingLoaded.clear();
         this.filteredClients = filteredClients;
         clientCount = filteredClients.size();
         pageCount = (int) Math.ceil((double) clientCount / (double) clientsPerPage);
-        currentPage = 0;
+        currentPage = keepCurrentPage ? Math.max(0, Math.min(currentPage, pageCount - 1)) : 0;
+    }
+
+    // The pager queries the database, so counting and loading pages happen on the page executor and their results
+    // are shown on the UI thread. Results of a request superseded by a later refresh are dropped.
+    private void startPaging(final boolean keepCurrentPage) {
+        pagedMode = true;
+        final int request = ++pagingRequest;
+        loadedPages.clear();
+        pagesBeingLoaded.clear();
+        filteredClients = null;
+        pageExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final int count = pageLoader.clientCount(request);
+                uiHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        showClientCount(request, count, keepCurrentPage);
+                    }
+                });
+            }
+        });
+    }
+
+    private void showClientCount(int request, int count, boolean keepCurrentPage) {
+        if (request != pagingRequest) {
+            return;
+        }
+        clientCount = count;
+        pageCount = (int) Math.ceil((double) clientCount / (double) clientsPerPage);
+        currentPage = keepCurrentPage ? Math.max(0, Math.min(currentPage, pageCount - 1)) : 0;
+        loadPagesAroundCurrentPage();
+        notifyDataSetChanged();
+    }
+
+    private void loadPagesAroundCurrentPage() {
+        for (Integer page : new ArrayList<Integer>(loadedPages.keySet())) {
+            if (!isAroundCurrentPage(page)) {
+                loadedPages.remove(page);
+            }
+        }
+        final List<Integer> pages = new ArrayList<Integer>();
+        for (int page = currentPage; page <= currentPage + PREFETCH_PAGES && page < pageCount; page++) {
+            if (!loadedPages.containsKey(page) && pagesBeingLoaded.add(page)) {
+                pages.add(page);
+            }
+        }
+        if (pages.isEmpty()) {
+            return;
+        }
+        final int request = pagingRequest;
+        pageExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                for (final Integer page : pages) {
+                    final SmartRegisterClients clients = pageLoader.page(request, page);
+                    uiHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            showPage(request, page, clients);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void showPage(int request, int page, SmartRegisterClients clients) {
+        if (request != pagingRequest) {
+            return;
+        }
+        pagesBeingLoaded.remove(page);
+        if (isAroundCurrentPage(page)) {
+            loadedPages.put(page, clients);
+            notifyDataSetChanged();
+        }
+    }
+
+    private boolean isAroundCurrentPage(int page) {
+        return page >= currentPage - PREFETCH_PAGES && page <= currentPage + PREFETCH_PAGES;
     }
 
     @Override
     public int getCount() {
+        if (pagedMode) {
+            SmartRegisterClients clients = loadedPages.get(currentPage);
+            return clients == null ? 0 : clients.size();
+        }
         if (clientCount <= clientsPerPage) {
             return clientCount;
         } else if (currentPage == pageCount() - 1) {
@@ -51,6 +199,10 @@ public class SmartRegisterPaginatedAdapter extends BaseAdapter {
 
     @Override
     public Object getItem(int i) {
+        if (pagedMode) {
+            SmartRegisterClients clients = loadedPages.get(i / clientsPerPage);
+            return clients == null ? null : clients.get(i % clientsPerPage);
+        }
         return filteredClients.get(i);
     }
 
@@ -83,12 +235,20 @@ public class SmartRegisterPaginatedAdapter extends BaseAdapter {
     public void nextPage() {
         if (hasNextPage()) {
             currentPage++;
+            loadPagesIfPaged();
         }
     }
 
     public void previousPage() {
         if (hasPreviousPage()) {
             currentPage--;
+            loadPagesIfPaged();
+        }
+    }
+
+    private void loadPagesIfPaged() {
+        if (pagedMode) {
+            loadPagesAroundCurrentPage();
         }
     }
 
@@ -102,9 +262,91 @@ public class SmartRegisterPaginatedAdapter extends BaseAdapter {
 
     public void refreshList(FilterOption villageFilter, ServiceModeOption serviceModeOption,
                             FilterOption searchFilter, SortOption sortOption) {
-        SmartRegisterClients filteredClients = listItemProvider
-                .updateClients(villageFilter, serviceModeOption, searchFilter, sortOption);
-        refreshClients(filteredClients);
+        if (canPage(villageFilter, searchFilter, sortOption)) {
+            showPages(serviceModeOption, false);
+        } else {
+            showClients(filterClients(villageFilter, serviceModeOption, searchFilter, sortOption), serviceModeOption);
+        }
+    }
+
+    public boolean canPage(FilterOption villageFilter, FilterOption searchFilter, SortOption sortOption) {
+        return pager != null
+                && villageFilter instanceof AllClientsFilter
+                && searchFilter instanceof SearchFilterOption && isBlank(((SearchFilterOption) searchFilter).criteria())
+                && sortOption instanceof NameSort;
+    }
+
+    public SmartRegisterClients filterClients(FilterOption villageFilter, ServiceModeOption serviceModeOption,
+                                              FilterOption searchFilter, SortOption sortOption) {
+        return listItemProvider.updateClients(villageFilter, serviceModeOption, searchFilter, sortOption);
+    }
+
+    public void showClients(SmartRegisterClients filteredClients, ServiceModeOption serviceModeOption) {
+        showClients(filteredClients, serviceModeOption, false);
+    }
+
+    public void showClients(SmartRegisterClients filteredClients, ServiceModeOption serviceModeOption,
+                            boolean keepCurrentPage) {
+        if (serviceModeOption != null) {
+            serviceModeOption.apply();
+        }
+        refreshClients(filteredClients, keepCurrentPage);
         notifyDataSetChanged();
     }
+
+    public void showPages(ServiceModeOption serviceModeOption, boolean keepCurrentPage) {
+        if (serviceModeOption != null) {
+            serviceModeOption.apply();
+        }
+        startPaging(keepCurrentPage);
+        notifyDataSetChanged();
+    }
+
+    public void showClients(SmartRegisterClients filteredClients) {
+        showClients(filteredClients, null);
+    }
+
+    // Only used on the page executor, which runs one task at a time. A page is read after the last client of the page
+    // before it, so reaching a page loads the pages before it that are not known yet.
+    private class PageLoader {
+        private int request;
+        private final List<SmartRegisterClient> lastClientOfPages = new ArrayList<SmartRegisterClient>();
+
+        public int clientCount(int request) {
+            startRequest(request);
+            return pager.clientCount();
+        }
+
+        public SmartRegisterClients page(int request, int page) {
+            startRequest(request);
+            return page(page);
+        }
+
+        private void startRequest(int request) {
+            if (this.request != request) {
+                this.request = request;
+                lastClientOfPages.clear();
+            }
+        }
+
+        private SmartRegisterClients page(int page) {
+            if (page > lastClientOfPages.size()) {
+                page(page - 1);
+            }
+            if (page > lastClientOfPages.size()) {
+                return new SmartRegisterClients();
+            }
+            SmartRegisterClient lastClientOfPreviousPage = page == 0 ? null : lastClientOfPages.get(page - 1);
+            SmartRegisterClients clients = pager.clientsAfter(lastClientOfPreviousPage, clientsPerPage);
+            if (!clients.isEmpty()) {
+                SmartRegisterClient lastClient = clients.get(clients.size() - 1);
+                if (page < lastClientOfPages.size()) {
+                    lastClientOfPages.set(page, lastClient);
+                } else {
+                    lastClientOfPages.add(lastClient);
+                }
+            }
+            return clients;
+        }
+    }
 }
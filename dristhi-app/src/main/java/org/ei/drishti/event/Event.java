@@ -4,8 +4,8 @@ import org.apache.commons.lang3.ObjectUtils;
 import org.ei.drishti.domain.FetchStatus;
 
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Event<CallbackType> {
     public static final Event<FetchStatus> ON_DATA_FETCHED = new Event<FetchStatus>();
@@ -15,11 +15,15 @@ public class Event<CallbackType> {
     public static final Event<Boolean> SYNC_COMPLETED = new Event<Boolean>();
     public static final Event<String> FORM_SUBMITTED = new Event<String>();
     public static final Event<String> ACTION_HANDLED = new Event<String>();
+    public static final Event<String> ENTITY_CHANGED = new Event<String>();
+    public static final Event<String> CACHE_REVALIDATED = new Event<String>();
 
+    // Listeners are added and removed on the UI thread while events such as CACHE_REVALIDATED are notified from
+    // background threads, so notifying iterates over a snapshot of the listeners.
     List<WeakReference<Listener<CallbackType>>> listeners;
 
     public Event() {
-        listeners = new ArrayList<WeakReference<Listener<CallbackType>>>();
+        listeners = new CopyOnWriteArrayList<WeakReference<Listener<CallbackType>>>();
     }
 
     public void addListener(Listener<CallbackType> listener) {
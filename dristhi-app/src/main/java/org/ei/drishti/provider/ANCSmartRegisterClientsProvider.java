@@ -21,7 +21,7 @@ import org.ei.drishti.view.viewHolder.ProfilePhotoLoader;
 
 import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
 
-public class ANCSmartRegisterClientsProvider implements SmartRegisterClientsProvider {
+public class ANCSmartRegisterClientsProvider implements SmartRegisterClientsProvider, SmartRegisterClientsPager {
 
     private final LayoutInflater inflater;
     private final SecuredActivity activity;
@@ -94,6 +94,16 @@ public class ANCSmartRegisterClientsProvider implements SmartRegisterClientsProv
         return controller.getClients();
     }
 
+    @Override
+    public int clientCount() {
+        return controller.clientCount();
+    }
+
+    @Override
+    public SmartRegisterClients clientsAfter(SmartRegisterClient lastClient, int numberOfClients) {
+        return controller.getClientsAfter(lastClient, numberOfClients);
+    }
+
     @Override
     public SmartRegisterClients updateClients(FilterOption villageFilter, ServiceModeOption serviceModeOption,
                                               FilterOption searchFilter, SortOption sortOption) {
@@ -21,7 +21,7 @@ import org.ei.drishti.view.viewHolder.ProfilePhotoLoader;
 
 import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
 
-public class ECSmartRegisterClientsProvider implements SmartRegisterClientsProvider {
+public class ECSmartRegisterClientsProvider implements SmartRegisterClientsProvider, SmartRegisterClientsPager {
 
     private final LayoutInflater inflater;
     private final Context context;
@@ -121,6 +121,16 @@ public class ECSmartRegisterClientsProvider implements SmartRegisterClientsProvi
         return controller.getClients();
     }
 
+    @Override
+    public int clientCount() {
+        return controller.clientCount();
+    }
+
+    @Override
+    public SmartRegisterClients clientsAfter(SmartRegisterClient lastClient, int numberOfClients) {
+        return controller.getClientsAfter(lastClient, numberOfClients);
+    }
+
     @Override
     public SmartRegisterClients updateClients(FilterOption villageFilter, ServiceModeOption serviceModeOption,
                                               FilterOption searchFilter, SortOption sortOption) {
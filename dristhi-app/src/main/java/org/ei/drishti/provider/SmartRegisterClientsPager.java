@@ -0,0 +1,11 @@
+package org.ei.drishti.provider;
+
+import org.ei.drishti.view.contract.SmartRegisterClient;
+import org.ei.drishti.view.contract.SmartRegisterClients;
+
+public interface SmartRegisterClientsPager {
+
+    public int clientCount();
+
+    public SmartRegisterClients clientsAfter(SmartRegisterClient lastClient, int numberOfClients);
+}
@@ -1,22 +1,27 @@
 package org.ei.drishti.repository;
 
-import android.content.ContentValues;
 import android.database.Cursor;
 import net.sqlcipher.database.SQLiteDatabase;
 import org.ei.drishti.domain.Alert;
 import org.joda.time.LocalDate;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import static com.google.common.collect.Lists.partition;
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
 import static org.apache.commons.lang3.ArrayUtils.addAll;
+import static org.apache.commons.lang3.StringUtils.join;
 import static org.apache.commons.lang3.StringUtils.repeat;
 import static org.ei.drishti.dto.AlertStatus.*;
 
 public class AlertRepository extends DrishtiRepository {
     private static final String ALERTS_SQL = "CREATE TABLE alerts(caseID VARCHAR, scheduleName VARCHAR, visitCode VARCHAR, status VARCHAR, startDate VARCHAR, expiryDate VARCHAR, completionDate VARCHAR)";
-    private static final String ALERTS_TABLE_NAME = "alerts";
+    private static final String ALERTS_CASEID_VISIT_CODE_INDEX_SQL = "CREATE INDEX IF NOT EXISTS alerts_caseID_visitCode_index ON alerts(caseID, visitCode);";
+    public static final String ALERTS_TABLE_NAME = "alerts";
     public static final String ALERTS_CASEID_COLUMN = "caseID";
     public static final String ALERTS_SCHEDULE_NAME_COLUMN = "scheduleName";
     public static final String ALERTS_VISIT_CODE_COLUMN = "visitCode";
@@ -34,12 +39,27 @@ public class AlertRepository extends DrishtiRepository {
             ALERTS_COMPLETIONDATE_COLUMN
     };
     public static final String CASE_AND_VISIT_CODE_COLUMN_SELECTIONS = ALERTS_CASEID_COLUMN + " = ? AND " + ALERTS_VISIT_CODE_COLUMN + " = ?";
+    private static final String CASE_AND_SCHEDULE_NAME_COLUMN_SELECTIONS = ALERTS_CASEID_COLUMN + " = ? AND " + ALERTS_SCHEDULE_NAME_COLUMN + " = ?";
+    private static final String ALERT_EXISTS_SQL = "SELECT COUNT(1) FROM " + ALERTS_TABLE_NAME + " WHERE " + CASE_AND_SCHEDULE_NAME_COLUMN_SELECTIONS;
+    private static final String INSERT_ALERT_SQL = "INSERT INTO " + ALERTS_TABLE_NAME + "(" + join(ALERTS_TABLE_COLUMNS, ", ") + ") VALUES (" +
+            repeat("?", ", ", ALERTS_TABLE_COLUMNS.length) + ")";
+    private static final String UPDATE_ALERT_SQL = "UPDATE " + ALERTS_TABLE_NAME + " SET " + join(ALERTS_TABLE_COLUMNS, " = ?, ") + " = ? WHERE " +
+            CASE_AND_SCHEDULE_NAME_COLUMN_SELECTIONS;
+    private static final String CLOSE_ALERT_SQL = "UPDATE " + ALERTS_TABLE_NAME + " SET " + ALERTS_STATUS_COLUMN + " = ?, " +
+            ALERTS_COMPLETIONDATE_COLUMN + " = ? WHERE " + CASE_AND_VISIT_CODE_COLUMN_SELECTIONS;
+    private static final String UPDATE_ALERT_STATUS_SQL = "UPDATE " + ALERTS_TABLE_NAME + " SET " + ALERTS_STATUS_COLUMN + " = ? WHERE " +
+            CASE_AND_VISIT_CODE_COLUMN_SELECTIONS;
 
     @Override
     protected void onCreate(SQLiteDatabase database) {
         database.execSQL(ALERTS_SQL);
     }
 
+    @Override
+    protected List<Migration> migrations() {
+        return asList(new Migration(2, ALERTS_CASEID_VISIT_CODE_INDEX_SQL));
+    }
+
     public List<Alert> allAlerts() {
         SQLiteDatabase database = masterRepository.getReadableDatabase();
         Cursor cursor = database.query(ALERTS_TABLE_NAME, ALERTS_TABLE_COLUMNS, null, null, null, null, null, null);
@@ -53,29 +73,16 @@ public class AlertRepository extends DrishtiRepository {
     }
 
     public void createAlert(Alert alert) {
-        SQLiteDatabase database = masterRepository.getWritableDatabase();
-        String[] caseAndScheduleNameColumnValues = {alert.caseId(), alert.scheduleName()};
-
-        String caseAndScheduleNameColumnSelections = ALERTS_CASEID_COLUMN + " = ? AND " + ALERTS_SCHEDULE_NAME_COLUMN + " = ?";
-        Cursor cursor = database.query(ALERTS_TABLE_NAME, ALERTS_TABLE_COLUMNS, caseAndScheduleNameColumnSelections, caseAndScheduleNameColumnValues, null, null, null, null);
-        List<Alert> existingAlerts = readAllAlerts(cursor);
-
-        ContentValues values = createValuesFor(alert);
-        if (existingAlerts.isEmpty()) {
-            database.insert(ALERTS_TABLE_NAME, null, values);
+        Object[] values = valuesFor(alert);
+        if (longForStatement(ALERT_EXISTS_SQL, alert.caseId(), alert.scheduleName()) == 0) {
+            executeInsert(INSERT_ALERT_SQL, values);
         } else {
-            database.update(ALERTS_TABLE_NAME, values, caseAndScheduleNameColumnSelections, caseAndScheduleNameColumnValues);
+            execute(UPDATE_ALERT_SQL, addAll(values, alert.caseId(), alert.scheduleName()));
         }
     }
 
     public void markAlertAsClosed(String caseId, String visitCode, String completionDate) {
-        SQLiteDatabase database = masterRepository.getWritableDatabase();
-        String[] caseAndVisitCodeColumnValues = {caseId, visitCode};
-
-        ContentValues valuesToBeUpdated = new ContentValues();
-        valuesToBeUpdated.put(ALERTS_STATUS_COLUMN, complete.value());
-        valuesToBeUpdated.put(ALERTS_COMPLETIONDATE_COLUMN, completionDate);
-        database.update(ALERTS_TABLE_NAME, valuesToBeUpdated, CASE_AND_VISIT_CODE_COLUMN_SELECTIONS, caseAndVisitCodeColumnValues);
+        execute(CLOSE_ALERT_SQL, complete.value(), completionDate, caseId, visitCode);
     }
 
     public void deleteAllAlertsForEntity(String caseId) {
@@ -117,16 +124,9 @@ public class AlertRepository extends DrishtiRepository {
         return activeAlerts;
     }
 
-    private ContentValues createValuesFor(Alert alert) {
-        ContentValues values = new ContentValues();
-        values.put(ALERTS_CASEID_COLUMN, alert.caseId());
-        values.put(ALERTS_SCHEDULE_NAME_COLUMN, alert.scheduleName());
-        values.put(ALERTS_VISIT_CODE_COLUMN, alert.visitCode());
-        values.put(ALERTS_STATUS_COLUMN, alert.status().value());
-        values.put(ALERTS_STARTDATE_COLUMN, alert.startDate());
-        values.put(ALERTS_EXPIRYDATE_COLUMN, alert.expiryDate());
-        values.put(ALERTS_COMPLETIONDATE_COLUMN, alert.completionDate());
-        return values;
+    private Object[] valuesFor(Alert alert) {
+        return new Object[]{alert.caseId(), alert.scheduleName(), alert.visitCode(), alert.status().value(), alert.startDate(),
+                alert.expiryDate(), alert.completionDate()};
     }
 
     public List<Alert> findByEntityIdAndAlertNames(String entityId, String... names) {
@@ -137,16 +137,31 @@ public class AlertRepository extends DrishtiRepository {
         return readAllAlerts(cursor);
     }
 
+    public Map<String, List<Alert>> findByEntityIdsAndAlertNames(List<String> entityIds, String... names) {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        Map<String, List<Alert>> alertsByEntityId = new HashMap<String, List<Alert>>();
+        for (List<String> entityIdsInChunk : partition(entityIds, MAX_BIND_ARGUMENTS - names.length)) {
+            Cursor cursor = database.rawQuery(format("SELECT * FROM %s WHERE %s IN (%s) AND %s IN (%s) ORDER BY DATE(%s)",
+                    ALERTS_TABLE_NAME, ALERTS_CASEID_COLUMN, insertPlaceholdersForInClause(entityIdsInChunk.size()), ALERTS_VISIT_CODE_COLUMN,
+                    insertPlaceholdersForInClause(names.length), ALERTS_STARTDATE_COLUMN),
+                    addAll(entityIdsInChunk.toArray(new String[entityIdsInChunk.size()]), names));
+            for (Alert alert : readAllAlerts(cursor)) {
+                List<Alert> alerts = alertsByEntityId.get(alert.caseId());
+                if (alerts == null) {
+                    alerts = new ArrayList<Alert>();
+                    alertsByEntityId.put(alert.caseId(), alerts);
+                }
+                alerts.add(alert);
+            }
+        }
+        return alertsByEntityId;
+    }
+
     private String insertPlaceholdersForInClause(int length) {
         return repeat("?", ",", length);
     }
 
     public void changeAlertStatusToInProcess(String entityId, String alertName) {
-        SQLiteDatabase database = masterRepository.getWritableDatabase();
-        String[] caseAndVisitCodeColumnValues = {entityId, alertName};
-
-        ContentValues valuesToBeUpdated = new ContentValues();
-        valuesToBeUpdated.put(ALERTS_STATUS_COLUMN, inProcess.value());
-        database.update(ALERTS_TABLE_NAME, valuesToBeUpdated, CASE_AND_VISIT_CODE_COLUMN_SELECTIONS, caseAndVisitCodeColumnValues);
+        execute(UPDATE_ALERT_STATUS_SQL, inProcess.value(), entityId, alertName);
     }
 }
@@ -5,7 +5,12 @@ import org.ei.drishti.domain.Child;
 import org.ei.drishti.domain.EligibleCouple;
 import org.ei.drishti.domain.Mother;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.ei.drishti.repository.MotherRepository.TYPE_ANC;
 import static org.ei.drishti.repository.MotherRepository.TYPE_PNC;
@@ -24,6 +29,10 @@ public class AllBeneficiaries {
         this.timelineEventRepository = timelineEventRepository;
     }
 
+    public <T> T inReadTransaction(UnitOfWork<T> unitOfWork) {
+        return motherRepository.inReadTransaction(unitOfWork);
+    }
+
     //#TODO
     public Mother findMotherWithOpenStatus(String caseId) {
         return motherRepository.findOpenCaseByCaseID(caseId);
@@ -60,6 +69,18 @@ public class AllBeneficiaries {
         return motherRepository.allMothersOfATypeWithEC(TYPE_PNC);
     }
 
+    public List<Pair<Mother, EligibleCouple>> pageOfANCsWithECOrderedByName(Keyset after, int limit) {
+        return motherRepository.mothersOfATypeWithECOrderedByName(TYPE_ANC, after, limit);
+    }
+
+    public List<Pair<Mother, EligibleCouple>> findANCsWithECByECIds(List<String> ecIds) {
+        return motherRepository.findMothersOfATypeWithECByECIds(TYPE_ANC, ecIds.toArray(new String[ecIds.size()]));
+    }
+
+    public List<Pair<Mother, EligibleCouple>> findPNCsWithECByECIds(List<String> ecIds) {
+        return motherRepository.findMothersOfATypeWithECByECIds(TYPE_PNC, ecIds.toArray(new String[ecIds.size()]));
+    }
+
     public Mother findMotherByECCaseId(String ecCaseId) {
         List<Mother> mothers = motherRepository.findAllCasesForEC(ecCaseId);
         if (mothers.isEmpty())
@@ -108,6 +129,10 @@ public class AllBeneficiaries {
         return childRepository.allChildrenWithMotherAndEC();
     }
 
+    public List<Child> findChildrenWithMotherAndECByECIds(List<String> ecIds) {
+        return childRepository.findChildrenWithMotherAndECByECIds(ecIds.toArray(new String[ecIds.size()]));
+    }
+
     public List<Child> findAllChildrenByECId(String ecId) {
         return childRepository.findAllChildrenByECId(ecId);
     }
@@ -116,6 +141,22 @@ public class AllBeneficiaries {
         return motherRepository.findMotherWithOpenStatusByECId(ecId);
     }
 
+    public Map<String, Mother> allOpenMothersByECId() {
+        return motherRepository.allOpenMothersByECId();
+    }
+
+    public Map<String, Mother> findOpenMothersByECIds(List<String> ecIds) {
+        return motherRepository.findOpenMothersByECIds(ecIds.toArray(new String[ecIds.size()]));
+    }
+
+    public Map<String, List<Child>> allYoungestOpenChildrenByECId(int numberOfChildren) {
+        return childRepository.allYoungestOpenChildrenByECId(numberOfChildren);
+    }
+
+    public Map<String, List<Child>> findYoungestOpenChildrenByECIds(int numberOfChildren, List<String> ecIds) {
+        return childRepository.findYoungestOpenChildrenByECIds(numberOfChildren, ecIds.toArray(new String[ecIds.size()]));
+    }
+
     public boolean isPregnant(String ecId) {
         return motherRepository.isPregnant(ecId);
     }
@@ -127,4 +168,31 @@ public class AllBeneficiaries {
     public void updateMother(Mother mother) {
         motherRepository.update(mother);
     }
+
+    public List<String> findECIdsOfEntities(Collection<String> entityIds) {
+        Set<String> ecIds = new HashSet<String>(entityIds);
+        Set<String> motherIds = new HashSet<String>(entityIds);
+        for (Child child : childRepository.findChildrenByCaseIds(entityIds.toArray(new String[entityIds.size()]))) {
+            ecIds.remove(child.caseId());
+            motherIds.add(child.motherCaseId());
+        }
+        for (Mother mother : motherRepository.findByCaseIds(motherIds.toArray(new String[motherIds.size()]))) {
+            ecIds.remove(mother.caseId());
+            ecIds.add(mother.ecCaseId());
+        }
+        return new ArrayList<String>(ecIds);
+    }
+
+    public Set<String> findFamilyMemberIds(List<String> ecIds) {
+        Set<String> familyMemberIds = new HashSet<String>(ecIds);
+        List<String> motherIds = new ArrayList<String>();
+        for (Mother mother : motherRepository.findAllCasesForECs(ecIds.toArray(new String[ecIds.size()]))) {
+            motherIds.add(mother.caseId());
+        }
+        familyMemberIds.addAll(motherIds);
+        for (Child child : childRepository.findAllChildrenByMotherCaseIds(motherIds.toArray(new String[motherIds.size()]))) {
+            familyMemberIds.add(child.caseId());
+        }
+        return familyMemberIds;
+    }
 }
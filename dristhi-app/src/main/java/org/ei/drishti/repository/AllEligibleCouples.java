@@ -16,10 +16,22 @@ public class AllEligibleCouples {
         this.alertRepository = alertRepository;
     }
 
+    public <T> T inReadTransaction(UnitOfWork<T> unitOfWork) {
+        return eligibleCoupleRepository.inReadTransaction(unitOfWork);
+    }
+
     public List<EligibleCouple> all() {
         return eligibleCoupleRepository.allEligibleCouples();
     }
 
+    public List<EligibleCouple> pageOrderedByName(Keyset after, int limit) {
+        return eligibleCoupleRepository.eligibleCouplesOrderedByName(after, limit);
+    }
+
+    public List<EligibleCouple> allNonPregnant() {
+        return eligibleCoupleRepository.allNonPregnantEligibleCouples();
+    }
+
     public EligibleCouple findByCaseID(String caseId) {
         return eligibleCoupleRepository.findByCaseID(caseId);
     }
@@ -40,6 +52,14 @@ public class AllEligibleCouples {
         return eligibleCoupleRepository.findByCaseIDs(caseIds.toArray(new String[caseIds.size()]));
     }
 
+    public List<EligibleCouple> findOpenByCaseIDs(List<String> caseIds) {
+        return eligibleCoupleRepository.findOpenEligibleCouplesByCaseIDs(caseIds.toArray(new String[caseIds.size()]));
+    }
+
+    public List<EligibleCouple> findNonPregnantByCaseIDs(List<String> caseIds) {
+        return eligibleCoupleRepository.findNonPregnantEligibleCouplesByCaseIDs(caseIds.toArray(new String[caseIds.size()]));
+    }
+
     public void updatePhotoPath(String caseId, String imagePath) {
         eligibleCoupleRepository.updatePhotoPath(caseId, imagePath);
     }
@@ -3,6 +3,7 @@ package org.ei.drishti.repository;
 import org.ei.drishti.domain.ServiceProvided;
 
 import java.util.List;
+import java.util.Map;
 
 public class AllServicesProvided {
     private ServiceProvidedRepository repository;
@@ -15,6 +16,10 @@ public class AllServicesProvided {
         return repository.findByEntityIdAndServiceNames(entityId, names);
     }
 
+    public Map<String, List<ServiceProvided>> findByEntityIdsAndServiceNames(List<String> entityIds, String... names) {
+        return repository.findByEntityIdsAndServiceNames(entityIds, names);
+    }
+
     public void add(ServiceProvided serviceProvided) {
         repository.add(serviceProvided);
     }
@@ -2,8 +2,6 @@ package org.ei.drishti.repository;
 
 import android.content.ContentValues;
 import android.database.Cursor;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import net.sqlcipher.database.SQLiteDatabase;
 import org.apache.commons.lang3.StringUtils;
 import org.ei.drishti.domain.Child;
@@ -11,10 +9,13 @@ import org.ei.drishti.domain.EligibleCouple;
 import org.ei.drishti.domain.Mother;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static com.google.common.collect.Lists.partition;
 import static java.lang.Boolean.TRUE;
+import static java.util.Arrays.asList;
 import static net.sqlcipher.DatabaseUtils.longForQuery;
 import static org.apache.commons.lang3.StringUtils.repeat;
 import static org.ei.drishti.repository.EligibleCoupleRepository.EC_TABLE_COLUMNS;
@@ -24,16 +25,18 @@ import static org.ei.drishti.repository.MotherRepository.MOTHER_TABLE_NAME;
 
 public class ChildRepository extends DrishtiRepository {
     private static final String CHILD_SQL = "CREATE TABLE child(id VARCHAR PRIMARY KEY, motherCaseId VARCHAR, thayiCardNumber VARCHAR, dateOfBirth VARCHAR, gender VARCHAR, details VARCHAR, isClosed VARCHAR, photoPath VARCHAR)";
+    private static final String CHILD_MOTHER_CASE_ID_INDEX_SQL = "CREATE INDEX IF NOT EXISTS child_motherCaseId_index ON child(motherCaseId);";
     public static final String CHILD_TABLE_NAME = "child";
     private static final String ID_COLUMN = "id";
     private static final String MOTHER_ID_COLUMN = "motherCaseId";
-    private static final String THAYI_CARD_COLUMN = "thayiCardNumber";
-    private static final String DATE_OF_BIRTH_COLUMN = "dateOfBirth";
+    public static final String THAYI_CARD_COLUMN = "thayiCardNumber";
+    public static final String DATE_OF_BIRTH_COLUMN = "dateOfBirth";
     private static final String GENDER_COLUMN = "gender";
     private static final String DETAILS_COLUMN = "details";
-    private static final String IS_CLOSED_COLUMN = "isClosed";
+    public static final String IS_CLOSED_COLUMN = "isClosed";
     public static final String PHOTO_PATH_COLUMN = "photoPath";
     public static final String[] CHILD_TABLE_COLUMNS = {ID_COLUMN, MOTHER_ID_COLUMN, THAYI_CARD_COLUMN, DATE_OF_BIRTH_COLUMN, GENDER_COLUMN, DETAILS_COLUMN, IS_CLOSED_COLUMN, PHOTO_PATH_COLUMN};
+    public static final String[] CHILD_PROMOTED_DETAIL_FIELDS = {};
     public static final String NOT_CLOSED = "false";
 
     @Override
@@ -41,6 +44,11 @@ public class ChildRepository extends DrishtiRepository {
         database.execSQL(CHILD_SQL);
     }
 
+    @Override
+    protected List<Migration> migrations() {
+        return asList(new Migration(2, CHILD_MOTHER_CASE_ID_INDEX_SQL));
+    }
+
     public void add(Child child) {
         SQLiteDatabase database = masterRepository.getWritableDatabase();
         database.insert(CHILD_TABLE_NAME, null, createValuesFor(child));
@@ -69,18 +77,31 @@ public class ChildRepository extends DrishtiRepository {
     }
 
     public List<Child> findChildrenByCaseIds(String... caseIds) {
-        SQLiteDatabase database = masterRepository.getReadableDatabase();
-        Cursor cursor = database.rawQuery(String.format("SELECT * FROM %s WHERE %s IN (%s)", CHILD_TABLE_NAME, ID_COLUMN, insertPlaceholdersForInClause(caseIds.length)), caseIds);
-        return readAll(cursor);
+        return findChildrenByColumnIn(ID_COLUMN, caseIds);
     }
 
     public void updateDetails(String caseId, Map<String, String> details) {
         SQLiteDatabase database = masterRepository.getWritableDatabase();
         ContentValues values = new ContentValues();
-        values.put(DETAILS_COLUMN, new Gson().toJson(details));
+        values.put(DETAILS_COLUMN, DetailsCodec.encode(details));
         database.update(CHILD_TABLE_NAME, values, ID_COLUMN + " = ?", new String[]{caseId});
     }
 
+    public List<Child> findAllChildrenByMotherCaseIds(String... motherCaseIds) {
+        return findChildrenByColumnIn(MOTHER_ID_COLUMN, motherCaseIds);
+    }
+
+    private List<Child> findChildrenByColumnIn(String column, String... values) {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        List<Child> children = new ArrayList<Child>();
+        for (List<String> valuesInChunk : partition(asList(values), MAX_BIND_ARGUMENTS)) {
+            Cursor cursor = database.rawQuery(String.format("SELECT * FROM %s WHERE %s IN (%s)", CHILD_TABLE_NAME, column,
+                    insertPlaceholdersForInClause(valuesInChunk.size())), valuesInChunk.toArray(new String[valuesInChunk.size()]));
+            children.addAll(readAll(cursor));
+        }
+        return children;
+    }
+
     public List<Child> findByMotherCaseId(String caseId) {
         SQLiteDatabase database = masterRepository.getReadableDatabase();
         Cursor cursor = database.query(CHILD_TABLE_NAME, CHILD_TABLE_COLUMNS, MOTHER_ID_COLUMN + " = ?", new String[]{caseId}, null, null, null, null);
@@ -97,16 +118,26 @@ public class ChildRepository extends DrishtiRepository {
 
     public List<Child> allChildrenWithMotherAndEC() {
         SQLiteDatabase database = masterRepository.getReadableDatabase();
-        Cursor cursor = database.rawQuery("SELECT " +
+        Cursor cursor = database.rawQuery(allChildrenWithMotherAndECQuery(), null);
+        return readAllChildrenWithMotherAndEC(cursor);
+    }
+
+    public List<Child> findChildrenWithMotherAndECByECIds(String... ecCaseIds) {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        Cursor cursor = database.rawQuery(allChildrenWithMotherAndECQuery() + " AND " + MOTHER_TABLE_NAME + "." + MotherRepository.EC_CASEID_COLUMN +
+                " IN (" + insertPlaceholdersForInClause(ecCaseIds.length) + ")", ecCaseIds);
+        return readAllChildrenWithMotherAndEC(cursor);
+    }
+
+    private String allChildrenWithMotherAndECQuery() {
+        return "SELECT " +
                 tableColumnsForQuery(CHILD_TABLE_NAME, CHILD_TABLE_COLUMNS) + ", " +
                 tableColumnsForQuery(MOTHER_TABLE_NAME, MOTHER_TABLE_COLUMNS) + ", " +
                 tableColumnsForQuery(EC_TABLE_NAME, EC_TABLE_COLUMNS) +
                 " FROM " + CHILD_TABLE_NAME + ", " + MOTHER_TABLE_NAME + ", " + EC_TABLE_NAME +
                 " WHERE " + CHILD_TABLE_NAME + "." + IS_CLOSED_COLUMN + "= '" + NOT_CLOSED + "' AND " +
                 CHILD_TABLE_NAME + "." + MOTHER_ID_COLUMN + " = " + MOTHER_TABLE_NAME + "." + MotherRepository.ID_COLUMN
-                + " AND " + MOTHER_TABLE_NAME + "." + MotherRepository.EC_CASEID_COLUMN + " = " + EC_TABLE_NAME + "." + EligibleCoupleRepository.ID_COLUMN,
-                null);
-        return readAllChildrenWithMotherAndEC(cursor);
+                + " AND " + MOTHER_TABLE_NAME + "." + MotherRepository.EC_CASEID_COLUMN + " = " + EC_TABLE_NAME + "." + EligibleCoupleRepository.ID_COLUMN;
     }
 
     private String tableColumnsForQuery(String tableName, String[] tableColumns) {
@@ -135,7 +166,7 @@ public class ChildRepository extends DrishtiRepository {
         values.put(THAYI_CARD_COLUMN, child.thayiCardNumber());
         values.put(DATE_OF_BIRTH_COLUMN, child.dateOfBirth());
         values.put(GENDER_COLUMN, child.gender());
-        values.put(DETAILS_COLUMN, new Gson().toJson(child.details()));
+        values.put(DETAILS_COLUMN, DetailsCodec.encode(child.details()));
         values.put(IS_CLOSED_COLUMN, Boolean.toString(child.isClosed()));
         values.put(PHOTO_PATH_COLUMN, child.photoPath());
         return values;
@@ -146,8 +177,7 @@ public class ChildRepository extends DrishtiRepository {
         List<Child> children = new ArrayList<Child>();
         while (!cursor.isAfterLast()) {
             children.add(new Child(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(3), cursor.getString(4),
-                    new Gson().<Map<String, String>>fromJson(cursor.getString(5), new TypeToken<Map<String, String>>() {
-                    }.getType()))
+                    DetailsCodec.decode(cursor.getString(5)))
                     .setIsClosed(Boolean.valueOf(cursor.getString(6)))
                     .withPhotoPath(cursor.getString(cursor.getColumnIndex(PHOTO_PATH_COLUMN)))
             );
@@ -161,15 +191,22 @@ public class ChildRepository extends DrishtiRepository {
         cursor.moveToFirst();
         List<Child> children = new ArrayList<Child>();
         while (!cursor.isAfterLast()) {
-            children.add(childFromCursor(cursor)
-                    .withMother(motherFromCursor(cursor))
-                    .withEC(ecFromCursor(cursor)));
+            children.add(childWithMotherAndECRowMapper.map(cursor));
             cursor.moveToNext();
         }
         cursor.close();
         return children;
     }
 
+    private final RowMapper<Child> childWithMotherAndECRowMapper = new RowMapper<Child>() {
+        @Override
+        public Child map(Cursor cursor) {
+            return childFromCursor(cursor)
+                    .withMother(motherFromCursor(cursor))
+                    .withEC(ecFromCursor(cursor));
+        }
+    };
+
     private EligibleCouple ecFromCursor(Cursor cursor) {
         return new EligibleCouple(
                 getColumnValueByAlias(cursor, EC_TABLE_NAME, EligibleCoupleRepository.ID_COLUMN),
@@ -178,8 +215,7 @@ public class ChildRepository extends DrishtiRepository {
                 getColumnValueByAlias(cursor, EC_TABLE_NAME, EligibleCoupleRepository.EC_NUMBER_COLUMN),
                 getColumnValueByAlias(cursor, EC_TABLE_NAME, EligibleCoupleRepository.VILLAGE_NAME_COLUMN),
                 getColumnValueByAlias(cursor, EC_TABLE_NAME, EligibleCoupleRepository.SUBCENTER_NAME_COLUMN),
-                new Gson().<Map<String, String>>fromJson(getColumnValueByAlias(cursor, EC_TABLE_NAME, EligibleCoupleRepository.DETAILS_COLUMN), new TypeToken<Map<String, String>>() {
-                }.getType()))
+                DetailsCodec.decode(getColumnValueByAlias(cursor, EC_TABLE_NAME, EligibleCoupleRepository.DETAILS_COLUMN)))
                 .withPhotoPath(getColumnValueByAlias(cursor, EC_TABLE_NAME, EligibleCoupleRepository.PHOTO_PATH_COLUMN))
                 .withOutOfArea(getColumnValueByAlias(cursor, EC_TABLE_NAME, EligibleCoupleRepository.IS_OUT_OF_AREA_COLUMN));
     }
@@ -190,8 +226,7 @@ public class ChildRepository extends DrishtiRepository {
                 getColumnValueByAlias(cursor, MOTHER_TABLE_NAME, MotherRepository.EC_CASEID_COLUMN),
                 getColumnValueByAlias(cursor, MOTHER_TABLE_NAME, MotherRepository.THAYI_CARD_NUMBER_COLUMN),
                 getColumnValueByAlias(cursor, MOTHER_TABLE_NAME, MotherRepository.REF_DATE_COLUMN))
-                .withDetails(new Gson().<Map<String, String>>fromJson(getColumnValueByAlias(cursor, MOTHER_TABLE_NAME, MotherRepository.DETAILS_COLUMN), new TypeToken<Map<String, String>>() {
-                }.getType()));
+                .withDetails(DetailsCodec.decode(getColumnValueByAlias(cursor, MOTHER_TABLE_NAME, MotherRepository.DETAILS_COLUMN)));
     }
 
     private List<Child> readAllChildren(Cursor cursor) {
@@ -212,8 +247,7 @@ public class ChildRepository extends DrishtiRepository {
                 getColumnValueByAlias(cursor, CHILD_TABLE_NAME, THAYI_CARD_COLUMN),
                 getColumnValueByAlias(cursor, CHILD_TABLE_NAME, DATE_OF_BIRTH_COLUMN),
                 getColumnValueByAlias(cursor, CHILD_TABLE_NAME, GENDER_COLUMN),
-                new Gson().<Map<String, String>>fromJson(getColumnValueByAlias(cursor, CHILD_TABLE_NAME, DETAILS_COLUMN), new TypeToken<Map<String, String>>() {
-                }.getType()))
+                DetailsCodec.decode(getColumnValueByAlias(cursor, CHILD_TABLE_NAME, DETAILS_COLUMN)))
                 .setIsClosed(Boolean.valueOf(getColumnValueByAlias(cursor, CHILD_TABLE_NAME, IS_CLOSED_COLUMN)))
                 .withPhotoPath(getColumnValueByAlias(cursor, CHILD_TABLE_NAME, PHOTO_PATH_COLUMN));
     }
@@ -246,6 +280,48 @@ public class ChildRepository extends DrishtiRepository {
         return readAllChildren(cursor);
     }
 
+    public Map<String, List<Child>> allYoungestOpenChildrenByECId(int numberOfChildren) {
+        return youngestOpenChildrenByECId(numberOfChildren, "", new String[0]);
+    }
+
+    public Map<String, List<Child>> findYoungestOpenChildrenByECIds(int numberOfChildren, String... ecIds) {
+        Map<String, List<Child>> childrenByECId = new HashMap<String, List<Child>>();
+        for (List<String> ecIdsInChunk : partition(asList(ecIds), MAX_BIND_ARGUMENTS)) {
+            childrenByECId.putAll(youngestOpenChildrenByECId(numberOfChildren, " AND " + MOTHER_TABLE_NAME + "." + MotherRepository.EC_CASEID_COLUMN +
+                    " IN (" + insertPlaceholdersForInClause(ecIdsInChunk.size()) + ")", ecIdsInChunk.toArray(new String[ecIdsInChunk.size()])));
+        }
+        return childrenByECId;
+    }
+
+    private Map<String, List<Child>> youngestOpenChildrenByECId(int numberOfChildren, String ecIdClause, String[] ecIds) {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        Cursor cursor = database.rawQuery("SELECT " +
+                tableColumnsForQuery(CHILD_TABLE_NAME, CHILD_TABLE_COLUMNS) + ", " +
+                tableColumnsForQuery(MOTHER_TABLE_NAME, new String[]{MotherRepository.EC_CASEID_COLUMN}) +
+                " FROM " + CHILD_TABLE_NAME + ", " + MOTHER_TABLE_NAME +
+                " WHERE " + CHILD_TABLE_NAME + "." + IS_CLOSED_COLUMN + "= '" + NOT_CLOSED + "' AND " +
+                CHILD_TABLE_NAME + "." + MOTHER_ID_COLUMN + " = " + MOTHER_TABLE_NAME + "." + MotherRepository.ID_COLUMN + ecIdClause +
+                " ORDER BY " + MOTHER_TABLE_NAME + "." + MotherRepository.EC_CASEID_COLUMN + ", " +
+                CHILD_TABLE_NAME + "." + DATE_OF_BIRTH_COLUMN + " DESC", ecIds);
+        Map<String, List<Child>> childrenByECId = new HashMap<String, List<Child>>();
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                String ecId = getColumnValueByAlias(cursor, MOTHER_TABLE_NAME, MotherRepository.EC_CASEID_COLUMN);
+                List<Child> children = childrenByECId.get(ecId);
+                if (children == null) {
+                    children = new ArrayList<Child>();
+                    childrenByECId.put(ecId, children);
+                }
+                if (children.size() < numberOfChildren) {
+                    children.add(0, childFromCursor(cursor));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return childrenByECId;
+    }
+
     public void delete(String childId) {
         SQLiteDatabase database = masterRepository.getWritableDatabase();
         database.delete(CHILD_TABLE_NAME, ID_COLUMN + "= ?", new String[]{childId});
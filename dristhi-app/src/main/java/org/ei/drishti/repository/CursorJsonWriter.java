@@ -0,0 +1,152 @@
+package org.ei.drishti.repository;
+
+import android.database.Cursor;
+
+import java.util.Collection;
+
+import static java.lang.String.format;
+
+public class CursorJsonWriter {
+    private static final String EMPTY_OBJECT = "{}";
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    private final String detailsColumn;
+    private final Collection<String> shadowColumns;
+
+    public CursorJsonWriter(String detailsColumn, Collection<String> shadowColumns) {
+        this.detailsColumn = detailsColumn;
+        this.shadowColumns = shadowColumns;
+    }
+
+    public String firstRow(Cursor cursor) {
+        if (!cursor.moveToFirst()) {
+            return EMPTY_OBJECT;
+        }
+        StringBuilder out = new StringBuilder();
+        String[] columns = cursor.getColumnNames();
+        writeRow(cursor, columns, detailsColumns(columns), out);
+        return out.toString();
+    }
+
+    public String allRows(Cursor cursor) {
+        StringBuilder out = new StringBuilder().append('[');
+        String[] columns = cursor.getColumnNames();
+        boolean[] detailsColumns = detailsColumns(columns);
+        boolean firstRow = true;
+        for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+            if (!firstRow) {
+                out.append(',');
+            }
+            writeRow(cursor, columns, detailsColumns, out);
+            firstRow = false;
+        }
+        return out.append(']').toString();
+    }
+
+    private void writeRow(Cursor cursor, String[] columns, boolean[] detailsColumns, StringBuilder out) {
+        boolean hasDetails = hasDetails(detailsColumns);
+        out.append('{');
+        boolean firstMember = true;
+        for (int index = 0; index < columns.length; index++) {
+            String value = cursor.getString(index);
+            if (value == null || (hasDetails && shadowColumns.contains(columns[index]))) {
+                continue;
+            }
+            if (detailsColumns[index]) {
+                firstMember = spliceDetails(value, firstMember, out);
+                continue;
+            }
+            if (!firstMember) {
+                out.append(',');
+            }
+            writeString(columns[index], out);
+            out.append(':');
+            writeString(value, out);
+            firstMember = false;
+        }
+        out.append('}');
+    }
+
+    private boolean spliceDetails(String details, boolean firstMember, StringBuilder out) {
+        String trimmedDetails = details.trim();
+        if ("null".equals(trimmedDetails)) {
+            return firstMember;
+        }
+        if (!trimmedDetails.startsWith("{") || !trimmedDetails.endsWith("}")) {
+            throw new IllegalStateException("Details is not a JSON object: " + details);
+        }
+        String members = trimmedDetails.substring(1, trimmedDetails.length() - 1).trim();
+        if (members.isEmpty()) {
+            return firstMember;
+        }
+        if (!firstMember) {
+            out.append(',');
+        }
+        out.append(members);
+        return false;
+    }
+
+    private boolean[] detailsColumns(String[] columns) {
+        boolean[] detailsColumns = new boolean[columns.length];
+        for (int index = 0; index < columns.length; index++) {
+            detailsColumns[index] = detailsColumn.equalsIgnoreCase(columns[index]);
+        }
+        return detailsColumns;
+    }
+
+    private boolean hasDetails(boolean[] detailsColumns) {
+        for (boolean isDetailsColumn : detailsColumns) {
+            if (isDetailsColumn) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeString(String value, StringBuilder out) {
+        out.append('"');
+        for (int index = 0; index < value.length(); index++) {
+            char c = value.charAt(index);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                case '<':
+                case '>':
+                case '&':
+                case '=':
+                case '\'':
+                case LINE_SEPARATOR:
+                case PARAGRAPH_SEPARATOR:
+                    out.append(format("\\u%04x", (int) c));
+                    break;
+                default:
+                    if (c < ' ') {
+                        out.append(format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
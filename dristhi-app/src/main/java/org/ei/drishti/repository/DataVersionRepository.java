@@ -0,0 +1,51 @@
+package org.ei.drishti.repository;
+
+import android.database.Cursor;
+import net.sqlcipher.database.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.text.MessageFormat.format;
+import static java.util.Arrays.asList;
+import static org.ei.drishti.repository.AlertRepository.ALERTS_TABLE_NAME;
+import static org.ei.drishti.repository.ChildRepository.CHILD_TABLE_NAME;
+import static org.ei.drishti.repository.EligibleCoupleRepository.EC_TABLE_NAME;
+import static org.ei.drishti.repository.MotherRepository.MOTHER_TABLE_NAME;
+import static org.ei.drishti.repository.ServiceProvidedRepository.SERVICE_PROVIDED_TABLE_NAME;
+
+public class DataVersionRepository extends DrishtiRepository {
+    private static final String DATA_VERSION_TABLE_NAME = "data_version";
+    private static final String DATA_VERSION_SQL = "CREATE TABLE data_version(id INTEGER PRIMARY KEY, instance INTEGER, version INTEGER)";
+    private static final String INITIAL_DATA_VERSION_SQL = "INSERT INTO data_version(id, instance, version) VALUES (1, abs(random()), 0)";
+    private static final String DATA_VERSION_TRIGGER_SQL = "CREATE TRIGGER {0}_{1}_data_version AFTER {1} ON {0} " +
+            "BEGIN UPDATE data_version SET version = version + 1 WHERE id = 1; END";
+    private static final String[] VERSIONED_TABLE_NAMES = {EC_TABLE_NAME, MOTHER_TABLE_NAME, CHILD_TABLE_NAME,
+            ALERTS_TABLE_NAME, SERVICE_PROVIDED_TABLE_NAME};
+    private static final String[] WRITE_OPERATIONS = {"INSERT", "UPDATE", "DELETE"};
+
+    @Override
+    protected void onCreate(SQLiteDatabase database) {
+    }
+
+    @Override
+    protected List<Migration> migrations() {
+        List<String> statements = new ArrayList<String>(asList(DATA_VERSION_SQL, INITIAL_DATA_VERSION_SQL));
+        for (String tableName : VERSIONED_TABLE_NAMES) {
+            for (String operation : WRITE_OPERATIONS) {
+                statements.add(format(DATA_VERSION_TRIGGER_SQL, tableName, operation));
+            }
+        }
+        return asList(new Migration(5, statements.toArray(new String[statements.size()])));
+    }
+
+    public String dataVersion() {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        Cursor cursor = database.query(DATA_VERSION_TABLE_NAME, new String[]{"instance", "version"}, "id = 1", null, null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) + "-" + cursor.getLong(1) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.ei.drishti.repository;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.text.MessageFormat.format;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+public class DetailsCodec {
+    private DetailsCodec() {
+    }
+
+    public static Map<String, String> decode(String json) {
+        if (isBlank(json)) {
+            return null;
+        }
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setLenient(true);
+        try {
+            if (reader.peek() == JsonToken.NULL) {
+                return null;
+            }
+            Map<String, String> details = new LinkedHashMap<String, String>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                details.put(reader.nextName(), readValue(reader));
+            }
+            reader.endObject();
+            return details;
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    public static String encode(Map<String, String> details) {
+        if (details == null) {
+            return "null";
+        }
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.setHtmlSafe(true);
+        try {
+            writer.beginObject();
+            for (Map.Entry<String, String> detail : details.entrySet()) {
+                if (detail.getValue() == null) {
+                    continue;
+                }
+                writer.name(String.valueOf(detail.getKey())).value(detail.getValue());
+            }
+            writer.endObject();
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toString();
+    }
+
+    private static String readValue(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        switch (token) {
+            case NULL:
+                reader.nextNull();
+                return null;
+            case BOOLEAN:
+                return Boolean.toString(reader.nextBoolean());
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            default:
+                throw new JsonSyntaxException(format("Expected a flat string value in details but was {0}", token));
+        }
+    }
+}
@@ -1,13 +1,67 @@
 package org.ei.drishti.repository;
 
+import android.content.ContentValues;
 import net.sqlcipher.database.SQLiteDatabase;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
 public abstract class DrishtiRepository {
+    protected static final int MAX_BIND_ARGUMENTS = 999;
+
     protected Repository masterRepository;
 
     public void updateMasterRepository(Repository repository) {
         this.masterRepository = repository;
     }
 
+    protected <T> T inTransaction(UnitOfWork<T> unitOfWork) {
+        return masterRepository.inTransaction(unitOfWork);
+    }
+
+    protected <T> T inReadTransaction(UnitOfWork<T> unitOfWork) {
+        return masterRepository.inReadTransaction(unitOfWork);
+    }
+
+    protected long executeInsert(String sql, Object... bindArgs) {
+        return masterRepository.statementCache().executeInsert(masterRepository.getWritableDatabase(), sql, bindArgs);
+    }
+
+    protected void execute(String sql, Object... bindArgs) {
+        masterRepository.statementCache().execute(masterRepository.getWritableDatabase(), sql, bindArgs);
+    }
+
+    protected long longForStatement(String sql, Object... bindArgs) {
+        return masterRepository.statementCache().simpleQueryForLong(masterRepository.getWritableDatabase(), sql, bindArgs);
+    }
+
+    protected void putPromotedDetails(ContentValues values, String[] promotedFields, Map<String, String> details) {
+        for (String field : promotedFields) {
+            values.put(field, details == null ? null : promotedValue(details.get(field)));
+        }
+    }
+
+    // Promoted columns are only queried, so they hold a value SQL can compare directly: lower case, and null when blank.
+    static String promotedValue(String detail) {
+        return isBlank(detail) ? null : detail.toLowerCase(Locale.ENGLISH);
+    }
+
     abstract protected void onCreate(SQLiteDatabase database);
+
+    protected void beforeCommit() {
+    }
+
+    protected void afterUnitOfWork(int depth, boolean successful) {
+    }
+
+    protected void onClose() {
+    }
+
+    protected List<Migration> migrations() {
+        return Collections.emptyList();
+    }
 }
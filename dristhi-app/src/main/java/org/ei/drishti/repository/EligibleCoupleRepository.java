@@ -2,10 +2,8 @@ package org.ei.drishti.repository;
 
 import android.content.ContentValues;
 import android.database.Cursor;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import net.sqlcipher.database.SQLiteDatabase;
-import org.ei.drishti.AllConstants;
+import org.apache.commons.lang3.ArrayUtils;
 import org.ei.drishti.domain.EligibleCouple;
 
 import java.util.ArrayList;
@@ -15,13 +13,17 @@ import java.util.Map;
 
 import static java.lang.Boolean.TRUE;
 import static java.text.MessageFormat.format;
+import static java.util.Arrays.asList;
 import static net.sqlcipher.DatabaseUtils.longForQuery;
-import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.join;
 import static org.apache.commons.lang3.StringUtils.repeat;
+import static org.ei.drishti.AllConstants.ECRegistrationFields.*;
 
 public class EligibleCoupleRepository extends DrishtiRepository {
     private static final String EC_SQL = "CREATE TABLE eligible_couple(id VARCHAR PRIMARY KEY, wifeName VARCHAR, husbandName VARCHAR, " +
             "ecNumber VARCHAR, village VARCHAR, subCenter VARCHAR, isOutOfArea VARCHAR, details VARCHAR, isClosed VARCHAR, photoPath VARCHAR)";
+    private static final String EC_IS_OUT_OF_AREA_IS_CLOSED_INDEX_SQL = "CREATE INDEX IF NOT EXISTS eligible_couple_isOutOfArea_isClosed_index ON eligible_couple(isOutOfArea, isClosed);";
+    private static final String EC_WIFE_NAME_INDEX_SQL = "CREATE INDEX IF NOT EXISTS eligible_couple_isOutOfArea_isClosed_wifeName_index ON eligible_couple(isOutOfArea, isClosed, wifeName COLLATE NOCASE, id);";
     public static final String ID_COLUMN = "id";
     public static final String EC_NUMBER_COLUMN = "ecNumber";
     public static final String WIFE_NAME_COLUMN = "wifeName";
@@ -32,19 +34,57 @@ public class EligibleCoupleRepository extends DrishtiRepository {
     public static final String DETAILS_COLUMN = "details";
     private static final String IS_CLOSED_COLUMN = "isClosed";
     public static final String PHOTO_PATH_COLUMN = "photoPath";
+    private static final String WIFE_NAME_SORT_KEY = Keyset.ignoringCase(WIFE_NAME_COLUMN);
     public static final String EC_TABLE_NAME = "eligible_couple";
     public static final String[] EC_TABLE_COLUMNS = new String[]{ID_COLUMN, WIFE_NAME_COLUMN, HUSBAND_NAME_COLUMN,
             EC_NUMBER_COLUMN, VILLAGE_NAME_COLUMN, SUBCENTER_NAME_COLUMN, IS_OUT_OF_AREA_COLUMN, DETAILS_COLUMN,
             IS_CLOSED_COLUMN, PHOTO_PATH_COLUMN};
+    public static final String[] EC_PROMOTED_DETAIL_FIELDS = new String[]{CURRENT_FP_METHOD};
+    private static final String[] EC_UNUSED_PROMOTED_DETAIL_FIELDS = new String[]{CASTE, ECONOMIC_STATUS, IS_HIGH_PRIORITY};
 
     public static final String NOT_CLOSED = "false";
     private static final String IN_AREA = "false";
 
+    private static final RowMapper<EligibleCouple> EC_ROW_MAPPER = new RowMapper<EligibleCouple>() {
+        @Override
+        public EligibleCouple map(Cursor cursor) {
+            EligibleCouple eligibleCouple = new EligibleCouple(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                    cursor.getString(3), cursor.getString(4), cursor.getString(5),
+                    DetailsCodec.decode(cursor.getString(7)));
+            eligibleCouple.setIsClosed(Boolean.valueOf(cursor.getString(8)));
+            if (Boolean.valueOf(cursor.getString(6)))
+                eligibleCouple.asOutOfArea();
+            eligibleCouple.withPhotoPath(cursor.getString(9));
+            return eligibleCouple;
+        }
+    };
+
     @Override
     protected void onCreate(SQLiteDatabase database) {
         database.execSQL(EC_SQL);
     }
 
+    @Override
+    protected List<Migration> migrations() {
+        return asList(new Migration(2, EC_IS_OUT_OF_AREA_IS_CLOSED_INDEX_SQL),
+                new PromotedDetailsMigration(3, EC_TABLE_NAME, CURRENT_FP_METHOD, CASTE, ECONOMIC_STATUS, IS_HIGH_PRIORITY),
+                new Migration(4, EC_WIFE_NAME_INDEX_SQL),
+                new Migration(6, clearingUnusedPromotedColumnsSQL()),
+                PromotedDetailsMigration.refreshing(6, EC_TABLE_NAME, EC_PROMOTED_DETAIL_FIELDS));
+    }
+
+    // SQLite cannot drop a column, so the promoted columns nothing reads any more lose their index and their values.
+    private static String[] clearingUnusedPromotedColumnsSQL() {
+        List<String> statements = new ArrayList<String>();
+        List<String> assignments = new ArrayList<String>();
+        for (String field : EC_UNUSED_PROMOTED_DETAIL_FIELDS) {
+            statements.add(format("DROP INDEX IF EXISTS {0}_{1}_index", EC_TABLE_NAME, field));
+            assignments.add(field + " = NULL");
+        }
+        statements.add(format("UPDATE {0} SET {1}", EC_TABLE_NAME, join(assignments, ", ")));
+        return statements.toArray(new String[statements.size()]);
+    }
+
     public void add(EligibleCouple eligibleCouple) {
         SQLiteDatabase database = masterRepository.getWritableDatabase();
         database.insert(EC_TABLE_NAME, null, createValuesFor(eligibleCouple));
@@ -59,7 +99,8 @@ public class EligibleCoupleRepository extends DrishtiRepository {
         }
 
         ContentValues valuesToUpdate = new ContentValues();
-        valuesToUpdate.put(DETAILS_COLUMN, new Gson().toJson(details));
+        valuesToUpdate.put(DETAILS_COLUMN, DetailsCodec.encode(details));
+        putPromotedDetails(valuesToUpdate, EC_PROMOTED_DETAIL_FIELDS, details);
         database.update(EC_TABLE_NAME, valuesToUpdate, ID_COLUMN + " = ?", new String[]{caseId});
     }
 
@@ -74,7 +115,8 @@ public class EligibleCoupleRepository extends DrishtiRepository {
         Map<String, String> mergedDetails = new HashMap<String, String>(couple.details());
         mergedDetails.putAll(details);
         ContentValues valuesToUpdate = new ContentValues();
-        valuesToUpdate.put(DETAILS_COLUMN, new Gson().toJson(mergedDetails));
+        valuesToUpdate.put(DETAILS_COLUMN, DetailsCodec.encode(mergedDetails));
+        putPromotedDetails(valuesToUpdate, EC_PROMOTED_DETAIL_FIELDS, mergedDetails);
         database.update(EC_TABLE_NAME, valuesToUpdate, ID_COLUMN + " = ?", new String[]{caseId});
     }
 
@@ -85,6 +127,35 @@ public class EligibleCoupleRepository extends DrishtiRepository {
         return readAllEligibleCouples(cursor);
     }
 
+    public List<EligibleCouple> eligibleCouplesOrderedByName(Keyset after, int limit) {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        List<String> arguments = new ArrayList<String>(asList(IN_AREA, NOT_CLOSED));
+        arguments.addAll(after.arguments());
+        Cursor cursor = database.query(EC_TABLE_NAME, EC_TABLE_COLUMNS, IS_OUT_OF_AREA_COLUMN + " = ? AND " +
+                IS_CLOSED_COLUMN + " = ? AND " + after.whereClause(WIFE_NAME_SORT_KEY, ID_COLUMN),
+                arguments.toArray(new String[arguments.size()]), null, null, after.orderByClause(WIFE_NAME_SORT_KEY, ID_COLUMN),
+                String.valueOf(limit));
+        return readAllEligibleCouples(cursor);
+    }
+
+    public List<EligibleCouple> allNonPregnantEligibleCouples() {
+        return nonPregnantEligibleCouples("", new String[0]);
+    }
+
+    public List<EligibleCouple> findNonPregnantEligibleCouplesByCaseIDs(String... caseIds) {
+        return nonPregnantEligibleCouples(" AND " + ID_COLUMN + " IN (" + insertPlaceholdersForInClause(caseIds.length) + ")", caseIds);
+    }
+
+    private List<EligibleCouple> nonPregnantEligibleCouples(String caseIdClause, String[] caseIds) {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        Cursor cursor = database.query(EC_TABLE_NAME, EC_TABLE_COLUMNS, IS_OUT_OF_AREA_COLUMN + " = ? AND " + IS_CLOSED_COLUMN + " = ? AND NOT EXISTS (" +
+                "SELECT 1 FROM " + MotherRepository.MOTHER_TABLE_NAME + " WHERE " + MotherRepository.MOTHER_TABLE_NAME + "." + MotherRepository.EC_CASEID_COLUMN +
+                " = " + EC_TABLE_NAME + "." + ID_COLUMN + " AND " + MotherRepository.MOTHER_TABLE_NAME + "." + MotherRepository.IS_CLOSED_COLUMN + " = ? AND " +
+                MotherRepository.MOTHER_TABLE_NAME + "." + MotherRepository.TYPE_COLUMN + " = ?)" + caseIdClause,
+                ArrayUtils.addAll(new String[]{IN_AREA, NOT_CLOSED, NOT_CLOSED, MotherRepository.TYPE_ANC}, caseIds), null, null, null, null);
+        return readAllEligibleCouples(cursor);
+    }
+
     public List<EligibleCouple> findByCaseIDs(String... caseIds) {
         SQLiteDatabase database = masterRepository.getReadableDatabase();
         Cursor cursor = database.rawQuery(String.format("SELECT * FROM %s WHERE %s IN (%s)", EC_TABLE_NAME, ID_COLUMN,
@@ -92,6 +163,14 @@ public class EligibleCoupleRepository extends DrishtiRepository {
         return readAllEligibleCouples(cursor);
     }
 
+    public List<EligibleCouple> findOpenEligibleCouplesByCaseIDs(String... caseIds) {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        Cursor cursor = database.query(EC_TABLE_NAME, EC_TABLE_COLUMNS, IS_OUT_OF_AREA_COLUMN + " = ? AND " + IS_CLOSED_COLUMN + " = ? AND " +
+                ID_COLUMN + " IN (" + insertPlaceholdersForInClause(caseIds.length) + ")",
+                ArrayUtils.addAll(new String[]{IN_AREA, NOT_CLOSED}, caseIds), null, null, null, null);
+        return readAllEligibleCouples(cursor);
+    }
+
     public EligibleCouple findByCaseID(String caseId) {
         SQLiteDatabase database = masterRepository.getReadableDatabase();
         Cursor cursor = database.query(EC_TABLE_NAME, EC_TABLE_COLUMNS, ID_COLUMN + " = ?", new String[]{caseId},
@@ -145,9 +224,10 @@ public class EligibleCoupleRepository extends DrishtiRepository {
         values.put(VILLAGE_NAME_COLUMN, eligibleCouple.village());
         values.put(SUBCENTER_NAME_COLUMN, eligibleCouple.subCenter());
         values.put(IS_OUT_OF_AREA_COLUMN, Boolean.toString(eligibleCouple.isOutOfArea()));
-        values.put(DETAILS_COLUMN, new Gson().toJson(eligibleCouple.details()));
+        values.put(DETAILS_COLUMN, DetailsCodec.encode(eligibleCouple.details()));
         values.put(IS_CLOSED_COLUMN, Boolean.toString(eligibleCouple.isClosed()));
         values.put(PHOTO_PATH_COLUMN, eligibleCouple.photoPath());
+        putPromotedDetails(values, EC_PROMOTED_DETAIL_FIELDS, eligibleCouple.details());
         return values;
     }
 
@@ -155,15 +235,7 @@ public class EligibleCoupleRepository extends DrishtiRepository {
         cursor.moveToFirst();
         List<EligibleCouple> eligibleCouples = new ArrayList<EligibleCouple>();
         while (!cursor.isAfterLast()) {
-            EligibleCouple eligibleCouple = new EligibleCouple(cursor.getString(0), cursor.getString(1), cursor.getString(2),
-                    cursor.getString(3), cursor.getString(4), cursor.getString(5),
-                    new Gson().<Map<String, String>>fromJson(cursor.getString(7), new TypeToken<Map<String, String>>() {
-                    }.getType()));
-            eligibleCouple.setIsClosed(Boolean.valueOf(cursor.getString(8)));
-            if (Boolean.valueOf(cursor.getString(6)))
-                eligibleCouple.asOutOfArea();
-            eligibleCouple.withPhotoPath(cursor.getString(9));
-            eligibleCouples.add(eligibleCouple);
+            eligibleCouples.add(EC_ROW_MAPPER.map(cursor));
             cursor.moveToNext();
         }
         cursor.close();
@@ -175,33 +247,8 @@ public class EligibleCoupleRepository extends DrishtiRepository {
     }
 
     public long fpCount() {
-        SQLiteDatabase database = masterRepository.getReadableDatabase();
-        Cursor cursor = database.rawQuery(format("SELECT details FROM {0} WHERE {1} = ''{2}'' and {3} = ''{4}''",
-                EC_TABLE_NAME, IS_OUT_OF_AREA_COLUMN, IN_AREA, IS_CLOSED_COLUMN, NOT_CLOSED), new String[0]);
-        List<Map<String, String>> detailsList = readDetailsList(cursor);
-        return getECsUsingFPMethod(detailsList);
-    }
-
-    private long getECsUsingFPMethod(List<Map<String, String>> detailsList) {
-        long fpCount = 0;
-        for (Map<String, String> details : detailsList) {
-            if (!(isBlank(details.get(AllConstants.ECRegistrationFields.CURRENT_FP_METHOD)) || "none".equalsIgnoreCase(details.get(AllConstants.ECRegistrationFields.CURRENT_FP_METHOD)))) {
-                fpCount++;
-            }
-        }
-        return fpCount;
-    }
-
-    private List<Map<String, String>> readDetailsList(Cursor cursor) {
-        cursor.moveToFirst();
-        List<Map<String, String>> detailsList = new ArrayList<Map<String, String>>();
-        while (!cursor.isAfterLast()) {
-            String detailsJSON = cursor.getString(0);
-            detailsList.add(new Gson().<Map<String, String>>fromJson(detailsJSON, new TypeToken<HashMap<String, String>>() {
-            }.getType()));
-            cursor.moveToNext();
-        }
-        cursor.close();
-        return detailsList;
+        return longForQuery(masterRepository.getReadableDatabase(), format("SELECT COUNT(1) FROM {0} WHERE {1} = ''{2}'' and {3} = ''{4}''" +
+                " and {5} IS NOT NULL and {5} != ''none''",
+                EC_TABLE_NAME, IS_OUT_OF_AREA_COLUMN, IN_AREA, IS_CLOSED_COLUMN, NOT_CLOSED, CURRENT_FP_METHOD), new String[0]);
     }
 }
@@ -2,28 +2,33 @@ package org.ei.drishti.repository;
 
 import android.content.ContentValues;
 import android.database.Cursor;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import net.sqlcipher.database.SQLiteDatabase;
 import org.ei.drishti.domain.SyncStatus;
 import org.ei.drishti.domain.form.FormSubmission;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import static com.google.common.collect.Lists.partition;
 import static java.lang.System.currentTimeMillis;
 import static java.util.Arrays.asList;
 import static java.util.UUID.randomUUID;
 import static net.sqlcipher.DatabaseUtils.longForQuery;
+import static org.apache.commons.lang3.StringUtils.join;
+import static org.apache.commons.lang3.StringUtils.repeat;
 import static org.ei.drishti.AllConstants.*;
 import static org.ei.drishti.domain.SyncStatus.PENDING;
 import static org.ei.drishti.domain.SyncStatus.SYNCED;
+import static org.ei.drishti.util.Log.logWarn;
 
 public class FormDataRepository extends DrishtiRepository {
     private static final String FORM_SUBMISSION_SQL = "CREATE TABLE form_submission(instanceId VARCHAR PRIMARY KEY, entityId VARCHAR, " +
             "formName VARCHAR, instance VARCHAR, version VARCHAR, serverVersion VARCHAR, formDataDefinitionVersion VARCHAR, syncStatus VARCHAR)";
+    private static final String FORM_SUBMISSION_SYNC_STATUS_INDEX_SQL = "CREATE INDEX IF NOT EXISTS form_submission_syncStatus_index ON form_submission(syncStatus);";
     public static final String INSTANCE_ID_COLUMN = "instanceId";
     public static final String ENTITY_ID_COLUMN = "entityId";
     private static final String FORM_NAME_COLUMN = "formName";
@@ -35,16 +40,36 @@ public class FormDataRepository extends DrishtiRepository {
     private static final String FORM_SUBMISSION_TABLE_NAME = "form_submission";
     public static final String[] FORM_SUBMISSION_TABLE_COLUMNS = new String[]{INSTANCE_ID_COLUMN, ENTITY_ID_COLUMN, FORM_NAME_COLUMN,
             INSTANCE_COLUMN, VERSION_COLUMN, SERVER_VERSION_COLUMN, FORM_DATA_DEFINITION_VERSION_COLUMN, SYNC_STATUS_COLUMN};
+    private static final String INSERT_FORM_SUBMISSION_SQL = "INSERT OR IGNORE INTO " + FORM_SUBMISSION_TABLE_NAME + "(" + join(FORM_SUBMISSION_TABLE_COLUMNS, ", ") +
+            ") VALUES (" + repeat("?", ", ", FORM_SUBMISSION_TABLE_COLUMNS.length) + ")";
+    private static final String UPDATE_SERVER_VERSION_SQL = "UPDATE " + FORM_SUBMISSION_TABLE_NAME + " SET " + SERVER_VERSION_COLUMN + " = ? WHERE " +
+            INSTANCE_ID_COLUMN + " = ?";
+    private static final String UPDATE_SYNC_STATUS_SQL = "UPDATE " + FORM_SUBMISSION_TABLE_NAME + " SET " + SYNC_STATUS_COLUMN + " = ? WHERE " +
+            INSTANCE_ID_COLUMN + " = ?";
+    private static final String SUBMISSION_EXISTS_SQL = "SELECT COUNT(1) FROM " + FORM_SUBMISSION_TABLE_NAME + " WHERE " + INSTANCE_ID_COLUMN + " = ?";
     public static final String ID_COLUMN = "id";
     private static final String DETAILS_COLUMN_NAME = "details";
     private static final String FORM_NAME_PARAM = "formName";
     private Map<String, String[]> TABLE_COLUMN_MAP;
+    private Map<String, String[]> TABLE_PROMOTED_DETAILS_MAP;
+    private CursorJsonWriter cursorJsonWriter;
 
     public FormDataRepository() {
         TABLE_COLUMN_MAP = new HashMap<String, String[]>();
         TABLE_COLUMN_MAP.put(EligibleCoupleRepository.EC_TABLE_NAME, EligibleCoupleRepository.EC_TABLE_COLUMNS);
         TABLE_COLUMN_MAP.put(MotherRepository.MOTHER_TABLE_NAME, MotherRepository.MOTHER_TABLE_COLUMNS);
         TABLE_COLUMN_MAP.put(ChildRepository.CHILD_TABLE_NAME, ChildRepository.CHILD_TABLE_COLUMNS);
+
+        TABLE_PROMOTED_DETAILS_MAP = new HashMap<String, String[]>();
+        TABLE_PROMOTED_DETAILS_MAP.put(EligibleCoupleRepository.EC_TABLE_NAME, EligibleCoupleRepository.EC_PROMOTED_DETAIL_FIELDS);
+        TABLE_PROMOTED_DETAILS_MAP.put(MotherRepository.MOTHER_TABLE_NAME, MotherRepository.MOTHER_PROMOTED_DETAIL_FIELDS);
+        TABLE_PROMOTED_DETAILS_MAP.put(ChildRepository.CHILD_TABLE_NAME, ChildRepository.CHILD_PROMOTED_DETAIL_FIELDS);
+
+        Set<String> promotedDetailFields = new HashSet<String>();
+        for (String[] fields : TABLE_PROMOTED_DETAILS_MAP.values()) {
+            promotedDetailFields.addAll(asList(fields));
+        }
+        cursorJsonWriter = new CursorJsonWriter(DETAILS_COLUMN_NAME, promotedDetailFields);
     }
 
     @Override
@@ -52,41 +77,45 @@ public class FormDataRepository extends DrishtiRepository {
         database.execSQL(FORM_SUBMISSION_SQL);
     }
 
+    @Override
+    protected List<Migration> migrations() {
+        return asList(new Migration(2, FORM_SUBMISSION_SYNC_STATUS_INDEX_SQL));
+    }
+
     public String queryUniqueResult(String sql) {
         SQLiteDatabase database = masterRepository.getReadableDatabase();
         Cursor cursor = database.rawQuery(sql, new String[]{});
-
-        cursor.moveToFirst();
-        Map<String, String> result = readARow(cursor);
-        cursor.close();
-
-        return new Gson().toJson(result);
+        try {
+            return cursorJsonWriter.firstRow(cursor);
+        } finally {
+            cursor.close();
+        }
     }
 
     public String queryList(String sql) {
         SQLiteDatabase database = masterRepository.getReadableDatabase();
         Cursor cursor = database.rawQuery(sql, new String[]{});
-        List<Map<String, String>> results = new ArrayList<Map<String, String>>();
-        cursor.moveToFirst();
-        while (!cursor.isAfterLast()) {
-            results.add(readARow(cursor));
-            cursor.moveToNext();
+        try {
+            return cursorJsonWriter.allRows(cursor);
+        } finally {
+            cursor.close();
         }
-        cursor.close();
-        return new Gson().toJson(results);
     }
 
     public String saveFormSubmission(String paramsJSON, String data, String formDataDefinitionVersion) {
-        SQLiteDatabase database = masterRepository.getWritableDatabase();
-        Map<String, String> params = new Gson().fromJson(paramsJSON, new TypeToken<Map<String, String>>() {
-        }.getType());
-        database.insert(FORM_SUBMISSION_TABLE_NAME, null, createValuesForFormSubmission(params, data, formDataDefinitionVersion));
+        Map<String, String> params = DetailsCodec.decode(paramsJSON);
+        insertFormSubmission(params.get(INSTANCE_ID_PARAM), valuesForFormSubmission(params, data, formDataDefinitionVersion));
         return params.get(INSTANCE_ID_PARAM);
     }
 
     public void saveFormSubmission(FormSubmission formSubmission) {
-        SQLiteDatabase database = masterRepository.getWritableDatabase();
-        database.insert(FORM_SUBMISSION_TABLE_NAME, null, createValuesForFormSubmission(formSubmission));
+        insertFormSubmission(formSubmission.instanceId(), valuesForFormSubmission(formSubmission));
+    }
+
+    private void insertFormSubmission(String instanceId, Object[] values) {
+        if (executeInsert(INSERT_FORM_SUBMISSION_SQL, values) == -1) {
+            logWarn("Form submission " + instanceId + " already exists and was not saved again.");
+        }
     }
 
     public FormSubmission fetchFromSubmission(String instanceId) {
@@ -107,69 +136,64 @@ public class FormDataRepository extends DrishtiRepository {
                 new String[]{PENDING.value()});
     }
 
-    public void markFormSubmissionsAsSynced(List<FormSubmission> formSubmissions) {
-        SQLiteDatabase database = masterRepository.getWritableDatabase();
-        for (FormSubmission submission : formSubmissions) {
-            FormSubmission updatedSubmission = new FormSubmission(submission.instanceId(), submission.entityId(), submission.formName(), submission.instance(), submission.version(), SYNCED, "1");
-            database.update(FORM_SUBMISSION_TABLE_NAME, createValuesForFormSubmission(updatedSubmission), INSTANCE_ID_COLUMN + " = ?", new String[]{updatedSubmission.instanceId()});
-        }
+    public void markFormSubmissionsAsSynced(final List<FormSubmission> formSubmissions) {
+        inTransaction(new UnitOfWork<Void>() {
+            @Override
+            public Void run() {
+                for (FormSubmission submission : formSubmissions) {
+                    execute(UPDATE_SYNC_STATUS_SQL, SYNCED.value(), submission.instanceId());
+                }
+                return null;
+            }
+        });
     }
 
     public void updateServerVersion(String instanceId, String serverVersion) {
-        SQLiteDatabase database = masterRepository.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(SERVER_VERSION_COLUMN, serverVersion);
-        database.update(FORM_SUBMISSION_TABLE_NAME, values, INSTANCE_ID_COLUMN + " = ?", new String[]{instanceId});
+        execute(UPDATE_SERVER_VERSION_SQL, serverVersion, instanceId);
     }
 
     public boolean submissionExists(String instanceId) {
-        SQLiteDatabase database = masterRepository.getReadableDatabase();
-        Cursor cursor = database.query(FORM_SUBMISSION_TABLE_NAME, new String[]{INSTANCE_ID_COLUMN}, INSTANCE_ID_COLUMN + " = ?", new String[]{instanceId}, null, null, null);
-        boolean isThere = cursor.moveToFirst();
-        cursor.close();
-        return isThere;
+        return longForStatement(SUBMISSION_EXISTS_SQL, instanceId) > 0;
     }
 
     public String saveEntity(String entityType, String fields) {
         SQLiteDatabase database = masterRepository.getWritableDatabase();
-        Map<String, String> updatedFieldsMap = new Gson().fromJson(fields, new TypeToken<Map<String, String>>() {
-        }.getType());
-
-        String entityId = updatedFieldsMap.get(ENTITY_ID_FIELD_NAME);
-        Map<String, String> entityMap = loadEntityMap(entityType, database, entityId);
+        Map<String, String> entityFields = DetailsCodec.decode(fields);
+        Map<String, Map<String, String>> storedDetails = hasDetails(entityType, entityFields)
+                ? storedDetails(database, entityType, asList(entityFields.get(ENTITY_ID_FIELD_NAME))) : null;
+        return upsertEntity(database, entityType, entityFields, storedDetails);
+    }
 
-        ContentValues contentValues = getContentValues(updatedFieldsMap, entityType, entityMap);
-        database.replace(entityType, null, contentValues);
-        return entityId;
+    public List<String> saveEntities(final Map<String, List<Map<String, String>>> entitiesByType) {
+        return inTransaction(new UnitOfWork<List<String>>() {
+            @Override
+            public List<String> run() {
+                SQLiteDatabase database = masterRepository.getWritableDatabase();
+                List<String> entityIds = new ArrayList<String>();
+                for (String entityType : entitiesByType.keySet()) {
+                    List<Map<String, String>> entities = entitiesByType.get(entityType);
+                    Map<String, Map<String, String>> storedDetails = storedDetails(database, entityType, idsOf(entities));
+                    for (Map<String, String> fields : entities) {
+                        entityIds.add(upsertEntity(database, entityType, fields, storedDetails));
+                    }
+                }
+                return entityIds;
+            }
+        });
     }
 
-    private ContentValues createValuesForFormSubmission(FormSubmission submission) {
-        ContentValues values = new ContentValues();
-        values.put(INSTANCE_ID_COLUMN, submission.instanceId());
-        values.put(ENTITY_ID_COLUMN, submission.entityId());
-        values.put(FORM_NAME_COLUMN, submission.formName());
-        values.put(INSTANCE_COLUMN, submission.instance());
-        values.put(VERSION_COLUMN, submission.version());
-        values.put(SERVER_VERSION_COLUMN, submission.serverVersion());
-        values.put(FORM_DATA_DEFINITION_VERSION_COLUMN, submission.formDataDefinitionVersion());
-        values.put(SYNC_STATUS_COLUMN, submission.syncStatus().value());
-        return values;
+    private Object[] valuesForFormSubmission(FormSubmission submission) {
+        return new Object[]{submission.instanceId(), submission.entityId(), submission.formName(), submission.instance(),
+                submission.version(), submission.serverVersion(), submission.formDataDefinitionVersion(), submission.syncStatus().value()};
     }
 
-    private ContentValues createValuesForFormSubmission(Map<String, String> params, String data, String formDataDefinitionVersion) {
-        ContentValues values = new ContentValues();
-        values.put(INSTANCE_ID_COLUMN, params.get(INSTANCE_ID_PARAM));
-        values.put(ENTITY_ID_COLUMN, params.get(ENTITY_ID_PARAM));
-        values.put(FORM_NAME_COLUMN, params.get(FORM_NAME_PARAM));
-        values.put(INSTANCE_COLUMN, data);
-        values.put(VERSION_COLUMN, currentTimeMillis());
-        values.put(FORM_DATA_DEFINITION_VERSION_COLUMN, formDataDefinitionVersion);
+    private Object[] valuesForFormSubmission(Map<String, String> params, String data, String formDataDefinitionVersion) {
         String syncStatus = PENDING.value();
         if (params.containsKey(SYNC_STATUS)) {
             syncStatus = params.get(SYNC_STATUS);
         }
-        values.put(SYNC_STATUS_COLUMN, syncStatus);
-        return values;
+        return new Object[]{params.get(INSTANCE_ID_PARAM), params.get(ENTITY_ID_PARAM), params.get(FORM_NAME_PARAM), data,
+                currentTimeMillis(), null, formDataDefinitionVersion, syncStatus};
     }
 
     private List<FormSubmission> readFormSubmission(Cursor cursor) {
@@ -192,73 +216,92 @@ public class FormDataRepository extends DrishtiRepository {
         return submissions;
     }
 
-    private Map<String, String> readARow(Cursor cursor) {
-        Map<String, String> columnValues = new HashMap<String, String>();
-        if (cursor.isAfterLast())
-            return columnValues;
-        String[] columns = cursor.getColumnNames();
-        int numberOfColumns = columns.length;
-        for (int index = 0; index < numberOfColumns; index++) {
-            if (DETAILS_COLUMN_NAME.equalsIgnoreCase(columns[index])) {
-                Map<String, String> details = new Gson().fromJson(cursor.getString(index), new TypeToken<Map<String, String>>() {
-                }.getType());
-                columnValues.putAll(details);
+    // storedDetails holds the details of those entities being saved that are already stored. Without it, only columns
+    // can be saved and the update itself finds out whether the entity is stored.
+    private String upsertEntity(SQLiteDatabase database, String entityType, Map<String, String> fields,
+                                Map<String, Map<String, String>> storedDetails) {
+        String entityId = fields.get(ENTITY_ID_FIELD_NAME);
+        List<String> columns = asList(TABLE_COLUMN_MAP.get(entityType));
+        ContentValues values = new ContentValues();
+        Map<String, String> updatedDetails = new HashMap<String, String>();
+        for (String fieldName : fields.keySet()) {
+            if (ID_COLUMN.equals(fieldName)) {
+                continue;
+            }
+            if (columns.contains(fieldName)) {
+                values.put(fieldName, fields.get(fieldName));
             } else {
-                columnValues.put(columns[index], cursor.getString(index));
+                updatedDetails.put(fieldName, fields.get(fieldName));
             }
         }
-        return columnValues;
-    }
 
-    private ContentValues getContentValues(Map<String, String> updatedFieldsMap, String entityType, Map<String, String> entityMap) {
-        List<String> columns = asList(TABLE_COLUMN_MAP.get(entityType));
-        ContentValues contentValues = initializeContentValuesBasedExistingValues(entityMap);
-        Map<String, String> details = initializeDetailsBasedOnExistingValues(entityMap);
+        boolean isStored;
+        if (storedDetails == null) {
+            isStored = updateEntity(database, entityType, entityId, values);
+        } else {
+            isStored = storedDetails.containsKey(entityId);
+            if (!updatedDetails.isEmpty()) {
+                Map<String, String> details = isStored ? storedDetails.get(entityId) : new HashMap<String, String>();
+                details.putAll(updatedDetails);
+                values.put(DETAILS_COLUMN_NAME, DetailsCodec.encode(details));
+                putPromotedDetails(values, TABLE_PROMOTED_DETAILS_MAP.get(entityType), details);
+                storedDetails.put(entityId, details);
+            }
+            if (isStored && values.size() > 0) {
+                database.update(entityType, values, ID_COLUMN + " = ?", new String[]{entityId});
+            }
+        }
 
-        for (String fieldName : updatedFieldsMap.keySet()) {
-            if (columns.contains(fieldName)) {
-                contentValues.put(fieldName, updatedFieldsMap.get(fieldName));
-            } else {
-                details.put(fieldName, updatedFieldsMap.get(fieldName));
+        if (!isStored) {
+            if (!values.containsKey(DETAILS_COLUMN_NAME)) {
+                values.put(DETAILS_COLUMN_NAME, DetailsCodec.encode(new HashMap<String, String>()));
+            }
+            values.put(ID_COLUMN, entityId);
+            database.insert(entityType, null, values);
+            if (storedDetails != null && !storedDetails.containsKey(entityId)) {
+                storedDetails.put(entityId, new HashMap<String, String>());
             }
         }
-        contentValues.put(DETAILS_COLUMN_NAME, new Gson().toJson(details));
+        return entityId;
+    }
 
-        return contentValues;
+    private boolean updateEntity(SQLiteDatabase database, String entityType, String entityId, ContentValues values) {
+        if (values.size() == 0) {
+            return longForQuery(database, "SELECT COUNT(1) FROM " + entityType + " WHERE " + ID_COLUMN + " = ?", new String[]{entityId}) > 0;
+        }
+        return database.update(entityType, values, ID_COLUMN + " = ?", new String[]{entityId}) > 0;
     }
 
-    private Map<String, String> initializeDetailsBasedOnExistingValues(Map<String, String> entityMap) {
-        Map<String, String> details;
-        String detailsJSON = entityMap.get(DETAILS_COLUMN_NAME);
-        if (detailsJSON == null) {
-            details = new HashMap<String, String>();
-        } else {
-            details = new Gson().fromJson(detailsJSON, new TypeToken<Map<String, String>>() {
-            }.getType());
+    private boolean hasDetails(String entityType, Map<String, String> fields) {
+        List<String> columns = asList(TABLE_COLUMN_MAP.get(entityType));
+        for (String fieldName : fields.keySet()) {
+            if (!ID_COLUMN.equals(fieldName) && !columns.contains(fieldName)) {
+                return true;
+            }
         }
-        return details;
+        return false;
     }
 
-    private ContentValues initializeContentValuesBasedExistingValues(Map<String, String> entityMap) {
-        ContentValues contentValues = new ContentValues();
-        for (String column : entityMap.keySet()) {
-            contentValues.put(column, entityMap.get(column));
+    private List<String> idsOf(List<Map<String, String>> entities) {
+        List<String> entityIds = new ArrayList<String>();
+        for (Map<String, String> fields : entities) {
+            entityIds.add(fields.get(ENTITY_ID_FIELD_NAME));
         }
-        return contentValues;
+        return entityIds;
     }
 
-    private Map<String, String> loadEntityMap(String entityType, SQLiteDatabase database, String entityId) {
-        Map<String, String> entityMap = new HashMap<String, String>();
-        Cursor cursor = database.query(entityType,
-                TABLE_COLUMN_MAP.get(entityType), ID_COLUMN + " =?", new String[]{entityId}, null, null, null);
-        if (!cursor.isAfterLast()) {
-            cursor.moveToFirst();
-            for (String column : cursor.getColumnNames()) {
-                entityMap.put(column, cursor.getString(cursor.getColumnIndex(column)));
+    private Map<String, Map<String, String>> storedDetails(SQLiteDatabase database, String entityType, List<String> entityIds) {
+        Map<String, Map<String, String>> storedDetails = new HashMap<String, Map<String, String>>();
+        for (List<String> ids : partition(entityIds, MAX_BIND_ARGUMENTS)) {
+            Cursor cursor = database.query(entityType, new String[]{ID_COLUMN, DETAILS_COLUMN_NAME},
+                    ID_COLUMN + " IN (" + repeat("?", ", ", ids.size()) + ")", ids.toArray(new String[ids.size()]), null, null, null);
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                Map<String, String> details = DetailsCodec.decode(cursor.getString(1));
+                storedDetails.put(cursor.getString(0), details == null ? new HashMap<String, String>() : details);
             }
+            cursor.close();
         }
-        cursor.close();
-        return entityMap;
+        return storedDetails;
     }
 
     public String generateIdFor(String entityType) {
@@ -0,0 +1,88 @@
+package org.ei.drishti.repository;
+
+import org.apache.commons.lang3.ObjectUtils;
+import org.ei.drishti.util.IntegerUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.text.MessageFormat.format;
+
+public class Keyset {
+    public static final Keyset FIRST_PAGE = new Keyset(null, null);
+
+    private final String sortKey;
+    private final String id;
+
+    public Keyset(String sortKey, String id) {
+        this.sortKey = sortKey;
+        this.id = id;
+    }
+
+    public String sortKey() {
+        return sortKey;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public static int compareIgnoringCase(String sortKey, String id, String anotherSortKey, String anotherId) {
+        int bySortKey = compareIgnoringCase(sortKey, anotherSortKey);
+        return bySortKey != 0 ? bySortKey : ObjectUtils.compare(id, anotherId);
+    }
+
+    static String ignoringCase(String sortColumn) {
+        return sortColumn + " COLLATE NOCASE";
+    }
+
+    private static int compareIgnoringCase(String value, String anotherValue) {
+        if (value == null || anotherValue == null) {
+            return ObjectUtils.compare(value, anotherValue);
+        }
+        int index = 0;
+        int anotherIndex = 0;
+        while (index < value.length() && anotherIndex < anotherValue.length()) {
+            int codePoint = value.codePointAt(index);
+            int anotherCodePoint = anotherValue.codePointAt(anotherIndex);
+            int difference = IntegerUtil.compare(toLowerCaseASCII(codePoint), toLowerCaseASCII(anotherCodePoint));
+            if (difference != 0) {
+                return difference;
+            }
+            index += Character.charCount(codePoint);
+            anotherIndex += Character.charCount(anotherCodePoint);
+        }
+        return IntegerUtil.compare(value.length() - index, anotherValue.length() - anotherIndex);
+    }
+
+    private static int toLowerCaseASCII(int codePoint) {
+        return codePoint >= 'A' && codePoint <= 'Z' ? codePoint + ('a' - 'A') : codePoint;
+    }
+
+    String whereClause(String sortColumn, String idColumn) {
+        if (this == FIRST_PAGE) {
+            return "1 = 1";
+        }
+        if (sortKey == null) {
+            return format("(({0} IS NULL AND {1} > ?) OR {0} IS NOT NULL)", sortColumn, idColumn);
+        }
+        return format("({0} > ? OR ({0} = ? AND {1} > ?))", sortColumn, idColumn);
+    }
+
+    String orderByClause(String sortColumn, String idColumn) {
+        return sortColumn + ", " + idColumn;
+    }
+
+    List<String> arguments() {
+        List<String> arguments = new ArrayList<String>();
+        if (this == FIRST_PAGE) {
+            return arguments;
+        }
+        if (sortKey != null) {
+            arguments.add(sortKey);
+            arguments.add(sortKey);
+        }
+        arguments.add(id);
+        return arguments;
+    }
+}
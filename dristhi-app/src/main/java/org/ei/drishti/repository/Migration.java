@@ -0,0 +1,23 @@
+package org.ei.drishti.repository;
+
+import net.sqlcipher.database.SQLiteDatabase;
+
+public class Migration {
+    private final int version;
+    private final String[] statements;
+
+    public Migration(int version, String... statements) {
+        this.version = version;
+        this.statements = statements;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public void migrate(SQLiteDatabase database) {
+        for (String statement : statements) {
+            database.execSQL(statement);
+        }
+    }
+}
@@ -2,41 +2,64 @@ package org.ei.drishti.repository;
 
 import android.content.ContentValues;
 import android.database.Cursor;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import net.sqlcipher.database.SQLiteDatabase;
 import org.apache.commons.lang3.tuple.Pair;
 import org.ei.drishti.domain.EligibleCouple;
 import org.ei.drishti.domain.Mother;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static com.google.common.collect.Lists.partition;
 import static java.lang.Boolean.TRUE;
+import static java.util.Arrays.asList;
 import static net.sqlcipher.DatabaseUtils.longForQuery;
 import static org.apache.commons.lang3.StringUtils.join;
 import static org.apache.commons.lang3.StringUtils.repeat;
+import static org.ei.drishti.AllConstants.ANCRegistrationFields.EDD;
 import static org.ei.drishti.repository.EligibleCoupleRepository.*;
 
 public class MotherRepository extends DrishtiRepository {
     private static final String MOTHER_SQL = "CREATE TABLE mother(id VARCHAR PRIMARY KEY, ecCaseId VARCHAR, thayiCardNumber VARCHAR, type VARCHAR, referenceDate VARCHAR, details VARCHAR, isClosed VARCHAR)";
     private static final String MOTHER_TYPE_INDEX_SQL = "CREATE INDEX mother_type_index ON mother(type);";
     private static final String MOTHER_REFERENCE_DATE_INDEX_SQL = "CREATE INDEX mother_referenceDate_index ON mother(referenceDate);";
+    private static final String MOTHER_EC_CASE_ID_IS_CLOSED_INDEX_SQL = "CREATE INDEX IF NOT EXISTS mother_ecCaseId_isClosed_index ON mother(ecCaseId, isClosed);";
+    private static final String MOTHER_TYPE_IS_CLOSED_EDD_INDEX_SQL = "CREATE INDEX IF NOT EXISTS mother_type_isClosed_edd_index ON mother(type, isClosed, edd, id);";
+    // EDD is stored in the form date format, which does not sort by date, so nothing reads the promoted column any more.
+    private static final String[] CLEAR_EDD_COLUMN_SQL = {"DROP INDEX IF EXISTS mother_type_isClosed_edd_index",
+            "DROP INDEX IF EXISTS mother_edd_index", "UPDATE mother SET edd = NULL"};
     public static final String MOTHER_TABLE_NAME = "mother";
     public static final String ID_COLUMN = "id";
     public static final String EC_CASEID_COLUMN = "ecCaseId";
     public static final String THAYI_CARD_NUMBER_COLUMN = "thayiCardNumber";
-    private static final String TYPE_COLUMN = "type";
+    public static final String TYPE_COLUMN = "type";
     public static final String REF_DATE_COLUMN = "referenceDate";
     public static final String DETAILS_COLUMN = "details";
-    private static final String IS_CLOSED_COLUMN = "isClosed";
+    public static final String IS_CLOSED_COLUMN = "isClosed";
     public static final String[] MOTHER_TABLE_COLUMNS = {ID_COLUMN, EC_CASEID_COLUMN, THAYI_CARD_NUMBER_COLUMN, TYPE_COLUMN, REF_DATE_COLUMN, DETAILS_COLUMN, IS_CLOSED_COLUMN};
+    public static final String[] MOTHER_PROMOTED_DETAIL_FIELDS = {};
 
     public static final String TYPE_ANC = "ANC";
     public static final String TYPE_PNC = "PNC";
     private static final String NOT_CLOSED = "false";
 
+    private static final RowMapper<Pair<Mother, EligibleCouple>> MOTHER_WITH_EC_ROW_MAPPER = new RowMapper<Pair<Mother, EligibleCouple>>() {
+        @Override
+        public Pair<Mother, EligibleCouple> map(Cursor cursor) {
+            Mother mother = new Mother(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(4))
+                    .withType(cursor.getString(cursor.getColumnIndex(TYPE_COLUMN)))
+                    .withDetails(DetailsCodec.decode(cursor.getString(5)));
+            EligibleCouple eligibleCouple = new EligibleCouple(cursor.getString(7), cursor.getString(8), cursor.getString(9), cursor.getString(10), cursor.getString(11), cursor.getString(12),
+                    DetailsCodec.decode(cursor.getString(14))).withPhotoPath(cursor.getString(cursor.getColumnIndex(EligibleCoupleRepository.PHOTO_PATH_COLUMN)));
+            if (Boolean.valueOf(cursor.getString(cursor.getColumnIndex(IS_OUT_OF_AREA_COLUMN)))) {
+                eligibleCouple.asOutOfArea();
+            }
+            return Pair.of(mother, eligibleCouple);
+        }
+    };
+
     @Override
     protected void onCreate(SQLiteDatabase database) {
         database.execSQL(MOTHER_SQL);
@@ -44,6 +67,14 @@ public class MotherRepository extends DrishtiRepository {
         database.execSQL(MOTHER_REFERENCE_DATE_INDEX_SQL);
     }
 
+    @Override
+    protected List<Migration> migrations() {
+        return asList(new Migration(2, MOTHER_EC_CASE_ID_IS_CLOSED_INDEX_SQL),
+                new PromotedDetailsMigration(3, MOTHER_TABLE_NAME, EDD),
+                new Migration(4, MOTHER_TYPE_IS_CLOSED_EDD_INDEX_SQL),
+                new Migration(7, CLEAR_EDD_COLUMN_SQL));
+    }
+
     public void add(Mother mother) {
         SQLiteDatabase database = masterRepository.getWritableDatabase();
         database.insert(MOTHER_TABLE_NAME, null, createValuesFor(mother, TYPE_ANC));
@@ -107,14 +138,46 @@ public class MotherRepository extends DrishtiRepository {
         return readAll(cursor);
     }
 
+    public List<Mother> findAllCasesForECs(String... ecCaseIds) {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        List<Mother> mothers = new ArrayList<Mother>();
+        for (List<String> ecCaseIdsInChunk : partition(asList(ecCaseIds), MAX_BIND_ARGUMENTS)) {
+            Cursor cursor = database.rawQuery(String.format("SELECT * FROM %s WHERE %s IN (%s)", MOTHER_TABLE_NAME, EC_CASEID_COLUMN,
+                    insertPlaceholdersForInClause(ecCaseIdsInChunk.size())), ecCaseIdsInChunk.toArray(new String[ecCaseIdsInChunk.size()]));
+            mothers.addAll(readAll(cursor));
+        }
+        return mothers;
+    }
+
     public List<Pair<Mother, EligibleCouple>> allMothersOfATypeWithEC(String type) {
         SQLiteDatabase database = masterRepository.getReadableDatabase();
-        Cursor cursor = database.rawQuery("SELECT " + tableColumnsForQuery(MOTHER_TABLE_NAME, MOTHER_TABLE_COLUMNS) + ", " + tableColumnsForQuery(EC_TABLE_NAME, EC_TABLE_COLUMNS) +
+        Cursor cursor = database.rawQuery(allMothersOfATypeWithECQuery(type), null);
+        return readAllMothersWithEC(cursor);
+    }
+
+    public List<Pair<Mother, EligibleCouple>> mothersOfATypeWithECOrderedByName(String type, Keyset after, int limit) {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        String sortColumn = Keyset.ignoringCase(EC_TABLE_NAME + "." + WIFE_NAME_COLUMN);
+        String idColumn = MOTHER_TABLE_NAME + "." + ID_COLUMN;
+        List<String> arguments = after.arguments();
+        Cursor cursor = database.rawQuery(allMothersOfATypeWithECQuery(type) + " AND " + after.whereClause(sortColumn, idColumn) +
+                " ORDER BY " + after.orderByClause(sortColumn, idColumn) + " LIMIT " + limit, arguments.toArray(new String[arguments.size()]));
+        return readAllMothersWithEC(cursor);
+    }
+
+    public List<Pair<Mother, EligibleCouple>> findMothersOfATypeWithECByECIds(String type, String... ecCaseIds) {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        Cursor cursor = database.rawQuery(allMothersOfATypeWithECQuery(type) + " AND " + MOTHER_TABLE_NAME + "." + EC_CASEID_COLUMN +
+                " IN (" + insertPlaceholdersForInClause(ecCaseIds.length) + ")", ecCaseIds);
+        return readAllMothersWithEC(cursor);
+    }
+
+    private String allMothersOfATypeWithECQuery(String type) {
+        return "SELECT " + tableColumnsForQuery(MOTHER_TABLE_NAME, MOTHER_TABLE_COLUMNS) + ", " + tableColumnsForQuery(EC_TABLE_NAME, EC_TABLE_COLUMNS) +
                 " FROM " + MOTHER_TABLE_NAME + ", " + EC_TABLE_NAME +
                 " WHERE " + TYPE_COLUMN + "='" + type +
                 "' AND " + MOTHER_TABLE_NAME + "." + IS_CLOSED_COLUMN + "= '" + NOT_CLOSED + "' AND " +
-                MOTHER_TABLE_NAME + "." + EC_CASEID_COLUMN + " = " + EC_TABLE_NAME + "." + EligibleCoupleRepository.ID_COLUMN, null);
-        return readAllMothersWithEC(cursor);
+                MOTHER_TABLE_NAME + "." + EC_CASEID_COLUMN + " = " + EC_TABLE_NAME + "." + EligibleCoupleRepository.ID_COLUMN;
     }
 
     public void closeAllCasesForEC(String ecCaseId) {
@@ -137,8 +200,9 @@ public class MotherRepository extends DrishtiRepository {
         values.put(THAYI_CARD_NUMBER_COLUMN, mother.thayiCardNumber());
         values.put(TYPE_COLUMN, type);
         values.put(REF_DATE_COLUMN, mother.referenceDate());
-        values.put(DETAILS_COLUMN, new Gson().toJson(mother.details()));
+        values.put(DETAILS_COLUMN, DetailsCodec.encode(mother.details()));
         values.put(IS_CLOSED_COLUMN, Boolean.toString(mother.isClosed()));
+        putPromotedDetails(values, MOTHER_PROMOTED_DETAIL_FIELDS, mother.details());
         return values;
     }
 
@@ -146,8 +210,7 @@ public class MotherRepository extends DrishtiRepository {
         cursor.moveToFirst();
         List<Mother> mothers = new ArrayList<Mother>();
         while (!cursor.isAfterLast()) {
-            Map<String, String> details = new Gson().fromJson(cursor.getString(5), new TypeToken<Map<String, String>>() {
-            }.getType());
+            Map<String, String> details = DetailsCodec.decode(cursor.getString(5));
 
             mothers.add(new Mother(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(4))
                     .withDetails(details)
@@ -163,18 +226,7 @@ public class MotherRepository extends DrishtiRepository {
         cursor.moveToFirst();
         List<Pair<Mother, EligibleCouple>> ancsWithEC = new ArrayList<Pair<Mother, EligibleCouple>>();
         while (!cursor.isAfterLast()) {
-            Mother mother = new Mother(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(4))
-                    .withType(cursor.getString(cursor.getColumnIndex(TYPE_COLUMN)))
-                    .withDetails(new Gson().<Map<String, String>>fromJson(cursor.getString(5), new TypeToken<Map<String, String>>() {
-                    }.getType()));
-            EligibleCouple eligibleCouple = new EligibleCouple(cursor.getString(7), cursor.getString(8), cursor.getString(9), cursor.getString(10), cursor.getString(11), cursor.getString(12),
-                    new Gson().<Map<String, String>>fromJson(cursor.getString(14), new TypeToken<Map<String, String>>() {
-                    }.getType())).withPhotoPath(cursor.getString(cursor.getColumnIndex(EligibleCoupleRepository.PHOTO_PATH_COLUMN)));
-            if (Boolean.valueOf(cursor.getString(cursor.getColumnIndex(IS_OUT_OF_AREA_COLUMN)))) {
-                eligibleCouple.asOutOfArea();
-            }
-
-            ancsWithEC.add(Pair.of(mother, eligibleCouple));
+            ancsWithEC.add(MOTHER_WITH_EC_ROW_MAPPER.map(cursor));
             cursor.moveToNext();
         }
         cursor.close();
@@ -205,6 +257,33 @@ public class MotherRepository extends DrishtiRepository {
         return mothers.isEmpty() ? null : mothers.get(0);
     }
 
+    public Map<String, Mother> allOpenMothersByECId() {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        Cursor cursor = database.query(MOTHER_TABLE_NAME, MOTHER_TABLE_COLUMNS, IS_CLOSED_COLUMN + " = ?", new String[]{NOT_CLOSED}, null, null, null, null);
+        return firstMotherOfEachEC(readAll(cursor));
+    }
+
+    public Map<String, Mother> findOpenMothersByECIds(String... ecIds) {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        List<Mother> mothers = new ArrayList<Mother>();
+        for (List<String> ecIdsInChunk : partition(asList(ecIds), MAX_BIND_ARGUMENTS)) {
+            Cursor cursor = database.rawQuery(String.format("SELECT * FROM %s WHERE %s IN (%s) AND %s = '%s'", MOTHER_TABLE_NAME, EC_CASEID_COLUMN,
+                    insertPlaceholdersForInClause(ecIdsInChunk.size()), IS_CLOSED_COLUMN, NOT_CLOSED), ecIdsInChunk.toArray(new String[ecIdsInChunk.size()]));
+            mothers.addAll(readAll(cursor));
+        }
+        return firstMotherOfEachEC(mothers);
+    }
+
+    private Map<String, Mother> firstMotherOfEachEC(List<Mother> mothers) {
+        Map<String, Mother> mothersByECId = new HashMap<String, Mother>();
+        for (Mother mother : mothers) {
+            if (!mothersByECId.containsKey(mother.ecCaseId())) {
+                mothersByECId.put(mother.ecCaseId(), mother);
+            }
+        }
+        return mothersByECId;
+    }
+
     public boolean isPregnant(String ecId) {
         return longForQuery(masterRepository.getReadableDatabase(), "SELECT COUNT(1) FROM " + MOTHER_TABLE_NAME
                         + " WHERE " + EC_CASEID_COLUMN + " = ? AND " + IS_CLOSED_COLUMN + " = ? AND " + TYPE_COLUMN + " = ?",
@@ -0,0 +1,61 @@
+package org.ei.drishti.repository;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import net.sqlcipher.database.SQLiteDatabase;
+
+import java.util.Map;
+
+import static java.text.MessageFormat.format;
+
+public class PromotedDetailsMigration extends Migration {
+    private static final String ID_COLUMN = "id";
+    private static final String DETAILS_COLUMN = "details";
+
+    private final String table;
+    private final boolean addsColumns;
+    private final String[] promotedFields;
+
+    public PromotedDetailsMigration(int version, String table, String... promotedFields) {
+        this(version, table, true, promotedFields);
+    }
+
+    private PromotedDetailsMigration(int version, String table, boolean addsColumns, String... promotedFields) {
+        super(version);
+        this.table = table;
+        this.addsColumns = addsColumns;
+        this.promotedFields = promotedFields;
+    }
+
+    public static PromotedDetailsMigration refreshing(int version, String table, String... promotedFields) {
+        return new PromotedDetailsMigration(version, table, false, promotedFields);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase database) {
+        if (addsColumns) {
+            for (String field : promotedFields) {
+                database.execSQL(format("ALTER TABLE {0} ADD COLUMN {1} VARCHAR", table, field));
+                database.execSQL(format("CREATE INDEX IF NOT EXISTS {0}_{1}_index ON {0}({1})", table, field));
+            }
+        }
+        copyDetailsIntoPromotedColumns(database);
+    }
+
+    private void copyDetailsIntoPromotedColumns(SQLiteDatabase database) {
+        Cursor cursor = database.query(table, new String[]{ID_COLUMN, DETAILS_COLUMN}, null, null, null, null, null);
+        cursor.moveToFirst();
+        while (!cursor.isAfterLast()) {
+            Map<String, String> details = DetailsCodec.decode(cursor.getString(1));
+            if (details != null) {
+                ContentValues values = new ContentValues();
+                for (String field : promotedFields) {
+                    values.put(field, DrishtiRepository.promotedValue(details.get(field)));
+                }
+                database.update(table, values, ID_COLUMN + " = ?", new String[]{cursor.getString(0)});
+            }
+            cursor.moveToNext();
+        }
+        cursor.close();
+    }
+}
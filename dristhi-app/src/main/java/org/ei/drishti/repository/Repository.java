@@ -1,21 +1,58 @@
 package org.ei.drishti.repository;
 
 import android.content.Context;
+import android.database.Cursor;
 import net.sqlcipher.database.SQLiteDatabase;
 import net.sqlcipher.database.SQLiteOpenHelper;
 import org.ei.drishti.util.Session;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.text.MessageFormat.format;
+import static org.ei.drishti.util.Log.logInfo;
 
 public class Repository extends SQLiteOpenHelper {
+    private static final String SAVEPOINT_PREFIX = "unit_of_work_";
+    private static final int INITIAL_DATABASE_VERSION = 1;
+    private static final String WAL_JOURNAL_MODE = "wal";
+    // SQLCipher uses 1 KB pages, so a checkpoint runs once the log reaches the size it is truncated back to, rather
+    // than at SQLite's default of 1000 pages, which a sync's batch of form submissions crosses several times.
+    private static final int WAL_AUTO_CHECKPOINT_PAGES = 4096;
+    private static final long WAL_JOURNAL_SIZE_LIMIT_BYTES = 4 * 1024 * 1024;
     private DrishtiRepository[] repositories;
     private File databasePath;
     private Context context;
     private String dbName;
     private Session session;
+    private final StatementCache statementCache = new StatementCache();
+    private SQLiteDatabase readerDatabase;
+    private boolean writeAheadLoggingEnabled;
+    private final Object readTransactionLock = new Object();
+    private final ThreadLocal<Integer> transactionDepth = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return 0;
+        }
+    };
+    private final ThreadLocal<Boolean> inReadTransaction = new ThreadLocal<Boolean>() {
+        @Override
+        protected Boolean initialValue() {
+            return false;
+        }
+    };
+    private final ThreadLocal<List<Runnable>> actionsAfterCommit = new ThreadLocal<List<Runnable>>() {
+        @Override
+        protected List<Runnable> initialValue() {
+            return new ArrayList<Runnable>();
+        }
+    };
 
     public Repository(Context context, Session session, DrishtiRepository... repositories) {
-        super(context, session.repositoryName(), null, 1);
+        super(context, session.repositoryName(), null, latestVersion(repositories));
         this.repositories = repositories;
         this.databasePath = context.getDatabasePath(session.repositoryName());
         this.context = context;
@@ -33,17 +70,120 @@ public class Repository extends SQLiteOpenHelper {
         for (DrishtiRepository repository : repositories) {
             repository.onCreate(database);
         }
+        migrate(database, INITIAL_DATABASE_VERSION, latestVersion(repositories));
     }
 
     @Override
-    public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
+    public void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
+        migrate(database, oldVersion, newVersion);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase database) {
+        writeAheadLoggingEnabled = WAL_JOURNAL_MODE.equalsIgnoreCase(pragma(database, "journal_mode = " + WAL_JOURNAL_MODE));
+        if (writeAheadLoggingEnabled) {
+            pragma(database, "synchronous = NORMAL");
+            pragma(database, "wal_autocheckpoint = " + WAL_AUTO_CHECKPOINT_PAGES);
+            pragma(database, "journal_size_limit = " + WAL_JOURNAL_SIZE_LIMIT_BYTES);
+        } else {
+            logInfo("Write-ahead logging could not be enabled, reads will share the writer connection");
+        }
+    }
+
+    private String pragma(SQLiteDatabase database, String pragma) {
+        Cursor cursor = database.rawQuery("PRAGMA " + pragma, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void migrate(SQLiteDatabase database, int oldVersion, int newVersion) {
+        for (Migration migration : migrationsInOrder(repositories)) {
+            if (migration.version() > oldVersion && migration.version() <= newVersion) {
+                logInfo(format("Applying database migration to version {0}", migration.version()));
+                migration.migrate(database);
+            }
+        }
+    }
+
+    private static List<Migration> migrationsInOrder(DrishtiRepository[] repositories) {
+        List<Migration> migrations = new ArrayList<Migration>();
+        for (DrishtiRepository repository : repositories) {
+            migrations.addAll(repository.migrations());
+        }
+        Collections.sort(migrations, new Comparator<Migration>() {
+            @Override
+            public int compare(Migration migration, Migration anotherMigration) {
+                return migration.version() - anotherMigration.version();
+            }
+        });
+        return migrations;
+    }
+
+    private static int latestVersion(DrishtiRepository[] repositories) {
+        int version = INITIAL_DATABASE_VERSION;
+        for (Migration migration : migrationsInOrder(repositories)) {
+            version = Math.max(version, migration.version());
+        }
+        return version;
     }
 
     public SQLiteDatabase getReadableDatabase() {
         if (password() == null) {
             throw new RuntimeException("Password has not been set!");
         }
-        return super.getReadableDatabase(password());
+        if (isInTransaction()) {
+            return getWritableDatabase();
+        }
+        return readerDatabase();
+    }
+
+    // A single read-only connection shared by every thread that reads outside a unit of work. It is not a pool: reads
+    // on it take turns, but they never wait for the writer.
+    private synchronized SQLiteDatabase readerDatabase() {
+        SQLiteDatabase writerDatabase = getWritableDatabase();
+        if (!writeAheadLoggingEnabled) {
+            return writerDatabase;
+        }
+        if (readerDatabase == null || !readerDatabase.isOpen()) {
+            readerDatabase = SQLiteDatabase.openDatabase(databasePath.getPath(), password(), null, SQLiteDatabase.OPEN_READONLY);
+        }
+        return readerDatabase;
+    }
+
+    // Register builds read several tables one query at a time. Inside a read transaction they all see the same
+    // snapshot, however many writes commit meanwhile. Read transactions take turns on the reader, and other reads
+    // made on it while one is open see its snapshot too.
+    public <T> T inReadTransaction(UnitOfWork<T> unitOfWork) {
+        if (isInTransaction() || inReadTransaction.get()) {
+            return run(unitOfWork);
+        }
+        SQLiteDatabase database = getReadableDatabase();
+        if (database == getWritableDatabase()) {
+            return run(unitOfWork);
+        }
+        synchronized (readTransactionLock) {
+            database.execSQL("BEGIN");
+            inReadTransaction.set(true);
+            try {
+                return run(unitOfWork);
+            } finally {
+                inReadTransaction.set(false);
+                database.execSQL("END");
+            }
+        }
+    }
+
+    private <T> T run(UnitOfWork<T> unitOfWork) {
+        try {
+            return unitOfWork.run();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
     }
 
     public SQLiteDatabase getWritableDatabase() {
@@ -53,6 +193,105 @@ public class Repository extends SQLiteOpenHelper {
         return super.getWritableDatabase(password());
     }
 
+    public <T> T inTransaction(UnitOfWork<T> unitOfWork) {
+        SQLiteDatabase database = getWritableDatabase();
+        int depth = transactionDepth.get();
+        String savepoint = SAVEPOINT_PREFIX + depth;
+        if (depth == 0) {
+            database.beginTransaction();
+        } else {
+            database.execSQL("SAVEPOINT " + savepoint);
+        }
+        transactionDepth.set(depth + 1);
+
+        boolean successful = false;
+        try {
+            T result = unitOfWork.run();
+            if (depth == 0) {
+                beforeCommit();
+            }
+            successful = true;
+            return result;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            transactionDepth.set(depth);
+            boolean ended = false;
+            try {
+                if (depth == 0) {
+                    if (successful) {
+                        database.setTransactionSuccessful();
+                    }
+                    database.endTransaction();
+                } else {
+                    if (!successful) {
+                        database.execSQL("ROLLBACK TO " + savepoint);
+                    }
+                    database.execSQL("RELEASE " + savepoint);
+                }
+                ended = true;
+            } finally {
+                afterUnitOfWork(depth + 1, successful && ended);
+            }
+        }
+    }
+
+    private void beforeCommit() {
+        for (DrishtiRepository repository : repositories) {
+            repository.beforeCommit();
+        }
+    }
+
+    private void afterUnitOfWork(int depth, boolean successful) {
+        for (DrishtiRepository repository : repositories) {
+            repository.afterUnitOfWork(depth, successful);
+        }
+        if (depth == 1) {
+            List<Runnable> actions = new ArrayList<Runnable>(actionsAfterCommit.get());
+            actionsAfterCommit.get().clear();
+            if (successful) {
+                for (Runnable action : actions) {
+                    action.run();
+                }
+            }
+        }
+    }
+
+    public void afterCommit(Runnable action) {
+        if (isInTransaction()) {
+            actionsAfterCommit.get().add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    public boolean isInTransaction() {
+        return transactionDepth.get() > 0;
+    }
+
+    int currentTransactionDepth() {
+        return transactionDepth.get();
+    }
+
+    public StatementCache statementCache() {
+        return statementCache;
+    }
+
+    @Override
+    public synchronized void close() {
+        statementCache.clear();
+        for (DrishtiRepository repository : repositories) {
+            repository.onClose();
+        }
+        if (readerDatabase != null) {
+            readerDatabase.close();
+            readerDatabase = null;
+        }
+        super.close();
+    }
+
     public boolean canUseThisPassword(String password) {
         try {
             SQLiteDatabase database = SQLiteDatabase.openDatabase(databasePath.getPath(), password, null, SQLiteDatabase.OPEN_READONLY);
@@ -0,0 +1,7 @@
+package org.ei.drishti.repository;
+
+import android.database.Cursor;
+
+public interface RowMapper<T> {
+    public T map(Cursor cursor);
+}
@@ -1,23 +1,25 @@
 package org.ei.drishti.repository;
 
-import android.content.ContentValues;
 import android.database.Cursor;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import net.sqlcipher.database.SQLiteDatabase;
 import org.ei.drishti.domain.ServiceProvided;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static com.google.common.collect.Lists.partition;
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
 import static org.apache.commons.lang3.ArrayUtils.addAll;
+import static org.apache.commons.lang3.StringUtils.join;
 import static org.apache.commons.lang3.StringUtils.repeat;
 
 public class ServiceProvidedRepository extends DrishtiRepository {
 
     private static final String SERVICE_PROVIDED_SQL = "CREATE TABLE service_provided(id INTEGER PRIMARY KEY AUTOINCREMENT, entityId VARCHAR, name VARCHAR, date VARCHAR, data VARCHAR)";
+    private static final String SERVICE_PROVIDED_ENTITY_ID_NAME_INDEX_SQL = "CREATE INDEX IF NOT EXISTS service_provided_entityId_name_index ON service_provided(entityId, name);";
 
     public static final String SERVICE_PROVIDED_TABLE_NAME = "service_provided";
     public static final String ENTITY_ID_COLUMN = "entityId";
@@ -26,6 +28,8 @@ public class ServiceProvidedRepository extends DrishtiRepository {
     public static final String DATA_ID_COLUMN = "data";
 
     public static final String[] SERVICE_PROVIDED_TABLE_COLUMNS = new String[]{ENTITY_ID_COLUMN, NAME_ID_COLUMN, DATE_ID_COLUMN, DATA_ID_COLUMN};
+    private static final String INSERT_SERVICE_PROVIDED_SQL = "INSERT INTO " + SERVICE_PROVIDED_TABLE_NAME + "(" +
+            join(SERVICE_PROVIDED_TABLE_COLUMNS, ", ") + ") VALUES (" + repeat("?", ", ", SERVICE_PROVIDED_TABLE_COLUMNS.length) + ")";
 
 
     @Override
@@ -33,9 +37,14 @@ public class ServiceProvidedRepository extends DrishtiRepository {
         database.execSQL(SERVICE_PROVIDED_SQL);
     }
 
+    @Override
+    protected List<Migration> migrations() {
+        return asList(new Migration(2, SERVICE_PROVIDED_ENTITY_ID_NAME_INDEX_SQL));
+    }
+
     public void add(ServiceProvided serviceProvided) {
-        SQLiteDatabase database = masterRepository.getWritableDatabase();
-        database.insert(SERVICE_PROVIDED_TABLE_NAME, null, createValuesFor(serviceProvided));
+        executeInsert(INSERT_SERVICE_PROVIDED_SQL, serviceProvided.entityId(), serviceProvided.name(), serviceProvided.date(),
+                DetailsCodec.encode(serviceProvided.data()));
     }
 
     public List<ServiceProvided> findByEntityIdAndServiceNames(String entityId, String... names) {
@@ -48,21 +57,33 @@ public class ServiceProvidedRepository extends DrishtiRepository {
         return readAllServicesProvided(cursor);
     }
 
+    public Map<String, List<ServiceProvided>> findByEntityIdsAndServiceNames(List<String> entityIds, String... names) {
+        SQLiteDatabase database = masterRepository.getReadableDatabase();
+        Map<String, List<ServiceProvided>> servicesProvidedByEntityId = new HashMap<String, List<ServiceProvided>>();
+        for (List<String> entityIdsInChunk : partition(entityIds, MAX_BIND_ARGUMENTS - names.length)) {
+            Cursor cursor = database.rawQuery(
+                    format("SELECT * FROM %s WHERE %s IN (%s) AND %s IN (%s) ORDER BY DATE(%s)",
+                            SERVICE_PROVIDED_TABLE_NAME, ENTITY_ID_COLUMN, insertPlaceholdersForInClause(entityIdsInChunk.size()), NAME_ID_COLUMN,
+                            insertPlaceholdersForInClause(names.length), DATE_ID_COLUMN),
+                    addAll(entityIdsInChunk.toArray(new String[entityIdsInChunk.size()]), names));
+            for (ServiceProvided serviceProvided : readAllServicesProvided(cursor)) {
+                List<ServiceProvided> servicesProvided = servicesProvidedByEntityId.get(serviceProvided.entityId());
+                if (servicesProvided == null) {
+                    servicesProvided = new ArrayList<ServiceProvided>();
+                    servicesProvidedByEntityId.put(serviceProvided.entityId(), servicesProvided);
+                }
+                servicesProvided.add(serviceProvided);
+            }
+        }
+        return servicesProvidedByEntityId;
+    }
+
     public List<ServiceProvided> all() {
         SQLiteDatabase database = masterRepository.getReadableDatabase();
         Cursor cursor = database.query(SERVICE_PROVIDED_TABLE_NAME, SERVICE_PROVIDED_TABLE_COLUMNS, null, null, null, null, DATE_ID_COLUMN);
         return readAllServicesProvided(cursor);
     }
 
-    private ContentValues createValuesFor(ServiceProvided serviceProvided) {
-        ContentValues values = new ContentValues();
-        values.put(ENTITY_ID_COLUMN, serviceProvided.entityId());
-        values.put(NAME_ID_COLUMN, serviceProvided.name());
-        values.put(DATE_ID_COLUMN, serviceProvided.date());
-        values.put(DATA_ID_COLUMN, new Gson().toJson(serviceProvided.data()));
-        return values;
-    }
-
     private List<ServiceProvided> readAllServicesProvided(Cursor cursor) {
         cursor.moveToFirst();
         List<ServiceProvided> servicesProvided = new ArrayList<ServiceProvided>();
@@ -71,8 +92,7 @@ public class ServiceProvidedRepository extends DrishtiRepository {
                     cursor.getString(cursor.getColumnIndex(ENTITY_ID_COLUMN)),
                     cursor.getString(cursor.getColumnIndex(NAME_ID_COLUMN)),
                     cursor.getString(cursor.getColumnIndex(DATE_ID_COLUMN)),
-                    new Gson().<Map<String, String>>fromJson(cursor.getString(cursor.getColumnIndex(DATA_ID_COLUMN)), new TypeToken<Map<String, String>>() {
-                    }.getType()));
+                    DetailsCodec.decode(cursor.getString(cursor.getColumnIndex(DATA_ID_COLUMN))));
             servicesProvided.add(serviceProvided);
             cursor.moveToNext();
         }
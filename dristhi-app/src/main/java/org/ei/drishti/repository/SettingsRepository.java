@@ -1,14 +1,30 @@
 package org.ei.drishti.repository;
 
-import android.content.ContentValues;
 import android.database.Cursor;
 import net.sqlcipher.database.SQLiteDatabase;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public class SettingsRepository extends DrishtiRepository {
     static final String SETTINGS_SQL = "CREATE TABLE settings(key VARCHAR PRIMARY KEY, value BLOB)";
     public static final String SETTINGS_TABLE_NAME = "settings";
     public static final String SETTINGS_KEY_COLUMN = "key";
     public static final String SETTINGS_VALUE_COLUMN = "value";
+    private static final String REPLACE_SETTING_SQL = "INSERT OR REPLACE INTO " + SETTINGS_TABLE_NAME + "(" + SETTINGS_KEY_COLUMN + ", " +
+            SETTINGS_VALUE_COLUMN + ") VALUES (?, ?)";
+    private static final String ALL_TEXT_SETTINGS_SQL = "SELECT " + SETTINGS_KEY_COLUMN + ", " + SETTINGS_VALUE_COLUMN + " FROM " +
+            SETTINGS_TABLE_NAME + " WHERE typeof(" + SETTINGS_VALUE_COLUMN + ") IN ('text', 'null')";
+
+    private Map<String, String> settings;
+    private final ThreadLocal<List<Map<String, String>>> pendingSettings = new ThreadLocal<List<Map<String, String>>>() {
+        @Override
+        protected List<Map<String, String>> initialValue() {
+            return new ArrayList<Map<String, String>>();
+        }
+    };
 
     @Override
     protected void onCreate(SQLiteDatabase database) {
@@ -16,30 +32,37 @@ public class SettingsRepository extends DrishtiRepository {
     }
 
     public void updateSetting(String key, String value) {
-        ContentValues values = new ContentValues();
-        values.put(SETTINGS_KEY_COLUMN, key);
-        values.put(SETTINGS_VALUE_COLUMN, value);
-
-        replace(values);
+        int depth = masterRepository.currentTransactionDepth();
+        if (depth > 0) {
+            pendingSettingsAt(depth).put(key, value);
+            return;
+        }
+        execute(REPLACE_SETTING_SQL, key, value);
+        synchronized (this) {
+            if (settings != null) {
+                settings.put(key, value);
+            }
+        }
     }
 
     public void updateBLOB(String key, byte[] value) {
-        ContentValues values = new ContentValues();
-        values.put(SETTINGS_KEY_COLUMN, key);
-        values.put(SETTINGS_VALUE_COLUMN, value);
-
-        replace(values);
+        execute(REPLACE_SETTING_SQL, key, value);
+        synchronized (this) {
+            if (settings != null) {
+                settings.remove(key);
+            }
+        }
     }
 
     public String querySetting(String key, String defaultValue) {
-        Cursor cursor = getCursor(key);
-        if (cursor == null) {
-            return defaultValue;
+        List<Map<String, String>> pending = pendingSettings.get();
+        for (int level = pending.size() - 1; level >= 0; level--) {
+            if (pending.get(level).containsKey(key)) {
+                return pending.get(level).get(key);
+            }
         }
-
-        String value = cursor.getString(0);
-        cursor.close();
-        return value;
+        Map<String, String> settings = settings();
+        return settings.containsKey(key) ? settings.get(key) : defaultValue;
     }
 
     public byte[] queryBLOB(String key) {
@@ -53,9 +76,72 @@ public class SettingsRepository extends DrishtiRepository {
         return value;
     }
 
-    private void replace(ContentValues values) {
-        SQLiteDatabase database = masterRepository.getWritableDatabase();
-        database.replace(SETTINGS_TABLE_NAME, null, values);
+    @Override
+    protected void beforeCommit() {
+        List<Map<String, String>> pending = pendingSettings.get();
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, String> setting : pending.get(0).entrySet()) {
+            execute(REPLACE_SETTING_SQL, setting.getKey(), setting.getValue());
+        }
+    }
+
+    @Override
+    protected void afterUnitOfWork(int depth, boolean successful) {
+        List<Map<String, String>> pending = pendingSettings.get();
+        if (pending.size() < depth) {
+            return;
+        }
+        while (pending.size() > depth) {
+            pending.remove(pending.size() - 1);
+        }
+        Map<String, String> settingsOfUnitOfWork = pending.remove(depth - 1);
+        if (settingsOfUnitOfWork.isEmpty()) {
+            return;
+        }
+        if (depth > 1) {
+            if (successful) {
+                pendingSettingsAt(depth - 1).putAll(settingsOfUnitOfWork);
+            }
+            return;
+        }
+        synchronized (this) {
+            if (!successful) {
+                settings = null;
+            } else if (settings != null) {
+                settings.putAll(settingsOfUnitOfWork);
+            }
+        }
+    }
+
+    @Override
+    protected synchronized void onClose() {
+        settings = null;
+    }
+
+    private Map<String, String> pendingSettingsAt(int depth) {
+        List<Map<String, String>> pending = pendingSettings.get();
+        while (pending.size() < depth) {
+            pending.add(new HashMap<String, String>());
+        }
+        return pending.get(depth - 1);
+    }
+
+    private synchronized Map<String, String> settings() {
+        if (settings == null) {
+            Map<String, String> allSettings = new HashMap<String, String>();
+            Cursor cursor = masterRepository.getReadableDatabase().rawQuery(ALL_TEXT_SETTINGS_SQL, null);
+            try {
+                while (cursor.moveToNext()) {
+                    allSettings.put(cursor.getString(0), cursor.getString(1));
+                }
+            } finally {
+                cursor.close();
+            }
+            settings = allSettings;
+        }
+        return settings;
     }
 
     private Cursor getCursor(String key) {
@@ -0,0 +1,269 @@
+package org.ei.drishti.repository;
+
+import org.ei.drishti.util.CachePersistence;
+import org.ei.drishti.util.CacheableData;
+import org.ei.drishti.util.PatchableData;
+import org.ei.drishti.util.Session;
+import org.ei.drishti.util.SnapshotCodec;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.*;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.text.MessageFormat.format;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.apache.commons.io.FileUtils.readFileToByteArray;
+import static org.apache.commons.io.FileUtils.writeByteArrayToFile;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.ei.drishti.util.Log.logInfo;
+import static org.ei.drishti.util.Log.logWarn;
+
+public class SnapshotRepository {
+    private static final String CIPHER = "AES/CBC/PKCS5Padding";
+    private static final String KEY_DERIVATION_ALGORITHM = "PBKDF2WithHmacSHA1";
+    private static final int KEY_DERIVATION_ITERATIONS = 1000;
+    private static final int KEY_LENGTH_IN_BITS = 128;
+    private static final int SALT_LENGTH_IN_BYTES = 16;
+    private static final int IV_LENGTH_IN_BYTES = 16;
+    private static final String SALT_FILE_NAME = "snapshot.salt";
+    private static final String SNAPSHOT_FILE_EXTENSION = ".snapshot";
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+    private static final String CHARSET = "UTF-8";
+    private static ExecutorService sharedExecutor;
+
+    private final File directory;
+    private final Session session;
+    private final DataVersionRepository dataVersionRepository;
+    private final ExecutorService executor;
+    private final SecureRandom random = new SecureRandom();
+    private String passwordOfKey;
+    private SecretKey key;
+    private int generation;
+
+    public SnapshotRepository(File directory, Session session, DataVersionRepository dataVersionRepository) {
+        this(directory, session, dataVersionRepository, sharedExecutor());
+    }
+
+    public SnapshotRepository(File directory, Session session, DataVersionRepository dataVersionRepository, ExecutorService executor) {
+        this.directory = directory;
+        this.session = session;
+        this.dataVersionRepository = dataVersionRepository;
+        this.executor = executor;
+    }
+
+    public <T> CachePersistence<T> persistence(final String name, final SnapshotCodec<T> codec) {
+        return new CachePersistence<T>() {
+            @Override
+            public CacheableData<T> persisted(String key, CacheableData<T> cacheableData) {
+                String snapshotName = name + "-" + key;
+                if (cacheableData instanceof PatchableData) {
+                    return new PatchableSnapshotData<T>(snapshotName, codec, (PatchableData<T>) cacheableData);
+                }
+                return new SnapshotData<T>(snapshotName, codec, cacheableData);
+            }
+        };
+    }
+
+    public String currentDataVersion() {
+        return dataVersionRepository.dataVersion();
+    }
+
+    public <T> T find(String name, String dataVersion, SnapshotCodec<T> codec) {
+        File file = snapshotFile(name);
+        if (dataVersion == null || !file.exists()) {
+            return null;
+        }
+        SecretKey key;
+        try {
+            key = key();
+        } catch (Exception e) {
+            logWarn(format("Snapshot {0} could not be read: {1}", name, e));
+            return null;
+        }
+        InputStream input = null;
+        try {
+            input = new FileInputStream(file);
+            DataInputStream snapshot = new DataInputStream(decrypted(new BufferedInputStream(input), key));
+            if (!dataVersion.equals(snapshot.readUTF())) {
+                logInfo(format("Snapshot {0} is out of date.", name));
+                return null;
+            }
+            return codec.read(new InputStreamReader(snapshot, CHARSET));
+        } catch (Exception e) {
+            logWarn(format("Snapshot {0} could not be read and is being discarded: {1}", name, e));
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    public synchronized <T> void add(String name, String dataVersion, T value, SnapshotCodec<T> codec) {
+        File temporaryFile = new File(directory, name + TEMPORARY_FILE_EXTENSION);
+        OutputStream output = null;
+        try {
+            directory.mkdirs();
+            output = new FileOutputStream(temporaryFile);
+            DataOutputStream snapshot = new DataOutputStream(encrypted(new BufferedOutputStream(output)));
+            snapshot.writeUTF(dataVersion);
+            Writer writer = new OutputStreamWriter(snapshot, CHARSET);
+            codec.write(value, writer);
+            writer.close();
+            if (!temporaryFile.renameTo(snapshotFile(name))) {
+                throw new IOException("Could not replace " + snapshotFile(name));
+            }
+        } catch (Exception e) {
+            logWarn(format("Snapshot {0} could not be saved: {1}", name, e));
+            temporaryFile.delete();
+        } finally {
+            closeQuietly(output);
+        }
+    }
+
+    public synchronized void deleteAll() {
+        generation++;
+        key = null;
+        passwordOfKey = null;
+        deleteQuietly(directory);
+    }
+
+    private <T> void addInBackground(final String name, final String dataVersion, final T value, final SnapshotCodec<T> codec) {
+        if (dataVersion == null) {
+            return;
+        }
+        final int generationOfValue = currentGeneration();
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                addUnlessDeleted(generationOfValue, name, dataVersion, value, codec);
+            }
+        });
+    }
+
+    private synchronized <T> void addUnlessDeleted(int generationOfValue, String name, String dataVersion, T value, SnapshotCodec<T> codec) {
+        if (generationOfValue == generation) {
+            add(name, dataVersion, value, codec);
+        }
+    }
+
+    private synchronized int currentGeneration() {
+        return generation;
+    }
+
+    private <T> T fetchThroughSnapshot(String name, SnapshotCodec<T> codec, CacheableData<T> cacheableData) {
+        String dataVersion = currentDataVersion();
+        T snapshot = find(name, dataVersion, codec);
+        if (snapshot != null) {
+            logInfo(format("Serving {0} from its snapshot at data version {1}.", name, dataVersion));
+            return snapshot;
+        }
+        T value = cacheableData.fetch();
+        addInBackground(name, dataVersion, value, codec);
+        return value;
+    }
+
+    private InputStream decrypted(InputStream input, SecretKey key) throws IOException, GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH_IN_BYTES];
+        new DataInputStream(input).readFully(iv);
+        Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(iv));
+        return new GZIPInputStream(new CipherInputStream(input, cipher));
+    }
+
+    private OutputStream encrypted(OutputStream output) throws IOException, GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH_IN_BYTES];
+        random.nextBytes(iv);
+        output.write(iv);
+        Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(Cipher.ENCRYPT_MODE, key(), new IvParameterSpec(iv));
+        return new GZIPOutputStream(new CipherOutputStream(output, cipher));
+    }
+
+    private synchronized SecretKey key() throws IOException, GeneralSecurityException {
+        String password = session.password();
+        if (password == null) {
+            throw new GeneralSecurityException("Password has not been set!");
+        }
+        if (key == null || !password.equals(passwordOfKey)) {
+            PBEKeySpec keySpec = new PBEKeySpec(password.toCharArray(), salt(), KEY_DERIVATION_ITERATIONS, KEY_LENGTH_IN_BITS);
+            byte[] keyBytes = SecretKeyFactory.getInstance(KEY_DERIVATION_ALGORITHM).generateSecret(keySpec).getEncoded();
+            key = new SecretKeySpec(keyBytes, "AES");
+            passwordOfKey = password;
+        }
+        return key;
+    }
+
+    private byte[] salt() throws IOException {
+        File saltFile = new File(directory, SALT_FILE_NAME);
+        if (saltFile.exists()) {
+            return readFileToByteArray(saltFile);
+        }
+        byte[] salt = new byte[SALT_LENGTH_IN_BYTES];
+        random.nextBytes(salt);
+        writeByteArrayToFile(saltFile, salt);
+        return salt;
+    }
+
+    private File snapshotFile(String name) {
+        return new File(directory, name + SNAPSHOT_FILE_EXTENSION);
+    }
+
+    private static synchronized ExecutorService sharedExecutor() {
+        if (sharedExecutor == null) {
+            sharedExecutor = newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "SnapshotRepository");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sharedExecutor;
+    }
+
+    private class SnapshotData<T> implements CacheableData<T> {
+        private final String name;
+        private final SnapshotCodec<T> codec;
+        private final CacheableData<T> cacheableData;
+
+        private SnapshotData(String name, SnapshotCodec<T> codec, CacheableData<T> cacheableData) {
+            this.name = name;
+            this.codec = codec;
+            this.cacheableData = cacheableData;
+        }
+
+        @Override
+        public T fetch() {
+            return fetchThroughSnapshot(name, codec, cacheableData);
+        }
+    }
+
+    private class PatchableSnapshotData<T> extends SnapshotData<T> implements PatchableData<T> {
+        private final PatchableData<T> patchableData;
+
+        private PatchableSnapshotData(String name, SnapshotCodec<T> codec, PatchableData<T> patchableData) {
+            super(name, codec, patchableData);
+            this.patchableData = patchableData;
+        }
+
+        @Override
+        public T patch(T data, Set<String> changedEntityIds) {
+            return patchableData.patch(data, changedEntityIds);
+        }
+    }
+}
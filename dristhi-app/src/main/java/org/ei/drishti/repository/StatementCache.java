@@ -0,0 +1,89 @@
+package org.ei.drishti.repository;
+
+import net.sqlcipher.database.SQLiteDatabase;
+import net.sqlcipher.database.SQLiteStatement;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+public class StatementCache {
+    private volatile int generation = 0;
+    private final ThreadLocal<Integer> generationSeen = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return 0;
+        }
+    };
+    private final ThreadLocal<Map<SQLiteDatabase, Map<String, SQLiteStatement>>> statements =
+            new ThreadLocal<Map<SQLiteDatabase, Map<String, SQLiteStatement>>>() {
+                @Override
+                protected Map<SQLiteDatabase, Map<String, SQLiteStatement>> initialValue() {
+                    return new WeakHashMap<SQLiteDatabase, Map<String, SQLiteStatement>>();
+                }
+            };
+
+    public long executeInsert(SQLiteDatabase database, String sql, Object... bindArgs) {
+        return bind(statementFor(database, sql), bindArgs).executeInsert();
+    }
+
+    public void execute(SQLiteDatabase database, String sql, Object... bindArgs) {
+        bind(statementFor(database, sql), bindArgs).execute();
+    }
+
+    public long simpleQueryForLong(SQLiteDatabase database, String sql, Object... bindArgs) {
+        return bind(statementFor(database, sql), bindArgs).simpleQueryForLong();
+    }
+
+    public void clear() {
+        generation++;
+    }
+
+    private SQLiteStatement statementFor(SQLiteDatabase database, String sql) {
+        Map<SQLiteDatabase, Map<String, SQLiteStatement>> statementsOfThisThread = statements.get();
+        if (generationSeen.get() != generation) {
+            closeAll(statementsOfThisThread);
+            generationSeen.set(generation);
+        }
+
+        Map<String, SQLiteStatement> statementsOfConnection = statementsOfThisThread.get(database);
+        if (statementsOfConnection == null) {
+            statementsOfConnection = new HashMap<String, SQLiteStatement>();
+            statementsOfThisThread.put(database, statementsOfConnection);
+        }
+        SQLiteStatement statement = statementsOfConnection.get(sql);
+        if (statement == null) {
+            statement = database.compileStatement(sql);
+            statementsOfConnection.put(sql, statement);
+        }
+        return statement;
+    }
+
+    private void closeAll(Map<SQLiteDatabase, Map<String, SQLiteStatement>> statementsOfThisThread) {
+        for (Map.Entry<SQLiteDatabase, Map<String, SQLiteStatement>> entry : statementsOfThisThread.entrySet()) {
+            if (entry.getKey().isOpen()) {
+                for (SQLiteStatement statement : entry.getValue().values()) {
+                    statement.close();
+                }
+            }
+        }
+        statementsOfThisThread.clear();
+    }
+
+    private SQLiteStatement bind(SQLiteStatement statement, Object[] bindArgs) {
+        statement.clearBindings();
+        for (int index = 0; index < bindArgs.length; index++) {
+            Object bindArg = bindArgs[index];
+            if (bindArg == null) {
+                statement.bindNull(index + 1);
+            } else if (bindArg instanceof byte[]) {
+                statement.bindBlob(index + 1, (byte[]) bindArg);
+            } else if (bindArg instanceof Long || bindArg instanceof Integer) {
+                statement.bindLong(index + 1, ((Number) bindArg).longValue());
+            } else {
+                statement.bindString(index + 1, bindArg.toString());
+            }
+        }
+        return statement;
+    }
+}
@@ -1,6 +1,5 @@
 package org.ei.drishti.repository;
 
-import android.content.ContentValues;
 import android.database.Cursor;
 import net.sqlcipher.database.SQLiteDatabase;
 import org.ei.drishti.domain.TimelineEvent;
@@ -9,6 +8,9 @@ import org.joda.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.apache.commons.lang3.StringUtils.join;
+import static org.apache.commons.lang3.StringUtils.repeat;
+
 public class TimelineEventRepository extends DrishtiRepository {
     private static final String TIMELINEEVENT_SQL = "CREATE TABLE timelineEvent(caseID VARCHAR, type VARCHAR, referenceDate VARCHAR, title VARCHAR, detail1 VARCHAR, detail2 VARCHAR)";
     private static final String TIMELINEVENT_CASEID_INDEX_SQL = "CREATE INDEX timelineEvent_caseID_index ON timelineEvent(caseID);";
@@ -20,6 +22,8 @@ public class TimelineEventRepository extends DrishtiRepository {
     private static final String DETAIL1_COLUMN = "detail1";
     private static final String DETAIL2_COLUMN = "detail2";
     private static final String[] TIMELINEEVENT_TABLE_COLUMNS = {CASEID_COLUMN, TYPE_COLUMN, REF_DATE_COLUMN, TITLE_COLUMN, DETAIL1_COLUMN, DETAIL2_COLUMN};
+    private static final String INSERT_TIMELINEEVENT_SQL = "INSERT INTO " + TIMELINEEVENT_TABLE_NAME + "(" + join(TIMELINEEVENT_TABLE_COLUMNS, ", ") +
+            ") VALUES (" + repeat("?", ", ", TIMELINEEVENT_TABLE_COLUMNS.length) + ")";
 
     @Override
     protected void onCreate(SQLiteDatabase database) {
@@ -28,8 +32,8 @@ public class TimelineEventRepository extends DrishtiRepository {
     }
 
     public void add(TimelineEvent timelineEvent) {
-        SQLiteDatabase database = masterRepository.getWritableDatabase();
-        database.insert(TIMELINEEVENT_TABLE_NAME, null, createValuesFor(timelineEvent));
+        executeInsert(INSERT_TIMELINEEVENT_SQL, timelineEvent.caseId(), timelineEvent.type(), timelineEvent.referenceDate().toString(),
+                timelineEvent.title(), timelineEvent.detail1(), timelineEvent.detail2());
     }
 
     public List<TimelineEvent> allFor(String caseId) {
@@ -53,15 +57,4 @@ public class TimelineEventRepository extends DrishtiRepository {
         cursor.close();
         return timelineEvents;
     }
-
-    private ContentValues createValuesFor(TimelineEvent timelineEvent) {
-        ContentValues values = new ContentValues();
-        values.put(CASEID_COLUMN, timelineEvent.caseId());
-        values.put(TYPE_COLUMN, timelineEvent.type());
-        values.put(REF_DATE_COLUMN, timelineEvent.referenceDate().toString());
-        values.put(TITLE_COLUMN, timelineEvent.title());
-        values.put(DETAIL1_COLUMN, timelineEvent.detail1());
-        values.put(DETAIL2_COLUMN, timelineEvent.detail2());
-        return values;
-    }
 }
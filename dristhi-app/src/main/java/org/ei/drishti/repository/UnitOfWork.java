@@ -0,0 +1,5 @@
+package org.ei.drishti.repository;
+
+public interface UnitOfWork<T> {
+    public T run() throws Exception;
+}
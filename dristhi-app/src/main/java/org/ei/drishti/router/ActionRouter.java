@@ -3,15 +3,24 @@ package org.ei.drishti.router;
 import org.ei.drishti.domain.AlertActionRoute;
 import org.ei.drishti.domain.MotherActionRoute;
 import org.ei.drishti.dto.Action;
+import org.ei.drishti.repository.Repository;
 
+import static org.ei.drishti.event.Event.ENTITY_CHANGED;
 import static org.ei.drishti.util.Log.logWarn;
 
 public class ActionRouter {
+    private final Repository repository;
+
+    public ActionRouter(Repository repository) {
+        this.repository = repository;
+    }
+
     public void directAlertAction(Action action) {
         AlertActionRoute[] alertActionRoutes = AlertActionRoute.values();
         for (AlertActionRoute alertActionRoute : alertActionRoutes) {
             if (alertActionRoute.identifier().equals(action.type())) {
                 alertActionRoute.direct(action);
+                notifyEntityChangedAfterCommit(action.caseID());
                 return;
             }
         }
@@ -23,9 +32,19 @@ public class ActionRouter {
         for (MotherActionRoute motherActionRoute : motherActionRoutes) {
             if (motherActionRoute.identifier().equals(action.type())) {
                 motherActionRoute.direct(action);
+                notifyEntityChangedAfterCommit(action.caseID());
                 return;
             }
         }
         logWarn("Unknown type in Mother action: " + action);
     }
+
+    private void notifyEntityChangedAfterCommit(final String entityId) {
+        repository.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                ENTITY_CHANGED.notifyListeners(entityId);
+            }
+        });
+    }
 }
@@ -7,6 +7,8 @@ import org.ei.drishti.dto.Action;
 import org.ei.drishti.repository.AllReports;
 import org.ei.drishti.repository.AllSettings;
 import org.ei.drishti.repository.AllSharedPreferences;
+import org.ei.drishti.repository.Repository;
+import org.ei.drishti.repository.UnitOfWork;
 import org.ei.drishti.router.ActionRouter;
 import org.ei.drishti.util.Log;
 
@@ -22,17 +24,19 @@ public class ActionService {
     private AllSettings allSettings;
     private AllSharedPreferences allSharedPreference;
     private AllReports allReports;
+    private Repository repository;
 
-    public ActionService(DrishtiService drishtiService, AllSettings allSettings, AllSharedPreferences allSharedPreferences, AllReports allReports) {
-       this(drishtiService, allSettings, allSharedPreferences, allReports, null);
+    public ActionService(DrishtiService drishtiService, AllSettings allSettings, AllSharedPreferences allSharedPreferences, AllReports allReports, Repository repository) {
+       this(drishtiService, allSettings, allSharedPreferences, allReports, repository, null);
     }
 
-    public ActionService(DrishtiService drishtiService, AllSettings allSettings, AllSharedPreferences allSharedPreferences, AllReports allReports, ActionRouter actionRouter) {
+    public ActionService(DrishtiService drishtiService, AllSettings allSettings, AllSharedPreferences allSharedPreferences, AllReports allReports, Repository repository, ActionRouter actionRouter) {
         this.drishtiService = drishtiService;
         this.allSettings = allSettings;
         this.allSharedPreference = allSharedPreferences;
         this.allReports = allReports;
-        this.actionRouter = actionRouter == null ? new ActionRouter() : actionRouter;
+        this.repository = repository;
+        this.actionRouter = actionRouter == null ? new ActionRouter(repository) : actionRouter;
     }
 
     public FetchStatus fetchNewActions() {
@@ -51,13 +55,29 @@ public class ActionService {
         return FetchStatus.fetched;
     }
 
-    private void handleActions(Response<List<Action>> response) {
-        for (Action actionToUse : response.payload()) {
-            try {
-                handleAction(actionToUse);
-            } catch (Exception e) {
-                Log.logError(format("Failed while handling action with target: {0} and exception: {1}", actionToUse.target(), e));
+    private void handleActions(final Response<List<Action>> response) {
+        repository.inTransaction(new UnitOfWork<Void>() {
+            @Override
+            public Void run() {
+                for (Action actionToUse : response.payload()) {
+                    handleActionInItsOwnUnitOfWork(actionToUse);
+                }
+                return null;
             }
+        });
+    }
+
+    private void handleActionInItsOwnUnitOfWork(final Action actionToUse) {
+        try {
+            repository.inTransaction(new UnitOfWork<Void>() {
+                @Override
+                public Void run() {
+                    handleAction(actionToUse);
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            Log.logError(format("Failed while handling action with target: {0} and exception: {1}", actionToUse.target(), e));
         }
     }
 
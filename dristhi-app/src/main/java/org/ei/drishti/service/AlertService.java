@@ -6,6 +6,7 @@ import org.ei.drishti.dto.AlertStatus;
 import org.ei.drishti.repository.AlertRepository;
 
 import java.util.List;
+import java.util.Map;
 
 public class AlertService {
     private AlertRepository repository;
@@ -33,6 +34,10 @@ public class AlertService {
         return repository.findByEntityIdAndAlertNames(entityId, names);
     }
 
+    public Map<String, List<Alert>> findByEntityIdsAndAlertNames(List<String> entityIds, String... names) {
+        return repository.findByEntityIdsAndAlertNames(entityIds, names);
+    }
+
     public void changeAlertStatusToInProcess(String entityId, String alertName) {
         repository.changeAlertStatusToInProcess(entityId, alertName);
     }
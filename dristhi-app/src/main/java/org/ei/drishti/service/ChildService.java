@@ -28,15 +28,18 @@ public class ChildService {
     private AllTimelineEvents allTimelines;
     private ServiceProvidedService serviceProvidedService;
     private AllAlerts allAlerts;
+    private FormDataRepository formDataRepository;
 
     public ChildService(AllBeneficiaries allBeneficiaries, MotherRepository motherRepository, ChildRepository childRepository,
-                        AllTimelineEvents allTimelineEvents, ServiceProvidedService serviceProvidedService, AllAlerts allAlerts) {
+                        AllTimelineEvents allTimelineEvents, ServiceProvidedService serviceProvidedService, AllAlerts allAlerts,
+                        FormDataRepository formDataRepository) {
         this.allBeneficiaries = allBeneficiaries;
         this.childRepository = childRepository;
         this.motherRepository = motherRepository;
         this.allTimelines = allTimelineEvents;
         this.serviceProvidedService = serviceProvidedService;
         this.allAlerts = allAlerts;
+        this.formDataRepository = formDataRepository;
     }
 
     public void register(FormSubmission submission) {
@@ -45,9 +48,7 @@ public class ChildService {
         String referenceDate = submission.getFieldValue(AllConstants.DeliveryOutcomeFields.REFERENCE_DATE);
         String deliveryPlace = submission.getFieldValue(AllConstants.DeliveryOutcomeFields.DELIVERY_PLACE);
         Mother mother = motherRepository.findById(submission.entityId());
-        for (Map<String, String> childInstance : subForm.instances()) {
-            Child child = childRepository.find(childInstance.get(ENTITY_ID_FIELD_NAME));
-            childRepository.update(child.setIsClosed(false).setThayiCardNumber(mother.thayiCardNumber()).setDateOfBirth(referenceDate));
+        for (Child child : registerChildren(subForm, mother, referenceDate)) {
             allTimelines.add(forChildBirthInChildProfile(child.caseId(), referenceDate,
                     child.getDetail(AllConstants.ChildRegistrationFields.WEIGHT), child.getDetail(AllConstants.ChildRegistrationFields.IMMUNIZATIONS_GIVEN)));
             allTimelines.add(forChildBirthInMotherProfile(mother.caseId(), referenceDate, child.gender(), referenceDate, deliveryPlace));
@@ -139,9 +140,7 @@ public class ChildService {
         String deliveryPlace = submission.getFieldValue(AllConstants.DeliveryOutcomeFields.DELIVERY_PLACE);
         Mother mother = motherRepository.findAllCasesForEC(submission.entityId()).get(0);
 
-        for (Map<String, String> childInstances : subForm.instances()) {
-            Child child = childRepository.find(childInstances.get(ENTITY_ID_FIELD_NAME));
-            childRepository.update(child.setIsClosed(false).setThayiCardNumber(mother.thayiCardNumber()).setDateOfBirth(referenceDate));
+        for (Child child : registerChildren(subForm, mother, referenceDate)) {
             allTimelines.add(forChildBirthInChildProfile(child.caseId(), referenceDate,
                     child.getDetail(AllConstants.PNCRegistrationOAFields.WEIGHT), child.getDetail(AllConstants.PNCRegistrationOAFields.IMMUNIZATIONS_GIVEN)));
             allTimelines.add(forChildBirthInMotherProfile(mother.caseId(), referenceDate, child.gender(),
@@ -155,6 +154,31 @@ public class ChildService {
         }
     }
 
+    private List<Child> registerChildren(SubForm subForm, Mother mother, String referenceDate) {
+        List<String> childIds = new ArrayList<String>();
+        for (Map<String, String> childInstance : subForm.instances()) {
+            childIds.add(childInstance.get(ENTITY_ID_FIELD_NAME));
+        }
+        Map<String, Child> childrenById = new HashMap<String, Child>();
+        for (Child child : childRepository.findChildrenByCaseIds(childIds.toArray(new String[childIds.size()]))) {
+            childrenById.put(child.caseId(), child);
+        }
+
+        List<Child> children = new ArrayList<Child>();
+        List<Map<String, String>> childFields = new ArrayList<Map<String, String>>();
+        for (String childId : childIds) {
+            Child child = childrenById.get(childId);
+            children.add(child.setIsClosed(false).setThayiCardNumber(mother.thayiCardNumber()).setDateOfBirth(referenceDate));
+            childFields.add(EasyMap.create(ENTITY_ID_FIELD_NAME, childId)
+                    .put(ChildRepository.IS_CLOSED_COLUMN, Boolean.toString(child.isClosed()))
+                    .put(ChildRepository.THAYI_CARD_COLUMN, child.thayiCardNumber())
+                    .put(ChildRepository.DATE_OF_BIRTH_COLUMN, child.dateOfBirth())
+                    .map());
+        }
+        formDataRepository.saveEntities(EasyMap.mapOf(ChildRepository.CHILD_TABLE_NAME, childFields));
+        return children;
+    }
+
     private boolean handleStillBirth(FormSubmission submission, SubForm subForm) {
         if (!isDeliveryOutcomeStillBirth(submission)) {
             return false;
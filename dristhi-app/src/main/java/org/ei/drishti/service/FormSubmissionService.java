@@ -5,6 +5,8 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.ei.drishti.domain.form.FormSubmission;
 import org.ei.drishti.repository.AllSettings;
 import org.ei.drishti.repository.FormDataRepository;
+import org.ei.drishti.repository.Repository;
+import org.ei.drishti.repository.UnitOfWork;
 
 import java.util.List;
 
@@ -18,26 +20,44 @@ public class FormSubmissionService {
     private ZiggyService ziggyService;
     private FormDataRepository formDataRepository;
     private AllSettings allSettings;
+    private Repository repository;
 
-    public FormSubmissionService(ZiggyService ziggyService, FormDataRepository formDataRepository, AllSettings allSettings) {
+    public FormSubmissionService(ZiggyService ziggyService, FormDataRepository formDataRepository, AllSettings allSettings, Repository repository) {
         this.ziggyService = ziggyService;
         this.formDataRepository = formDataRepository;
         this.allSettings = allSettings;
+        this.repository = repository;
     }
 
-    public void processSubmissions(List<FormSubmission> formSubmissions) {
-        for (FormSubmission submission : formSubmissions) {
-            if (!formDataRepository.submissionExists(submission.instanceId())) {
-                try {
-                    ziggyService.saveForm(getParams(submission), submission.instance());
-                } catch (Exception e) {
-                    logError(format("Form submission processing failed, with instanceId: {0}. Exception: {1}, StackTrace: {2}",
-                            submission.instanceId(), e.getMessage(), ExceptionUtils.getStackTrace(e)));
+    public void processSubmissions(final List<FormSubmission> formSubmissions) {
+        repository.inTransaction(new UnitOfWork<Void>() {
+            @Override
+            public Void run() {
+                for (FormSubmission submission : formSubmissions) {
+                    processSubmission(submission);
                 }
+                return null;
+            }
+        });
+    }
+
+    private void processSubmission(final FormSubmission submission) {
+        if (!formDataRepository.submissionExists(submission.instanceId())) {
+            try {
+                repository.inTransaction(new UnitOfWork<Void>() {
+                    @Override
+                    public Void run() throws Exception {
+                        ziggyService.saveForm(getParams(submission), submission.instance());
+                        return null;
+                    }
+                });
+            } catch (Exception e) {
+                logError(format("Form submission processing failed, with instanceId: {0}. Exception: {1}, StackTrace: {2}",
+                        submission.instanceId(), e.getMessage(), ExceptionUtils.getStackTrace(e)));
             }
-            formDataRepository.updateServerVersion(submission.instanceId(), submission.serverVersion());
-            allSettings.savePreviousFormSyncIndex(submission.serverVersion());
         }
+        formDataRepository.updateServerVersion(submission.instanceId(), submission.serverVersion());
+        allSettings.savePreviousFormSyncIndex(submission.serverVersion());
     }
 
     private String getParams(FormSubmission submission) {
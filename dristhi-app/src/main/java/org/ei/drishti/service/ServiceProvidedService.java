@@ -4,6 +4,7 @@ import org.ei.drishti.domain.ServiceProvided;
 import org.ei.drishti.repository.AllServicesProvided;
 
 import java.util.List;
+import java.util.Map;
 
 public class ServiceProvidedService {
     private AllServicesProvided allServiceProvided;
@@ -16,6 +17,10 @@ public class ServiceProvidedService {
         return allServiceProvided.findByEntityIdAndServiceNames(entityId, names);
     }
 
+    public Map<String, List<ServiceProvided>> findByEntityIdsAndServiceNames(List<String> entityIds, String... names) {
+        return allServiceProvided.findByEntityIdsAndServiceNames(entityIds, names);
+    }
+
     public void add(ServiceProvided serviceProvided) {
         allServiceProvided.add(serviceProvided);
     }
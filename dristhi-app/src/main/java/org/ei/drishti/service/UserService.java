@@ -5,6 +5,7 @@ import org.ei.drishti.domain.LoginResponse;
 import org.ei.drishti.repository.AllSettings;
 import org.ei.drishti.repository.AllSharedPreferences;
 import org.ei.drishti.repository.Repository;
+import org.ei.drishti.repository.SnapshotRepository;
 import org.ei.drishti.sync.SaveANMLocationTask;
 import org.ei.drishti.util.Session;
 
@@ -13,6 +14,7 @@ import static org.ei.drishti.event.Event.ON_LOGOUT;
 
 public class UserService {
     private final Repository repository;
+    private final SnapshotRepository snapshotRepository;
     private final AllSettings allSettings;
     private final AllSharedPreferences allSharedPreferences;
     private HTTPAgent httpAgent;
@@ -20,9 +22,10 @@ public class UserService {
     private DristhiConfiguration configuration;
     private SaveANMLocationTask saveANMLocationTask;
 
-    public UserService(Repository repository, AllSettings allSettings, AllSharedPreferences allSharedPreferences, HTTPAgent httpAgent, Session session,
+    public UserService(Repository repository, SnapshotRepository snapshotRepository, AllSettings allSettings, AllSharedPreferences allSharedPreferences, HTTPAgent httpAgent, Session session,
                        DristhiConfiguration configuration, SaveANMLocationTask saveANMLocationTask) {
         this.repository = repository;
+        this.snapshotRepository = snapshotRepository;
         this.allSettings = allSettings;
         this.allSharedPreferences = allSharedPreferences;
         this.httpAgent = httpAgent;
@@ -63,6 +66,7 @@ public class UserService {
         allSettings.registerANM("", "");
         allSettings.savePreviousFetchIndex("0");
         repository.deleteRepository();
+        snapshotRepository.deleteAll();
     }
 
     public void logoutSession() {
@@ -3,6 +3,7 @@ package org.ei.drishti.service.formSubmissionHandler;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.ei.drishti.domain.form.FormSubmission;
 import org.ei.drishti.repository.FormDataRepository;
+import org.ei.drishti.repository.Repository;
 import org.ei.drishti.util.Log;
 
 import java.util.HashMap;
@@ -10,6 +11,7 @@ import java.util.Map;
 
 import static java.text.MessageFormat.format;
 import static org.ei.drishti.AllConstants.FormNames.*;
+import static org.ei.drishti.event.Event.ENTITY_CHANGED;
 import static org.ei.drishti.event.Event.FORM_SUBMITTED;
 import static org.ei.drishti.util.Log.logWarn;
 
@@ -17,8 +19,10 @@ import static org.ei.drishti.util.Log.logWarn;
 public class FormSubmissionRouter {
     private final Map<String, FormSubmissionHandler> handlerMap;
     private FormDataRepository formDataRepository;
+    private Repository repository;
 
     public FormSubmissionRouter(FormDataRepository formDataRepository,
+                                Repository repository,
                                 ECRegistrationHandler ecRegistrationHandler,
                                 FPComplicationsHandler fpComplicationsHandler,
                                 FPChangeHandler fpChangeHandler,
@@ -42,6 +46,7 @@ public class FormSubmissionRouter {
                                 VitaminAHandler vitaminAHandler, DeliveryPlanHandler deliveryPlanHandler,
                                 ECEditHandler ecEditHandler, ANCInvestigationsHandler ancInvestigationsHandler) {
         this.formDataRepository = formDataRepository;
+        this.repository = repository;
         handlerMap = new HashMap<String, FormSubmissionHandler>();
         handlerMap.put(EC_REGISTRATION, ecRegistrationHandler);
         handlerMap.put(FP_COMPLICATIONS, fpComplicationsHandler);
@@ -74,7 +79,7 @@ public class FormSubmissionRouter {
     }
 
     public void route(String instanceId) throws Exception {
-        FormSubmission submission = formDataRepository.fetchFromSubmission(instanceId);
+        final FormSubmission submission = formDataRepository.fetchFromSubmission(instanceId);
         FormSubmissionHandler handler = handlerMap.get(submission.formName());
         if (handler == null) {
             logWarn("Could not find a handler due to unknown form submission: " + submission);
@@ -87,6 +92,12 @@ public class FormSubmissionRouter {
                 throw e;
             }
         }
+        repository.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                ENTITY_CHANGED.notifyListeners(submission.entityId());
+            }
+        });
         FORM_SUBMITTED.notifyListeners(instanceId);
     }
 }
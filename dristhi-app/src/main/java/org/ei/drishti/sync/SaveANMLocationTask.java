@@ -1,17 +1,22 @@
 package org.ei.drishti.sync;
 
 import org.ei.drishti.repository.AllSettings;
+import org.ei.drishti.util.CacheStore;
 import org.ei.drishti.util.Log;
 import org.ei.drishti.view.BackgroundAction;
 import org.ei.drishti.view.LockingBackgroundTask;
 import org.ei.drishti.view.ProgressIndicator;
 
+import static org.ei.drishti.util.CacheTag.settings;
+
 public class SaveANMLocationTask {
     private final LockingBackgroundTask task;
     private AllSettings allSettings;
+    private CacheStore cacheStore;
 
-    public SaveANMLocationTask(AllSettings allSettings) {
+    public SaveANMLocationTask(AllSettings allSettings, CacheStore cacheStore) {
         this.allSettings = allSettings;
+        this.cacheStore = cacheStore;
         task = new LockingBackgroundTask(new ProgressIndicator() {
             @Override
             public void setVisible() {
@@ -29,6 +34,7 @@ public class SaveANMLocationTask {
             @Override
             public String actionToDoInBackgroundThread() {
                 allSettings.saveANMLocation(anmLocation);
+                cacheStore.invalidate(settings);
                 return anmLocation;
             }
 
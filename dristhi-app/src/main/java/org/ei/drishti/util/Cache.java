@@ -1,67 +1,68 @@
 package org.ei.drishti.util;
 
-import org.ei.drishti.domain.FetchStatus;
-import org.ei.drishti.event.CapturedPhotoInformation;
-import org.ei.drishti.event.Listener;
+import java.util.EnumSet;
+import java.util.Set;
 
-import java.util.HashMap;
-import java.util.Map;
-
-import static java.text.MessageFormat.format;
-import static org.ei.drishti.domain.FetchStatus.fetched;
-import static org.ei.drishti.event.Event.*;
-import static org.ei.drishti.util.Log.logWarn;
+import static java.util.Arrays.asList;
 
 public class Cache<T> {
-    private Map<String, T> value = new HashMap<String, T>();
-    private final Listener<String> formSubmittedListener;
-    private final Listener<FetchStatus> actionsFetchedListener;
-    private final Listener<CapturedPhotoInformation> photoCapturedListener;
-    private final Listener<String> actionHandledListener;
+    private static final long DEFAULT_ENTRY_WEIGHT_IN_BYTES = 1024;
+
+    private final CacheStore store;
+    private final String region;
+    private final Weigher<? super T> weigher;
+    private final Set<CacheTag> tags;
+    private final CachePersistence<T> persistence;
+    private final CachePolicy policy;
 
     public Cache() {
-        actionsFetchedListener = new Listener<FetchStatus>() {
-            @Override
-            public void onEvent(FetchStatus data) {
-                if (fetched.equals(data)) {
-                    logWarn("List cache invalidated as new data was fetched from server.");
-                    value.clear();
-                }
-            }
-        };
-        formSubmittedListener = new Listener<String>() {
-            @Override
-            public void onEvent(String reason) {
-                logWarn(format("List cache invalidated: {0}.", reason));
-                value.clear();
-            }
-        };
-        photoCapturedListener = new Listener<CapturedPhotoInformation>() {
-            @Override
-            public void onEvent(CapturedPhotoInformation data) {
-                value.clear();
-            }
-        };
-        actionHandledListener = new Listener<String>() {
-            @Override
-            public void onEvent(String data) {
-                logWarn(format("List cache invalidated as Action handled: {0}", data));
-                value.clear();
-            }
-        };
-        ON_DATA_FETCHED.addListener(actionsFetchedListener);
-        FORM_SUBMITTED.addListener(formSubmittedListener);
-        ON_PHOTO_CAPTURED.addListener(photoCapturedListener);
-        ACTION_HANDLED.addListener(actionHandledListener);
+        this(new CacheStore(Long.MAX_VALUE), "", Weighers.<T>fixed(DEFAULT_ENTRY_WEIGHT_IN_BYTES), CacheTag.values());
+    }
+
+    public Cache(CacheStore store, String region, Weigher<? super T> weigher, CacheTag... tags) {
+        this(store, region, weigher, null, tags);
+    }
+
+    public Cache(CacheStore store, String region, Weigher<? super T> weigher, CachePersistence<T> persistence, CacheTag... tags) {
+        this(store, region, weigher, persistence, CachePolicy.blocking, tags);
+    }
+
+    public Cache(CacheStore store, String region, Weigher<? super T> weigher, CachePersistence<T> persistence,
+                 CachePolicy policy, CacheTag... tags) {
+        this.store = store;
+        this.region = region;
+        this.weigher = weigher;
+        this.persistence = persistence;
+        this.policy = policy;
+        this.tags = tagsOf(tags);
     }
 
     public T get(String key, CacheableData<T> cacheableData) {
-        if (value.get(key) != null) {
-            return value.get(key);
-        }
-        T fetchedData = cacheableData.fetch();
-        value.put(key, fetchedData);
-        return fetchedData;
+        return get(key, cacheableData, this.tags);
+    }
+
+    public T get(String key, CacheableData<T> cacheableData, CacheTag... tags) {
+        return get(key, cacheableData, tagsOf(tags));
     }
-}
 
+    private T get(String key, CacheableData<T> cacheableData, Set<CacheTag> tags) {
+        CacheableData<T> data = persistence == null ? cacheableData : persistence.persisted(key, cacheableData);
+        return store.get(keyPrefix() + key, data, weigher, tags, policy);
+    }
+
+    public boolean holds(String storeKey) {
+        return storeKey.startsWith(keyPrefix());
+    }
+
+    public boolean isRefreshing() {
+        return store.isRefreshing(keyPrefix());
+    }
+
+    private String keyPrefix() {
+        return region + "/";
+    }
+
+    private Set<CacheTag> tagsOf(CacheTag[] tags) {
+        return tags.length == 0 ? EnumSet.noneOf(CacheTag.class) : EnumSet.copyOf(asList(tags));
+    }
+}
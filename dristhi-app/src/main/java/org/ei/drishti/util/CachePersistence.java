@@ -0,0 +1,5 @@
+package org.ei.drishti.util;
+
+public interface CachePersistence<T> {
+    public CacheableData<T> persisted(String key, CacheableData<T> cacheableData);
+}
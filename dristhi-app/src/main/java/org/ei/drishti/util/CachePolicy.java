@@ -0,0 +1,5 @@
+package org.ei.drishti.util;
+
+public enum CachePolicy {
+    blocking, staleWhileRevalidate
+}
@@ -0,0 +1,408 @@
+package org.ei.drishti.util;
+
+import org.ei.drishti.domain.FetchStatus;
+import org.ei.drishti.event.CapturedPhotoInformation;
+import org.ei.drishti.event.Listener;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import static java.text.MessageFormat.format;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.ei.drishti.domain.FetchStatus.fetched;
+import static org.ei.drishti.event.Event.*;
+import static org.ei.drishti.util.CachePolicy.staleWhileRevalidate;
+import static org.ei.drishti.util.CacheTag.*;
+import static org.ei.drishti.util.Log.logWarn;
+
+public class CacheStore {
+    private static final int MAX_ENTITY_CHANGES_TO_PATCH = 50;
+    private static ExecutorService sharedRevalidationExecutor;
+
+    private final long maximumWeight;
+    private final ExecutorService revalidationExecutor;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private final Map<String, Load> loads = new HashMap<String, Load>();
+    private long totalWeight;
+    private boolean syncInProgress;
+
+    private final Listener<FetchStatus> actionsFetchedListener;
+    private final Listener<String> formSubmittedListener;
+    private final Listener<CapturedPhotoInformation> photoCapturedListener;
+    private final Listener<String> actionHandledListener;
+    private final Listener<String> entityChangedListener;
+    private final Listener<Boolean> syncStartedListener;
+    private final Listener<Boolean> syncCompletedListener;
+    private final Listener<Boolean> logoutListener;
+
+    public CacheStore(long maximumWeight) {
+        this(maximumWeight, sharedRevalidationExecutor());
+    }
+
+    public CacheStore(long maximumWeight, ExecutorService revalidationExecutor) {
+        this.maximumWeight = maximumWeight;
+        this.revalidationExecutor = revalidationExecutor;
+        actionsFetchedListener = new Listener<FetchStatus>() {
+            @Override
+            public void onEvent(FetchStatus data) {
+                if (fetched.equals(data)) {
+                    logWarn("List cache invalidated as new data was fetched from server.");
+                    markStale(true, CacheTag.values());
+                }
+            }
+        };
+        formSubmittedListener = new Listener<String>() {
+            @Override
+            public void onEvent(String reason) {
+                logWarn(format("List cache invalidated: {0}.", reason));
+                invalidate(ec, mother, child, alert);
+            }
+        };
+        photoCapturedListener = new Listener<CapturedPhotoInformation>() {
+            @Override
+            public void onEvent(CapturedPhotoInformation data) {
+                invalidate(ec, child);
+            }
+        };
+        actionHandledListener = new Listener<String>() {
+            @Override
+            public void onEvent(String data) {
+                logWarn(format("List cache invalidated as Action handled: {0}", data));
+                markStale(false, ec, mother, child, alert, report);
+            }
+        };
+        entityChangedListener = new Listener<String>() {
+            @Override
+            public void onEvent(String entityId) {
+                markEntityAsChanged(entityId);
+            }
+        };
+        syncStartedListener = new Listener<Boolean>() {
+            @Override
+            public void onEvent(Boolean data) {
+                startSync();
+            }
+        };
+        syncCompletedListener = new Listener<Boolean>() {
+            @Override
+            public void onEvent(Boolean data) {
+                completeSync();
+            }
+        };
+        logoutListener = new Listener<Boolean>() {
+            @Override
+            public void onEvent(Boolean data) {
+                logWarn("List cache cleared as user logged out.");
+                clear();
+            }
+        };
+        ON_DATA_FETCHED.addListener(actionsFetchedListener);
+        FORM_SUBMITTED.addListener(formSubmittedListener);
+        ON_PHOTO_CAPTURED.addListener(photoCapturedListener);
+        ACTION_HANDLED.addListener(actionHandledListener);
+        ENTITY_CHANGED.addListener(entityChangedListener);
+        SYNC_STARTED.addListener(syncStartedListener);
+        SYNC_COMPLETED.addListener(syncCompletedListener);
+        ON_LOGOUT.addListener(logoutListener);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T get(String key, CacheableData<T> cacheableData, Weigher<? super T> weigher, Set<CacheTag> tags, CachePolicy policy) {
+        Load load;
+        boolean loadedByThisThread = false;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.stale) {
+                entry.cacheableData = cacheableData;
+                entry.weigher = (Weigher<Object>) weigher;
+                if (!syncInProgress) {
+                    revalidate(key, entry);
+                }
+                return (T) entry.value;
+            }
+            if (entry != null && entry.changedEntityIds.isEmpty()) {
+                return (T) entry.value;
+            }
+            load = loads.get(key);
+            if (load == null) {
+                load = newLoad(entry, cacheableData, tags, policy);
+                loads.put(key, load);
+                loadedByThisThread = true;
+            }
+        }
+        if (loadedByThisThread) {
+            load.task.run();
+            finish(key, load, (Weigher<Object>) weigher, cacheableData);
+        }
+        return (T) resultOf(load.task);
+    }
+
+    // Patchable entries are left alone: form submissions and captured photos also report their entity as changed, and
+    // those entries patch it in instead. Their tags take effect when they are marked stale, as when data is fetched.
+    public synchronized void invalidate(CacheTag... tags) {
+        List<CacheTag> invalidatedTags = asList(tags);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!entry.patchable && entry.isTaggedWithAnyOf(invalidatedTags)) {
+                totalWeight -= entry.weight;
+                iterator.remove();
+            }
+        }
+        for (Load load : loads.values()) {
+            if (!load.patchable && !Collections.disjoint(load.tags, invalidatedTags)) {
+                load.invalidated = true;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalWeight = 0;
+        for (Load load : loads.values()) {
+            load.discarded = true;
+        }
+        loads.clear();
+    }
+
+    private synchronized void markStale(boolean includingPatchable, CacheTag... tags) {
+        List<CacheTag> staleTags = asList(tags);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if ((entry.patchable && !includingPatchable) || !entry.isTaggedWithAnyOf(staleTags)) {
+                continue;
+            }
+            if (entry.policy == staleWhileRevalidate) {
+                entry.stale = true;
+            } else {
+                totalWeight -= entry.weight;
+                iterator.remove();
+            }
+        }
+        for (Load load : loads.values()) {
+            if ((!load.patchable || includingPatchable) && !Collections.disjoint(load.tags, staleTags)) {
+                load.invalidated = true;
+            }
+        }
+    }
+
+    public synchronized boolean isRefreshing(String keyPrefix) {
+        for (Map.Entry<String, Entry> keyAndEntry : entries.entrySet()) {
+            if (keyAndEntry.getValue().stale && keyAndEntry.getKey().startsWith(keyPrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized long weight() {
+        return totalWeight;
+    }
+
+    private synchronized void startSync() {
+        syncInProgress = true;
+    }
+
+    private synchronized void completeSync() {
+        syncInProgress = false;
+        for (Map.Entry<String, Entry> keyAndEntry : new ArrayList<Map.Entry<String, Entry>>(entries.entrySet())) {
+            if (keyAndEntry.getValue().stale) {
+                revalidate(keyAndEntry.getKey(), keyAndEntry.getValue());
+            }
+        }
+    }
+
+    private synchronized void markEntityAsChanged(String entityId) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> keyAndEntry = iterator.next();
+            Entry entry = keyAndEntry.getValue();
+            if (!entry.patchable || entry.stale) {
+                continue;
+            }
+            entry.changedEntityIds.add(entityId);
+            if (entry.changedEntityIds.size() > MAX_ENTITY_CHANGES_TO_PATCH) {
+                logWarn(format("List cache entry {0} invalidated as too many entities changed.", keyAndEntry.getKey()));
+                if (entry.policy == staleWhileRevalidate) {
+                    entry.stale = true;
+                    entry.changedEntityIds.clear();
+                } else {
+                    totalWeight -= entry.weight;
+                    iterator.remove();
+                }
+            }
+        }
+        for (Load load : loads.values()) {
+            if (load.patchable) {
+                load.changedEntityIds.add(entityId);
+                load.invalidated = load.invalidated || load.changedEntityIds.size() > MAX_ENTITY_CHANGES_TO_PATCH;
+            }
+        }
+    }
+
+    private void revalidate(final String key, final Entry staleEntry) {
+        if (loads.containsKey(key) || staleEntry.cacheableData == null) {
+            return;
+        }
+        final Load load = newLoad(null, staleEntry.cacheableData, staleEntry.tags, staleEntry.policy);
+        loads.put(key, load);
+        revalidationExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                load.task.run();
+                finish(key, load, staleEntry.weigher, staleEntry.cacheableData);
+                CACHE_REVALIDATED.notifyListeners(key);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Load newLoad(final Entry staleEntry, final CacheableData<T> cacheableData, Set<CacheTag> tags, CachePolicy policy) {
+        boolean patchable = cacheableData instanceof PatchableData;
+        Callable<Object> loader;
+        if (patchable && staleEntry != null) {
+            final Set<String> changedEntityIds = new HashSet<String>(staleEntry.changedEntityIds);
+            loader = new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return ((PatchableData<T>) cacheableData).patch((T) staleEntry.value, changedEntityIds);
+                }
+            };
+        } else {
+            loader = new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return cacheableData.fetch();
+                }
+            };
+        }
+        return new Load(new FutureTask<Object>(loader), tags, patchable, policy);
+    }
+
+    private synchronized void finish(String key, Load load, Weigher<Object> weigher, CacheableData<?> cacheableData) {
+        if (load.discarded) {
+            return;
+        }
+        loads.remove(key);
+        Object value;
+        try {
+            value = load.task.get();
+        } catch (Exception e) {
+            removeEntry(key);
+            return;
+        }
+        boolean stale = load.invalidated;
+        if (value == null || (stale && load.policy != staleWhileRevalidate)) {
+            removeEntry(key);
+            return;
+        }
+        removeEntry(key);
+        Entry entry = new Entry(value, weigher.weigh(value), load.tags, load.patchable, load.policy,
+                stale ? new HashSet<String>() : load.changedEntityIds);
+        if (load.policy == staleWhileRevalidate) {
+            entry.stale = stale;
+            entry.cacheableData = cacheableData;
+            entry.weigher = weigher;
+        }
+        entries.put(key, entry);
+        totalWeight += entry.weight;
+        evictLeastRecentlyUsedEntries(key);
+    }
+
+    private void removeEntry(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            totalWeight -= entry.weight;
+        }
+    }
+
+    private void evictLeastRecentlyUsedEntries(String keyToKeep) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalWeight > maximumWeight && iterator.hasNext()) {
+            Map.Entry<String, Entry> keyAndEntry = iterator.next();
+            if (keyAndEntry.getKey().equals(keyToKeep)) {
+                continue;
+            }
+            logWarn(format("Cache entry {0} evicted as the cache is full.", keyAndEntry.getKey()));
+            totalWeight -= keyAndEntry.getValue().weight;
+            iterator.remove();
+        }
+    }
+
+    private Object resultOf(FutureTask<Object> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static synchronized ExecutorService sharedRevalidationExecutor() {
+        if (sharedRevalidationExecutor == null) {
+            sharedRevalidationExecutor = newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "CacheRevalidation");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return sharedRevalidationExecutor;
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long weight;
+        private final Set<CacheTag> tags;
+        private final boolean patchable;
+        private final CachePolicy policy;
+        private final Set<String> changedEntityIds;
+        private boolean stale;
+        private CacheableData<?> cacheableData;
+        private Weigher<Object> weigher;
+
+        private Entry(Object value, long weight, Set<CacheTag> tags, boolean patchable, CachePolicy policy, Set<String> changedEntityIds) {
+            this.value = value;
+            this.weight = weight;
+            this.tags = tags;
+            this.patchable = patchable;
+            this.policy = policy;
+            this.changedEntityIds = changedEntityIds;
+        }
+
+        private boolean isTaggedWithAnyOf(Collection<CacheTag> otherTags) {
+            return !Collections.disjoint(tags, otherTags);
+        }
+    }
+
+    private static class Load {
+        private final FutureTask<Object> task;
+        private final Set<CacheTag> tags;
+        private final boolean patchable;
+        private final CachePolicy policy;
+        private final Set<String> changedEntityIds = new HashSet<String>();
+        private boolean invalidated;
+        private boolean discarded;
+
+        private Load(FutureTask<Object> task, Set<CacheTag> tags, boolean patchable, CachePolicy policy) {
+            this.task = task;
+            this.tags = tags;
+            this.patchable = patchable;
+            this.policy = policy;
+        }
+    }
+}
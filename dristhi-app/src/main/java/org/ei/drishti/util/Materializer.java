@@ -0,0 +1,5 @@
+package org.ei.drishti.util;
+
+public interface Materializer<R, C> {
+    public C materialize(R row);
+}
@@ -0,0 +1,100 @@
+package org.ei.drishti.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+public class ParallelMaterializer {
+    private static final int NUMBER_OF_CORES = Runtime.getRuntime().availableProcessors();
+    private static final int MINIMUM_ROWS_PER_CHUNK = 50;
+    private static ExecutorService sharedExecutor;
+
+    private final ExecutorService executor;
+    private final int numberOfThreads;
+    private final int minimumRowsPerChunk;
+
+    public ParallelMaterializer() {
+        this(sharedExecutor(), NUMBER_OF_CORES, MINIMUM_ROWS_PER_CHUNK);
+    }
+
+    public ParallelMaterializer(ExecutorService executor, int numberOfThreads, int minimumRowsPerChunk) {
+        this.executor = executor;
+        this.numberOfThreads = numberOfThreads;
+        this.minimumRowsPerChunk = minimumRowsPerChunk;
+    }
+
+    public static ParallelMaterializer sequential() {
+        return new ParallelMaterializer(null, 1, Integer.MAX_VALUE);
+    }
+
+    public <R, C> List<C> materialize(List<R> rows, Materializer<R, C> materializer) {
+        int numberOfChunks = min(numberOfThreads, rows.size() / max(minimumRowsPerChunk, 1));
+        if (numberOfChunks <= 1) {
+            return materialize(rows, 0, rows.size(), materializer);
+        }
+
+        int rowsPerChunk = (rows.size() + numberOfChunks - 1) / numberOfChunks;
+        List<Future<List<C>>> remainingChunks = new ArrayList<Future<List<C>>>();
+        for (int start = rowsPerChunk; start < rows.size(); start += rowsPerChunk) {
+            remainingChunks.add(executor.submit(chunk(rows, start, min(start + rowsPerChunk, rows.size()), materializer)));
+        }
+        List<C> clients = materialize(rows, 0, rowsPerChunk, materializer);
+        for (Future<List<C>> chunk : remainingChunks) {
+            clients.addAll(resultOf(chunk));
+        }
+        return clients;
+    }
+
+    private <R, C> Callable<List<C>> chunk(final List<R> rows, final int start, final int end, final Materializer<R, C> materializer) {
+        return new Callable<List<C>>() {
+            @Override
+            public List<C> call() throws Exception {
+                return materialize(rows, start, end, materializer);
+            }
+        };
+    }
+
+    private <R, C> List<C> materialize(List<R> rows, int start, int end, Materializer<R, C> materializer) {
+        List<C> clients = new ArrayList<C>(end - start);
+        for (R row : rows.subList(start, end)) {
+            clients.add(materializer.materialize(row));
+        }
+        return clients;
+    }
+
+    private <C> List<C> resultOf(Future<List<C>> chunk) {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static synchronized ExecutorService sharedExecutor() {
+        if (sharedExecutor == null) {
+            sharedExecutor = newFixedThreadPool(NUMBER_OF_CORES, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ParallelMaterializer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sharedExecutor;
+    }
+}
@@ -0,0 +1,7 @@
+package org.ei.drishti.util;
+
+import java.util.Set;
+
+public interface PatchableData<T> extends CacheableData<T> {
+    public T patch(T data, Set<String> changedEntityIds);
+}
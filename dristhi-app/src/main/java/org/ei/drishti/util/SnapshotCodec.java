@@ -0,0 +1,11 @@
+package org.ei.drishti.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+public interface SnapshotCodec<T> {
+    public void write(T value, Writer writer) throws IOException;
+
+    public T read(Reader reader) throws IOException;
+}
@@ -0,0 +1,5 @@
+package org.ei.drishti.util;
+
+public interface Weigher<T> {
+    public long weigh(T value);
+}
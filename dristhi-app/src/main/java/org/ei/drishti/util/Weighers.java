@@ -0,0 +1,34 @@
+package org.ei.drishti.util;
+
+import java.util.Collection;
+
+public class Weighers {
+    private static final int OBJECT_OVERHEAD_IN_BYTES = 64;
+
+    public static <T> Weigher<T> fixed(final long weightInBytes) {
+        return new Weigher<T>() {
+            @Override
+            public long weigh(T value) {
+                return weightInBytes;
+            }
+        };
+    }
+
+    public static Weigher<String> strings() {
+        return new Weigher<String>() {
+            @Override
+            public long weigh(String value) {
+                return OBJECT_OVERHEAD_IN_BYTES + (value == null ? 0 : 2L * value.length());
+            }
+        };
+    }
+
+    public static Weigher<Collection<?>> perElement(final long bytesPerElement) {
+        return new Weigher<Collection<?>>() {
+            @Override
+            public long weigh(Collection<?> value) {
+                return OBJECT_OVERHEAD_IN_BYTES + (value == null ? 0 : bytesPerElement * value.size());
+            }
+        };
+    }
+}
@@ -20,6 +20,7 @@ import static android.os.Environment.getExternalStoragePublicDirectory;
 import static org.ei.drishti.AllConstants.ENTITY_ID;
 import static org.ei.drishti.AllConstants.WOMAN_TYPE;
 import static org.ei.drishti.AllConstants.CHILD_TYPE;
+import static org.ei.drishti.event.Event.ENTITY_CHANGED;
 import static org.ei.drishti.event.Event.ON_PHOTO_CAPTURED;
 
 public class CameraLaunchActivity extends SecuredActivity {
@@ -104,6 +105,7 @@ public class CameraLaunchActivity extends SecuredActivity {
         if(CHILD_TYPE.equals(entityType)) {
             context.childService().updatePhotoPath(entityId, imagePath);
         }
+        ENTITY_CHANGED.notifyListeners(entityId);
         ON_PHOTO_CAPTURED.notifyListeners(new CapturedPhotoInformation(entityId, imagePath));
     }
 
@@ -6,7 +6,7 @@ public class ChildSmartRegisterActivity extends SmartRegisterActivity {
     @Override
     protected void onSmartRegisterInitialization() {
         webView.addJavascriptInterface(new ChildSmartRegisterController(context.serviceProvidedService(), context.alertService(),
-                context.allBeneficiaries(), context.listCache(), context.smartRegisterClientsCache()), "context");
+                context.allBeneficiaries(), context.childClientsCache()), "context");
         webView.loadUrl("file:///android_asset/www/smart_registry/child_register.html");
     }
 }
@@ -6,9 +6,10 @@ import org.ei.drishti.R;
 import org.ei.drishti.adapter.SmartRegisterPaginatedAdapter;
 import org.ei.drishti.domain.form.FieldOverrides;
 import org.ei.drishti.provider.ANCSmartRegisterClientsProvider;
-import org.ei.drishti.provider.SmartRegisterClientsProvider;
+import org.ei.drishti.util.Cache;
 import org.ei.drishti.view.contract.SmartRegisterClient;
 import org.ei.drishti.view.controller.ANCSmartRegisterController;
+import org.ei.drishti.view.controller.PreloadTarget;
 import org.ei.drishti.view.controller.VillageController;
 import org.ei.drishti.view.dialog.*;
 
@@ -21,7 +22,7 @@ import static org.ei.drishti.AllConstants.FormNames.*;
 
 public class NativeANCSmartRegisterActivity extends SecuredNativeSmartRegisterActivity {
 
-    private SmartRegisterClientsProvider clientProvider = null;
+    private ANCSmartRegisterClientsProvider clientProvider = null;
     private ANCSmartRegisterController controller;
     private VillageController villageController;
     private DialogOptionMapper dialogOptionMapper;
@@ -32,11 +33,11 @@ public class NativeANCSmartRegisterActivity extends SecuredNativeSmartRegisterAc
 
     @Override
     protected SmartRegisterPaginatedAdapter adapter() {
-        return new SmartRegisterPaginatedAdapter(clientsProvider());
+        return new SmartRegisterPaginatedAdapter(clientsProvider(), clientsProvider());
     }
 
     @Override
-    protected SmartRegisterClientsProvider clientsProvider() {
+    protected ANCSmartRegisterClientsProvider clientsProvider() {
         if (clientProvider == null) {
             clientProvider = new ANCSmartRegisterClientsProvider(
                     this, clientActionHandler, controller);
@@ -144,6 +145,16 @@ public class NativeANCSmartRegisterActivity extends SecuredNativeSmartRegisterAc
         startFormActivity(AllConstants.FormNames.ANC_REGISTRATION_OA, null, fieldOverrides.getJSONString());
     }
 
+    @Override
+    protected PreloadTarget preloadTarget() {
+        return PreloadTarget.anc;
+    }
+
+    @Override
+    protected Cache<?> clientsCache() {
+        return context.ancClientsCache();
+    }
+
     private class ClientActionHandler implements View.OnClickListener {
         @Override
         public void onClick(View view) {
@@ -7,8 +7,10 @@ import org.ei.drishti.adapter.SmartRegisterPaginatedAdapter;
 import org.ei.drishti.domain.form.FieldOverrides;
 import org.ei.drishti.provider.ChildSmartRegisterClientsProvider;
 import org.ei.drishti.provider.SmartRegisterClientsProvider;
+import org.ei.drishti.util.Cache;
 import org.ei.drishti.view.contract.SmartRegisterClient;
 import org.ei.drishti.view.controller.ChildSmartRegisterController;
+import org.ei.drishti.view.controller.PreloadTarget;
 import org.ei.drishti.view.controller.VillageController;
 import org.ei.drishti.view.dialog.*;
 
@@ -118,8 +120,7 @@ public class NativeChildSmartRegisterActivity extends SecuredNativeSmartRegister
                 context.serviceProvidedService(),
                 context.alertService(),
                 context.allBeneficiaries(),
-                context.listCache(),
-                context.smartRegisterClientsCache());
+                context.childClientsCache());
 
         villageController = new VillageController(
                 context.allEligibleCouples(),
@@ -137,6 +138,16 @@ public class NativeChildSmartRegisterActivity extends SecuredNativeSmartRegister
         startFormActivity(AllConstants.FormNames.CHILD_REGISTRATION_OA, null, fieldOverrides.getJSONString());
     }
 
+    @Override
+    protected PreloadTarget preloadTarget() {
+        return PreloadTarget.child;
+    }
+
+    @Override
+    protected Cache<?> clientsCache() {
+        return context.childClientsCache();
+    }
+
     private class ClientActionHandler implements View.OnClickListener {
         @Override
         public void onClick(View view) {
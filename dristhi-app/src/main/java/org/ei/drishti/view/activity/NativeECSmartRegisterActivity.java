@@ -5,10 +5,11 @@ import org.ei.drishti.R;
 import org.ei.drishti.adapter.SmartRegisterPaginatedAdapter;
 import org.ei.drishti.domain.form.FieldOverrides;
 import org.ei.drishti.provider.ECSmartRegisterClientsProvider;
-import org.ei.drishti.provider.SmartRegisterClientsProvider;
+import org.ei.drishti.util.Cache;
 import org.ei.drishti.view.contract.ECClient;
 import org.ei.drishti.view.contract.SmartRegisterClient;
 import org.ei.drishti.view.controller.ECSmartRegisterController;
+import org.ei.drishti.view.controller.PreloadTarget;
 import org.ei.drishti.view.controller.VillageController;
 import org.ei.drishti.view.dialog.*;
 
@@ -21,7 +22,7 @@ import static org.ei.drishti.AllConstants.FormNames.*;
 
 public class NativeECSmartRegisterActivity extends SecuredNativeSmartRegisterActivity {
 
-    private SmartRegisterClientsProvider clientProvider = null;
+    private ECSmartRegisterClientsProvider clientProvider = null;
     private ECSmartRegisterController controller;
     private VillageController villageController;
     private DialogOptionMapper dialogOptionMapper;
@@ -30,7 +31,7 @@ public class NativeECSmartRegisterActivity extends SecuredNativeSmartRegisterAct
 
     @Override
     protected SmartRegisterPaginatedAdapter adapter() {
-        return new SmartRegisterPaginatedAdapter(clientsProvider());
+        return new SmartRegisterPaginatedAdapter(clientsProvider(), clientsProvider());
     }
 
     @Override
@@ -90,7 +91,7 @@ public class NativeECSmartRegisterActivity extends SecuredNativeSmartRegisterAct
     }
 
     @Override
-    protected SmartRegisterClientsProvider clientsProvider() {
+    protected ECSmartRegisterClientsProvider clientsProvider() {
         if (clientProvider == null) {
             clientProvider = new ECSmartRegisterClientsProvider(
                     this, clientActionHandler, controller);
@@ -111,8 +112,7 @@ public class NativeECSmartRegisterActivity extends SecuredNativeSmartRegisterAct
     @Override
     protected void onInitialization() {
         controller = new ECSmartRegisterController(context.allEligibleCouples(),
-                context.allBeneficiaries(), context.listCache(),
-                context.ecClientsCache());
+                context.allBeneficiaries(), context.ecClientsCache());
         villageController = new VillageController(context.allEligibleCouples(),
                 context.listCache(), context.villagesCache());
         dialogOptionMapper = new DialogOptionMapper();
@@ -131,6 +131,16 @@ public class NativeECSmartRegisterActivity extends SecuredNativeSmartRegisterAct
         startFormActivity(EC_REGISTRATION, null, fieldOverrides.getJSONString());
     }
 
+    @Override
+    protected PreloadTarget preloadTarget() {
+        return PreloadTarget.ec;
+    }
+
+    @Override
+    protected Cache<?> clientsCache() {
+        return context.ecClientsCache();
+    }
+
     private class ClientActionHandler implements View.OnClickListener {
         @Override
         public void onClick(View view) {
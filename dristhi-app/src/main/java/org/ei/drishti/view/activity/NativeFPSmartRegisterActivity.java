@@ -11,6 +11,7 @@ import org.ei.drishti.adapter.SmartRegisterPaginatedAdapter;
 import org.ei.drishti.domain.form.FieldOverrides;
 import org.ei.drishti.provider.FPSmartRegisterClientsProvider;
 import org.ei.drishti.provider.SmartRegisterClientsProvider;
+import org.ei.drishti.util.Cache;
 import org.ei.drishti.view.contract.FPClient;
 import org.ei.drishti.view.contract.SmartRegisterClient;
 import org.ei.drishti.view.controller.*;
@@ -142,6 +143,16 @@ public class NativeFPSmartRegisterActivity extends SecuredNativeSmartRegisterAct
         startFormActivity(EC_REGISTRATION, null, fieldOverrides.getJSONString());
     }
 
+    @Override
+    protected PreloadTarget preloadTarget() {
+        return PreloadTarget.fp;
+    }
+
+    @Override
+    protected Cache<?> clientsCache() {
+        return context.fpClientsCache();
+    }
+
     private class ClientActionHandler implements View.OnClickListener {
         @Override
         public void onClick(View view) {
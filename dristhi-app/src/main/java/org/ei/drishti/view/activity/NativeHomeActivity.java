@@ -17,6 +17,7 @@ import org.ei.drishti.view.controller.NativeUpdateANMDetailsTask;
 
 import static java.lang.String.valueOf;
 import static org.ei.drishti.event.Event.*;
+import static org.ei.drishti.view.controller.PreloadTarget.home;
 
 public class NativeHomeActivity extends SecuredActivity {
     private MenuItem updateMenuItem;
@@ -69,6 +70,7 @@ public class NativeHomeActivity extends SecuredActivity {
         setContentView(R.layout.smart_registers_home);
         setupViews();
         initialize();
+        context.smartRegisterPreloader().preload();
     }
 
     private void setupViews() {
@@ -98,6 +100,7 @@ public class NativeHomeActivity extends SecuredActivity {
 
     @Override
     protected void onResumption() {
+        context.smartRegisterPreloader().markUsed(home);
         updateRegisterCounts();
         updateSyncIndicator();
         updateRemainingFormsToSyncCount();
@@ -6,8 +6,10 @@ import org.ei.drishti.adapter.SmartRegisterPaginatedAdapter;
 import org.ei.drishti.domain.form.FieldOverrides;
 import org.ei.drishti.provider.PNCSmartRegisterClientsProvider;
 import org.ei.drishti.provider.SmartRegisterClientsProvider;
+import org.ei.drishti.util.Cache;
 import org.ei.drishti.view.contract.SmartRegisterClient;
 import org.ei.drishti.view.controller.PNCSmartRegisterController;
+import org.ei.drishti.view.controller.PreloadTarget;
 import org.ei.drishti.view.controller.VillageController;
 import org.ei.drishti.view.dialog.*;
 
@@ -133,6 +135,16 @@ public class NativePNCSmartRegisterActivity extends SecuredNativeSmartRegisterAc
         startFormActivity(PNC_REGISTRATION_OA, null, fieldOverrides.getJSONString());
     }
 
+    @Override
+    protected PreloadTarget preloadTarget() {
+        return PreloadTarget.pnc;
+    }
+
+    @Override
+    protected Cache<?> clientsCache() {
+        return context.pncClientsCache();
+    }
+
     private class ClientActionHandler implements View.OnClickListener {
         @Override
         public void onClick(View view) {
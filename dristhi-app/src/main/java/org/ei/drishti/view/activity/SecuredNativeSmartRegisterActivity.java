@@ -12,10 +12,14 @@ import android.view.ViewGroup;
 import android.view.WindowManager;
 import android.widget.*;
 import org.ei.drishti.R;
+import org.ei.drishti.adapter.SmartRegisterFilterPipeline;
 import org.ei.drishti.adapter.SmartRegisterPaginatedAdapter;
 import org.ei.drishti.domain.ReportMonth;
+import org.ei.drishti.event.Listener;
 import org.ei.drishti.provider.SmartRegisterClientsProvider;
+import org.ei.drishti.util.Cache;
 import org.ei.drishti.view.contract.SmartRegisterClient;
+import org.ei.drishti.view.controller.PreloadTarget;
 import org.ei.drishti.view.customControls.CustomFontTextView;
 import org.ei.drishti.view.customControls.FontVariant;
 import org.ei.drishti.view.dialog.*;
@@ -24,12 +28,14 @@ import org.joda.time.LocalDate;
 import java.util.List;
 
 import static android.os.AsyncTask.THREAD_POOL_EXECUTOR;
+import static android.view.View.GONE;
 import static android.view.View.INVISIBLE;
 import static android.view.View.VISIBLE;
 import static java.text.MessageFormat.format;
 import static java.util.Arrays.asList;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 import static org.ei.drishti.AllConstants.SHORT_DATE_FORMAT;
+import static org.ei.drishti.event.Event.CACHE_REVALIDATED;
 
 public abstract class SecuredNativeSmartRegisterActivity extends SecuredActivity {
 
@@ -38,6 +44,7 @@ public abstract class SecuredNativeSmartRegisterActivity extends SecuredActivity
 
     private ListView clientsView;
     private ProgressBar clientsProgressView;
+    private ProgressBar clientsRefreshingView;
     private TextView serviceModeView;
     private TextView appliedVillageFilterView;
     private TextView appliedSortView;
@@ -46,6 +53,8 @@ public abstract class SecuredNativeSmartRegisterActivity extends SecuredActivity
     private TextView titleLabelView;
 
     private SmartRegisterPaginatedAdapter clientsAdapter;
+    private SmartRegisterFilterPipeline filterPipeline;
+    private boolean filtersChangedWhileClientsLoad;
 
     private FilterOption currentVillageFilter;
     private SortOption currentSortOption;
@@ -55,6 +64,17 @@ public abstract class SecuredNativeSmartRegisterActivity extends SecuredActivity
     private final PaginationViewHandler paginationViewHandler = new PaginationViewHandler();
     private final NavBarActionsHandler navBarActionsHandler = new NavBarActionsHandler();
     private final SearchCancelHandler searchCancelHandler = new SearchCancelHandler();
+    private final Listener<String> cacheRevalidatedListener = new Listener<String>() {
+        @Override
+        public void onEvent(final String key) {
+            runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    onClientsRevalidated(key);
+                }
+            });
+        }
+    };
 
     public interface ClientsHeaderProvider {
 
@@ -107,8 +127,20 @@ public abstract class SecuredNativeSmartRegisterActivity extends SecuredActivity
         setupViews();
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        CACHE_REVALIDATED.removeListener(cacheRevalidatedListener);
+        if (filterPipeline != null) {
+            filterPipeline.cancel();
+        }
+    }
+
     @Override
     protected void onResumption() {
+        CACHE_REVALIDATED.addListener(cacheRevalidatedListener);
+        context.smartRegisterPreloader().markUsed(preloadTarget());
+        filterPipeline = null;
         new AsyncTask<Void, Void, Void>() {
             @Override
             protected Void doInBackground(Void... params) {
@@ -127,19 +159,52 @@ public abstract class SecuredNativeSmartRegisterActivity extends SecuredActivity
             @Override
             protected void onPostExecute(Void result) {
                 clientsView.setAdapter(clientsAdapter);
+                filterPipeline = new SmartRegisterFilterPipeline(clientsAdapter);
+                if (filtersChangedWhileClientsLoad) {
+                    filtersChangedWhileClientsLoad = false;
+                    refreshClientList(false);
+                }
                 paginationViewHandler.refresh();
                 clientsProgressView.setVisibility(View.GONE);
                 clientsView.setVisibility(VISIBLE);
-
+                updateRefreshingView();
             }
         }.executeOnExecutor(THREAD_POOL_EXECUTOR);
     }
 
+    private void onClientsRevalidated(String key) {
+        if (!clientsCache().holds(key)) {
+            return;
+        }
+        if (filterPipeline != null) {
+            filterPipeline.refreshListKeepingPage(currentVillageFilter, currentServiceModeOption,
+                    currentSearchFilter, currentSortOption);
+        }
+        updateRefreshingView();
+    }
+
+    private void refreshClientList(boolean afterTyping) {
+        if (filterPipeline == null) {
+            filtersChangedWhileClientsLoad = true;
+        } else if (afterTyping) {
+            filterPipeline.refreshListAfterTyping(currentVillageFilter, currentServiceModeOption,
+                    currentSearchFilter, currentSortOption);
+        } else {
+            filterPipeline.refreshList(currentVillageFilter, currentServiceModeOption,
+                    currentSearchFilter, currentSortOption);
+        }
+    }
+
+    private void updateRefreshingView() {
+        clientsRefreshingView.setVisibility(clientsCache().isRefreshing() ? VISIBLE : GONE);
+    }
+
     protected void setupViews() {
         setupNavBarViews();
         populateClientListHeaderView(defaultOptionProvider.serviceMode().getHeaderProvider());
 
         clientsProgressView = (ProgressBar) findViewById(R.id.client_list_progress);
+        clientsRefreshingView = (ProgressBar) findViewById(R.id.client_list_refreshing_progress);
         clientsView = (ListView) findViewById(R.id.list);
 
         setupStatusBarViews();
@@ -197,9 +262,7 @@ public abstract class SecuredNativeSmartRegisterActivity extends SecuredActivity
             @Override
             public void onTextChanged(CharSequence cs, int start, int before, int count) {
                 currentSearchFilter = new ECSearchOption(cs.toString());
-                clientsAdapter
-                        .refreshList(currentVillageFilter, currentServiceModeOption,
-                                currentSearchFilter, currentSortOption);
+                refreshClientList(true);
 
                 searchCancelView.setVisibility(isEmpty(cs) ? INVISIBLE : VISIBLE);
             }
@@ -277,9 +340,7 @@ public abstract class SecuredNativeSmartRegisterActivity extends SecuredActivity
     protected void onServiceModeSelection(ServiceModeOption serviceModeOption) {
         currentServiceModeOption = serviceModeOption;
         serviceModeView.setText(serviceModeOption.name());
-        clientsAdapter
-                .refreshList(currentVillageFilter, currentServiceModeOption,
-                        currentSearchFilter, currentSortOption);
+        refreshClientList(false);
 
         populateClientListHeaderView(serviceModeOption.getHeaderProvider());
     }
@@ -287,17 +348,13 @@ public abstract class SecuredNativeSmartRegisterActivity extends SecuredActivity
     protected void onSortSelection(SortOption sortBy) {
         currentSortOption = sortBy;
         appliedSortView.setText(sortBy.name());
-        clientsAdapter
-                .refreshList(currentVillageFilter, currentServiceModeOption,
-                        currentSearchFilter, currentSortOption);
+        refreshClientList(false);
     }
 
     protected void onFilterSelection(FilterOption filter) {
         currentVillageFilter = filter;
         appliedVillageFilterView.setText(filter.name());
-        clientsAdapter
-                .refreshList(currentVillageFilter, currentServiceModeOption,
-                        currentSearchFilter, currentSortOption);
+        refreshClientList(false);
     }
 
     protected void onEditSelection(EditOption editOption, SmartRegisterClient client) {
@@ -339,6 +396,10 @@ public abstract class SecuredNativeSmartRegisterActivity extends SecuredActivity
 
     protected abstract void startRegistration();
 
+    protected abstract PreloadTarget preloadTarget();
+
+    protected abstract Cache<?> clientsCache();
+
     private class FilterDialogOptionModel implements DialogOptionModel {
         @Override
         public DialogOption[] getDialogOptions() {
@@ -12,6 +12,7 @@ import org.joda.time.format.ISODateTimeFormat;
 
 import java.util.*;
 
+import static java.util.Arrays.asList;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.ei.drishti.AllConstants.ANCVisitFields.BP_DIASTOLIC;
@@ -73,6 +74,8 @@ public class ANCClient implements ANCSmartRegisterClient {
     private String entityIdToSavePhoto;
     private String ashaPhoneNumber;
     private Map<String, Visits> serviceToVisitsMap;
+    private transient SortKeys sortKeys;
+    private transient LocalDateTime parsedEdd;
 
 
     public ANCClient(String entityId, String village, String name, String thayi, String edd, String lmp) {
@@ -171,9 +174,22 @@ public class ANCClient implements ANCSmartRegisterClient {
                 || String.valueOf(thayi).startsWith(filterCriterion);
     }
 
+    @Override
+    public List<String> searchTerms() {
+        return asList(name, String.valueOf(ec_number), String.valueOf(thayi));
+    }
+
     @Override
     public int compareName(SmartRegisterClient client) {
-        return this.name().compareToIgnoreCase(client.name());
+        return sortKeys().compareName(client.sortKeys());
+    }
+
+    @Override
+    public SortKeys sortKeys() {
+        if (sortKeys == null || sortKeys.isStale()) {
+            sortKeys = new SortKeys(name(), ageInDays());
+        }
+        return sortKeys;
     }
 
     @Override
@@ -183,7 +199,10 @@ public class ANCClient implements ANCSmartRegisterClient {
 
     @Override
     public LocalDateTime edd() {
-        return parse(edd);
+        if (parsedEdd == null) {
+            parsedEdd = parse(edd);
+        }
+        return parsedEdd;
     }
 
     @Override
@@ -15,6 +15,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
+import static java.util.Arrays.asList;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.ei.drishti.AllConstants.*;
 import static org.ei.drishti.AllConstants.ChildIllnessFields.*;
@@ -54,7 +55,7 @@ public class ChildClient implements ChildSmartRegisterClient {
         categoriesToServiceTypeMap.put(CATEGORY_CHILD_ILLNESS, Arrays.asList(ILLNESS_VISIT));
     }
 
-    Map<String, Treatments> serviceToTreatmentMap = new HashMap<String, Treatments>();
+    private transient Map<String, Treatments> serviceToTreatmentMap;
 
     private final String entityId;
     private String gender;
@@ -76,8 +77,9 @@ public class ChildClient implements ChildSmartRegisterClient {
     private List<ServiceProvidedDTO> services_provided;
     private String entityIdToSavePhoto;
 
-    private ServiceProvidedDTO lastService;
-    private ServiceProvidedDTO illnessVisitServiceProvided;
+    private transient ServiceProvidedDTO lastService;
+    private transient ServiceProvidedDTO illnessVisitServiceProvided;
+    private transient SortKeys sortKeys;
 
     private class Treatments {
         public ServiceProvidedDTO provided = emptyService;
@@ -198,6 +200,11 @@ public class ChildClient implements ChildSmartRegisterClient {
                 || String.valueOf(thayiCardNumber).startsWith(filterCriterion);
     }
 
+    @Override
+    public List<String> searchTerms() {
+        return asList(name, motherName, String.valueOf(ecNumber), String.valueOf(thayiCardNumber));
+    }
+
     @Override
     public int ageInDays() {
         return isBlank(dob) ? 0 : Days.daysBetween(LocalDate.parse(dob), DateUtil.today()).getDays();
@@ -205,8 +212,15 @@ public class ChildClient implements ChildSmartRegisterClient {
 
     @Override
     public int compareName(SmartRegisterClient anotherClient) {
-        ChildSmartRegisterClient anotherChildClient = (ChildSmartRegisterClient) anotherClient;
-        return this.motherName().compareTo(anotherChildClient.motherName());
+        return sortKeys().compareName(anotherClient.sortKeys());
+    }
+
+    @Override
+    public SortKeys sortKeys() {
+        if (sortKeys == null || sortKeys.isStale()) {
+            sortKeys = new SortKeys(name(), motherName(), ageInDays());
+        }
+        return sortKeys;
     }
 
     public String format(int days_since) {
@@ -263,10 +277,9 @@ public class ChildClient implements ChildSmartRegisterClient {
     }
 
     private ServiceProvidedDTO getIllnessVisitServiceProvided() {
-        Collections.reverse(services_provided);
-        for (ServiceProvidedDTO service : services_provided) {
-            if (ILLNESS_VISIT.equals(service.type())) {
-                return service;
+        for (int index = services_provided.size() - 1; index >= 0; index--) {
+            if (ILLNESS_VISIT.equals(services_provided.get(index).type())) {
+                return services_provided.get(index);
             }
         }
         return emptyService;
@@ -387,11 +400,20 @@ public class ChildClient implements ChildSmartRegisterClient {
     }
 
     public ChildClient withPreprocess() {
+        serviceToTreatmentMap = new HashMap<String, Treatments>();
         initialize(SERVICE_CATEGORIES, serviceToTreatmentMap);
         initializeAllServiceToProvideAndProvided(categoriesToServiceTypeMap);
         return this;
     }
 
+    // Gson does not run field initializers when it reads a client back from a snapshot, so the map is rebuilt on first use.
+    private Map<String, Treatments> serviceToTreatmentMap() {
+        if (serviceToTreatmentMap == null) {
+            withPreprocess();
+        }
+        return serviceToTreatmentMap;
+    }
+
     private void initializeAllServiceToProvideAndProvided(Map<String, List<ChildServiceType>> categoriesToServiceTypeMap) {
         Set<String> keys = categoriesToServiceTypeMap.keySet();
         for (String key : keys) {
@@ -449,21 +471,21 @@ public class ChildClient implements ChildSmartRegisterClient {
         if (StringUtils.isBlank(category)) {
             return false;
         }
-        return serviceToTreatmentMap.get(category).provided != emptyService;
+        return serviceToTreatmentMap().get(category).provided != emptyService;
     }
 
     private ServiceProvidedDTO serviceProvided(String category) {
         if (StringUtils.isBlank(category)) {
             return emptyService;
         }
-        return serviceToTreatmentMap.get(category).provided;
+        return serviceToTreatmentMap().get(category).provided;
     }
 
     private AlertDTO serviceToProvide(String category) {
         if (StringUtils.isBlank(category)) {
             return emptyAlert;
         }
-        return serviceToTreatmentMap.get(category).toProvide;
+        return serviceToTreatmentMap().get(category).toProvide;
     }
 
     @Override
@@ -0,0 +1,88 @@
+package org.ei.drishti.view.contract;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.ei.drishti.view.contract.SortKeys.foldCase;
+
+public class ClientSearchIndex {
+    private final String[] terms;
+    private final SmartRegisterClient[] clients;
+    private String lastPrefix = "";
+    private int lastStart;
+    private int lastEnd;
+
+    public ClientSearchIndex(List<SmartRegisterClient> registerClients) {
+        List<Entry> entries = new ArrayList<Entry>();
+        for (SmartRegisterClient client : registerClients) {
+            for (String term : client.searchTerms()) {
+                if (!isBlank(term)) {
+                    entries.add(new Entry(foldCase(term), client));
+                }
+            }
+        }
+        Collections.sort(entries);
+        terms = new String[entries.size()];
+        clients = new SmartRegisterClient[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            terms[i] = entries.get(i).term;
+            clients[i] = entries.get(i).client;
+        }
+        lastEnd = terms.length;
+    }
+
+    public synchronized Set<SmartRegisterClient> search(String criterion) {
+        String prefix = foldCase(criterion);
+        int start = 0;
+        int end = terms.length;
+        if (prefix.startsWith(lastPrefix)) {
+            start = lastStart;
+            end = lastEnd;
+        }
+        start = firstTermNotBefore(prefix, start, end);
+        int matchEnd = start;
+        while (matchEnd < end && terms[matchEnd].startsWith(prefix)) {
+            matchEnd++;
+        }
+        lastPrefix = prefix;
+        lastStart = start;
+        lastEnd = matchEnd;
+
+        Set<SmartRegisterClient> matchingClients = Collections.newSetFromMap(new IdentityHashMap<SmartRegisterClient, Boolean>());
+        for (int i = start; i < matchEnd; i++) {
+            matchingClients.add(clients[i]);
+        }
+        return matchingClients;
+    }
+
+    private int firstTermNotBefore(String prefix, int start, int end) {
+        while (start < end) {
+            int middle = (start + end) >>> 1;
+            if (terms[middle].compareTo(prefix) < 0) {
+                start = middle + 1;
+            } else {
+                end = middle;
+            }
+        }
+        return start;
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private final String term;
+        private final SmartRegisterClient client;
+
+        private Entry(String term, SmartRegisterClient client) {
+            this.term = term;
+            this.client = client;
+        }
+
+        @Override
+        public int compareTo(Entry anotherEntry) {
+            return term.compareTo(anotherEntry.term);
+        }
+    }
+}
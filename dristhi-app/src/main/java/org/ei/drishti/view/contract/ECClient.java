@@ -14,6 +14,7 @@ import org.joda.time.Years;
 
 import java.util.*;
 
+import static java.util.Arrays.asList;
 import static org.apache.commons.lang3.StringUtils.upperCase;
 import static org.ei.drishti.AllConstants.*;
 import static org.ei.drishti.AllConstants.ECRegistrationFields.*;
@@ -50,6 +51,7 @@ public class ECClient implements ECSmartRegisterClient {
     private String locationStatus;
     private List<ECChildClient> children;
     private Map<String, String> status = new HashMap<String, String>();
+    private transient SortKeys sortKeys;
 
     public ECClient(String entityId, String name, String husbandName, String village, Integer ecNumber) {
         this.entityId = entityId;
@@ -102,7 +104,15 @@ public class ECClient implements ECSmartRegisterClient {
 
     @Override
     public int compareName(SmartRegisterClient client) {
-        return this.name().compareToIgnoreCase(client.name());
+        return sortKeys().compareName(client.sortKeys());
+    }
+
+    @Override
+    public SortKeys sortKeys() {
+        if (sortKeys == null || sortKeys.isStale()) {
+            sortKeys = new SortKeys(name(), ageInDays());
+        }
+        return sortKeys;
     }
 
     public Integer ecNumber() {
@@ -319,6 +329,11 @@ public class ECClient implements ECSmartRegisterClient {
                 || String.valueOf(ecNumber).startsWith(filter);
     }
 
+    @Override
+    public List<String> searchTerms() {
+        return asList(name, String.valueOf(ecNumber));
+    }
+
     @Override
     public boolean equals(Object o) {
         return EqualsBuilder.reflectionEquals(this, o);
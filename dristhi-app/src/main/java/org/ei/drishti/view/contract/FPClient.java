@@ -10,6 +10,7 @@ import org.ei.drishti.util.IntegerUtil;
 
 import java.util.*;
 
+import static java.util.Arrays.asList;
 import static org.apache.commons.lang3.StringUtils.replace;
 import static org.ei.drishti.AllConstants.COMMA_WITH_SPACE;
 import static org.ei.drishti.AllConstants.ECRegistrationFields.*;
@@ -35,15 +36,15 @@ public class FPClient implements FPSmartRegisterClient {
     public static final String FP_FOLLOW_UP = "FP Followup";
     public static final String REFERRAL_FOLLOW_UP = "FP Referral Followup";
 
-    private static final String[] refillTypes = {CONDOM_REFILL, DPMA_INJECTABLE_REFILL, OCP_REFILL};
+    private static final List<String> refillTypes = Arrays.asList(CONDOM_REFILL, DPMA_INJECTABLE_REFILL, OCP_REFILL);
 
-    private static final String[] followUpTypes = {MALE_STERILIZATION_FOLLOW_UP_1,
+    private static final List<String> followUpTypes = Arrays.asList(MALE_STERILIZATION_FOLLOW_UP_1,
             MALE_STERILIZATION_FOLLOW_UP_2,
             FEMALE_STERILIZATION_FOLLOW_UP_1,
             FEMALE_STERILIZATION_FOLLOW_UP_2,
             FEMALE_STERILIZATION_FOLLOW_UP_3,
             IUD_FOLLOW_UP_1,
-            IUD_FOLLOW_UP_2};
+            IUD_FOLLOW_UP_2);
 
     private static Map<String, String> alertNameToFPMethodMap = new HashMap<String, String>();
 
@@ -97,6 +98,7 @@ public class FPClient implements FPSmartRegisterClient {
     private String otherSideEffect;
     private String highPriorityReason;
     private RefillFollowUps refillFollowUps;
+    private transient SortKeys sortKeys;
 
 
     public FPClient(String entityId, String name, String husbandName, String village, String ecNumber) {
@@ -114,55 +116,40 @@ public class FPClient implements FPSmartRegisterClient {
     }
 
     public FPClient setRefillFollowUp() {
-        List<AlertDTO> alerts = alerts();
-        AlertDTO fpReferralFollowUpAlert = getFPReferralFollowUpAlert(alerts);
-        AlertDTO fpFollowUpAlert = getFPFollowUpAlert(alerts);
+        AlertDTO fpReferralFollowUpAlert = null;
+        AlertDTO fpFollowUpAlert = null;
+        AlertDTO otherFPMethodAlert = null;
+        String fpMethodName = fpMethod().name();
+        for (AlertDTO alert : alerts()) {
+            if (isFPReferralFollowUpAlert(alert)) {
+                fpReferralFollowUpAlert = alert;
+                break;
+            } else if (fpFollowUpAlert == null && isFPFollowUpAlert(alert)) {
+                fpFollowUpAlert = alert;
+            } else if (otherFPMethodAlert == null && isOtherFPMethodAlert(alert, fpMethodName)
+                    && (isAlertBelongsTo(alert, followUpTypes) || isAlertBelongsTo(alert, refillTypes))) {
+                otherFPMethodAlert = alert;
+            }
+        }
         if (fpReferralFollowUpAlert != null) {
             this.withRefillFollowUps(new RefillFollowUps(REFERRAL_FOLLOW_UP, fpReferralFollowUpAlert, getInstance().getStringResource(R.string.str_referral)));
         } else if (fpFollowUpAlert != null) {
             this.withRefillFollowUps(new RefillFollowUps(FP_FOLLOW_UP, fpFollowUpAlert, getInstance().getStringResource(R.string.str_follow_up)));
+        } else if (otherFPMethodAlert != null) {
+            int label = isAlertBelongsTo(otherFPMethodAlert, followUpTypes) ? R.string.str_follow_up : R.string.str_refill;
+            this.withRefillFollowUps(new RefillFollowUps(otherFPMethodAlert.name(), otherFPMethodAlert, getInstance().getStringResource(label)));
         } else {
-            this.withRefillFollowUps(getOtherFPMethod(alerts));
+            this.withRefillFollowUps(null);
         }
         return this;
     }
 
-    private RefillFollowUps getOtherFPMethod(List<AlertDTO> alerts) {
-        for (AlertDTO alert : alerts) {
-            if (isOtherFPMethodAlert(alert) && isAlertBelongsTo(alert, followUpTypes)) {
-                return new RefillFollowUps(alert.name(), alert, getInstance().getStringResource(R.string.str_follow_up));
-            } else if (isOtherFPMethodAlert(alert) && isAlertBelongsTo(alert, refillTypes)) {
-                return new RefillFollowUps(alert.name(), alert, getInstance().getStringResource(R.string.str_refill));
-            }
-        }
-        return null;
+    private boolean isAlertBelongsTo(AlertDTO alert, List<String> types) {
+        return types.contains(alert.name());
     }
 
-
-    private AlertDTO getFPFollowUpAlert(List<AlertDTO> alerts) {
-        for (AlertDTO alert : alerts) {
-            if (isFPFollowUpAlert(alert)) {
-                return alert;
-            }
-        }
-        return null;
-    }
-
-    private AlertDTO getFPReferralFollowUpAlert(List<AlertDTO> alerts) {
-        for (AlertDTO alert : alerts) {
-            if (isFPReferralFollowUpAlert(alert)) {
-                return alert;
-            }
-        }
-        return null;
-    }
-
-    private boolean isAlertBelongsTo(AlertDTO alert, String[] types) {
-        return Arrays.asList(types).contains(alert.name());
-    }
-
-    private boolean isOtherFPMethodAlert(AlertDTO alert) {
-        return this.fpMethod().name().equalsIgnoreCase(alertNameToFPMethodMap.get(alert.name()));
+    private boolean isOtherFPMethodAlert(AlertDTO alert, String fpMethodName) {
+        return fpMethodName.equalsIgnoreCase(alertNameToFPMethodMap.get(alert.name()));
     }
 
     private boolean isFPFollowUpAlert(AlertDTO alert) {
@@ -274,10 +261,23 @@ public class FPClient implements FPSmartRegisterClient {
                 || String.valueOf(ec_number).startsWith(filter);
     }
 
+    @Override
+    public List<String> searchTerms() {
+        return asList(name, String.valueOf(ec_number));
+    }
+
 
     @Override
     public int compareName(SmartRegisterClient client) {
-        return this.name().compareToIgnoreCase(client.name());
+        return sortKeys().compareName(client.sortKeys());
+    }
+
+    @Override
+    public SortKeys sortKeys() {
+        if (sortKeys == null || sortKeys.isStale()) {
+            sortKeys = new SortKeys(name(), ageInDays());
+        }
+        return sortKeys;
     }
 
     public FPClient withAge(String age) {
@@ -3,6 +3,7 @@ package org.ei.drishti.view.contract;
 import org.ei.drishti.util.IntegerUtil;
 
 import java.util.Comparator;
+import java.util.List;
 
 public interface SmartRegisterClient {
 
@@ -17,7 +18,7 @@ public interface SmartRegisterClient {
         @Override
         public int compare(SmartRegisterClient client, SmartRegisterClient anotherClient) {
             return client.isHighPriority() == anotherClient.isHighPriority()
-                    ? client.name().compareToIgnoreCase(anotherClient.name())
+                    ? client.sortKeys().compareNameIgnoringCase(anotherClient.sortKeys())
                     : anotherClient.isHighPriority() ? 1 : -1;
         }
     };
@@ -26,7 +27,7 @@ public interface SmartRegisterClient {
         @Override
         public int compare(SmartRegisterClient client, SmartRegisterClient anotherClient) {
             return client.isHighRisk() == anotherClient.isHighRisk()
-                    ? client.name().compareToIgnoreCase(anotherClient.name())
+                    ? client.sortKeys().compareNameIgnoringCase(anotherClient.sortKeys())
                     : anotherClient.isHighRisk() ? 1 : -1;
         }
     };
@@ -70,7 +71,7 @@ public interface SmartRegisterClient {
     Comparator<SmartRegisterClient> AGE_COMPARATOR = new Comparator<SmartRegisterClient>() {
         @Override
         public int compare(SmartRegisterClient client, SmartRegisterClient anotherClient) {
-            return IntegerUtil.compare(client.ageInDays(), anotherClient.ageInDays());
+            return IntegerUtil.compare(client.sortKeys().ageInDays(), anotherClient.sortKeys().ageInDays());
         }
     };
 
@@ -120,5 +121,9 @@ public interface SmartRegisterClient {
 
     public boolean satisfiesFilter(String filterCriterion);
 
+    public List<String> searchTerms();
+
     public int compareName(SmartRegisterClient client);
+
+    public SortKeys sortKeys();
 }
@@ -3,44 +3,103 @@ package org.ei.drishti.view.contract;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 import org.ei.drishti.view.dialog.FilterOption;
+import org.ei.drishti.view.dialog.SearchFilterOption;
 import org.ei.drishti.view.dialog.ServiceModeOption;
 import org.ei.drishti.view.dialog.SortOption;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Collections.binarySearch;
+import static org.apache.commons.lang3.StringUtils.isBlank;
 
 public class SmartRegisterClients extends ArrayList<SmartRegisterClient> {
+    private transient ClientSearchIndex searchIndex;
+    private transient int indexedModCount;
 
     //#TODO: REMOVE THIS METHOD AND USE BELOW METHOD
     public SmartRegisterClients applyFilter(final FilterOption villageFilter, final ServiceModeOption serviceModeOption,
-                                            final FilterOption searchFilter, SortOption sortOption) {
+                                            FilterOption searchFilter, SortOption sortOption) {
+        final FilterOption indexedSearchFilter = indexed(searchFilter);
         SmartRegisterClients results = new SmartRegisterClients();
         Iterables.addAll(results, Iterables.filter(this, new Predicate<SmartRegisterClient>() {
             @Override
             public boolean apply(SmartRegisterClient client) {
-                return villageFilter.filter(client) && searchFilter.filter(client);
+                return villageFilter.filter(client) && indexedSearchFilter.filter(client);
             }
         }));
 
-        serviceModeOption.apply();
+        SortKeys.refreshDay();
         return sortOption.sort(results);
     }
 
-    public SmartRegisterClients applyFilterWithFP(final ServiceModeOption serviceModeOption, SortOption sortOption, final FilterOption... filterOptions) {
+    public SmartRegisterClients applyFilterWithFP(final ServiceModeOption serviceModeOption, SortOption sortOption, FilterOption... filterOptions) {
+        final FilterOption[] indexedFilterOptions = new FilterOption[filterOptions.length];
+        for (int i = 0; i < filterOptions.length; i++) {
+            indexedFilterOptions[i] = indexed(filterOptions[i]);
+        }
         SmartRegisterClients results = new SmartRegisterClients();
 
         Iterables.addAll(results, Iterables.filter(this, new Predicate<SmartRegisterClient>() {
             @Override
             public boolean apply(SmartRegisterClient client) {
                 boolean isClientToBeFiltered = true;
-                for (FilterOption filterOption : filterOptions) {
+                for (FilterOption filterOption : indexedFilterOptions) {
                      isClientToBeFiltered = isClientToBeFiltered && filterOption.filter(client);
                 }
                 return isClientToBeFiltered;
             }
         }));
 
-        serviceModeOption.apply();
+        SortKeys.refreshDay();
         return sortOption.sort(results);
     }
 
+    private FilterOption indexed(final FilterOption filterOption) {
+        if (!(filterOption instanceof SearchFilterOption) || isBlank(((SearchFilterOption) filterOption).criteria())) {
+            return filterOption;
+        }
+        final Set<SmartRegisterClient> searchResults = searchIndex().search(((SearchFilterOption) filterOption).criteria());
+        return new FilterOption() {
+            @Override
+            public String name() {
+                return filterOption.name();
+            }
+
+            @Override
+            public boolean filter(SmartRegisterClient client) {
+                return searchResults.contains(client);
+            }
+        };
+    }
+
+    private synchronized ClientSearchIndex searchIndex() {
+        if (searchIndex == null || indexedModCount != modCount) {
+            searchIndex = new ClientSearchIndex(this);
+            indexedModCount = modCount;
+        }
+        return searchIndex;
+    }
+
+    public void replaceClients(Set<String> staleEntityIds, List<? extends SmartRegisterClient> freshClients,
+                               Comparator<SmartRegisterClient> order) {
+        int numberOfClientsToKeep = 0;
+        for (int index = 0; index < size(); index++) {
+            SmartRegisterClient client = get(index);
+            if (!staleEntityIds.contains(client.entityId())) {
+                set(numberOfClientsToKeep++, client);
+            }
+        }
+        removeRange(numberOfClientsToKeep, size());
+        for (SmartRegisterClient client : freshClients) {
+            if (order == null) {
+                add(client);
+                continue;
+            }
+            int position = binarySearch(this, client, order);
+            add(position < 0 ? -(position + 1) : position, client);
+        }
+    }
 }
@@ -0,0 +1,76 @@
+package org.ei.drishti.view.contract;
+
+import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.ei.drishti.util.SnapshotCodec;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+
+import static org.ei.drishti.view.contract.AlertDTO.emptyAlert;
+import static org.ei.drishti.view.contract.ServiceProvidedDTO.emptyService;
+
+public class SmartRegisterClientsCodec<T extends SmartRegisterClients> implements SnapshotCodec<T> {
+    // Clients and service modes compare against emptyAlert and emptyService by reference.
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(AlertDTO.class, new EmptyValueDeserializer<AlertDTO>(emptyAlert))
+            .registerTypeAdapter(ServiceProvidedDTO.class, new EmptyValueDeserializer<ServiceProvidedDTO>(emptyService))
+            .create();
+    private final Class<T> clientsClass;
+    private final Class<? extends SmartRegisterClient> clientClass;
+
+    public SmartRegisterClientsCodec(Class<T> clientsClass, Class<? extends SmartRegisterClient> clientClass) {
+        this.clientsClass = clientsClass;
+        this.clientClass = clientClass;
+    }
+
+    @Override
+    public void write(T clients, Writer writer) throws IOException {
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.beginArray();
+        for (SmartRegisterClient client : clients) {
+            gson.toJson(client, clientClass, jsonWriter);
+        }
+        jsonWriter.endArray();
+        jsonWriter.flush();
+    }
+
+    @Override
+    public T read(Reader reader) throws IOException {
+        T clients = newClients();
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            SmartRegisterClient client = gson.fromJson(jsonReader, clientClass);
+            clients.add(client);
+        }
+        jsonReader.endArray();
+        return clients;
+    }
+
+    private T newClients() {
+        try {
+            return clientsClass.newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class EmptyValueDeserializer<V> implements JsonDeserializer<V> {
+        private final Gson gson = new Gson();
+        private final V emptyValue;
+
+        private EmptyValueDeserializer(V emptyValue) {
+            this.emptyValue = emptyValue;
+        }
+
+        @Override
+        public V deserialize(JsonElement json, Type type, JsonDeserializationContext context) throws JsonParseException {
+            V value = gson.fromJson(json, type);
+            return emptyValue.equals(value) ? emptyValue : value;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.ei.drishti.view.contract;
+
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.Collections.sort;
+
+public class SmartRegisterSnapshot<T extends SmartRegisterClients> {
+    private final T clients;
+    private final Comparator<SmartRegisterClient> webViewOrder;
+    private String json;
+
+    public SmartRegisterSnapshot(T clients, Comparator<SmartRegisterClient> webViewOrder) {
+        this.clients = clients;
+        this.webViewOrder = webViewOrder;
+    }
+
+    public T clients() {
+        return clients;
+    }
+
+    public synchronized String json() {
+        if (json == null) {
+            List<SmartRegisterClient> orderedClients = new ArrayList<SmartRegisterClient>(clients);
+            sort(orderedClients, webViewOrder);
+            json = new Gson().toJson(orderedClients);
+        }
+        return json;
+    }
+}
@@ -0,0 +1,29 @@
+package org.ei.drishti.view.contract;
+
+import org.ei.drishti.util.SnapshotCodec;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Comparator;
+
+public class SmartRegisterSnapshotCodec<T extends SmartRegisterClients> implements SnapshotCodec<SmartRegisterSnapshot<T>> {
+    private final SmartRegisterClientsCodec<T> clientsCodec;
+    private final Comparator<SmartRegisterClient> webViewOrder;
+
+    public SmartRegisterSnapshotCodec(Class<T> clientsClass, Class<? extends SmartRegisterClient> clientClass,
+                                      Comparator<SmartRegisterClient> webViewOrder) {
+        this.clientsCodec = new SmartRegisterClientsCodec<T>(clientsClass, clientClass);
+        this.webViewOrder = webViewOrder;
+    }
+
+    @Override
+    public void write(SmartRegisterSnapshot<T> snapshot, Writer writer) throws IOException {
+        clientsCodec.write(snapshot.clients(), writer);
+    }
+
+    @Override
+    public SmartRegisterSnapshot<T> read(Reader reader) throws IOException {
+        return new SmartRegisterSnapshot<T>(clientsCodec.read(reader), webViewOrder);
+    }
+}
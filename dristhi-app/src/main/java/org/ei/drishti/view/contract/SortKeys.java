@@ -0,0 +1,59 @@
+package org.ei.drishti.view.contract;
+
+import org.ei.drishti.util.DateUtil;
+import org.joda.time.LocalDate;
+
+import static org.apache.commons.lang3.StringUtils.defaultString;
+
+public class SortKeys {
+    private static LocalDate day = DateUtil.today();
+    private static volatile int dayGeneration;
+
+    private final int generation;
+    private final String name;
+    private final String comparableName;
+    private final int ageInDays;
+
+    public SortKeys(String name, int ageInDays) {
+        this(name, foldCase(name), ageInDays);
+    }
+
+    public SortKeys(String name, String comparableName, int ageInDays) {
+        this.generation = dayGeneration;
+        this.name = foldCase(name);
+        this.comparableName = defaultString(comparableName);
+        this.ageInDays = ageInDays;
+    }
+
+    public static synchronized void refreshDay() {
+        LocalDate today = DateUtil.today();
+        if (!today.equals(day)) {
+            day = today;
+            dayGeneration++;
+        }
+    }
+
+    public static String foldCase(String value) {
+        char[] characters = defaultString(value).toCharArray();
+        for (int i = 0; i < characters.length; i++) {
+            characters[i] = Character.toLowerCase(Character.toUpperCase(characters[i]));
+        }
+        return new String(characters);
+    }
+
+    public boolean isStale() {
+        return generation != dayGeneration;
+    }
+
+    public int compareName(SortKeys anotherClient) {
+        return comparableName.compareTo(anotherClient.comparableName);
+    }
+
+    public int compareNameIgnoringCase(SortKeys anotherClient) {
+        return name.compareTo(anotherClient.name);
+    }
+
+    public int ageInDays() {
+        return ageInDays;
+    }
+}
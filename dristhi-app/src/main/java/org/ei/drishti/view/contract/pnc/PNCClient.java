@@ -15,6 +15,7 @@ import org.joda.time.format.ISODateTimeFormat;
 
 import java.util.*;
 
+import static java.util.Arrays.asList;
 import static org.ei.drishti.AllConstants.*;
 import static org.ei.drishti.AllConstants.ECRegistrationFields.*;
 import static org.ei.drishti.domain.ANCServiceType.PNC;
@@ -68,6 +69,8 @@ public class PNCClient implements PNCSmartRegisterClient {
     private PNCFirstSevenDaysVisits pncFirstSevenDaysVisits;
     private List<ServiceProvidedDTO> recentlyProvidedServices;
     private Map<String, Visits> serviceToVisitsMap;
+    private transient SortKeys sortKeys;
+    private transient LocalDate parsedDeliveryDate;
 
     public PNCClient(String entityId, String village, String name, String thayi, String deliveryDate) {
         this.entityId = entityId;
@@ -164,9 +167,22 @@ public class PNCClient implements PNCSmartRegisterClient {
                 || String.valueOf(thayi).startsWith(filter);
     }
 
+    @Override
+    public List<String> searchTerms() {
+        return asList(name, String.valueOf(ec_number), String.valueOf(thayi));
+    }
+
     @Override
     public int compareName(SmartRegisterClient client) {
-        return this.name().compareToIgnoreCase(client.name());
+        return sortKeys().compareName(client.sortKeys());
+    }
+
+    @Override
+    public SortKeys sortKeys() {
+        if (sortKeys == null || sortKeys.isStale()) {
+            sortKeys = new SortKeys(name(), ageInDays());
+        }
+        return sortKeys;
     }
 
     @Override
@@ -186,7 +202,10 @@ public class PNCClient implements PNCSmartRegisterClient {
 
     @Override
     public LocalDate deliveryDate() {
-        return getLocalDateFromISOString(deliveryDate);
+        if (parsedDeliveryDate == null) {
+            parsedDeliveryDate = getLocalDateFromISOString(deliveryDate);
+        }
+        return parsedDeliveryDate;
     }
 
     @Override
@@ -7,15 +7,21 @@ import org.ei.drishti.domain.EligibleCouple;
 import org.ei.drishti.domain.Mother;
 import org.ei.drishti.domain.ServiceProvided;
 import org.ei.drishti.repository.AllBeneficiaries;
+import org.ei.drishti.repository.Keyset;
+import org.ei.drishti.repository.UnitOfWork;
 import org.ei.drishti.service.AlertService;
 import org.ei.drishti.service.ServiceProvidedService;
 import org.ei.drishti.util.Cache;
-import org.ei.drishti.util.CacheableData;
+import org.ei.drishti.util.Materializer;
+import org.ei.drishti.util.ParallelMaterializer;
+import org.ei.drishti.util.PatchableData;
 import org.ei.drishti.view.contract.*;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static java.lang.String.valueOf;
 import static java.util.Collections.sort;
@@ -39,61 +45,85 @@ public class ANCSmartRegisterController {
     private static final String HB_FOLLOWUP_TEST_ALERT_NAME = "Hb Followup Test";
     private static final String DELIVERY_PLAN_ALERT_NAME = "Delivery Plan";
 
+    private static final String[] ANC_ALERT_NAMES = new String[]{
+            ANC_1_ALERT_NAME,
+            ANC_2_ALERT_NAME,
+            ANC_3_ALERT_NAME,
+            ANC_4_ALERT_NAME,
+            IFA_1_ALERT_NAME,
+            IFA_2_ALERT_NAME,
+            IFA_3_ALERT_NAME,
+            LAB_REMINDER_ALERT_NAME,
+            TT_1_ALERT_NAME,
+            TT_2_ALERT_NAME,
+            HB_TEST_1_ALERT_NAME,
+            HB_FOLLOWUP_TEST_ALERT_NAME,
+            HB_TEST_2_ALERT_NAME,
+            DELIVERY_PLAN_ALERT_NAME
+    };
+    private static final String[] ANC_SERVICE_NAMES = new String[]{
+            IFA_SERVICE_PROVIDED_NAME,
+            TT_1_SERVICE_PROVIDED_NAME,
+            TT_2_SERVICE_PROVIDED_NAME,
+            TT_BOOSTER_SERVICE_PROVIDED_NAME,
+            HB_TEST_SERVICE_PROVIDED_NAME,
+            ANC_1_SERVICE_PROVIDED_NAME,
+            ANC_2_SERVICE_PROVIDED_NAME,
+            ANC_3_SERVICE_PROVIDED_NAME,
+            ANC_4_SERVICE_PROVIDED_NAME,
+            DELIVERY_PLAN_SERVICE_PROVIDED_NAME
+    };
+
     private static final String ANC_CLIENTS_LIST = "ANCClientList";
+    private static final Comparator<SmartRegisterClient> BY_WIFE_NAME = new Comparator<SmartRegisterClient>() {
+        @Override
+        public int compare(SmartRegisterClient oneANCClient, SmartRegisterClient anotherANCClient) {
+            return Keyset.compareIgnoringCase(oneANCClient.wifeName(), oneANCClient.entityId(),
+                    anotherANCClient.wifeName(), anotherANCClient.entityId());
+        }
+    };
+
     private AllBeneficiaries allBeneficiaries;
     private AlertService alertService;
     private Cache<String> cache;
     private Cache<ANCClients> ancClientsCache;
     private final ServiceProvidedService serviceProvidedService;
+    private final ParallelMaterializer parallelMaterializer;
 
     public ANCSmartRegisterController(ServiceProvidedService serviceProvidedService, AlertService alertService,
                                       AllBeneficiaries allBeneficiaries,
                                       Cache<String> cache, Cache<ANCClients> ancClientsCache) {
+        this(serviceProvidedService, alertService, allBeneficiaries, cache, ancClientsCache, new ParallelMaterializer());
+    }
+
+    public ANCSmartRegisterController(ServiceProvidedService serviceProvidedService, AlertService alertService,
+                                      AllBeneficiaries allBeneficiaries, Cache<String> cache,
+                                      Cache<ANCClients> ancClientsCache, ParallelMaterializer parallelMaterializer) {
         this.allBeneficiaries = allBeneficiaries;
         this.alertService = alertService;
         this.serviceProvidedService = serviceProvidedService;
         this.cache = cache;
         this.ancClientsCache = ancClientsCache;
+        this.parallelMaterializer = parallelMaterializer;
     }
 
 
-    private List<ServiceProvidedDTO> getServicesProvided(String entityId) {
-        List<ServiceProvided> servicesProvided = serviceProvidedService.findByEntityIdAndServiceNames(entityId,
-                IFA_SERVICE_PROVIDED_NAME,
-                TT_1_SERVICE_PROVIDED_NAME,
-                TT_2_SERVICE_PROVIDED_NAME,
-                TT_BOOSTER_SERVICE_PROVIDED_NAME,
-                HB_TEST_SERVICE_PROVIDED_NAME,
-                ANC_1_SERVICE_PROVIDED_NAME,
-                ANC_2_SERVICE_PROVIDED_NAME,
-                ANC_3_SERVICE_PROVIDED_NAME,
-                ANC_4_SERVICE_PROVIDED_NAME,
-                DELIVERY_PLAN_SERVICE_PROVIDED_NAME);
+    private List<ServiceProvidedDTO> serviceProvidedDTOsFor(List<ServiceProvided> servicesProvided) {
         List<ServiceProvidedDTO> serviceProvidedDTOs = new ArrayList<ServiceProvidedDTO>();
+        if (servicesProvided == null) {
+            return serviceProvidedDTOs;
+        }
         for (ServiceProvided serviceProvided : servicesProvided) {
             serviceProvidedDTOs.add(new ServiceProvidedDTO(serviceProvided.name(), serviceProvided.date(), serviceProvided.data()));
         }
         return serviceProvidedDTOs;
     }
 
-    private List<AlertDTO> getAlerts(String entityId) {
-        List<Alert> alerts = alertService.findByEntityIdAndAlertNames(entityId,
-                ANC_1_ALERT_NAME,
-                ANC_2_ALERT_NAME,
-                ANC_3_ALERT_NAME,
-                ANC_4_ALERT_NAME,
-                IFA_1_ALERT_NAME,
-                IFA_2_ALERT_NAME,
-                IFA_3_ALERT_NAME,
-                LAB_REMINDER_ALERT_NAME,
-                TT_1_ALERT_NAME,
-                TT_2_ALERT_NAME,
-                HB_TEST_1_ALERT_NAME,
-                HB_FOLLOWUP_TEST_ALERT_NAME,
-                HB_TEST_2_ALERT_NAME,
-                DELIVERY_PLAN_ALERT_NAME
-        );
+    private List<AlertDTO> alertDTOsFor(List<Alert> alerts) {
         List<AlertDTO> alertDTOs = new ArrayList<AlertDTO>();
+        if (alerts == null) {
+            return alertDTOs;
+        }
         for (Alert alert : alerts) {
             alertDTOs.add(new AlertDTO(alert.visitCode(), valueOf(alert.status()), alert.startDate()));
         }
@@ -101,50 +131,90 @@ public class ANCSmartRegisterController {
     }
 
     public ANCClients getClients() {
-        return ancClientsCache.get(ANC_CLIENTS_LIST, new CacheableData<ANCClients>() {
+        return ancClientsCache.get(ANC_CLIENTS_LIST, new PatchableData<ANCClients>() {
             @Override
             public ANCClients fetch() {
-                ANCClients ancClients = new ANCClients();
-                List<Pair<Mother, EligibleCouple>> ancsWithEcs = allBeneficiaries.allANCsWithEC();
-
-                for (Pair<Mother, EligibleCouple> ancWithEc : ancsWithEcs) {
-                    Mother anc = ancWithEc.getLeft();
-                    EligibleCouple ec = ancWithEc.getRight();
-                    String photoPath = isBlank(ec.photoPath()) ? DEFAULT_WOMAN_IMAGE_PLACEHOLDER_PATH : ec.photoPath();
-
-                    List<ServiceProvidedDTO> servicesProvided = getServicesProvided(anc.caseId());
-                    List<AlertDTO> alerts = getAlerts(anc.caseId());
-                    ANCClient ancClient = new ANCClient(anc.caseId(), ec.village(), ec.wifeName(), anc.thayiCardNumber(), anc.getDetail(AllConstants.ANCRegistrationFields.EDD), anc.referenceDate())
-                            .withHusbandName(ec.husbandName())
-                            .withAge(ec.age())
-                            .withECNumber(ec.ecNumber())
-                            .withANCNumber(anc.getDetail(AllConstants.ANCRegistrationFields.ANC_NUMBER))
-                            .withIsHighPriority(ec.isHighPriority())
-                            .withIsHighRisk(anc.isHighRisk())
-                            .withIsOutOfArea(ec.isOutOfArea())
-                            .withHighRiskReason(anc.highRiskReason())
-                            .withCaste(ec.getDetail(AllConstants.ECRegistrationFields.CASTE))
-                            .withEconomicStatus(ec.getDetail(AllConstants.ECRegistrationFields.ECONOMIC_STATUS))
-                            .withPhotoPath(photoPath)
-                            .withEntityIdToSavePhoto(ec.caseId())
-                            .withAlerts(alerts)
-                            .withAshaPhoneNumber(anc.getDetail(AllConstants.ANCRegistrationFields.ASHA_PHONE_NUMBER))
-                            .withServicesProvided(servicesProvided)
-                            .withPreProcess();
-                    ancClients.add(ancClient);
-                }
-                sortByName(ancClients);
-                return ancClients;
+                return allBeneficiaries.inReadTransaction(new UnitOfWork<ANCClients>() {
+                    @Override
+                    public ANCClients run() {
+                        ANCClients ancClients = ancClientsFor(allBeneficiaries.allANCsWithEC());
+                        sort(ancClients, BY_WIFE_NAME);
+                        return ancClients;
+                    }
+                });
+            }
+
+            @Override
+            public ANCClients patch(final ANCClients ancClients, final Set<String> changedEntityIds) {
+                return allBeneficiaries.inReadTransaction(new UnitOfWork<ANCClients>() {
+                    @Override
+                    public ANCClients run() {
+                        List<String> ecIds = allBeneficiaries.findECIdsOfEntities(changedEntityIds);
+                        ANCClients patchedClients = new ANCClients();
+                        patchedClients.addAll(ancClients);
+                        patchedClients.replaceClients(allBeneficiaries.findFamilyMemberIds(ecIds),
+                                ancClientsFor(allBeneficiaries.findANCsWithECByECIds(ecIds)), BY_WIFE_NAME);
+                        return patchedClients;
+                    }
+                });
             }
         });
     }
 
-    private void sortByName(ANCClients ancClients) {
-        sort(ancClients, new Comparator<SmartRegisterClient>() {
+    public ANCClients getClientsAfter(SmartRegisterClient lastClient, final int numberOfClients) {
+        final Keyset after = lastClient == null ? Keyset.FIRST_PAGE : new Keyset(lastClient.wifeName(), lastClient.entityId());
+        return allBeneficiaries.inReadTransaction(new UnitOfWork<ANCClients>() {
             @Override
-            public int compare(SmartRegisterClient oneANCClient, SmartRegisterClient anotherANCClient) {
-                return oneANCClient.wifeName().compareToIgnoreCase(anotherANCClient.wifeName());
+            public ANCClients run() {
+                return ancClientsFor(allBeneficiaries.pageOfANCsWithECOrderedByName(after, numberOfClients));
             }
         });
     }
+
+    public int clientCount() {
+        return (int) allBeneficiaries.ancCount();
+    }
+
+    private ANCClients ancClientsFor(List<Pair<Mother, EligibleCouple>> ancsWithEcs) {
+        List<String> ancIds = new ArrayList<String>();
+        for (Pair<Mother, EligibleCouple> ancWithEc : ancsWithEcs) {
+            ancIds.add(ancWithEc.getLeft().caseId());
+        }
+        final Map<String, List<Alert>> alerts = alertService.findByEntityIdsAndAlertNames(ancIds, ANC_ALERT_NAMES);
+        final Map<String, List<ServiceProvided>> servicesProvided = serviceProvidedService.findByEntityIdsAndServiceNames(ancIds, ANC_SERVICE_NAMES);
+
+        ANCClients ancClients = new ANCClients();
+        ancClients.addAll(parallelMaterializer.materialize(ancsWithEcs, new Materializer<Pair<Mother, EligibleCouple>, ANCClient>() {
+            @Override
+            public ANCClient materialize(Pair<Mother, EligibleCouple> ancWithEc) {
+                Mother anc = ancWithEc.getLeft();
+                return ancClientFor(anc, ancWithEc.getRight(), alertDTOsFor(alerts.get(anc.caseId())),
+                        serviceProvidedDTOsFor(servicesProvided.get(anc.caseId())));
+            }
+        }));
+        return ancClients;
+    }
+
+    private ANCClient ancClientFor(Mother anc, EligibleCouple ec, List<AlertDTO> alerts, List<ServiceProvidedDTO> servicesProvided) {
+        String photoPath = isBlank(ec.photoPath()) ? DEFAULT_WOMAN_IMAGE_PLACEHOLDER_PATH : ec.photoPath();
+
+        ANCClient ancClient = new ANCClient(anc.caseId(), ec.village(), ec.wifeName(), anc.thayiCardNumber(), anc.getDetail(AllConstants.ANCRegistrationFields.EDD), anc.referenceDate())
+                .withHusbandName(ec.husbandName())
+                .withAge(ec.age())
+                .withECNumber(ec.ecNumber())
+                .withANCNumber(anc.getDetail(AllConstants.ANCRegistrationFields.ANC_NUMBER))
+                .withIsHighPriority(ec.isHighPriority())
+                .withIsHighRisk(anc.isHighRisk())
+                .withIsOutOfArea(ec.isOutOfArea())
+                .withHighRiskReason(anc.highRiskReason())
+                .withCaste(ec.getDetail(AllConstants.ECRegistrationFields.CASTE))
+                .withEconomicStatus(ec.getDetail(AllConstants.ECRegistrationFields.ECONOMIC_STATUS))
+                .withPhotoPath(photoPath)
+                .withEntityIdToSavePhoto(ec.caseId())
+                .withAlerts(alerts)
+                .withAshaPhoneNumber(anc.getDetail(AllConstants.ANCRegistrationFields.ASHA_PHONE_NUMBER))
+                .withServicesProvided(servicesProvided)
+                .withPreProcess();
+        return ancClient;
+    }
 }
@@ -6,6 +6,8 @@ import org.ei.drishti.util.Cache;
 import org.ei.drishti.util.CacheableData;
 import org.ei.drishti.view.contract.ANMLocation;
 
+import static org.ei.drishti.util.CacheTag.settings;
+
 public class ANMLocationController {
     private static final String ANM_LOCATION = "anmLocation";
     private static final String ANM_LOCATION_JSON = "anmLocationJSON";
@@ -23,7 +25,7 @@ public class ANMLocationController {
             public String fetch() {
                 return allSettings.fetchANMLocation();
             }
-        });
+        }, settings);
     }
 
     public String getLocationJSON() {
@@ -32,6 +34,6 @@ public class ANMLocationController {
             public String fetch() {
                 return new Gson().fromJson(allSettings.fetchANMLocation(), ANMLocation.class).asJSONString();
             }
-        });
+        }, settings);
     }
 }
@@ -1,21 +1,25 @@
 package org.ei.drishti.view.controller;
 
-import com.google.gson.Gson;
 import org.apache.commons.lang3.ArrayUtils;
 import org.ei.drishti.AllConstants;
 import org.ei.drishti.domain.Alert;
 import org.ei.drishti.domain.Child;
 import org.ei.drishti.domain.ServiceProvided;
 import org.ei.drishti.repository.AllBeneficiaries;
+import org.ei.drishti.repository.UnitOfWork;
 import org.ei.drishti.service.AlertService;
 import org.ei.drishti.service.ServiceProvidedService;
 import org.ei.drishti.util.Cache;
-import org.ei.drishti.util.CacheableData;
+import org.ei.drishti.util.Materializer;
+import org.ei.drishti.util.ParallelMaterializer;
+import org.ei.drishti.util.PatchableData;
 import org.ei.drishti.view.contract.*;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static java.lang.String.valueOf;
 import static java.util.Collections.sort;
@@ -24,141 +28,150 @@ import static org.ei.drishti.domain.ServiceProvided.*;
 
 public class ChildSmartRegisterController {
     private static final String CHILD_CLIENTS_LIST_CACHE_ENTRY_NAME = "ChildClientList";
+    private static final String[] CHILD_ALERT_NAMES = AllConstants.Immunizations.ALL;
+    private static final String[] CHILD_SERVICE_NAMES = ArrayUtils.addAll(AllConstants.Immunizations.ALL, VITAMIN_A_SERVICE_PROVIDED_NAME,
+            CHILD_ILLNESS_SERVICE_PROVIDED_NAME, PNC_SERVICE_PROVIDED_NAME);
+    private static final Comparator<SmartRegisterClient> BY_NAME = new Comparator<SmartRegisterClient>() {
+        @Override
+        public int compare(SmartRegisterClient oneChild, SmartRegisterClient anotherChild) {
+            return oneChild.compareName(anotherChild);
+        }
+    };
+    public static final Comparator<SmartRegisterClient> BY_MOTHER_NAME = new Comparator<SmartRegisterClient>() {
+        @Override
+        public int compare(SmartRegisterClient oneChild, SmartRegisterClient anotherChild) {
+            return ((ChildSmartRegisterClient) oneChild).motherName().compareToIgnoreCase(((ChildSmartRegisterClient) anotherChild).motherName());
+        }
+    };
+
     private final ServiceProvidedService serviceProvidedService;
     private final AlertService alertService;
     private final AllBeneficiaries allBeneficiaries;
-    private final Cache<String> cache;
-    private final Cache<SmartRegisterClients> smartRegisterCache;
+    private final Cache<SmartRegisterSnapshot<SmartRegisterClients>> childClientsCache;
+    private final ParallelMaterializer parallelMaterializer;
+
+    public ChildSmartRegisterController(ServiceProvidedService serviceProvidedService, AlertService alertService,
+                                        AllBeneficiaries allBeneficiaries, Cache<SmartRegisterSnapshot<SmartRegisterClients>> childClientsCache) {
+        this(serviceProvidedService, alertService, allBeneficiaries, childClientsCache, new ParallelMaterializer());
+    }
 
     public ChildSmartRegisterController(ServiceProvidedService serviceProvidedService, AlertService alertService,
-                                        AllBeneficiaries allBeneficiaries, Cache<String> cache, Cache<SmartRegisterClients> smartRegisterCache) {
+                                        AllBeneficiaries allBeneficiaries, Cache<SmartRegisterSnapshot<SmartRegisterClients>> childClientsCache,
+                                        ParallelMaterializer parallelMaterializer) {
         this.serviceProvidedService = serviceProvidedService;
         this.alertService = alertService;
         this.allBeneficiaries = allBeneficiaries;
-        this.cache = cache;
-        this.smartRegisterCache = smartRegisterCache;
+        this.childClientsCache = childClientsCache;
+        this.parallelMaterializer = parallelMaterializer;
     }
 
     public String get() {
-        return cache.get(CHILD_CLIENTS_LIST_CACHE_ENTRY_NAME, new CacheableData<String>() {
+        return snapshot().json();
+    }
+
+    public SmartRegisterClients getClients() {
+        return snapshot().clients();
+    }
+
+    private SmartRegisterSnapshot<SmartRegisterClients> snapshot() {
+        return childClientsCache.get(CHILD_CLIENTS_LIST_CACHE_ENTRY_NAME, new PatchableData<SmartRegisterSnapshot<SmartRegisterClients>>() {
+            @Override
+            public SmartRegisterSnapshot<SmartRegisterClients> fetch() {
+                return allBeneficiaries.inReadTransaction(new UnitOfWork<SmartRegisterSnapshot<SmartRegisterClients>>() {
+                    @Override
+                    public SmartRegisterSnapshot<SmartRegisterClients> run() {
+                        SmartRegisterClients childrenClient = new SmartRegisterClients();
+                        childrenClient.addAll(preprocessedChildClientsFor(allBeneficiaries.allChildrenWithMotherAndEC()));
+                        sort(childrenClient, BY_NAME);
+                        return new SmartRegisterSnapshot<SmartRegisterClients>(childrenClient, BY_MOTHER_NAME);
+                    }
+                });
+            }
+
             @Override
-            public String fetch() {
-                List<Child> children = allBeneficiaries.allChildrenWithMotherAndEC();
-                List<ChildClient> childrenClient = new ArrayList<ChildClient>();
-
-                for (Child child : children) {
-                    String photoPath = isBlank(child.photoPath()) ? (AllConstants.FEMALE_GENDER.equalsIgnoreCase(child.gender()) ? AllConstants.DEFAULT_GIRL_INFANT_IMAGE_PLACEHOLDER_PATH : AllConstants.DEFAULT_BOY_INFANT_IMAGE_PLACEHOLDER_PATH) : child.photoPath();
-                    List<AlertDTO> alerts = getAlerts(child.caseId());
-                    List<ServiceProvidedDTO> servicesProvided = getServicesProvided(child.caseId());
-                    ChildClient childClient =
-                            new ChildClient(
-                                    child.caseId(),
-                                    child.gender(),
-                                    child.getDetail(AllConstants.ChildRegistrationFields.WEIGHT),
-                                    child.mother().thayiCardNumber())
-                                    .withName(child.getDetail(AllConstants.ChildRegistrationFields.NAME))
-                                    .withEntityIdToSavePhoto(child.caseId())
-                                    .withMotherName(child.ec().wifeName())
-                                    .withDOB(child.dateOfBirth())
-                                    .withMotherAge(child.ec().age())
-                                    .withFatherName(child.ec().husbandName())
-                                    .withVillage(child.ec().village())
-                                    .withOutOfArea(child.ec().isOutOfArea())
-                                    .withEconomicStatus(child.ec().getDetail(AllConstants.ECRegistrationFields.ECONOMIC_STATUS))
-                                    .withCaste(child.ec().getDetail(AllConstants.ECRegistrationFields.CASTE))
-                                    .withIsHighRisk(child.isHighRisk())
-                                    .withPhotoPath(photoPath)
-                                    .withECNumber(child.ec().ecNumber())
-                                    .withAlerts(alerts)
-                                    .withServicesProvided(servicesProvided);
-
-                    childrenClient.add(childClient);
-                }
-                sortByMotherName(childrenClient);
-                return new Gson().toJson(childrenClient);
+            public SmartRegisterSnapshot<SmartRegisterClients> patch(final SmartRegisterSnapshot<SmartRegisterClients> snapshot,
+                                                                      final Set<String> changedEntityIds) {
+                return allBeneficiaries.inReadTransaction(new UnitOfWork<SmartRegisterSnapshot<SmartRegisterClients>>() {
+                    @Override
+                    public SmartRegisterSnapshot<SmartRegisterClients> run() {
+                        List<String> ecIds = allBeneficiaries.findECIdsOfEntities(changedEntityIds);
+                        SmartRegisterClients childrenClient = new SmartRegisterClients();
+                        childrenClient.addAll(snapshot.clients());
+                        childrenClient.replaceClients(allBeneficiaries.findFamilyMemberIds(ecIds),
+                                preprocessedChildClientsFor(allBeneficiaries.findChildrenWithMotherAndECByECIds(ecIds)), BY_NAME);
+                        return new SmartRegisterSnapshot<SmartRegisterClients>(childrenClient, BY_MOTHER_NAME);
+                    }
+                });
             }
         });
     }
 
-    public SmartRegisterClients getClients() {
-        return smartRegisterCache.get(CHILD_CLIENTS_LIST_CACHE_ENTRY_NAME, new CacheableData<SmartRegisterClients>() {
+    private List<ChildClient> preprocessedChildClientsFor(List<Child> children) {
+        return parallelMaterializer.materialize(childClientsFor(children), new Materializer<ChildClient, ChildClient>() {
             @Override
-            public SmartRegisterClients fetch() {
-                List<Child> children = allBeneficiaries.allChildrenWithMotherAndEC();
-                SmartRegisterClients childrenClient = new SmartRegisterClients();
-
-                for (Child child : children) {
-                    String photoPath = isBlank(child.photoPath()) ? (AllConstants.FEMALE_GENDER.equalsIgnoreCase(child.gender()) ? AllConstants.DEFAULT_GIRL_INFANT_IMAGE_PLACEHOLDER_PATH : AllConstants.DEFAULT_BOY_INFANT_IMAGE_PLACEHOLDER_PATH) : child.photoPath();
-                    List<AlertDTO> alerts = getAlerts(child.caseId());
-                    List<ServiceProvidedDTO> servicesProvided = getServicesProvided(child.caseId());
-                    ChildClient childClient =
-                            new ChildClient(
-                                    child.caseId(),
-                                    child.gender(),
-                                    child.getDetail(AllConstants.ChildRegistrationFields.WEIGHT),
-                                    child.mother().thayiCardNumber())
-                                    .withName(child.getDetail(AllConstants.ChildRegistrationFields.NAME))
-                                    .withEntityIdToSavePhoto(child.caseId())
-                                    .withMotherName(child.ec().wifeName())
-                                    .withDOB(child.dateOfBirth())
-                                    .withMotherAge(child.ec().age())
-                                    .withFatherName(child.ec().husbandName())
-                                    .withVillage(child.ec().village())
-                                    .withOutOfArea(child.ec().isOutOfArea())
-                                    .withEconomicStatus(child.ec().getDetail(AllConstants.ECRegistrationFields.ECONOMIC_STATUS))
-                                    .withCaste(child.ec().getDetail(AllConstants.ECRegistrationFields.CASTE))
-                                    .withIsHighRisk(child.isHighRisk())
-                                    .withPhotoPath(photoPath)
-                                    .withECNumber(child.ec().ecNumber())
-                                    .withAlerts(alerts)
-                                    .withServicesProvided(servicesProvided)
-                                    .withPreprocess();
-
-
-                    childrenClient.add(childClient);
-                }
-
-                sortByName(childrenClient);
-                return childrenClient;
+            public ChildClient materialize(ChildClient childClient) {
+                return childClient.withPreprocess();
             }
         });
     }
 
-    private List<ServiceProvidedDTO> getServicesProvided(String entityId) {
-        List<ServiceProvided> servicesProvided = serviceProvidedService.findByEntityIdAndServiceNames(entityId,
-                ArrayUtils.addAll(AllConstants.Immunizations.ALL, VITAMIN_A_SERVICE_PROVIDED_NAME,
-                        CHILD_ILLNESS_SERVICE_PROVIDED_NAME, PNC_SERVICE_PROVIDED_NAME));
+    private List<ChildClient> childClientsFor(List<Child> children) {
+        List<String> childIds = new ArrayList<String>();
+        for (Child child : children) {
+            childIds.add(child.caseId());
+        }
+        Map<String, List<Alert>> alerts = alertService.findByEntityIdsAndAlertNames(childIds, CHILD_ALERT_NAMES);
+        Map<String, List<ServiceProvided>> servicesProvided = serviceProvidedService.findByEntityIdsAndServiceNames(childIds, CHILD_SERVICE_NAMES);
+
+        List<ChildClient> childrenClient = new ArrayList<ChildClient>();
+        for (Child child : children) {
+            String photoPath = isBlank(child.photoPath()) ? (AllConstants.FEMALE_GENDER.equalsIgnoreCase(child.gender()) ? AllConstants.DEFAULT_GIRL_INFANT_IMAGE_PLACEHOLDER_PATH : AllConstants.DEFAULT_BOY_INFANT_IMAGE_PLACEHOLDER_PATH) : child.photoPath();
+            ChildClient childClient =
+                    new ChildClient(
+                            child.caseId(),
+                            child.gender(),
+                            child.getDetail(AllConstants.ChildRegistrationFields.WEIGHT),
+                            child.mother().thayiCardNumber())
+                            .withName(child.getDetail(AllConstants.ChildRegistrationFields.NAME))
+                            .withEntityIdToSavePhoto(child.caseId())
+                            .withMotherName(child.ec().wifeName())
+                            .withDOB(child.dateOfBirth())
+                            .withMotherAge(child.ec().age())
+                            .withFatherName(child.ec().husbandName())
+                            .withVillage(child.ec().village())
+                            .withOutOfArea(child.ec().isOutOfArea())
+                            .withEconomicStatus(child.ec().getDetail(AllConstants.ECRegistrationFields.ECONOMIC_STATUS))
+                            .withCaste(child.ec().getDetail(AllConstants.ECRegistrationFields.CASTE))
+                            .withIsHighRisk(child.isHighRisk())
+                            .withPhotoPath(photoPath)
+                            .withECNumber(child.ec().ecNumber())
+                            .withAlerts(alertDTOsFor(alerts.get(child.caseId())))
+                            .withServicesProvided(serviceProvidedDTOsFor(servicesProvided.get(child.caseId())));
+
+            childrenClient.add(childClient);
+        }
+        return childrenClient;
+    }
+
+    private List<ServiceProvidedDTO> serviceProvidedDTOsFor(List<ServiceProvided> servicesProvided) {
         List<ServiceProvidedDTO> serviceProvidedDTOs = new ArrayList<ServiceProvidedDTO>();
+        if (servicesProvided == null) {
+            return serviceProvidedDTOs;
+        }
         for (ServiceProvided serviceProvided : servicesProvided) {
             serviceProvidedDTOs.add(new ServiceProvidedDTO(serviceProvided.name(), serviceProvided.date(), serviceProvided.data()));
         }
         return serviceProvidedDTOs;
     }
 
-    private List<AlertDTO> getAlerts(String entityId) {
-        List<Alert> alerts = alertService.findByEntityIdAndAlertNames(entityId, AllConstants.Immunizations.ALL);
+    private List<AlertDTO> alertDTOsFor(List<Alert> alerts) {
         List<AlertDTO> alertDTOs = new ArrayList<AlertDTO>();
+        if (alerts == null) {
+            return alertDTOs;
+        }
         for (Alert alert : alerts) {
             alertDTOs.add(new AlertDTO(alert.visitCode(), valueOf(alert.status()), alert.startDate()));
         }
         return alertDTOs;
     }
-
-    private void sortByName(List<SmartRegisterClient> childrenClient) {
-        sort(childrenClient, new Comparator<SmartRegisterClient>() {
-            @Override
-            public int compare(SmartRegisterClient oneChild, SmartRegisterClient anotherChild) {
-                return oneChild.compareName(anotherChild);
-            }
-        });
-    }
-
-    private void sortByMotherName(List<ChildClient> childrenClient) {
-        sort(childrenClient, new Comparator<ChildClient>() {
-            @Override
-            public int compare(ChildClient oneChild, ChildClient anotherChild) {
-                return oneChild.motherName().compareToIgnoreCase(anotherChild.motherName());
-            }
-        });
-    }
 }
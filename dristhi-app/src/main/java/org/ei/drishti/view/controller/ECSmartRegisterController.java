@@ -1,27 +1,30 @@
 package org.ei.drishti.view.controller;
 
-import com.google.common.collect.Iterables;
-import com.google.gson.Gson;
 import org.ei.drishti.AllConstants;
 import org.ei.drishti.domain.Child;
 import org.ei.drishti.domain.EligibleCouple;
 import org.ei.drishti.domain.Mother;
 import org.ei.drishti.repository.AllBeneficiaries;
 import org.ei.drishti.repository.AllEligibleCouples;
+import org.ei.drishti.repository.Keyset;
+import org.ei.drishti.repository.UnitOfWork;
 import org.ei.drishti.util.Cache;
-import org.ei.drishti.util.CacheableData;
 import org.ei.drishti.util.EasyMap;
 import org.ei.drishti.util.IntegerUtil;
+import org.ei.drishti.util.PatchableData;
 import org.ei.drishti.view.contract.ECChildClient;
 import org.ei.drishti.view.contract.ECClient;
 import org.ei.drishti.view.contract.ECClients;
 import org.ei.drishti.view.contract.SmartRegisterClient;
+import org.ei.drishti.view.contract.SmartRegisterSnapshot;
 import org.joda.time.LocalDate;
 import org.joda.time.format.DateTimeFormat;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static java.util.Collections.sort;
 import static org.apache.commons.lang3.StringUtils.isBlank;
@@ -40,131 +43,139 @@ public class ECSmartRegisterController {
     public static final String STATUS_EDD_FIELD = "edd";
     public static final String FP_METHOD_DATE_FIELD = "fpMethodDate";
     private static final String EC_CLIENTS_LIST = "ECClientsList";
+    private static final int NUMBER_OF_CHILDREN_TO_SHOW = 2;
+    public static final Comparator<SmartRegisterClient> BY_WIFE_NAME = new Comparator<SmartRegisterClient>() {
+        @Override
+        public int compare(SmartRegisterClient oneECClient, SmartRegisterClient anotherECClient) {
+            return Keyset.compareIgnoringCase(oneECClient.wifeName(), oneECClient.entityId(),
+                    anotherECClient.wifeName(), anotherECClient.entityId());
+        }
+    };
 
     private final AllEligibleCouples allEligibleCouples;
     private final AllBeneficiaries allBeneficiaries;
-    private final Cache<String> cache;
-    private final Cache<ECClients> ecClientsCache;
+    private final Cache<SmartRegisterSnapshot<ECClients>> ecClientsCache;
 
-    public ECSmartRegisterController(AllEligibleCouples allEligibleCouples,
-                                     AllBeneficiaries allBeneficiaries, Cache<String> cache,
-                                     Cache<ECClients> ecClientsCache) {
+    public ECSmartRegisterController(AllEligibleCouples allEligibleCouples, AllBeneficiaries allBeneficiaries,
+                                     Cache<SmartRegisterSnapshot<ECClients>> ecClientsCache) {
         this.allEligibleCouples = allEligibleCouples;
         this.allBeneficiaries = allBeneficiaries;
-        this.cache = cache;
         this.ecClientsCache = ecClientsCache;
     }
 
     public String get() {
-        return cache.get(EC_CLIENTS_LIST, new CacheableData<String>() {
+        return snapshot().json();
+    }
+
+    public ECClients getClients() {
+        return snapshot().clients();
+    }
+
+    private SmartRegisterSnapshot<ECClients> snapshot() {
+        return ecClientsCache.get(EC_CLIENTS_LIST, new PatchableData<SmartRegisterSnapshot<ECClients>>() {
             @Override
-            public String fetch() {
-                List<EligibleCouple> ecs = allEligibleCouples.all();
-                List<ECClient> ecClients = new ArrayList<ECClient>();
+            public SmartRegisterSnapshot<ECClients> fetch() {
+                return allEligibleCouples.inReadTransaction(new UnitOfWork<SmartRegisterSnapshot<ECClients>>() {
+                    @Override
+                    public SmartRegisterSnapshot<ECClients> run() {
+                        ECClients ecClients = ecClientsFor(allEligibleCouples.all(), allBeneficiaries.allOpenMothersByECId(),
+                                allBeneficiaries.allYoungestOpenChildrenByECId(NUMBER_OF_CHILDREN_TO_SHOW));
+                        sort(ecClients, BY_WIFE_NAME);
+                        return new SmartRegisterSnapshot<ECClients>(ecClients, BY_WIFE_NAME);
+                    }
+                });
+            }
 
-                for (EligibleCouple ec : ecs) {
-                    String photoPath = isBlank(ec.photoPath()) ? DEFAULT_WOMAN_IMAGE_PLACEHOLDER_PATH : ec.photoPath();
-                    ECClient ecClient = new ECClient(ec.caseId(), ec.wifeName(), ec.husbandName(), ec.village(), IntegerUtil.tryParse(ec.ecNumber(), 0))
-                            .withDateOfBirth(ec.getDetail(WOMAN_DOB))
-                            .withFPMethod(ec.getDetail(CURRENT_FP_METHOD))
-                            .withFamilyPlanningMethodChangeDate(ec.getDetail(FAMILY_PLANNING_METHOD_CHANGE_DATE))
-                            .withIUDPlace(ec.getDetail(IUD_PLACE))
-                            .withIUDPerson(ec.getDetail(IUD_PERSON))
-                            .withNumberOfCondomsSupplied(ec.getDetail(NUMBER_OF_CONDOMS_SUPPLIED))
-                            .withNumberOfCentchromanPillsDelivered(ec.getDetail(NUMBER_OF_CENTCHROMAN_PILLS_DELIVERED))
-                            .withNumberOfOCPDelivered(ec.getDetail(NUMBER_OF_OCP_DELIVERED))
-                            .withCaste(ec.getDetail(CASTE))
-                            .withEconomicStatus(ec.getDetail(ECONOMIC_STATUS))
-                            .withNumberOfPregnancies(ec.getDetail(NUMBER_OF_PREGNANCIES))
-                            .withParity(ec.getDetail(PARITY))
-                            .withNumberOfLivingChildren(ec.getDetail(NUMBER_OF_LIVING_CHILDREN))
-                            .withNumberOfStillBirths(ec.getDetail(NUMBER_OF_STILL_BIRTHS))
-                            .withNumberOfAbortions(ec.getDetail(NUMBER_OF_ABORTIONS))
-                            .withIsHighPriority(ec.isHighPriority())
-                            .withPhotoPath(photoPath)
-                            .withHighPriorityReason(ec.getDetail(HIGH_PRIORITY_REASON))
-                            .withIsOutOfArea(ec.isOutOfArea());
-                    updateStatusInformation(ec, ecClient);
-                    updateChildrenInformation(ecClient);
-                    ecClients.add(ecClient);
-                }
-                sortByName(ecClients);
-                return new Gson().toJson(ecClients);
+            @Override
+            public SmartRegisterSnapshot<ECClients> patch(final SmartRegisterSnapshot<ECClients> snapshot, final Set<String> changedEntityIds) {
+                return allEligibleCouples.inReadTransaction(new UnitOfWork<SmartRegisterSnapshot<ECClients>>() {
+                    @Override
+                    public SmartRegisterSnapshot<ECClients> run() {
+                        List<String> ecIds = allBeneficiaries.findECIdsOfEntities(changedEntityIds);
+                        ECClients ecClients = new ECClients();
+                        ecClients.addAll(snapshot.clients());
+                        ecClients.replaceClients(allBeneficiaries.findFamilyMemberIds(ecIds), ecClientsForIds(ecIds), BY_WIFE_NAME);
+                        return new SmartRegisterSnapshot<ECClients>(ecClients, BY_WIFE_NAME);
+                    }
+                });
             }
         });
     }
 
-    //#TODO: Remove duplication
-    public ECClients getClients() {
-        return ecClientsCache.get(EC_CLIENTS_LIST, new CacheableData<ECClients>() {
+    public ECClients getClientsAfter(SmartRegisterClient lastClient, final int numberOfClients) {
+        final Keyset after = lastClient == null ? Keyset.FIRST_PAGE : new Keyset(lastClient.wifeName(), lastClient.entityId());
+        return allEligibleCouples.inReadTransaction(new UnitOfWork<ECClients>() {
             @Override
-            public ECClients fetch() {
-                List<EligibleCouple> ecs = allEligibleCouples.all();
-                ECClients ecClients = new ECClients();
-
+            public ECClients run() {
+                List<EligibleCouple> ecs = allEligibleCouples.pageOrderedByName(after, numberOfClients);
+                List<String> ecIds = new ArrayList<String>();
                 for (EligibleCouple ec : ecs) {
-                    String photoPath = isBlank(ec.photoPath()) ? DEFAULT_WOMAN_IMAGE_PLACEHOLDER_PATH : ec.photoPath();
-                    ECClient ecClient = new ECClient(ec.caseId(), ec.wifeName(), ec.husbandName(), ec.village(), IntegerUtil.tryParse(ec.ecNumber(), 0))
-                            .withDateOfBirth(ec.getDetail(WOMAN_DOB))
-                            .withFPMethod(ec.getDetail(CURRENT_FP_METHOD))
-                            .withFamilyPlanningMethodChangeDate(ec.getDetail(FAMILY_PLANNING_METHOD_CHANGE_DATE))
-                            .withIUDPlace(ec.getDetail(IUD_PLACE))
-                            .withIUDPerson(ec.getDetail(IUD_PERSON))
-                            .withNumberOfCondomsSupplied(ec.getDetail(NUMBER_OF_CONDOMS_SUPPLIED))
-                            .withNumberOfCentchromanPillsDelivered(ec.getDetail(NUMBER_OF_CENTCHROMAN_PILLS_DELIVERED))
-                            .withNumberOfOCPDelivered(ec.getDetail(NUMBER_OF_OCP_DELIVERED))
-                            .withCaste(ec.getDetail(CASTE))
-                            .withEconomicStatus(ec.getDetail(ECONOMIC_STATUS))
-                            .withNumberOfPregnancies(ec.getDetail(NUMBER_OF_PREGNANCIES))
-                            .withParity(ec.getDetail(PARITY))
-                            .withNumberOfLivingChildren(ec.getDetail(NUMBER_OF_LIVING_CHILDREN))
-                            .withNumberOfStillBirths(ec.getDetail(NUMBER_OF_STILL_BIRTHS))
-                            .withNumberOfAbortions(ec.getDetail(NUMBER_OF_ABORTIONS))
-                            .withIsHighPriority(ec.isHighPriority())
-                            .withPhotoPath(photoPath)
-                            .withHighPriorityReason(ec.getDetail(HIGH_PRIORITY_REASON))
-                            .withIsOutOfArea(ec.isOutOfArea());
-                    updateStatusInformation(ec, ecClient);
-                    updateChildrenInformation(ecClient);
-                    ecClients.add(ecClient);
+                    ecIds.add(ec.caseId());
                 }
-                sortByName(ecClients);
-                return ecClients;
+                return ecClientsFor(ecs, ecIds);
             }
         });
     }
 
-    private void updateChildrenInformation(ECClient ecClient) {
-        List<Child> children = allBeneficiaries.findAllChildrenByECId(ecClient.entityId());
-        sortByDateOfBirth(children);
-        Iterable<Child> youngestTwoChildren = Iterables.skip(children, children.size() < 2 ? 0 : children.size() - 2);
-        for (Child child : youngestTwoChildren) {
-            ecClient.addChild(new ECChildClient(child.caseId(), child.gender(), child.dateOfBirth()));
+    private ECClients ecClientsForIds(List<String> ecIds) {
+        return ecClientsFor(allEligibleCouples.findOpenByCaseIDs(ecIds), ecIds);
+    }
+
+    private ECClients ecClientsFor(List<EligibleCouple> ecs, List<String> ecIds) {
+        return ecClientsFor(ecs, allBeneficiaries.findOpenMothersByECIds(ecIds),
+                allBeneficiaries.findYoungestOpenChildrenByECIds(NUMBER_OF_CHILDREN_TO_SHOW, ecIds));
+    }
+
+    public int clientCount() {
+        return (int) allEligibleCouples.count();
+    }
+
+    private ECClients ecClientsFor(List<EligibleCouple> ecs, Map<String, Mother> openMothers, Map<String, List<Child>> youngestChildren) {
+        ECClients ecClients = new ECClients();
+        for (EligibleCouple ec : ecs) {
+            ECClient ecClient = ecClientFor(ec);
+            updateStatusInformation(ec, openMothers.get(ec.caseId()), ecClient);
+            updateChildrenInformation(youngestChildren.get(ec.caseId()), ecClient);
+            ecClients.add(ecClient);
         }
+        return ecClients;
     }
 
-    private void sortByDateOfBirth(List<Child> children) {
-        sort(children, new Comparator<Child>() {
-            @Override
-            public int compare(Child child, Child anotherChild) {
-                return LocalDate.parse(child.dateOfBirth()).compareTo(LocalDate.parse(anotherChild.dateOfBirth()));
-            }
-        });
+    private ECClient ecClientFor(EligibleCouple ec) {
+        String photoPath = isBlank(ec.photoPath()) ? DEFAULT_WOMAN_IMAGE_PLACEHOLDER_PATH : ec.photoPath();
+        return new ECClient(ec.caseId(), ec.wifeName(), ec.husbandName(), ec.village(), IntegerUtil.tryParse(ec.ecNumber(), 0))
+                .withDateOfBirth(ec.getDetail(WOMAN_DOB))
+                .withFPMethod(ec.getDetail(CURRENT_FP_METHOD))
+                .withFamilyPlanningMethodChangeDate(ec.getDetail(FAMILY_PLANNING_METHOD_CHANGE_DATE))
+                .withIUDPlace(ec.getDetail(IUD_PLACE))
+                .withIUDPerson(ec.getDetail(IUD_PERSON))
+                .withNumberOfCondomsSupplied(ec.getDetail(NUMBER_OF_CONDOMS_SUPPLIED))
+                .withNumberOfCentchromanPillsDelivered(ec.getDetail(NUMBER_OF_CENTCHROMAN_PILLS_DELIVERED))
+                .withNumberOfOCPDelivered(ec.getDetail(NUMBER_OF_OCP_DELIVERED))
+                .withCaste(ec.getDetail(CASTE))
+                .withEconomicStatus(ec.getDetail(ECONOMIC_STATUS))
+                .withNumberOfPregnancies(ec.getDetail(NUMBER_OF_PREGNANCIES))
+                .withParity(ec.getDetail(PARITY))
+                .withNumberOfLivingChildren(ec.getDetail(NUMBER_OF_LIVING_CHILDREN))
+                .withNumberOfStillBirths(ec.getDetail(NUMBER_OF_STILL_BIRTHS))
+                .withNumberOfAbortions(ec.getDetail(NUMBER_OF_ABORTIONS))
+                .withIsHighPriority(ec.isHighPriority())
+                .withPhotoPath(photoPath)
+                .withHighPriorityReason(ec.getDetail(HIGH_PRIORITY_REASON))
+                .withIsOutOfArea(ec.isOutOfArea());
     }
 
-    private void sortByName(List<? extends SmartRegisterClient> ecClients) {
-        sort(ecClients, new Comparator<SmartRegisterClient>() {
-            @Override
-            public int compare(SmartRegisterClient oneECClient, SmartRegisterClient anotherECClient) {
-                return oneECClient.wifeName().compareToIgnoreCase(anotherECClient.wifeName());
-            }
-        });
+    private void updateChildrenInformation(List<Child> youngestChildren, ECClient ecClient) {
+        if (youngestChildren == null) {
+            return;
+        }
+        for (Child child : youngestChildren) {
+            ecClient.addChild(new ECChildClient(child.caseId(), child.gender(), child.dateOfBirth()));
+        }
     }
 
     //#TODO: Needs refactoring
-    private void updateStatusInformation(EligibleCouple eligibleCouple, ECClient ecClient) {
-        Mother mother = allBeneficiaries.findMotherWithOpenStatusByECId(eligibleCouple.caseId());
-
+    private void updateStatusInformation(EligibleCouple eligibleCouple, Mother mother, ECClient ecClient) {
         if (mother == null && !eligibleCouple.hasFPMethod()) {
             ecClient.withStatus(EasyMap.create(STATUS_TYPE_FIELD, EC_STATUS)
                     .put(STATUS_DATE_FIELD, eligibleCouple.getDetail(REGISTRATION_DATE)).map());
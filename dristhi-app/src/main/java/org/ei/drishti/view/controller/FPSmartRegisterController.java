@@ -4,15 +4,20 @@ import org.ei.drishti.domain.Alert;
 import org.ei.drishti.domain.EligibleCouple;
 import org.ei.drishti.repository.AllBeneficiaries;
 import org.ei.drishti.repository.AllEligibleCouples;
+import org.ei.drishti.repository.UnitOfWork;
 import org.ei.drishti.service.AlertService;
 import org.ei.drishti.util.Cache;
-import org.ei.drishti.util.CacheableData;
+import org.ei.drishti.util.Materializer;
+import org.ei.drishti.util.ParallelMaterializer;
+import org.ei.drishti.util.PatchableData;
 import org.ei.drishti.view.contract.AlertDTO;
 import org.ei.drishti.view.contract.FPClient;
 import org.ei.drishti.view.contract.FPClients;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.ei.drishti.AllConstants.DEFAULT_WOMAN_IMAGE_PLACEHOLDER_PATH;
@@ -31,6 +36,21 @@ public class FPSmartRegisterController {
     public static final String FP_FOLLOWUP_ALERT_NAME = "FP Followup";
     public static final String FP_REFERRAL_FOLLOWUP_ALERT_NAME = "FP Referral Followup";
 
+    private static final String[] FP_ALERT_NAMES = new String[]{
+            OCP_REFILL_ALERT_NAME,
+            CONDOM_REFILL_ALERT_NAME,
+            DMPA_INJECTABLE_REFILL_ALERT_NAME,
+            FEMALE_STERILIZATION_FOLLOWUP_1_ALERT_NAME,
+            FEMALE_STERILIZATION_FOLLOWUP_2_ALERT_NAME,
+            FEMALE_STERILIZATION_FOLLOWUP_3_ALERT_NAME,
+            MALE_STERILIZATION_FOLLOWUP_1_ALERT_NAME,
+            MALE_STERILIZATION_FOLLOWUP_2_ALERT_NAME,
+            IUD_FOLLOWUP_1_ALERT_NAME,
+            IUD_FOLLOWUP_2_ALERT_NAME,
+            FP_FOLLOWUP_ALERT_NAME,
+            FP_REFERRAL_FOLLOWUP_ALERT_NAME
+    };
+
     private final static String FP_CLIENTS_LIST = "FPClientsList";
 
     private final AllEligibleCouples allEligibleCouples;
@@ -38,29 +58,27 @@ public class FPSmartRegisterController {
     private Cache<String> cache;
     private Cache<FPClients> fpClientsCache;
     private final AlertService alertService;
+    private final ParallelMaterializer parallelMaterializer;
 
     public FPSmartRegisterController(AllEligibleCouples allEligibleCouples, AllBeneficiaries allBeneficiaries, AlertService alertService, Cache<String> cache, Cache<FPClients> fpClientsCache) {
+        this(allEligibleCouples, allBeneficiaries, alertService, cache, fpClientsCache, new ParallelMaterializer());
+    }
+
+    public FPSmartRegisterController(AllEligibleCouples allEligibleCouples, AllBeneficiaries allBeneficiaries, AlertService alertService,
+                                     Cache<String> cache, Cache<FPClients> fpClientsCache, ParallelMaterializer parallelMaterializer) {
         this.allEligibleCouples = allEligibleCouples;
         this.allBeneficiaries = allBeneficiaries;
         this.alertService = alertService;
         this.cache = cache;
         this.fpClientsCache = fpClientsCache;
+        this.parallelMaterializer = parallelMaterializer;
     }
 
-    private List<AlertDTO> getFPAlertsForEC(String entityId) {
-        List<Alert> alerts = alertService.findByEntityIdAndAlertNames(entityId,
-                OCP_REFILL_ALERT_NAME,
-                CONDOM_REFILL_ALERT_NAME, DMPA_INJECTABLE_REFILL_ALERT_NAME,
-                FEMALE_STERILIZATION_FOLLOWUP_1_ALERT_NAME,
-                FEMALE_STERILIZATION_FOLLOWUP_2_ALERT_NAME,
-                FEMALE_STERILIZATION_FOLLOWUP_3_ALERT_NAME,
-                MALE_STERILIZATION_FOLLOWUP_1_ALERT_NAME,
-                MALE_STERILIZATION_FOLLOWUP_2_ALERT_NAME,
-                IUD_FOLLOWUP_1_ALERT_NAME,
-                IUD_FOLLOWUP_2_ALERT_NAME,
-                FP_FOLLOWUP_ALERT_NAME,
-                FP_REFERRAL_FOLLOWUP_ALERT_NAME);
+    private List<AlertDTO> alertDTOsFor(List<Alert> alerts) {
         ArrayList<AlertDTO> alertDTOs = new ArrayList<AlertDTO>();
+        if (alerts == null) {
+            return alertDTOs;
+        }
         for (Alert alert : alerts) {
             alertDTOs.add(new AlertDTO(alert.visitCode(), String.valueOf(alert.status()), alert.startDate()));
         }
@@ -68,53 +86,79 @@ public class FPSmartRegisterController {
     }
 
     public FPClients getClients() {
-        return fpClientsCache.get(FP_CLIENTS_LIST, new CacheableData<FPClients>() {
+        return fpClientsCache.get(FP_CLIENTS_LIST, new PatchableData<FPClients>() {
             @Override
             public FPClients fetch() {
-                List<EligibleCouple> ecs = allEligibleCouples.all();
-                FPClients fpClients = new FPClients();
-                for (EligibleCouple ec : ecs) {
-                    if (allBeneficiaries.isPregnant(ec.caseId())) {
-                        continue;
+                return allEligibleCouples.inReadTransaction(new UnitOfWork<FPClients>() {
+                    @Override
+                    public FPClients run() {
+                        return fpClientsFor(allEligibleCouples.allNonPregnant());
                     }
+                });
+            }
 
-                    String photoPath = isBlank(ec.photoPath()) ? DEFAULT_WOMAN_IMAGE_PLACEHOLDER_PATH : ec.photoPath();
-                    List<AlertDTO> alerts = getFPAlertsForEC(ec.caseId());
-                    FPClient fpClient = new FPClient(ec.caseId(), ec.wifeName(), ec.husbandName(), ec.village(), ec.ecNumber())
-                            .withAge(ec.age())
-                            .withFPMethod(ec.getDetail("currentMethod"))
-                            .withFamilyPlanningMethodChangeDate(ec.getDetail("familyPlanningMethodChangeDate"))
-                            .withComplicationDate(ec.getDetail("complicationDate"))
-                            .withIUDPlace(ec.getDetail("iudPlace"))
-                            .withIUDPerson(ec.getDetail("iudPerson"))
-                            .withNumberOfCondomsSupplied(ec.getDetail("numberOfCondomsSupplied"))
-                            .withNumberOfCentchromanPillsDelivered(ec.getDetail("numberOfCentchromanPillsDelivered"))
-                            .withNumberOfOCPDelivered(ec.getDetail("numberOfOCPDelivered"))
-                            .withFPMethodFollowupDate(ec.getDetail("fpFollowupDate"))
-                            .withCaste(ec.getDetail("caste"))
-                            .withEconomicStatus(ec.getDetail("economicStatus"))
-                            .withNumberOfPregnancies(ec.getDetail("numberOfPregnancies"))
-                            .withParity(ec.getDetail("parity"))
-                            .withNumberOfLivingChildren(ec.getDetail("numberOfLivingChildren"))
-                            .withNumberOfStillBirths(ec.getDetail("numberOfStillBirths"))
-                            .withNumberOfAbortions(ec.getDetail("numberOfAbortions"))
-                            .withIsYoungestChildUnderTwo(ec.isYoungestChildUnderTwo())
-                            .withYoungestChildAge(ec.getDetail("youngestChildAge"))
-                            .withIsHighPriority(ec.isHighPriority())
-                            .withPhotoPath(photoPath)
-                            .withAlerts(alerts)
-                            .withCondomSideEffect(ec.getDetail("condomSideEffect"))
-                            .withIUDSidEffect(ec.getDetail("iudSidEffect"))
-                            .withOCPSideEffect(ec.getDetail("ocpSideEffect"))
-                            .withInjectableSideEffect(ec.getDetail("injectableSideEffect"))
-                            .withSterilizationSideEffect(ec.getDetail("sterilizationSideEffect"))
-                            .withOtherSideEffect(ec.getDetail("otherSideEffect"))
-                            .withHighPriorityReason(ec.getDetail("highPriorityReason"))
-                            .preprocess();
-                    fpClients.add(fpClient);
-                }
-                return fpClients;
+            @Override
+            public FPClients patch(final FPClients fpClients, final Set<String> changedEntityIds) {
+                return allEligibleCouples.inReadTransaction(new UnitOfWork<FPClients>() {
+                    @Override
+                    public FPClients run() {
+                        List<String> ecIds = allBeneficiaries.findECIdsOfEntities(changedEntityIds);
+                        FPClients patchedClients = new FPClients();
+                        patchedClients.addAll(fpClients);
+                        patchedClients.replaceClients(allBeneficiaries.findFamilyMemberIds(ecIds),
+                                fpClientsFor(allEligibleCouples.findNonPregnantByCaseIDs(ecIds)), null);
+                        return patchedClients;
+                    }
+                });
             }
         });
     }
-}
\ No newline at end of file
+
+    private FPClients fpClientsFor(List<EligibleCouple> ecs) {
+        List<String> ecIds = new ArrayList<String>();
+        for (EligibleCouple ec : ecs) {
+            ecIds.add(ec.caseId());
+        }
+        final Map<String, List<Alert>> fpAlerts = alertService.findByEntityIdsAndAlertNames(ecIds, FP_ALERT_NAMES);
+        FPClients fpClients = new FPClients();
+        fpClients.addAll(parallelMaterializer.materialize(ecs, new Materializer<EligibleCouple, FPClient>() {
+            @Override
+            public FPClient materialize(EligibleCouple ec) {
+                String photoPath = isBlank(ec.photoPath()) ? DEFAULT_WOMAN_IMAGE_PLACEHOLDER_PATH : ec.photoPath();
+                List<AlertDTO> alerts = alertDTOsFor(fpAlerts.get(ec.caseId()));
+                return new FPClient(ec.caseId(), ec.wifeName(), ec.husbandName(), ec.village(), ec.ecNumber())
+                        .withAge(ec.age())
+                        .withFPMethod(ec.getDetail("currentMethod"))
+                        .withFamilyPlanningMethodChangeDate(ec.getDetail("familyPlanningMethodChangeDate"))
+                        .withComplicationDate(ec.getDetail("complicationDate"))
+                        .withIUDPlace(ec.getDetail("iudPlace"))
+                        .withIUDPerson(ec.getDetail("iudPerson"))
+                        .withNumberOfCondomsSupplied(ec.getDetail("numberOfCondomsSupplied"))
+                        .withNumberOfCentchromanPillsDelivered(ec.getDetail("numberOfCentchromanPillsDelivered"))
+                        .withNumberOfOCPDelivered(ec.getDetail("numberOfOCPDelivered"))
+                        .withFPMethodFollowupDate(ec.getDetail("fpFollowupDate"))
+                        .withCaste(ec.getDetail("caste"))
+                        .withEconomicStatus(ec.getDetail("economicStatus"))
+                        .withNumberOfPregnancies(ec.getDetail("numberOfPregnancies"))
+                        .withParity(ec.getDetail("parity"))
+                        .withNumberOfLivingChildren(ec.getDetail("numberOfLivingChildren"))
+                        .withNumberOfStillBirths(ec.getDetail("numberOfStillBirths"))
+                        .withNumberOfAbortions(ec.getDetail("numberOfAbortions"))
+                        .withIsYoungestChildUnderTwo(ec.isYoungestChildUnderTwo())
+                        .withYoungestChildAge(ec.getDetail("youngestChildAge"))
+                        .withIsHighPriority(ec.isHighPriority())
+                        .withPhotoPath(photoPath)
+                        .withAlerts(alerts)
+                        .withCondomSideEffect(ec.getDetail("condomSideEffect"))
+                        .withIUDSidEffect(ec.getDetail("iudSidEffect"))
+                        .withOCPSideEffect(ec.getDetail("ocpSideEffect"))
+                        .withInjectableSideEffect(ec.getDetail("injectableSideEffect"))
+                        .withSterilizationSideEffect(ec.getDetail("sterilizationSideEffect"))
+                        .withOtherSideEffect(ec.getDetail("otherSideEffect"))
+                        .withHighPriorityReason(ec.getDetail("highPriorityReason"))
+                        .preprocess();
+            }
+        }));
+        return fpClients;
+    }
+}
@@ -6,10 +6,13 @@ import org.ei.drishti.domain.*;
 import org.ei.drishti.domain.Child;
 import org.ei.drishti.repository.AllBeneficiaries;
 import org.ei.drishti.repository.AllEligibleCouples;
+import org.ei.drishti.repository.UnitOfWork;
 import org.ei.drishti.service.AlertService;
 import org.ei.drishti.service.ServiceProvidedService;
 import org.ei.drishti.util.Cache;
-import org.ei.drishti.util.CacheableData;
+import org.ei.drishti.util.Materializer;
+import org.ei.drishti.util.ParallelMaterializer;
+import org.ei.drishti.util.PatchableData;
 import org.ei.drishti.view.contract.*;
 import org.ei.drishti.view.contract.pnc.PNCClient;
 import org.ei.drishti.view.contract.pnc.PNCClients;
@@ -18,6 +21,7 @@ import org.ei.drishti.view.preProcessor.PNCClientPreProcessor;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 
 import static java.lang.String.valueOf;
 import static java.util.Collections.sort;
@@ -31,6 +35,13 @@ public class PNCSmartRegisterController {
     private static final String PNC_1_ALERT_NAME = "PNC 1";
 
     private static final String PNC_CLIENTS_LIST = "PNCClientList";
+    private static final Comparator<SmartRegisterClient> BY_WIFE_NAME = new Comparator<SmartRegisterClient>() {
+        @Override
+        public int compare(SmartRegisterClient onePNCClient, SmartRegisterClient anotherPNCClient) {
+            return onePNCClient.wifeName().compareToIgnoreCase(anotherPNCClient.wifeName());
+        }
+    };
+
     private AllEligibleCouples allEligibleCouples;
     private AllBeneficiaries allBeneficiaries;
     private AlertService alertService;
@@ -38,6 +49,7 @@ public class PNCSmartRegisterController {
     private Cache<PNCClients> pncClientsCache;
     private final ServiceProvidedService serviceProvidedService;
     private PNCClientPreProcessor pncClientPreProcessor;
+    private final ParallelMaterializer parallelMaterializer;
 
     public PNCSmartRegisterController(ServiceProvidedService serviceProvidedService, AlertService alertService,
                                       AllEligibleCouples allEligibleCouples, AllBeneficiaries allBeneficiaries,
@@ -48,6 +60,13 @@ public class PNCSmartRegisterController {
     public PNCSmartRegisterController(ServiceProvidedService serviceProvidedService, AlertService alertService,
                                       AllEligibleCouples allEligibleCouples, AllBeneficiaries allBeneficiaries,
                                       Cache<String> cache, Cache<PNCClients> pncClientsCache, PNCClientPreProcessor pncClientPreProcessor) {
+        this(serviceProvidedService, alertService, allEligibleCouples, allBeneficiaries, cache, pncClientsCache, pncClientPreProcessor, new ParallelMaterializer());
+    }
+
+    public PNCSmartRegisterController(ServiceProvidedService serviceProvidedService, AlertService alertService,
+                                      AllEligibleCouples allEligibleCouples, AllBeneficiaries allBeneficiaries,
+                                      Cache<String> cache, Cache<PNCClients> pncClientsCache, PNCClientPreProcessor pncClientPreProcessor,
+                                      ParallelMaterializer parallelMaterializer) {
         this.allEligibleCouples = allEligibleCouples;
         this.allBeneficiaries = allBeneficiaries;
         this.alertService = alertService;
@@ -55,58 +74,88 @@ public class PNCSmartRegisterController {
         this.cache = cache;
         this.pncClientsCache = pncClientsCache;
         this.pncClientPreProcessor = pncClientPreProcessor;
+        this.parallelMaterializer = parallelMaterializer;
     }
 
     public PNCClients getClients() {
-        return pncClientsCache.get(PNC_CLIENTS_LIST, new CacheableData<PNCClients>() {
+        return pncClientsCache.get(PNC_CLIENTS_LIST, new PatchableData<PNCClients>() {
             @Override
             public PNCClients fetch() {
-                PNCClients pncClients = new PNCClients();
-                List<Pair<Mother, EligibleCouple>> pncsWithEcs = allBeneficiaries.allPNCsWithEC();
-
-                for (Pair<Mother, EligibleCouple> pncWithEc : pncsWithEcs) {
-                    Mother pnc = pncWithEc.getLeft();
-                    EligibleCouple ec = pncWithEc.getRight();
-                    String photoPath = isBlank(ec.photoPath()) ? DEFAULT_WOMAN_IMAGE_PLACEHOLDER_PATH : ec.photoPath();
-
-                    List<ServiceProvidedDTO> servicesProvided = getServicesProvided(pnc.caseId());
-                    List<AlertDTO> alerts = getAlerts(pnc.caseId());
-                    PNCClient client = new PNCClient(pnc.caseId(), ec.village(), ec.wifeName(), pnc.thayiCardNumber(), pnc.referenceDate())
-                            .withHusbandName(ec.husbandName())
-                            .withAge(ec.age())
-                            .withWomanDOB(ec.getDetail(WOMAN_DOB))
-                            .withECNumber(ec.ecNumber())
-                            .withIsHighPriority(ec.isHighPriority())
-                            .withIsHighRisk(pnc.isHighRisk())
-                            .withEconomicStatus(ec.getDetail(ECONOMIC_STATUS))
-                            .withIsOutOfArea(ec.isOutOfArea())
-                            .withCaste(ec.getDetail(CASTE))
-                            .withPhotoPath(photoPath)
-                            .withFPMethod(ec.getDetail(CURRENT_FP_METHOD))
-                            .withIUDPlace(ec.getDetail(IUD_PLACE))
-                            .withIUDPerson(ec.getDetail(IUD_PERSON))
-                            .withNumberOfCondomsSupplied(ec.getDetail(NUMBER_OF_CONDOMS_SUPPLIED))
-                            .withFamilyPlanningMethodChangeDate(ec.getDetail(FAMILY_PLANNING_METHOD_CHANGE_DATE))
-                            .withNumberOfOCPDelivered(ec.getDetail(NUMBER_OF_OCP_DELIVERED))
-                            .withNumberOfCentchromanPillsDelivered(ec.getDetail(NUMBER_OF_CENTCHROMAN_PILLS_DELIVERED))
-                            .withDeliveryPlace(pnc.getDetail(DELIVERY_PLACE))
-                            .withDeliveryType(pnc.getDetail(DELIVERY_TYPE))
-                            .withDeliveryComplications(pnc.getDetail(DELIVERY_COMPLICATIONS))
-                            .withPNCComplications(pnc.getDetail(IMMEDIATE_REFERRAL_REASON))
-                            .withOtherDeliveryComplications(pnc.getDetail(OTHER_DELIVERY_COMPLICATIONS))
-                            .withEntityIdToSavePhoto(ec.caseId())
-                            .withAlerts(alerts)
-                            .withServicesProvided(servicesProvided)
-                            .withChildren(findChildren(pnc))
-                            .withPreProcess();
-                    pncClients.add(pncClientPreProcessor.preProcess(client));
-                }
-                sortByName(pncClients);
-                return pncClients;
+                return allBeneficiaries.inReadTransaction(new UnitOfWork<PNCClients>() {
+                    @Override
+                    public PNCClients run() {
+                        PNCClients pncClients = pncClientsFor(allBeneficiaries.allPNCsWithEC());
+                        sort(pncClients, BY_WIFE_NAME);
+                        return pncClients;
+                    }
+                });
+            }
+
+            @Override
+            public PNCClients patch(final PNCClients pncClients, final Set<String> changedEntityIds) {
+                return allBeneficiaries.inReadTransaction(new UnitOfWork<PNCClients>() {
+                    @Override
+                    public PNCClients run() {
+                        List<String> ecIds = allBeneficiaries.findECIdsOfEntities(changedEntityIds);
+                        PNCClients patchedClients = new PNCClients();
+                        patchedClients.addAll(pncClients);
+                        patchedClients.replaceClients(allBeneficiaries.findFamilyMemberIds(ecIds),
+                                pncClientsFor(allBeneficiaries.findPNCsWithECByECIds(ecIds)), BY_WIFE_NAME);
+                        return patchedClients;
+                    }
+                });
             }
         });
     }
 
+    private PNCClients pncClientsFor(List<Pair<Mother, EligibleCouple>> pncsWithEcs) {
+        List<PNCClient> clients = new ArrayList<PNCClient>();
+        for (Pair<Mother, EligibleCouple> pncWithEc : pncsWithEcs) {
+            Mother pnc = pncWithEc.getLeft();
+            EligibleCouple ec = pncWithEc.getRight();
+            String photoPath = isBlank(ec.photoPath()) ? DEFAULT_WOMAN_IMAGE_PLACEHOLDER_PATH : ec.photoPath();
+
+            List<ServiceProvidedDTO> servicesProvided = getServicesProvided(pnc.caseId());
+            List<AlertDTO> alerts = getAlerts(pnc.caseId());
+            PNCClient client = new PNCClient(pnc.caseId(), ec.village(), ec.wifeName(), pnc.thayiCardNumber(), pnc.referenceDate())
+                    .withHusbandName(ec.husbandName())
+                    .withAge(ec.age())
+                    .withWomanDOB(ec.getDetail(WOMAN_DOB))
+                    .withECNumber(ec.ecNumber())
+                    .withIsHighPriority(ec.isHighPriority())
+                    .withIsHighRisk(pnc.isHighRisk())
+                    .withEconomicStatus(ec.getDetail(ECONOMIC_STATUS))
+                    .withIsOutOfArea(ec.isOutOfArea())
+                    .withCaste(ec.getDetail(CASTE))
+                    .withPhotoPath(photoPath)
+                    .withFPMethod(ec.getDetail(CURRENT_FP_METHOD))
+                    .withIUDPlace(ec.getDetail(IUD_PLACE))
+                    .withIUDPerson(ec.getDetail(IUD_PERSON))
+                    .withNumberOfCondomsSupplied(ec.getDetail(NUMBER_OF_CONDOMS_SUPPLIED))
+                    .withFamilyPlanningMethodChangeDate(ec.getDetail(FAMILY_PLANNING_METHOD_CHANGE_DATE))
+                    .withNumberOfOCPDelivered(ec.getDetail(NUMBER_OF_OCP_DELIVERED))
+                    .withNumberOfCentchromanPillsDelivered(ec.getDetail(NUMBER_OF_CENTCHROMAN_PILLS_DELIVERED))
+                    .withDeliveryPlace(pnc.getDetail(DELIVERY_PLACE))
+                    .withDeliveryType(pnc.getDetail(DELIVERY_TYPE))
+                    .withDeliveryComplications(pnc.getDetail(DELIVERY_COMPLICATIONS))
+                    .withPNCComplications(pnc.getDetail(IMMEDIATE_REFERRAL_REASON))
+                    .withOtherDeliveryComplications(pnc.getDetail(OTHER_DELIVERY_COMPLICATIONS))
+                    .withEntityIdToSavePhoto(ec.caseId())
+                    .withAlerts(alerts)
+                    .withServicesProvided(servicesProvided)
+                    .withChildren(findChildren(pnc));
+            clients.add(client);
+        }
+        PNCClients pncClients = new PNCClients();
+        pncClients.addAll(parallelMaterializer.materialize(clients, new Materializer<PNCClient, PNCClient>() {
+            @Override
+            public PNCClient materialize(PNCClient client) {
+                return pncClientPreProcessor.preProcess(client.withPreProcess());
+            }
+        }));
+        return pncClients;
+    }
+
     public String villages() {
         List<Village> villagesList = new ArrayList<Village>();
         List<String> villages = allEligibleCouples.villages();
@@ -137,15 +186,6 @@ public class PNCSmartRegisterController {
         return alertDTOs;
     }
 
-    private void sortByName(List<? extends SmartRegisterClient> pncClients) {
-        sort(pncClients, new Comparator<SmartRegisterClient>() {
-            @Override
-            public int compare(SmartRegisterClient onePNCClient, SmartRegisterClient anotherPNCClient) {
-                return onePNCClient.wifeName().compareToIgnoreCase(anotherPNCClient.wifeName());
-            }
-        });
-    }
-
     private List<ChildClient> findChildren(Mother mother) {
         List<Child> children = allBeneficiaries.findAllChildrenByMotherId(mother.caseId());
         List<ChildClient> childClientList = new ArrayList<ChildClient>();
@@ -0,0 +1,5 @@
+package org.ei.drishti.view.controller;
+
+public enum PreloadTarget {
+    home, ec, fp, anc, pnc, child
+}
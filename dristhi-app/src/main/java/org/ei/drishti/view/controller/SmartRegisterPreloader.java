@@ -0,0 +1,198 @@
+package org.ei.drishti.view.controller;
+
+import org.ei.drishti.domain.FetchStatus;
+import org.ei.drishti.event.Listener;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import static java.lang.System.currentTimeMillis;
+import static java.text.MessageFormat.format;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.ei.drishti.domain.FetchStatus.fetched;
+import static org.ei.drishti.event.Event.ON_DATA_FETCHED;
+import static org.ei.drishti.event.Event.ON_LOGOUT;
+import static org.ei.drishti.event.Event.SYNC_COMPLETED;
+import static org.ei.drishti.util.Log.logError;
+import static org.ei.drishti.util.Log.logInfo;
+import static org.ei.drishti.view.controller.PreloadTarget.*;
+
+public class SmartRegisterPreloader {
+    private static ExecutorService sharedExecutor;
+
+    private final ANMController anmController;
+    private final ECSmartRegisterController ecSmartRegisterController;
+    private final FPSmartRegisterController fpSmartRegisterController;
+    private final ANCSmartRegisterController ancSmartRegisterController;
+    private final PNCSmartRegisterController pncSmartRegisterController;
+    private final ChildSmartRegisterController childSmartRegisterController;
+    private final ExecutorService executor;
+    private final Map<PreloadTarget, Long> lastUses = new EnumMap<PreloadTarget, Long>(PreloadTarget.class);
+    private long uses;
+    private boolean dataFetchedSinceLastRebuild;
+    private int session;
+
+    private final Listener<FetchStatus> dataFetchedListener;
+    private final Listener<Boolean> syncCompletedListener;
+    private final Listener<Boolean> logoutListener;
+
+    public SmartRegisterPreloader(ANMController anmController, ECSmartRegisterController ecSmartRegisterController,
+                                  FPSmartRegisterController fpSmartRegisterController, ANCSmartRegisterController ancSmartRegisterController,
+                                  PNCSmartRegisterController pncSmartRegisterController, ChildSmartRegisterController childSmartRegisterController) {
+        this(anmController, ecSmartRegisterController, fpSmartRegisterController, ancSmartRegisterController, pncSmartRegisterController,
+                childSmartRegisterController, sharedExecutor());
+    }
+
+    public SmartRegisterPreloader(ANMController anmController, ECSmartRegisterController ecSmartRegisterController,
+                                  FPSmartRegisterController fpSmartRegisterController, ANCSmartRegisterController ancSmartRegisterController,
+                                  PNCSmartRegisterController pncSmartRegisterController, ChildSmartRegisterController childSmartRegisterController,
+                                  ExecutorService executor) {
+        this.anmController = anmController;
+        this.ecSmartRegisterController = ecSmartRegisterController;
+        this.fpSmartRegisterController = fpSmartRegisterController;
+        this.ancSmartRegisterController = ancSmartRegisterController;
+        this.pncSmartRegisterController = pncSmartRegisterController;
+        this.childSmartRegisterController = childSmartRegisterController;
+        this.executor = executor;
+        dataFetchedListener = new Listener<FetchStatus>() {
+            @Override
+            public void onEvent(FetchStatus status) {
+                if (fetched.equals(status)) {
+                    markDataFetched();
+                }
+            }
+        };
+        syncCompletedListener = new Listener<Boolean>() {
+            @Override
+            public void onEvent(Boolean data) {
+                rebuildAfterSync();
+            }
+        };
+        logoutListener = new Listener<Boolean>() {
+            @Override
+            public void onEvent(Boolean data) {
+                stop();
+            }
+        };
+        ON_DATA_FETCHED.addListener(dataFetchedListener);
+        SYNC_COMPLETED.addListener(syncCompletedListener);
+        ON_LOGOUT.addListener(logoutListener);
+    }
+
+    public void preload() {
+        submit("Smart registers preloaded", asList(ec, fp, anc, pnc, child));
+    }
+
+    public synchronized void markUsed(PreloadTarget target) {
+        lastUses.put(target, ++uses);
+    }
+
+    private synchronized void markDataFetched() {
+        dataFetchedSinceLastRebuild = true;
+    }
+
+    // Registers still in the cache are revalidated by the cache store when the sync completes and are served stale
+    // meanwhile, so this job only does real work for the targets that are no longer cached.
+    private void rebuildAfterSync() {
+        List<PreloadTarget> targets;
+        synchronized (this) {
+            if (!dataFetchedSinceLastRebuild) {
+                return;
+            }
+            dataFetchedSinceLastRebuild = false;
+            targets = targetsByRecentUsage();
+        }
+        submit("Smart registers and home counts rebuilt after sync", targets);
+    }
+
+    private synchronized void stop() {
+        session++;
+        dataFetchedSinceLastRebuild = false;
+    }
+
+    private synchronized boolean isStopped(int sessionOfJob) {
+        return session != sessionOfJob;
+    }
+
+    private List<PreloadTarget> targetsByRecentUsage() {
+        List<PreloadTarget> targets = new ArrayList<PreloadTarget>(asList(PreloadTarget.values()));
+        Collections.sort(targets, new Comparator<PreloadTarget>() {
+            @Override
+            public int compare(PreloadTarget first, PreloadTarget second) {
+                return lastUse(second).compareTo(lastUse(first));
+            }
+        });
+        return targets;
+    }
+
+    private Long lastUse(PreloadTarget target) {
+        Long lastUse = lastUses.get(target);
+        return lastUse == null ? 0L : lastUse;
+    }
+
+    private void submit(final String description, final List<PreloadTarget> targets) {
+        final int sessionOfJob;
+        synchronized (this) {
+            sessionOfJob = session;
+        }
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                long start = currentTimeMillis();
+                try {
+                    for (PreloadTarget target : targets) {
+                        if (isStopped(sessionOfJob)) {
+                            logInfo("Stopped preloading smart registers as user logged out.");
+                            return;
+                        }
+                        load(target);
+                        Thread.yield();
+                    }
+                    logInfo(format("{0} in {1} ms.", description, currentTimeMillis() - start));
+                } catch (Exception e) {
+                    logError(format("Smart registers could not be preloaded: {0}", e));
+                }
+            }
+        });
+    }
+
+    private void load(PreloadTarget target) {
+        switch (target) {
+            case home:
+                anmController.getHomeContext();
+                break;
+            case ec:
+                ecSmartRegisterController.getClients();
+                break;
+            case fp:
+                fpSmartRegisterController.getClients();
+                break;
+            case anc:
+                ancSmartRegisterController.getClients();
+                break;
+            case pnc:
+                pncSmartRegisterController.getClients();
+                break;
+            case child:
+                childSmartRegisterController.getClients();
+                break;
+        }
+    }
+
+    private static synchronized ExecutorService sharedExecutor() {
+        if (sharedExecutor == null) {
+            sharedExecutor = newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "SmartRegisterPreloader");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return sharedExecutor;
+    }
+}
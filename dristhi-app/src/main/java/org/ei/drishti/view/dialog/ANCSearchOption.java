@@ -5,13 +5,18 @@ import org.ei.drishti.Context;
 import org.ei.drishti.R;
 import org.ei.drishti.view.contract.SmartRegisterClient;
 
-public class ANCSearchOption implements FilterOption {
+public class ANCSearchOption implements SearchFilterOption {
     private final String criteria;
 
     public ANCSearchOption(String criteria) {
         this.criteria = criteria;
     }
 
+    @Override
+    public String criteria() {
+        return criteria;
+    }
+
     @Override
     public String name() {
         return Context.getInstance().getStringResource(R.string.str_anc_search_hint);
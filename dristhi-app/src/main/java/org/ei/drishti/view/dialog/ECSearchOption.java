@@ -5,13 +5,18 @@ import org.ei.drishti.Context;
 import org.ei.drishti.R;
 import org.ei.drishti.view.contract.SmartRegisterClient;
 
-public class ECSearchOption implements FilterOption {
+public class ECSearchOption implements SearchFilterOption {
     private final String criteria;
 
     public ECSearchOption(String criteria) {
         this.criteria = criteria;
     }
 
+    @Override
+    public String criteria() {
+        return criteria;
+    }
+
     @Override
     public String name() {
         return Context.getInstance().getStringResource(R.string.str_ec_search_hint);
@@ -0,0 +1,5 @@
+package org.ei.drishti.view.dialog;
+
+public interface SearchFilterOption extends FilterOption {
+    public String criteria();
+}
@@ -0,0 +1,91 @@
+package org.ei.drishti.adapter;
+
+import org.ei.drishti.provider.SmartRegisterClientsProvider;
+import org.ei.drishti.view.contract.ECClient;
+import org.ei.drishti.view.contract.SmartRegisterClients;
+import org.ei.drishti.view.dialog.ECSearchOption;
+import org.ei.drishti.view.dialog.FilterOption;
+import org.ei.drishti.view.dialog.ServiceModeOption;
+import org.ei.drishti.view.dialog.SortOption;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+@RunWith(RobolectricTestRunner.class)
+public class SmartRegisterFilterPipelineTest {
+    @Mock
+    private SmartRegisterClientsProvider provider;
+
+    private SmartRegisterPaginatedAdapter adapter;
+    private SmartRegisterFilterPipeline pipeline;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        SmartRegisterClients allClients = new SmartRegisterClients();
+        for (int i = 0; i < 50; i++) {
+            allClients.add(new ECClient("abcd" + i, "Name" + i, "Husband" + i, "Village", i));
+        }
+        when(provider.getClients()).thenReturn(allClients);
+        adapter = new SmartRegisterPaginatedAdapter(provider);
+        pipeline = new SmartRegisterFilterPipeline(adapter, sameThreadExecutor());
+    }
+
+    @Test
+    public void shouldFilterOnlyForTheLatestSearchOnceTypingStops() throws Exception {
+        ECSearchOption firstSearch = new ECSearchOption("N");
+        ECSearchOption secondSearch = new ECSearchOption("Na");
+        ECSearchOption latestSearch = new ECSearchOption("Nam");
+        SmartRegisterClients filteredClients = new SmartRegisterClients();
+        filteredClients.add(new ECClient("abcd1", "Name1", "Husband1", "Village", 1));
+        when(provider.updateClients(null, null, latestSearch, null)).thenReturn(filteredClients);
+
+        pipeline.refreshListAfterTyping(null, null, firstSearch, null);
+        pipeline.refreshListAfterTyping(null, null, secondSearch, null);
+        pipeline.refreshListAfterTyping(null, null, latestSearch, null);
+
+        assertEquals(20, adapter.getCount());
+        Robolectric.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(provider).updateClients(null, null, latestSearch, null);
+        verify(provider, never()).updateClients(null, null, firstSearch, null);
+        verify(provider, never()).updateClients(null, null, secondSearch, null);
+        assertEquals(1, adapter.getCount());
+    }
+
+    @Test
+    public void shouldApplyServiceModeOnlyWhenFilteredClientsAreShown() throws Exception {
+        ServiceModeOption serviceMode = mock(ServiceModeOption.class);
+        SmartRegisterClients filteredClients = new SmartRegisterClients();
+        when(provider.updateClients(null, serviceMode, null, null)).thenReturn(filteredClients);
+
+        adapter.filterClients(null, serviceMode, null, null);
+        verify(serviceMode, never()).apply();
+
+        pipeline.refreshList(null, serviceMode, null, null);
+        Robolectric.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(serviceMode).apply();
+        assertEquals(0, adapter.getCount());
+    }
+
+    @Test
+    public void shouldNotFilterWhenPendingRequestIsCancelled() throws Exception {
+        pipeline.refreshListAfterTyping(null, null, new ECSearchOption("N"), null);
+        pipeline.cancel();
+
+        Robolectric.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(provider, never()).updateClients(any(FilterOption.class), any(ServiceModeOption.class),
+                any(FilterOption.class), any(SortOption.class));
+        assertEquals(20, adapter.getCount());
+    }
+}
@@ -2,11 +2,15 @@ package org.ei.drishti.adapter;
 
 import android.view.View;
 import android.view.ViewGroup;
+import org.ei.drishti.provider.SmartRegisterClientsPager;
 import org.ei.drishti.provider.SmartRegisterClientsProvider;
 import org.ei.drishti.view.contract.ECClient;
 import org.ei.drishti.view.contract.SmartRegisterClient;
 import org.ei.drishti.view.contract.SmartRegisterClients;
+import org.ei.drishti.view.dialog.AllClientsFilter;
+import org.ei.drishti.view.dialog.ECSearchOption;
 import org.ei.drishti.view.dialog.FilterOption;
+import org.ei.drishti.view.dialog.NameSort;
 import org.ei.drishti.view.dialog.ServiceModeOption;
 import org.ei.drishti.view.dialog.SortOption;
 import org.ei.drishti.view.viewHolder.OnClickFormLauncher;
@@ -14,6 +18,12 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
 import static org.junit.Assert.*;
 
 @RunWith(RobolectricTestRunner.class)
@@ -63,6 +73,23 @@ public class SmartRegisterPaginatedAdapterTest {
         assertFalse(adapter.hasPreviousPage());
     }
 
+    @Test
+    public void shouldKeepCurrentPageWhenRevalidatedClientsAreShown() {
+        SmartRegisterPaginatedAdapter adapter = getAdapterWithFakeClients(50);
+        adapter.nextPage();
+        adapter.nextPage();
+
+        adapter.showClients(getSmartRegisterClients(45), null, true);
+        assertEquals(2, adapter.currentPage());
+        assertEquals(5, adapter.getCount());
+
+        adapter.showClients(getSmartRegisterClients(30), null, true);
+        assertEquals(1, adapter.currentPage());
+
+        adapter.showClients(getSmartRegisterClients(30), null);
+        assertEquals(0, adapter.currentPage());
+    }
+
     @Test
     public void shouldReturn3PageCountFor50Clients() {
         SmartRegisterPaginatedAdapter adapter = getAdapterWithFakeClients(50);
@@ -122,6 +149,98 @@ public class SmartRegisterPaginatedAdapterTest {
         assertEquals(25, adapter.getCount());
     }
 
+    @Test
+    public void pagedModeShouldLoadOnlyTheVisiblePageAndThePrefetchedOne() {
+        FakeClientsPager pager = new FakeClientsPager(getSmartRegisterClients(10000));
+        SmartRegisterPaginatedAdapter adapter = getPagedAdapter(pager);
+
+        assertEquals(500, adapter.pageCount());
+        assertEquals(20, adapter.getCount());
+        assertEquals("Name0", ((ECClient) adapter.getItem(0)).name());
+        assertEquals(40, pager.clientsFetched);
+
+        adapter.nextPage();
+
+        assertEquals("Name20", ((ECClient) adapter.getItem(20)).name());
+        assertEquals(60, pager.clientsFetched);
+
+        adapter.previousPage();
+
+        assertEquals("Name19", ((ECClient) adapter.getItem(19)).name());
+        assertEquals(60, pager.clientsFetched);
+    }
+
+    @Test
+    public void pagedModeShouldFallBackToTheFullListWhenFiltersAreApplied() {
+        FakeClientsPager pager = new FakeClientsPager(getSmartRegisterClients(50));
+        SmartRegisterPaginatedAdapter adapter = getPagedAdapter(pager);
+
+        adapter.refreshList(null, null, null, null);
+
+        assertEquals(1, adapter.pageCount());
+        assertEquals(5, adapter.getCount());
+    }
+
+    @Test
+    public void pagedModeShouldBeKeptWhenNoFilterOrSearchIsActive() {
+        FakeClientsPager pager = new FakeClientsPager(getSmartRegisterClients(50));
+        SmartRegisterPaginatedAdapter adapter = getPagedAdapter(pager);
+
+        adapter.refreshList(new AllClientsFilter(), null, new ECSearchOption("name1"), new NameSort());
+        assertEquals(5, adapter.getCount());
+
+        adapter.refreshList(new AllClientsFilter(), null, new ECSearchOption(""), new NameSort());
+
+        assertEquals(3, adapter.pageCount());
+        assertEquals(20, adapter.getCount());
+        assertEquals("Name0", ((ECClient) adapter.getItem(0)).name());
+    }
+
+    @Test
+    public void pagedModeShouldLoadPagesOnThePageExecutor() {
+        FakeClientsPager pager = new FakeClientsPager(getSmartRegisterClients(50));
+        QueuedExecutor pageExecutor = new QueuedExecutor();
+        SmartRegisterPaginatedAdapter adapter = new SmartRegisterPaginatedAdapter(20, getFakeProvider(new SmartRegisterClients()), pager, pageExecutor);
+
+        assertEquals(0, adapter.getCount());
+        assertNull(adapter.getItem(0));
+        assertEquals(0, pager.clientsFetched);
+
+        pageExecutor.runQueuedTasks();
+
+        assertEquals(3, adapter.pageCount());
+        assertEquals(20, adapter.getCount());
+        assertEquals(40, pager.clientsFetched);
+
+        adapter.nextPage();
+        adapter.nextPage();
+
+        assertEquals(0, adapter.getCount());
+        assertEquals(40, pager.clientsFetched);
+
+        pageExecutor.runQueuedTasks();
+
+        assertEquals(10, adapter.getCount());
+        assertEquals("Name40", ((ECClient) adapter.getItem(40)).name());
+    }
+
+    @Test
+    public void pagedModeShouldDropPagesLoadedForASupersededRefresh() {
+        FakeClientsPager pager = new FakeClientsPager(getSmartRegisterClients(50));
+        QueuedExecutor pageExecutor = new QueuedExecutor();
+        SmartRegisterPaginatedAdapter adapter = new SmartRegisterPaginatedAdapter(20, getFakeProvider(new SmartRegisterClients()), pager, pageExecutor);
+
+        adapter.refreshList(null, null, null, null);
+        pageExecutor.runQueuedTasks();
+
+        assertEquals(1, adapter.pageCount());
+        assertEquals(5, adapter.getCount());
+    }
+
+    private SmartRegisterPaginatedAdapter getPagedAdapter(FakeClientsPager pager) {
+        return new SmartRegisterPaginatedAdapter(20, getFakeProvider(new SmartRegisterClients()), pager, sameThreadExecutor());
+    }
+
     private SmartRegisterPaginatedAdapter getAdapterWithFakeClients(int clientsCount) {
         return getAdapter(getFakeProvider(getSmartRegisterClients(clientsCount)));
     }
@@ -154,6 +273,69 @@ public class SmartRegisterPaginatedAdapterTest {
         return new SmartRegisterPaginatedAdapter(clientsPerPage, provider);
     }
 
+    private class QueuedExecutor extends AbstractExecutorService {
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        public void runQueuedTasks() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return tasks;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+    }
+
+    private class FakeClientsPager implements SmartRegisterClientsPager {
+        private SmartRegisterClients clients;
+
+        public int clientsFetched;
+
+        public FakeClientsPager(SmartRegisterClients clients) {
+            this.clients = clients;
+        }
+
+        @Override
+        public int clientCount() {
+            return clients.size();
+        }
+
+        @Override
+        public SmartRegisterClients clientsAfter(SmartRegisterClient lastClient, int numberOfClients) {
+            int start = lastClient == null ? 0 : clients.indexOf(lastClient) + 1;
+            SmartRegisterClients page = new SmartRegisterClients();
+            page.addAll(clients.subList(start, Math.min(start + numberOfClients, clients.size())));
+            clientsFetched += page.size();
+            return page;
+        }
+    }
+
     private class FakeClientsProvider implements SmartRegisterClientsProvider {
         private SmartRegisterClients clients;
 
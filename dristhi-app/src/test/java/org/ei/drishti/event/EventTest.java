@@ -0,0 +1,37 @@
+package org.ei.drishti.event;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+public class EventTest {
+    @Test
+    public void shouldLetListenersBeAddedAndRemovedWhileListenersAreBeingNotified() throws Exception {
+        final Event<String> event = new Event<String>();
+        final List<String> notifications = new ArrayList<String>();
+        final Listener<String> addedListener = new Listener<String>() {
+            @Override
+            public void onEvent(String data) {
+                notifications.add("added " + data);
+            }
+        };
+        Listener<String> removingListener = new Listener<String>() {
+            @Override
+            public void onEvent(String data) {
+                notifications.add("removing " + data);
+                event.removeListener(this);
+                event.addListener(addedListener);
+            }
+        };
+        event.addListener(removingListener);
+
+        event.notifyListeners("first");
+        event.notifyListeners("second");
+
+        assertEquals(asList("removing first", "added second"), notifications);
+    }
+}
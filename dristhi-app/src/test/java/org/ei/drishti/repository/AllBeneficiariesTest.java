@@ -10,8 +10,11 @@ import org.mockito.Mock;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 
 import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -98,4 +101,16 @@ public class AllBeneficiariesTest {
 
         verify(motherRepository).update(mother);
     }
+
+    @Test
+    public void shouldResolveChangedEntitiesToTheirECs() throws Exception {
+        when(childRepository.findChildrenByCaseIds((String[]) anyVararg()))
+                .thenReturn(asList(new Child("child id 1", "mother id 1", "male", new HashMap<String, String>())));
+        when(motherRepository.findByCaseIds((String[]) anyVararg()))
+                .thenReturn(asList(new Mother("mother id 1", "ec id 1", "12345", "2012-12-12"), new Mother("mother id 2", "ec id 2", "123456", "2012-12-10")));
+
+        List<String> ecIds = allBeneficiaries.findECIdsOfEntities(asList("child id 1", "mother id 2", "ec id 3"));
+
+        assertEquals(new HashSet<String>(asList("ec id 1", "ec id 2", "ec id 3")), new HashSet<String>(ecIds));
+    }
 }
@@ -0,0 +1,84 @@
+package org.ei.drishti.repository;
+
+import android.database.Cursor;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.ei.drishti.util.EasyMap.create;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class CursorJsonWriterTest {
+    @Mock
+    private Cursor cursor;
+
+    private CursorJsonWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        writer = new CursorJsonWriter("details", asList("currentMethod"));
+        when(cursor.getColumnNames()).thenReturn(new String[]{"id", "wifeName", "details", "currentMethod"});
+    }
+
+    @Test
+    public void shouldSpliceDetailsIntoTheRowAndSkipShadowColumns() throws Exception {
+        when(cursor.moveToFirst()).thenReturn(true);
+        when(cursor.getString(0)).thenReturn("ec id 1");
+        when(cursor.getString(1)).thenReturn("Wife \"1\" <name>");
+        when(cursor.getString(2)).thenReturn("{\"currentMethod\":\"condom\",\"caste\":\"sc\"}");
+        when(cursor.getString(3)).thenReturn("condom");
+
+        String json = writer.firstRow(cursor);
+
+        assertEquals("{\"id\":\"ec id 1\",\"wifeName\":\"Wife \\\"1\\\" \\u003cname\\u003e\",\"currentMethod\":\"condom\",\"caste\":\"sc\"}", json);
+        assertEquals(create("id", "ec id 1").put("wifeName", "Wife \"1\" <name>").put("currentMethod", "condom").put("caste", "sc").map(),
+                new Gson().<Map<String, String>>fromJson(json, new TypeToken<Map<String, String>>() {
+                }.getType()));
+    }
+
+    @Test
+    public void shouldWriteAllRowsSkippingNullColumnsAndEmptyDetails() throws Exception {
+        when(cursor.isAfterLast()).thenReturn(false, false, true);
+        when(cursor.getString(0)).thenReturn("ec id 1", "ec id 2");
+        when(cursor.getString(1)).thenReturn(null, "Wife 2");
+        when(cursor.getString(2)).thenReturn("{}", "{\"caste\":\"st\"}");
+
+        String json = writer.allRows(cursor);
+
+        List<Map<String, String>> rows = new Gson().fromJson(json, new TypeToken<List<Map<String, String>>>() {
+        }.getType());
+        assertEquals(asList(create("id", "ec id 1").map(), create("id", "ec id 2").put("wifeName", "Wife 2").put("caste", "st").map()), rows);
+    }
+
+    @Test
+    public void shouldSpliceEveryDetailsColumnOfAJoinedRow() throws Exception {
+        when(cursor.getColumnNames()).thenReturn(new String[]{"id", "details", "ecCaseId", "details"});
+        when(cursor.moveToFirst()).thenReturn(true);
+        when(cursor.getString(0)).thenReturn("mother id 1");
+        when(cursor.getString(1)).thenReturn("{\"edd\":\"2014-01-01\"}");
+        when(cursor.getString(2)).thenReturn("ec id 1");
+        when(cursor.getString(3)).thenReturn("{\"caste\":\"sc\"}");
+
+        String json = writer.firstRow(cursor);
+
+        assertEquals(create("id", "mother id 1").put("edd", "2014-01-01").put("ecCaseId", "ec id 1").put("caste", "sc").map(),
+                new Gson().<Map<String, String>>fromJson(json, new TypeToken<Map<String, String>>() {
+                }.getType()));
+    }
+
+    @Test
+    public void shouldReturnAnEmptyObjectWhenThereIsNoRow() throws Exception {
+        when(cursor.moveToFirst()).thenReturn(false);
+
+        assertEquals("{}", writer.firstRow(cursor));
+    }
+}
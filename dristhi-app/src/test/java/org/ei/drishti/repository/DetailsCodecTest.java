@@ -0,0 +1,58 @@
+package org.ei.drishti.repository;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.ei.drishti.util.EasyMap.create;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DetailsCodecTest {
+    @Test
+    public void shouldDecodeFlatDetailsTheSameWayAsGson() throws Exception {
+        String json = "{\"edd\":\"2012-01-01\",\"parity\":2,\"isHighRisk\":true,\"note\":\"a \\\"quoted\\\" <value>\",\"empty\":null}";
+
+        Map<String, String> expected = new Gson().fromJson(json, new TypeToken<Map<String, String>>() {
+        }.getType());
+
+        assertEquals(expected, DetailsCodec.decode(json));
+    }
+
+    @Test
+    public void shouldEncodeDetailsTheSameWayAsGson() throws Exception {
+        Map<String, String> details = new LinkedHashMap<String, String>();
+        details.put("edd", "2012-01-01");
+        details.put("note", "a \"quoted\" <value> & 'more'");
+        details.put("unicode", "ಕನ್ನಡ");
+        details.put("empty", null);
+
+        assertEquals(new Gson().toJson(details), DetailsCodec.encode(details));
+    }
+
+    @Test
+    public void shouldRoundTripDetails() throws Exception {
+        Map<String, String> details = create("currentMethod", "condom").put("caste", "sc").put("village", "Bherya").map();
+
+        assertEquals(details, DetailsCodec.decode(DetailsCodec.encode(details)));
+        assertEquals(new HashMap<String, String>(), DetailsCodec.decode(DetailsCodec.encode(new HashMap<String, String>())));
+    }
+
+    @Test
+    public void shouldTreatMissingDetailsAsNull() throws Exception {
+        assertNull(DetailsCodec.decode(null));
+        assertNull(DetailsCodec.decode(""));
+        assertNull(DetailsCodec.decode("null"));
+        assertEquals("null", DetailsCodec.encode(null));
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void shouldRejectNestedDetails() throws Exception {
+        DetailsCodec.decode("{\"child\":{\"name\":\"x\"}}");
+    }
+}
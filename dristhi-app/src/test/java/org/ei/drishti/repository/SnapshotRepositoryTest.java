@@ -0,0 +1,194 @@
+package org.ei.drishti.repository;
+
+import org.ei.drishti.util.CacheableData;
+import org.ei.drishti.util.PatchableData;
+import org.ei.drishti.util.Session;
+import org.ei.drishti.util.SnapshotCodec;
+import org.ei.drishti.view.contract.*;
+import org.ei.drishti.view.contract.pnc.PNCClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static java.util.Arrays.asList;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.apache.commons.io.FileUtils.readFileToString;
+import static org.ei.drishti.view.contract.AlertDTO.emptyAlert;
+import static org.ei.drishti.view.contract.ServiceProvidedDTO.emptyService;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+@RunWith(RobolectricTestRunner.class)
+public class SnapshotRepositoryTest {
+    @Mock
+    private DataVersionRepository dataVersionRepository;
+    @Mock
+    private PatchableData<ECClients> registerData;
+
+    private File directory;
+    private Session session;
+    private SnapshotRepository repository;
+    private SnapshotCodec<ECClients> codec = new SmartRegisterClientsCodec<ECClients>(ECClients.class, ECClient.class);
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        directory = new File(System.getProperty("java.io.tmpdir"), "snapshots" + System.nanoTime());
+        session = new Session().setPassword("password");
+        repository = new SnapshotRepository(directory, session, dataVersionRepository, sameThreadExecutor());
+        when(dataVersionRepository.dataVersion()).thenReturn("1-10");
+        when(registerData.fetch()).thenReturn(ecClients());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        deleteQuietly(directory);
+    }
+
+    @Test
+    public void shouldServeSnapshotWhenItsDataVersionIsCurrent() throws Exception {
+        CacheableData<ECClients> persistedData = repository.persistence("ecClients", codec).persisted("key", registerData);
+
+        assertEquals(ecClients(), persistedData.fetch());
+        assertEquals(ecClients(), persistedData.fetch());
+
+        verify(registerData, times(1)).fetch();
+        assertTrue(persistedData instanceof PatchableData);
+    }
+
+    @Test
+    public void shouldRebuildWhenTheDataVersionHasChanged() throws Exception {
+        CacheableData<ECClients> persistedData = repository.persistence("ecClients", codec).persisted("key", registerData);
+
+        persistedData.fetch();
+        when(dataVersionRepository.dataVersion()).thenReturn("1-11");
+        persistedData.fetch();
+        persistedData.fetch();
+
+        verify(registerData, times(2)).fetch();
+    }
+
+    @Test
+    public void shouldRebuildWhenTheSnapshotCannotBeDecryptedWithTheCurrentPassword() throws Exception {
+        CacheableData<ECClients> persistedData = repository.persistence("ecClients", codec).persisted("key", registerData);
+
+        persistedData.fetch();
+        session.setPassword("another password");
+
+        assertEquals(ecClients(), persistedData.fetch());
+        verify(registerData, times(2)).fetch();
+    }
+
+    @Test
+    public void shouldKeepTheSnapshotWhenThePasswordIsNotAvailable() throws Exception {
+        repository.add("ecClients-key", "1-10", ecClients(), codec);
+        session.setPassword(null);
+
+        assertNull(repository.find("ecClients-key", "1-10", codec));
+        session.setPassword("password");
+
+        assertEquals(ecClients(), repository.find("ecClients-key", "1-10", codec));
+    }
+
+    @Test
+    public void shouldDeleteEverySnapshotAndTheSalt() throws Exception {
+        repository.add("ecClients-key", "1-10", ecClients(), codec);
+
+        repository.deleteAll();
+
+        assertFalse(new File(directory, "ecClients-key.snapshot").exists());
+        assertFalse(new File(directory, "snapshot.salt").exists());
+        assertNull(repository.find("ecClients-key", "1-10", codec));
+    }
+
+    @Test
+    public void shouldNotStoreClientsInPlainText() throws Exception {
+        repository.add("ecClients-key", "1-10", ecClients(), codec);
+
+        assertFalse(readFileToString(new File(directory, "ecClients-key.snapshot"), "ISO-8859-1").contains("Wife"));
+    }
+
+    @Test
+    public void shouldRebuildTheServicesOfChildClientsReadFromASnapshot() throws Exception {
+        SnapshotCodec<SmartRegisterClients> childCodec = new SmartRegisterClientsCodec<SmartRegisterClients>(SmartRegisterClients.class, ChildClient.class);
+        SmartRegisterClients clients = new SmartRegisterClients();
+        clients.add(new ChildClient("child id 1", "female", "2.4", "thayi 1").withName("Child")
+                .withAlerts(asList(new AlertDTO("OPV_0", "urgent", "2014-01-03")))
+                .withServicesProvided(new ArrayList<ServiceProvidedDTO>(asList(new ServiceProvidedDTO("bcg", "2014-01-02", new HashMap<String, String>()))))
+                .withPreprocess());
+
+        repository.add("childClients-key", "1-10", clients, childCodec);
+        ChildClient child = (ChildClient) repository.find("childClients-key", "1-10", childCodec).get(0);
+
+        assertEquals(clients.get(0), child);
+        assertTrue(child.isBcgDone());
+        assertEquals("02/01", child.bcgDoneDate());
+        assertFalse(child.isOpvDone());
+        assertFalse(child.isPentavDone());
+    }
+
+    @Test
+    public void shouldReadANCClientsBackWithoutServicesProvided() throws Exception {
+        SnapshotCodec<SmartRegisterClients> ancCodec = new SmartRegisterClientsCodec<SmartRegisterClients>(SmartRegisterClients.class, ANCClient.class);
+        SmartRegisterClients clients = new SmartRegisterClients();
+        clients.add(new ANCClient("anc id 1", "Village", "Woman", "thayi 1", "2014-06-25", "2013-09-18").withHusbandName("Husband")
+                .withAlerts(asList(new AlertDTO("TT 1", "normal", "2014-01-03")))
+                .withServicesProvided(new ArrayList<ServiceProvidedDTO>())
+                .withPreProcess());
+
+        repository.add("ancClients-key", "1-10", clients, ancCodec);
+        ANCClient anc = (ANCClient) repository.find("ancClients-key", "1-10", ancCodec).get(0);
+
+        assertEquals(clients.get(0), anc);
+        assertFalse(anc.isTTDone());
+        assertFalse(anc.isVisitsDone());
+        assertSame(emptyAlert, anc.serviceToVisitsMap().get(ANCClient.CATEGORY_ANC).toProvide);
+    }
+
+    @Test
+    public void shouldReadPNCClientsBackWithoutServicesProvided() throws Exception {
+        SnapshotCodec<SmartRegisterClients> pncCodec = new SmartRegisterClientsCodec<SmartRegisterClients>(SmartRegisterClients.class, PNCClient.class);
+        SmartRegisterClients clients = new SmartRegisterClients();
+        clients.add(new PNCClient("pnc id 1", "Village", "Woman", "thayi 1", "2014-01-30")
+                .withAlerts(new ArrayList<AlertDTO>())
+                .withServicesProvided(new ArrayList<ServiceProvidedDTO>())
+                .withPreProcess());
+
+        repository.add("pncClients-key", "1-10", clients, pncCodec);
+        PNCClient pnc = (PNCClient) repository.find("pncClients-key", "1-10", pncCodec).get(0);
+
+        assertEquals(clients.get(0), pnc);
+        assertFalse(pnc.isVisitsDone());
+        assertSame(emptyService, pnc.serviceToVisitsMap().get("pnc").provided);
+    }
+
+    @Test
+    public void shouldReadFPClientsBack() throws Exception {
+        SnapshotCodec<SmartRegisterClients> fpCodec = new SmartRegisterClientsCodec<SmartRegisterClients>(SmartRegisterClients.class, FPClient.class);
+        SmartRegisterClients clients = new SmartRegisterClients();
+        clients.add(new FPClient("fp id 1", "Woman", "Husband", "Village", "ec no 1").withFPMethod("condom").withNumberOfPregnancies("2")
+                .withAlerts(asList(new AlertDTO("Condom Refill", "normal", "2014-01-03"))));
+
+        repository.add("fpClients-key", "1-10", clients, fpCodec);
+        FPClient fp = (FPClient) repository.find("fpClients-key", "1-10", fpCodec).get(0);
+
+        assertEquals(clients.get(0), fp);
+        assertEquals("2", fp.numberOfPregnancies());
+    }
+
+    private ECClients ecClients() {
+        ECClients clients = new ECClients();
+        clients.add(new ECClient("ec id 1", "Wife 1", "Husband 1", "Village", 1).withDateOfBirth("1990-01-01"));
+        clients.add(new ECClient("ec id 2", "Wife 2", "Husband 2", "Village", 2));
+        return clients;
+    }
+}
@@ -8,6 +8,8 @@ import org.ei.drishti.dto.Action;
 import org.ei.drishti.repository.AllEligibleCouples;
 import org.ei.drishti.repository.AllReports;
 import org.ei.drishti.repository.AllSettings;
+import org.ei.drishti.repository.Repository;
+import org.ei.drishti.repository.UnitOfWork;
 import org.ei.drishti.router.ActionRouter;
 import org.ei.drishti.util.ActionBuilder;
 import org.junit.Before;
@@ -15,6 +17,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -42,13 +46,21 @@ public class ActionServiceTest {
     private AllReports allReports;
     @Mock
     private ActionRouter actionRouter;
+    @Mock
+    private Repository repository;
 
     private ActionService service;
 
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        service = new ActionService(drishtiService, allSettings, allSharedPreferences, allReports, actionRouter);
+        service = new ActionService(drishtiService, allSettings, allSharedPreferences, allReports, repository, actionRouter);
+        when(repository.inTransaction(any(UnitOfWork.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return ((UnitOfWork) invocation.getArguments()[0]).run();
+            }
+        });
     }
 
     @Test
@@ -115,6 +127,31 @@ public class ActionServiceTest {
         verify(actionRouter).directMotherAction(closeMotherAction);
     }
 
+    @Test
+    public void shouldHandleAllFetchedActionsInOneUnitOfWorkWithANestedUnitPerAction() throws Exception {
+        Action firstAction = actionForCreateAlert("Case X", "normal", "mother", "Ante Natal Care - Normal", "ANC 1", "2012-01-01", "2012-01-22", "11111");
+        Action secondAction = actionForCreateAlert("Case Y", "normal", "mother", "Ante Natal Care - Normal", "ANC 2", "2012-01-01", "2012-01-11", "12345");
+        setupActions(success, asList(firstAction, secondAction));
+
+        service.fetchNewActions();
+
+        verify(repository, times(3)).inTransaction(any(UnitOfWork.class));
+    }
+
+    @Test
+    public void shouldContinueHandlingActionsWhenOneOfThemFails() throws Exception {
+        Action firstAction = actionForCreateAlert("Case X", "normal", "mother", "Ante Natal Care - Normal", "ANC 1", "2012-01-01", "2012-01-22", "11111");
+        Action secondAction = actionForCreateAlert("Case Y", "normal", "mother", "Ante Natal Care - Normal", "ANC 2", "2012-01-01", "2012-01-11", "12345");
+        setupActions(success, asList(firstAction, secondAction));
+        doThrow(new RuntimeException("boom")).when(actionRouter).directAlertAction(firstAction);
+
+        service.fetchNewActions();
+
+        verify(allSettings, never()).savePreviousFetchIndex("11111");
+        verify(actionRouter).directAlertAction(secondAction);
+        verify(allSettings).savePreviousFetchIndex("12345");
+    }
+
     private void setupActions(ResponseStatus status, List<Action> list) {
         when(allSettings.fetchPreviousFetchIndex()).thenReturn("1234");
         when(allSharedPreferences.fetchRegisteredANM()).thenReturn("ANM X");
@@ -41,13 +41,15 @@ public class ChildServiceTest {
     @Mock
     private AllBeneficiaries allBeneficiaries;
     @Mock
+    private FormDataRepository formDataRepository;
+    @Mock
     private Child child;
     private ChildService service;
 
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        service = new ChildService(allBeneficiaries, motherRepository, childRepository, allTimelineEvents, serviceProvidedService, allAlerts);
+        service = new ChildService(allBeneficiaries, motherRepository, childRepository, allTimelineEvents, serviceProvidedService, allAlerts, formDataRepository);
     }
 
     @Test
@@ -57,8 +59,7 @@ public class ChildServiceTest {
         FormSubmission submission = mock(FormSubmission.class);
         SubForm subForm = mock(SubForm.class);
         when(motherRepository.findById("Mother X")).thenReturn(new Mother("Mother X", "EC 1", "TC 1", "2012-01-01"));
-        when(childRepository.find("Child X")).thenReturn(firstChild);
-        when(childRepository.find("Child Y")).thenReturn(secondChild);
+        when(childRepository.findChildrenByCaseIds("Child X", "Child Y")).thenReturn(asList(secondChild, firstChild));
         when(submission.entityId()).thenReturn("Mother X");
         when(submission.getFieldValue("referenceDate")).thenReturn("2012-01-01");
         when(submission.getFieldValue("deliveryPlace")).thenReturn("phc");
@@ -67,10 +68,10 @@ public class ChildServiceTest {
 
         service.register(submission);
 
-        verify(childRepository).find("Child X");
-        verify(childRepository).find("Child Y");
-        verify(childRepository).update(firstChild.setIsClosed(false).setDateOfBirth("2012-01-01").setThayiCardNumber("TC 1"));
-        verify(childRepository).update(secondChild.setIsClosed(false).setDateOfBirth("2012-01-01").setThayiCardNumber("TC 1"));
+        verify(childRepository).findChildrenByCaseIds("Child X", "Child Y");
+        verify(formDataRepository).saveEntities(mapOf("child", asList(
+                create("id", "Child X").put("isClosed", "false").put("thayiCardNumber", "TC 1").put("dateOfBirth", "2012-01-01").map(),
+                create("id", "Child Y").put("isClosed", "false").put("thayiCardNumber", "TC 1").put("dateOfBirth", "2012-01-01").map())));
         verify(allTimelineEvents).add(forChildBirthInChildProfile("Child X", "2012-01-01", "3", "bcg opv_0"));
         verify(allTimelineEvents).add(forChildBirthInChildProfile("Child Y", "2012-01-01", "4", "bcg"));
         verify(allTimelineEvents, times(2)).add(forChildBirthInMotherProfile("Mother X", "2012-01-01", "female", "2012-01-01", "phc"));
@@ -107,8 +108,7 @@ public class ChildServiceTest {
         Child secondChild = new Child("Child Y", "Mother X", "female", create("weight", "4").put("immunizationsGiven", "bcg").map());
         Mother mother = new Mother("Mother X", "EC X", "TC 1", "2012-01-02");
         when(motherRepository.findAllCasesForEC("EC X")).thenReturn(asList(mother));
-        when(childRepository.find("Child X")).thenReturn(firstChild);
-        when(childRepository.find("Child Y")).thenReturn(secondChild);
+        when(childRepository.findChildrenByCaseIds("Child X", "Child Y")).thenReturn(asList(secondChild, firstChild));
         FormSubmission submission = mock(FormSubmission.class);
         SubForm subForm = mock(SubForm.class);
         when(submission.entityId()).thenReturn("EC X");
@@ -119,10 +119,10 @@ public class ChildServiceTest {
 
         service.pncRegistrationOA(submission);
 
-        verify(childRepository).find("Child X");
-        verify(childRepository).find("Child Y");
-        verify(childRepository).update(firstChild.setIsClosed(false).setDateOfBirth("2012-01-01").setThayiCardNumber("TC 1"));
-        verify(childRepository).update(secondChild.setIsClosed(false).setDateOfBirth("2012-01-01").setThayiCardNumber("TC 1"));
+        verify(childRepository).findChildrenByCaseIds("Child X", "Child Y");
+        verify(formDataRepository).saveEntities(mapOf("child", asList(
+                create("id", "Child X").put("isClosed", "false").put("thayiCardNumber", "TC 1").put("dateOfBirth", "2012-01-01").map(),
+                create("id", "Child Y").put("isClosed", "false").put("thayiCardNumber", "TC 1").put("dateOfBirth", "2012-01-01").map())));
         verify(allTimelineEvents).add(forChildBirthInChildProfile("Child X", "2012-01-01", "3", "bcg opv_0"));
         verify(allTimelineEvents).add(forChildBirthInChildProfile("Child Y", "2012-01-01", "4", "bcg"));
         verify(allTimelineEvents, times(2)).add(forChildBirthInMotherProfile("Mother X", "2012-01-01", "female", "2012-01-01", "subcenter"));
@@ -4,10 +4,14 @@ import com.google.gson.Gson;
 import org.ei.drishti.domain.form.FormSubmission;
 import org.ei.drishti.repository.AllSettings;
 import org.ei.drishti.repository.FormDataRepository;
+import org.ei.drishti.repository.Repository;
+import org.ei.drishti.repository.UnitOfWork;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.List;
 
@@ -25,13 +29,21 @@ public class FormSubmissionServiceTest {
     private AllSettings allSettings;
     @Mock
     private FormDataRepository formDataRepository;
+    @Mock
+    private Repository repository;
 
     private FormSubmissionService service;
 
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        service = new FormSubmissionService(ziggyService, formDataRepository, allSettings);
+        service = new FormSubmissionService(ziggyService, formDataRepository, allSettings, repository);
+        when(repository.inTransaction(any(UnitOfWork.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return ((UnitOfWork) invocation.getArguments()[0]).run();
+            }
+        });
     }
 
     @Test
@@ -96,4 +108,25 @@ public class FormSubmissionServiceTest {
         inOrder.verify(formDataRepository).updateServerVersion("instance id 2", "1");
         inOrder.verify(allSettings).savePreviousFormSyncIndex("1");
     }
+
+    @Test
+    public void shouldProcessABatchOfSubmissionsInOneUnitOfWorkWithANestedUnitPerSubmission() throws Exception {
+        List<FormSubmission> submissions = asList(create().withInstanceId("instance id 1").withVersion("122").build(),
+                create().withInstanceId("instance id 2").withVersion("123").build());
+
+        service.processSubmissions(submissions);
+
+        verify(repository, times(3)).inTransaction(any(UnitOfWork.class));
+    }
+
+    @Test
+    public void shouldUpdateSyncIndexEvenWhenProcessingOfASubmissionFails() throws Exception {
+        List<FormSubmission> submissions = asList(create().withInstanceId("instance id 1").withVersion("122").withServerVersion("1").build());
+        doThrow(new RuntimeException("boom")).when(ziggyService).saveForm(anyString(), anyString());
+
+        service.processSubmissions(submissions);
+
+        verify(formDataRepository).updateServerVersion("instance id 1", "1");
+        verify(allSettings).savePreviousFormSyncIndex("1");
+    }
 }
@@ -22,6 +22,8 @@ public class UserServiceTest {
     @Mock
     private Repository repository;
     @Mock
+    private SnapshotRepository snapshotRepository;
+    @Mock
     private AllSettings allSettings;
     @Mock
     private AllSharedPreferences allSharedPreferences;
@@ -43,7 +45,7 @@ public class UserServiceTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        userService = new UserService(repository, allSettings, allSharedPreferences, httpAgent, session, configuration, saveANMLocationTask);
+        userService = new UserService(repository, snapshotRepository, allSettings, allSharedPreferences, httpAgent, session, configuration, saveANMLocationTask);
     }
 
     @Test
@@ -107,6 +109,7 @@ public class UserServiceTest {
         userService.logout();
 
         verify(repository).deleteRepository();
+        verify(snapshotRepository).deleteAll();
         verify(allSettings).savePreviousFetchIndex("0");
         verify(allSettings).registerANM("", "");
     }
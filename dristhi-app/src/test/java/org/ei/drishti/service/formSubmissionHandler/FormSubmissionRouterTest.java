@@ -4,6 +4,7 @@ import org.robolectric.RobolectricTestRunner;
 import org.ei.drishti.domain.form.FormSubmission;
 import org.ei.drishti.event.Listener;
 import org.ei.drishti.repository.FormDataRepository;
+import org.ei.drishti.repository.Repository;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -17,6 +18,8 @@ import static org.mockito.MockitoAnnotations.initMocks;
 
 @RunWith(RobolectricTestRunner.class)
 public class FormSubmissionRouterTest {
+    @Mock
+    private Repository repository;
     @Mock
     private FormDataRepository formDataRepository;
     @Mock
@@ -77,7 +80,7 @@ public class FormSubmissionRouterTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        router = new FormSubmissionRouter(formDataRepository,
+        router = new FormSubmissionRouter(formDataRepository, repository,
                 ecRegistrationHandler,
                 fpComplicationsHandler,
                 fpChangeHandler,
@@ -112,6 +115,16 @@ public class FormSubmissionRouterTest {
         inOrder.verify(formSubmittedListener).onEvent("instance id 1");
     }
 
+    @Test
+    public void shouldLeaveEntityChangeNotificationUntilTheUnitOfWorkCommits() throws Exception {
+        FormSubmission formSubmission = create().withFormName("ec_registration").withInstanceId("instance id 1").withVersion("122").build();
+        when(formDataRepository.fetchFromSubmission("instance id 1")).thenReturn(formSubmission);
+
+        router.route("instance id 1");
+
+        verify(repository).afterCommit(any(Runnable.class));
+    }
+
     @Test
     public void shouldNotifyFormSubmittedListenersWhenThereIsNoHandlerForForm() throws Exception {
         FormSubmission formSubmission = create().withFormName("form-without-handler").withInstanceId("instance id 1").withVersion("122").build();
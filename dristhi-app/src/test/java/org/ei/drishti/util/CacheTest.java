@@ -7,9 +7,19 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static java.util.Arrays.asList;
 import static org.ei.drishti.domain.FetchStatus.fetched;
 import static org.ei.drishti.domain.FetchStatus.fetchedFailed;
-import static org.junit.Assert.assertEquals;
+import static org.ei.drishti.util.CachePolicy.staleWhileRevalidate;
+import static org.ei.drishti.util.CacheTag.ec;
+import static org.ei.drishti.util.CacheTag.settings;
+import static org.ei.drishti.util.Weighers.fixed;
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -17,6 +27,8 @@ import static org.mockito.MockitoAnnotations.initMocks;
 public class CacheTest {
     @Mock
     private CacheableData<String> cacheableData;
+    @Mock
+    private PatchableData<String> patchableData;
 
     @Before
     public void setUp() throws Exception {
@@ -64,4 +76,193 @@ public class CacheTest {
         assertEquals("value", cache.get("key", cacheableData));
         verify(cacheableData, times(2)).fetch();
     }
+
+    @Test
+    public void shouldPatchPatchableValueWithChangedEntitiesInsteadOfFetchingItAgain() throws Exception {
+        Cache<String> cache = new Cache<String>();
+        when(patchableData.fetch()).thenReturn("value");
+        when(patchableData.patch("value", new HashSet<String>(asList("entity id 1", "entity id 2")))).thenReturn("patched value");
+
+        cache.get("key", patchableData);
+        Event.ENTITY_CHANGED.notifyListeners("entity id 1");
+        Event.ENTITY_CHANGED.notifyListeners("entity id 2");
+        Event.FORM_SUBMITTED.notifyListeners("ec_registration");
+
+        assertEquals("patched value", cache.get("key", patchableData));
+        assertEquals("patched value", cache.get("key", patchableData));
+        verify(patchableData, times(1)).fetch();
+        verify(patchableData, times(1)).patch(anyString(), anySetOf(String.class));
+    }
+
+    @Test
+    public void shouldFetchPatchableValueAgainWhenNewDataIsFetchedFromServer() throws Exception {
+        Cache<String> cache = new Cache<String>();
+        when(patchableData.fetch()).thenReturn("value", "fresh value");
+
+        cache.get("key", patchableData);
+        Event.ENTITY_CHANGED.notifyListeners("entity id 1");
+        Event.ON_DATA_FETCHED.notifyListeners(fetched);
+
+        assertEquals("fresh value", cache.get("key", patchableData));
+        verify(patchableData, times(2)).fetch();
+        verify(patchableData, never()).patch(anyString(), anySetOf(String.class));
+    }
+
+    @Test
+    public void shouldClearEveryEntryWhenUserLogsOut() throws Exception {
+        CacheStore store = new CacheStore(Long.MAX_VALUE, sameThreadExecutor());
+        Cache<String> registerCache = new Cache<String>(store, "list", Weighers.strings(), null, staleWhileRevalidate, ec);
+        Cache<String> settingsCache = new Cache<String>(store, "settings", Weighers.strings(), settings);
+        when(patchableData.fetch()).thenReturn("previous ANM's clients", "clients");
+        when(cacheableData.fetch()).thenReturn("previous ANM's location", "location");
+        registerCache.get("key", patchableData);
+        settingsCache.get("key", cacheableData);
+
+        Event.ON_LOGOUT.notifyListeners(true);
+
+        assertEquals("clients", registerCache.get("key", patchableData));
+        assertEquals("location", settingsCache.get("key", cacheableData));
+        assertEquals(Weighers.strings().weigh("clients") + Weighers.strings().weigh("location"), store.weight());
+    }
+
+    @Test
+    public void shouldFetchPatchableValueAgainWhenTooManyEntitiesHaveChanged() throws Exception {
+        Cache<String> cache = new Cache<String>();
+        when(patchableData.fetch()).thenReturn("value");
+
+        cache.get("key", patchableData);
+        for (int entity = 0; entity <= 50; entity++) {
+            Event.ENTITY_CHANGED.notifyListeners("entity id " + entity);
+        }
+
+        assertEquals("value", cache.get("key", patchableData));
+        verify(patchableData, times(2)).fetch();
+        verify(patchableData, never()).patch(anyString(), anySetOf(String.class));
+    }
+
+    @Test
+    public void shouldInvalidateOnlyTheEntriesTaggedWithTheInvalidatedTags() throws Exception {
+        CacheStore store = new CacheStore(Long.MAX_VALUE);
+        Cache<String> cache = new Cache<String>(store, "list", Weighers.strings(), ec);
+        when(cacheableData.fetch()).thenReturn("value");
+
+        cache.get("ec key", cacheableData);
+        cache.get("settings key", cacheableData, settings);
+        verify(cacheableData, times(2)).fetch();
+
+        Event.FORM_SUBMITTED.notifyListeners("ec_registration");
+        cache.get("ec key", cacheableData);
+        cache.get("settings key", cacheableData, settings);
+        verify(cacheableData, times(3)).fetch();
+
+        store.invalidate(settings);
+        cache.get("ec key", cacheableData);
+        cache.get("settings key", cacheableData, settings);
+        verify(cacheableData, times(4)).fetch();
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntriesWhenTheCacheIsFull() throws Exception {
+        CacheStore store = new CacheStore(100);
+        Cache<String> cache = new Cache<String>(store, "list", fixed(40), ec);
+        when(cacheableData.fetch()).thenReturn("value");
+
+        cache.get("key 1", cacheableData);
+        cache.get("key 2", cacheableData);
+        cache.get("key 1", cacheableData);
+        cache.get("key 3", cacheableData);
+        verify(cacheableData, times(3)).fetch();
+        assertEquals(80, store.weight());
+
+        cache.get("key 1", cacheableData);
+        verify(cacheableData, times(3)).fetch();
+        cache.get("key 2", cacheableData);
+        verify(cacheableData, times(4)).fetch();
+    }
+
+    @Test
+    public void shouldFetchOnlyOnceWhenTheSameKeyIsRequestedConcurrently() throws Exception {
+        final Cache<String> cache = new Cache<String>();
+        final CountDownLatch fetchStarted = new CountDownLatch(1);
+        final CountDownLatch fetchCanFinish = new CountDownLatch(1);
+        final AtomicInteger numberOfFetches = new AtomicInteger();
+        final CacheableData<String> slowData = new CacheableData<String>() {
+            @Override
+            public String fetch() {
+                numberOfFetches.incrementAndGet();
+                fetchStarted.countDown();
+                try {
+                    fetchCanFinish.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return "value";
+            }
+        };
+        final String[] results = new String[2];
+        Thread firstCaller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                results[0] = cache.get("key", slowData);
+            }
+        });
+        Thread secondCaller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                results[1] = cache.get("key", slowData);
+            }
+        });
+
+        firstCaller.start();
+        fetchStarted.await();
+        secondCaller.start();
+        Thread.sleep(50);
+        fetchCanFinish.countDown();
+        firstCaller.join();
+        secondCaller.join();
+
+        assertEquals(1, numberOfFetches.get());
+        assertEquals("value", results[0]);
+        assertEquals("value", results[1]);
+    }
+
+    @Test
+    public void shouldServeStaleValueWhileRevalidatingItInTheBackground() throws Exception {
+        Cache<String> cache = new Cache<String>(new CacheStore(Long.MAX_VALUE, sameThreadExecutor()), "list",
+                Weighers.strings(), null, staleWhileRevalidate, ec);
+        when(patchableData.fetch()).thenReturn("value", "fresh value");
+
+        cache.get("key", patchableData);
+        for (int entity = 0; entity <= 50; entity++) {
+            Event.ENTITY_CHANGED.notifyListeners("entity id " + entity);
+        }
+
+        assertEquals("value", cache.get("key", patchableData));
+        assertEquals("fresh value", cache.get("key", patchableData));
+        verify(patchableData, times(2)).fetch();
+        verify(patchableData, never()).patch(anyString(), anySetOf(String.class));
+    }
+
+    @Test
+    public void shouldCoalesceRevalidationsDuringSyncIntoOneRebuildAfterSyncCompletes() throws Exception {
+        CacheStore store = new CacheStore(Long.MAX_VALUE, sameThreadExecutor());
+        Cache<String> cache = new Cache<String>(store, "list", Weighers.strings(), null, staleWhileRevalidate, ec);
+        when(patchableData.fetch()).thenReturn("value", "fresh value");
+        cache.get("key", patchableData);
+
+        Event.SYNC_STARTED.notifyListeners(true);
+        for (int entity = 0; entity <= 120; entity++) {
+            Event.ENTITY_CHANGED.notifyListeners("entity id " + entity);
+        }
+        assertEquals("value", cache.get("key", patchableData));
+        assertEquals("value", cache.get("key", patchableData));
+        assertTrue(cache.isRefreshing());
+        verify(patchableData, times(1)).fetch();
+
+        Event.SYNC_COMPLETED.notifyListeners(true);
+
+        assertFalse(cache.isRefreshing());
+        assertEquals("fresh value", cache.get("key", patchableData));
+        verify(patchableData, times(2)).fetch();
+    }
 }
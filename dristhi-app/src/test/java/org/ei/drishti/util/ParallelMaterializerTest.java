@@ -0,0 +1,62 @@
+package org.ei.drishti.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.junit.Assert.assertEquals;
+
+public class ParallelMaterializerTest {
+    private final Materializer<Integer, String> materializer = new Materializer<Integer, String>() {
+        @Override
+        public String materialize(Integer row) {
+            return "client " + row;
+        }
+    };
+
+    @Test
+    public void shouldMaterializeRowsInParallelInTheSameOrderAsSequentially() throws Exception {
+        List<Integer> rows = new ArrayList<Integer>();
+        for (int row = 0; row < 1003; row++) {
+            rows.add(row);
+        }
+
+        List<String> sequentialClients = ParallelMaterializer.sequential().materialize(rows, materializer);
+        List<String> parallelClients = new ParallelMaterializer(newFixedThreadPool(4), 4, 10).materialize(rows, materializer);
+
+        assertEquals(1003, parallelClients.size());
+        assertEquals(sequentialClients, parallelClients);
+    }
+
+    @Test
+    public void shouldMaterializeFewRowsOnTheCallingThread() throws Exception {
+        List<Integer> rows = new ArrayList<Integer>();
+        rows.add(1);
+        rows.add(2);
+
+        List<String> clients = new ParallelMaterializer(null, 4, 10).materialize(rows, materializer);
+
+        assertEquals("client 1", clients.get(0));
+        assertEquals("client 2", clients.get(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRethrowFailureOfAChunkMaterializedInParallel() throws Exception {
+        List<Integer> rows = new ArrayList<Integer>();
+        for (int row = 0; row < 100; row++) {
+            rows.add(row);
+        }
+
+        new ParallelMaterializer(newFixedThreadPool(2), 2, 10).materialize(rows, new Materializer<Integer, String>() {
+            @Override
+            public String materialize(Integer row) {
+                if (row == 99) {
+                    throw new IllegalStateException();
+                }
+                return "client " + row;
+            }
+        });
+    }
+}
@@ -0,0 +1,16 @@
+package org.ei.drishti.util;
+
+import org.ei.drishti.repository.UnitOfWork;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class UnitOfWorkAnswer implements Answer<Object> {
+    public static UnitOfWorkAnswer runsUnitOfWork() {
+        return new UnitOfWorkAnswer();
+    }
+
+    @Override
+    public Object answer(InvocationOnMock invocation) throws Throwable {
+        return ((UnitOfWork) invocation.getArguments()[0]).run();
+    }
+}
@@ -0,0 +1,61 @@
+package org.ei.drishti.view.contract;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ClientSearchIndexTest {
+    private ECClient akshara;
+    private ECClient adhiti;
+    private ECClient bhavani;
+    private ClientSearchIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        akshara = new ECClient("abcd1", "Akshara", "Rahul", "Battiganahalli", 412);
+        adhiti = new ECClient("abcd2", "adhiti", "Rama", "Battiganahalli", 69);
+        bhavani = new ECClient("abcd3", "Bhavani", "Ravi", "Gowrikoppalu", 41);
+        index = new ClientSearchIndex(asList((SmartRegisterClient) akshara, adhiti, bhavani));
+    }
+
+    @Test
+    public void shouldFindClientsWhoseNameOrECNumberStartsWithTheCriteriaIgnoringCase() throws Exception {
+        assertEquals(ids(akshara, adhiti), ids(index.search("A")));
+        assertEquals(ids(akshara, bhavani), ids(index.search("41")));
+        assertEquals(ids(bhavani), ids(index.search("bHa")));
+    }
+
+    @Test
+    public void shouldNarrowThePreviousResultsAsTheCriteriaGrowsAndWidenThemWhenItShrinks() throws Exception {
+        assertEquals(ids(akshara, adhiti), ids(index.search("a")));
+        assertEquals(ids(adhiti), ids(index.search("ad")));
+        assertTrue(index.search("adx").isEmpty());
+        assertEquals(ids(akshara, adhiti), ids(index.search("a")));
+        assertEquals(ids(bhavani), ids(index.search("b")));
+    }
+
+    private Set<String> ids(ECClient... clients) {
+        Set<String> ids = new HashSet<String>();
+        for (ECClient client : clients) {
+            ids.add(client.entityId());
+        }
+        return ids;
+    }
+
+    private Set<String> ids(Set<SmartRegisterClient> clients) {
+        Set<String> ids = new HashSet<String>();
+        for (SmartRegisterClient client : clients) {
+            ids.add(client.entityId());
+        }
+        return ids;
+    }
+}
@@ -70,6 +70,32 @@ public class ECClientTest {
         assertEquals(1, age);
     }
 
+    @Test
+    public void shouldRecomputeAgeSortKeyWhenTheDayRollsOver() {
+        DateUtil.fakeIt(LocalDate.parse("2014-04-18"));
+        SortKeys.refreshDay();
+        ECClient client = getClient().withDateOfBirth("2014-04-04");
+
+        assertEquals(14, client.sortKeys().ageInDays());
+
+        DateUtil.fakeIt(LocalDate.parse("2014-04-19"));
+        assertEquals(14, client.sortKeys().ageInDays());
+
+        SortKeys.refreshDay();
+        assertEquals(15, client.sortKeys().ageInDays());
+    }
+
+    @Test
+    public void shouldCompareNamesIgnoringCaseUsingSortKeys() {
+        ECClient client = new ECClient("entity id 1", "adhiti", "Rama", "Battiganahalli", 69);
+        ECClient anotherClient = new ECClient("entity id 2", "Bhavani", "Ravi", "Battiganahalli", 70);
+        ECClient sameNameClient = new ECClient("entity id 3", "ADHITI", "Rama", "Battiganahalli", 71);
+
+        assertTrue(client.compareName(anotherClient) < 0);
+        assertTrue(anotherClient.compareName(client) > 0);
+        assertEquals(0, client.compareName(sameNameClient));
+    }
+
     @Test
     public void ShouldReturnUpperCaseIUDPerson() {
         String iudPerson = getClient().withIUDPerson("iudperson").iudPerson();
@@ -10,9 +10,14 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.Comparator;
+import java.util.HashSet;
+
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -57,6 +62,7 @@ public class SmartRegisterClientsTest {
                 new NameSort());
 
         assertEquals(originalClients, filteredClients);
+        verify(allEligibleCoupleServiceMode, never()).apply();
     }
 
     @Test
@@ -273,6 +279,28 @@ public class SmartRegisterClientsTest {
         assertEquals("Bhagya", filteredClients.get(1).name());
     }
 
+    @Test
+    public void ShouldReplaceStaleClientsAndInsertFreshClientsInSortedPosition() {
+        SmartRegisterClients clients = new SmartRegisterClients();
+        clients.add(new ECClient("abcd1", "Adhiti", "Rama", "Battiganahalli", 69));
+        clients.add(new ECClient("abcd2", "Bhavani", "Ravi", "Gowrikoppalu", 140));
+        clients.add(new ECClient("abcd3", "Chaitra", "Rams", "Somanahalli colony", 36));
+
+        clients.replaceClients(new HashSet<String>(asList("abcd1", "abcd4")),
+                asList(new ECClient("abcd1", "Bindu", "Rama", "Battiganahalli", 69), new ECClient("abcd5", "Anitha", "Chandan", "Half bherya", 87)),
+                new Comparator<SmartRegisterClient>() {
+                    @Override
+                    public int compare(SmartRegisterClient oneClient, SmartRegisterClient anotherClient) {
+                        return oneClient.name().compareTo(anotherClient.name());
+                    }
+                });
+
+        assertEquals(4, clients.size());
+        assertEquals("Anitha", clients.get(0).name());
+        assertEquals("Bhavani", clients.get(1).name());
+        assertEquals("Bindu", clients.get(2).name());
+        assertEquals("Chaitra", clients.get(3).name());
+    }
 
     public SmartRegisterClients getUniformSmartRegisterClients(int clientCount) {
         SmartRegisterClients clients = new SmartRegisterClients();
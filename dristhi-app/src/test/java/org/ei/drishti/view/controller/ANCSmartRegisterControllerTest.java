@@ -7,10 +7,12 @@ import org.ei.drishti.domain.Mother;
 import org.ei.drishti.domain.ServiceProvided;
 import org.ei.drishti.repository.AllBeneficiaries;
 import org.ei.drishti.repository.AllEligibleCouples;
+import org.ei.drishti.repository.UnitOfWork;
 import org.ei.drishti.service.AlertService;
 import org.ei.drishti.service.ServiceProvidedService;
 import org.ei.drishti.util.Cache;
 import org.ei.drishti.util.EasyMap;
+import org.ei.drishti.util.ParallelMaterializer;
 import org.ei.drishti.view.contract.*;
 import org.junit.Before;
 import org.junit.Test;
@@ -18,15 +20,19 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import static java.util.Arrays.asList;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static junit.framework.Assert.assertEquals;
 import static org.ei.drishti.dto.AlertStatus.normal;
 import static org.ei.drishti.util.EasyMap.create;
 import static org.ei.drishti.util.EasyMap.mapOf;
+import static org.ei.drishti.util.UnitOfWorkAnswer.runsUnitOfWork;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -76,6 +82,7 @@ public class ANCSmartRegisterControllerTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
+        when(allBeneficiaries.inReadTransaction(any(UnitOfWork.class))).thenAnswer(runsUnitOfWork());
         emptyMap = Collections.emptyMap();
         controller = new ANCSmartRegisterController(sericeProvidedService, alertService, allBeneficiaries, new Cache<String>(), new Cache<ANCClients>());
     }
@@ -122,6 +129,23 @@ public class ANCSmartRegisterControllerTest {
         assertEquals(asList(expectedClient1, expectedClient2, expectedClient3), actualClients);
     }
 
+    @Test
+    public void shouldBuildTheSameANCClientsInParallelAsSequentially() throws Exception {
+        Map<String, String> details = mapOf("edd", "Tue, 25 Feb 2014 00:00:00 GMT");
+        List<Pair<Mother, EligibleCouple>> ancsWithEcs = new ArrayList<Pair<Mother, EligibleCouple>>();
+        for (int anc = 0; anc < 200; anc++) {
+            EligibleCouple ec = new EligibleCouple("EC Case " + anc, "Woman " + (anc % 7), "Husband " + anc, "EC Number " + anc, "Bherya", null, emptyMap);
+            ancsWithEcs.add(Pair.of(new Mother("Entity " + anc, "EC Case " + anc, "thayi " + anc, "2013-05-25").withDetails(details), ec));
+        }
+        when(allBeneficiaries.allANCsWithEC()).thenReturn(ancsWithEcs);
+        ANCSmartRegisterController sequentialController = new ANCSmartRegisterController(sericeProvidedService, alertService,
+                allBeneficiaries, new Cache<String>(), new Cache<ANCClients>(), ParallelMaterializer.sequential());
+        ANCSmartRegisterController parallelController = new ANCSmartRegisterController(sericeProvidedService, alertService,
+                allBeneficiaries, new Cache<String>(), new Cache<ANCClients>(), new ParallelMaterializer(newFixedThreadPool(4), 4, 10));
+
+        assertEquals(sequentialController.getClients(), parallelController.getClients());
+    }
+
     @Test
     public void shouldMapANCToANCClient() throws Exception {
         Map<String, String> details =
@@ -173,11 +197,11 @@ public class ANCSmartRegisterControllerTest {
         Alert anc1Alert = new Alert("entity id 1", "ANC", "ANC 1", normal, "2013-01-01", "2013-02-01");
         Alert deliveryPlanAlert = new Alert("entity id 1", "Delivery Plan", "Delivery Plan", normal, "2012-10-25", "2013-08-25");
         when(allBeneficiaries.allANCsWithEC()).thenReturn(asList(Pair.of(mother, ec)));
-        when(alertService.findByEntityIdAndAlertNames("Entity X", ANC_ALERTS)).thenReturn(asList(anc1Alert, deliveryPlanAlert));
+        when(alertService.findByEntityIdsAndAlertNames(asList("Entity X"), ANC_ALERTS)).thenReturn(mapOf("Entity X", asList(anc1Alert, deliveryPlanAlert)));
 
         ANCClients actualClients = controller.getClients();
 
-        verify(alertService).findByEntityIdAndAlertNames("Entity X", ANC_ALERTS);
+        verify(alertService).findByEntityIdsAndAlertNames(asList("Entity X"), ANC_ALERTS);
 
         AlertDTO expectedANC1AlertDto = new AlertDTO("ANC 1", "normal", "2013-01-01");
         AlertDTO expectedDeliveryPlanAlertDto = new AlertDTO("Delivery Plan", "normal", "2012-10-25");
@@ -205,18 +229,18 @@ public class ANCSmartRegisterControllerTest {
         EligibleCouple ec = new EligibleCouple("entity id 1", "Woman C", "Husband C", "EC Number 1", "Bherya", "Bherya SC", emptyMap);
         Mother mother = new Mother("Entity X", "entity id 1", "thayi 1", "2013-05-25").withDetails(details);
         when(allBeneficiaries.allANCsWithEC()).thenReturn(asList(Pair.of(mother, ec)));
-        when(alertService.findByEntityIdAndAlertNames("Entity X", ANC_ALERTS)).thenReturn(Collections.<Alert>emptyList());
-        when(sericeProvidedService.findByEntityIdAndServiceNames("Entity X", ANC_SERVICES))
-                .thenReturn(asList(new ServiceProvided("entity id 1", "IFA", "2013-01-01", mapOf("dose", "100")),
+        when(alertService.findByEntityIdsAndAlertNames(asList("Entity X"), ANC_ALERTS)).thenReturn(mapOf("Entity X", Collections.<Alert>emptyList()));
+        when(sericeProvidedService.findByEntityIdsAndServiceNames(asList("Entity X"), ANC_SERVICES))
+                .thenReturn(mapOf("Entity X", asList(new ServiceProvided("entity id 1", "IFA", "2013-01-01", mapOf("dose", "100")),
                         new ServiceProvided("entity id 1", "TT 1", "2013-02-01", emptyMap),
                         new ServiceProvided("entity id 1", "Delivery Plan", "2013-02-01", emptyMap)
-                ));
+                )));
 
         ANCClients actualClients = controller.getClients();
 
-        verify(alertService).findByEntityIdAndAlertNames("Entity X", ANC_ALERTS);
+        verify(alertService).findByEntityIdsAndAlertNames(asList("Entity X"), ANC_ALERTS);
 
-        verify(sericeProvidedService).findByEntityIdAndServiceNames("Entity X", ANC_SERVICES);
+        verify(sericeProvidedService).findByEntityIdsAndServiceNames(asList("Entity X"), ANC_SERVICES);
 
         ServiceProvidedDTO IFAServiceProvidedDTO = new ServiceProvidedDTO("IFA", "2013-01-01", mapOf("dose", "100"));
         ServiceProvidedDTO deliveryPlanServiceProvidedDTO = new ServiceProvidedDTO("Delivery Plan", "2013-02-01", emptyMap);
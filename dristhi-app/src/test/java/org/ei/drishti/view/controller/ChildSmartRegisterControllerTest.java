@@ -3,10 +3,12 @@ package org.ei.drishti.view.controller;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import org.ei.drishti.view.contract.SmartRegisterClients;
+import org.ei.drishti.view.contract.SmartRegisterSnapshot;
 import org.robolectric.RobolectricTestRunner;
 import org.ei.drishti.domain.*;
 import org.ei.drishti.repository.AllBeneficiaries;
 import org.ei.drishti.repository.AllEligibleCouples;
+import org.ei.drishti.repository.UnitOfWork;
 import org.ei.drishti.service.AlertService;
 import org.ei.drishti.service.ServiceProvidedService;
 import org.ei.drishti.util.Cache;
@@ -26,6 +28,10 @@ import static java.util.Arrays.asList;
 import static junit.framework.Assert.assertEquals;
 import static org.ei.drishti.dto.AlertStatus.normal;
 import static org.ei.drishti.util.EasyMap.create;
+import static org.ei.drishti.util.EasyMap.mapOf;
+import static org.ei.drishti.util.UnitOfWorkAnswer.runsUnitOfWork;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -68,7 +74,8 @@ public class ChildSmartRegisterControllerTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        controller = new ChildSmartRegisterController(serviceProvidedService, alertService, allBeneficiaries, new Cache<String>(), new Cache<SmartRegisterClients>());
+        when(allBeneficiaries.inReadTransaction(any(UnitOfWork.class))).thenAnswer(runsUnitOfWork());
+        controller = new ChildSmartRegisterController(serviceProvidedService, alertService, allBeneficiaries, new Cache<SmartRegisterSnapshot<SmartRegisterClients>>());
     }
 
     @Test
@@ -136,13 +143,13 @@ public class ChildSmartRegisterControllerTest {
         Child child = new Child("child id 1", "mother id 1", "male", emptyMap).withDateOfBirth("2013-01-01").withMother(mother).withEC(eligibleCouple);
         Alert bcgAlert = new Alert("child id 1", "BCG", "bcg", normal, "2013-01-01", "2013-02-01");
         when(allBeneficiaries.allChildrenWithMotherAndEC()).thenReturn(asList(child));
-        when(alertService.findByEntityIdAndAlertNames("child id 1", CHILD_ALERTS)).thenReturn(asList(bcgAlert));
+        when(alertService.findByEntityIdsAndAlertNames(asList("child id 1"), CHILD_ALERTS)).thenReturn(mapOf("child id 1", asList(bcgAlert)));
 
         String clients = controller.get();
 
         List<ChildClient> actualClients = new Gson().fromJson(clients, new TypeToken<List<ChildClient>>() {
         }.getType());
-        verify(alertService).findByEntityIdAndAlertNames("child id 1", CHILD_ALERTS);
+        verify(alertService).findByEntityIdsAndAlertNames(asList("child id 1"), CHILD_ALERTS);
         AlertDTO expectedAlertDto = new AlertDTO("bcg", "normal", "2013-01-01");
         ChildClient expectedPNCClient = new ChildClient("child id 1", "male", null, "thayi no 1")
                 .withEntityIdToSavePhoto("child id 1")
@@ -165,20 +172,39 @@ public class ChildSmartRegisterControllerTest {
         Mother mother = new Mother("mother id 1", "ec id 1", "thayi no 1", "2013-01-01").withDetails(emptyMap);
         Child child = new Child("child id 1", "mother id 1", "male", emptyMap).withDateOfBirth("2013-01-01").withMother(mother).withEC(eligibleCouple);
         when(allBeneficiaries.allChildrenWithMotherAndEC()).thenReturn(asList(child));
-        when(alertService.findByEntityIdAndAlertNames("child id 1", CHILD_ALERTS)).thenReturn(Collections.<Alert>emptyList());
-        when(serviceProvidedService.findByEntityIdAndServiceNames("child id 1", CHILD_SERVICES))
-                .thenReturn(asList(new ServiceProvided("entity id 1", "bcg", "2013-01-01", null)));
+        when(alertService.findByEntityIdsAndAlertNames(asList("child id 1"), CHILD_ALERTS)).thenReturn(mapOf("child id 1", Collections.<Alert>emptyList()));
+        when(serviceProvidedService.findByEntityIdsAndServiceNames(asList("child id 1"), CHILD_SERVICES))
+                .thenReturn(mapOf("child id 1", asList(new ServiceProvided("entity id 1", "bcg", "2013-01-01", null))));
 
         String clients = controller.get();
 
         List<ChildClient> actualClients = new Gson().fromJson(clients, new TypeToken<List<ChildClient>>() {
         }.getType());
-        verify(serviceProvidedService).findByEntityIdAndServiceNames("child id 1", CHILD_SERVICES);
+        verify(serviceProvidedService).findByEntityIdsAndServiceNames(asList("child id 1"), CHILD_SERVICES);
         List<ServiceProvidedDTO> expectedServicesProvided = asList(new ServiceProvidedDTO("bcg", "2013-01-01", null));
         ChildClient expectedPNCClient = createChildClient("child id 1", "thayi no 1", "amma", "ec no 1").withServicesProvided(expectedServicesProvided);
         assertEquals(asList(expectedPNCClient), actualClients);
     }
 
+    @Test
+    public void shouldBuildChildClientsOnceForBothTheWebViewAndTheNativeRegister() throws Exception {
+        EligibleCouple eligibleCouple = new EligibleCouple("ec id 1", "amma", "appa", "ec no 1", "chikkamagalur", null, emptyMap).asOutOfArea();
+        Mother mother = new Mother("mother id 1", "ec id 1", "thayi no 1", "2013-01-01").withDetails(emptyMap);
+        Child child = new Child("child id 1", "mother id 1", "male", emptyMap).withDateOfBirth("2013-01-01").withMother(mother).withEC(eligibleCouple);
+        when(allBeneficiaries.allChildrenWithMotherAndEC()).thenReturn(asList(child));
+        when(alertService.findByEntityIdsAndAlertNames(asList("child id 1"), CHILD_ALERTS)).thenReturn(mapOf("child id 1", Collections.<Alert>emptyList()));
+
+        SmartRegisterClients nativeClients = controller.getClients();
+        String clients = controller.get();
+
+        List<ChildClient> actualClients = new Gson().fromJson(clients, new TypeToken<List<ChildClient>>() {
+        }.getType());
+        ChildClient expectedClient = createChildClient("child id 1", "thayi no 1", "amma", "ec no 1");
+        assertEquals(asList(expectedClient), nativeClients);
+        assertEquals(asList(expectedClient), actualClients);
+        verify(allBeneficiaries, times(1)).allChildrenWithMotherAndEC();
+    }
+
     private ChildClient createChildClient(String childId, String thayiCardNumber, String motherName, String ecNumber) {
         return new ChildClient(childId, "male", null, thayiCardNumber)
                 .withEntityIdToSavePhoto(childId)
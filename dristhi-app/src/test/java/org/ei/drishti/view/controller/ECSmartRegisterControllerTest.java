@@ -6,18 +6,22 @@ import org.robolectric.RobolectricTestRunner;
 import org.ei.drishti.domain.Child;
 import org.ei.drishti.domain.EligibleCouple;
 import org.ei.drishti.domain.Mother;
+import org.ei.drishti.event.Event;
 import org.ei.drishti.repository.AllBeneficiaries;
 import org.ei.drishti.repository.AllEligibleCouples;
+import org.ei.drishti.repository.UnitOfWork;
 import org.ei.drishti.util.Cache;
 import org.ei.drishti.view.contract.ECChildClient;
 import org.ei.drishti.view.contract.ECClient;
 import org.ei.drishti.view.contract.ECClients;
+import org.ei.drishti.view.contract.SmartRegisterSnapshot;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +29,10 @@ import static java.util.Arrays.asList;
 import static junit.framework.Assert.assertEquals;
 import static org.ei.drishti.util.EasyMap.create;
 import static org.ei.drishti.util.EasyMap.mapOf;
+import static org.ei.drishti.util.UnitOfWorkAnswer.runsUnitOfWork;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -41,8 +49,9 @@ public class ECSmartRegisterControllerTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
+        when(allEligibleCouples.inReadTransaction(any(UnitOfWork.class))).thenAnswer(runsUnitOfWork());
         emptyDetails = Collections.emptyMap();
-        controller = new ECSmartRegisterController(allEligibleCouples, allBeneficiaries, new Cache<String>(), new Cache<ECClients>());
+        controller = new ECSmartRegisterController(allEligibleCouples, allBeneficiaries, new Cache<SmartRegisterSnapshot<ECClients>>());
     }
 
     @Test
@@ -62,6 +71,59 @@ public class ECSmartRegisterControllerTest {
         assertEquals(asList(expectedClient1, expectedClient2, expectedClient3), actualClients);
     }
 
+    @Test
+    public void shouldSortECsWithTheSameNameInTheOrderTheRegisterPagesThem() throws Exception {
+        EligibleCouple ec3 = new EligibleCouple("entity id 3", "Woman B", "Husband C", "3", "Bherya", "Bherya SC", emptyDetails);
+        EligibleCouple ec2 = new EligibleCouple("entity id 2", "woman a", "Husband B", "2", "Bherya", "Bherya SC", emptyDetails);
+        EligibleCouple ec1 = new EligibleCouple("entity id 1", "Woman A", "Husband A", "1", "Bherya", "Bherya SC", emptyDetails);
+        when(allEligibleCouples.all()).thenReturn(asList(ec3, ec2, ec1));
+
+        ECClients clients = controller.getClients();
+
+        assertEquals("entity id 1", clients.get(0).entityId());
+        assertEquals("entity id 2", clients.get(1).entityId());
+        assertEquals("entity id 3", clients.get(2).entityId());
+    }
+
+    @Test
+    public void shouldBuildECClientsOnceForBothTheWebViewAndTheNativeRegister() throws Exception {
+        EligibleCouple ec2 = new EligibleCouple("entity id 2", "Woman B", "Husband B", "2", "kavalu_hosur", "Bherya SC", emptyDetails);
+        EligibleCouple ec1 = new EligibleCouple("entity id 1", "Woman A", "Husband A", "1", "Bherya", null, emptyDetails);
+        when(allEligibleCouples.all()).thenReturn(asList(ec2, ec1));
+        ECClient expectedClient1 = createECClient("entity id 1", "Woman A", "Husband A", "Bherya", 1);
+        ECClient expectedClient2 = createECClient("entity id 2", "Woman B", "Husband B", "kavalu_hosur", 2);
+
+        ECClients nativeClients = controller.getClients();
+        String clients = controller.get();
+
+        List<ECClient> actualClients = new Gson().fromJson(clients, new TypeToken<List<ECClient>>() {
+        }.getType());
+        assertEquals(asList(expectedClient1, expectedClient2), nativeClients);
+        assertEquals(asList(expectedClient1, expectedClient2), actualClients);
+        verify(allEligibleCouples, times(1)).all();
+        verify(allBeneficiaries, times(1)).allOpenMothersByECId();
+    }
+
+    @Test
+    public void shouldPatchOnlyTheChangedECFamilyInTheCachedClients() throws Exception {
+        EligibleCouple ec1 = new EligibleCouple("entity id 1", "Woman A", "Husband A", "1", "Bherya", null, emptyDetails);
+        EligibleCouple ec2 = new EligibleCouple("entity id 2", "Woman B", "Husband B", "2", "kavalu_hosur", "Bherya SC", emptyDetails);
+        EligibleCouple updatedEC1 = new EligibleCouple("entity id 1", "Woman C", "Husband A", "1", "Bherya", null, emptyDetails);
+        when(allEligibleCouples.all()).thenReturn(asList(ec2, ec1));
+        when(allBeneficiaries.findECIdsOfEntities(new HashSet<String>(asList("mother id 1")))).thenReturn(asList("entity id 1"));
+        when(allBeneficiaries.findFamilyMemberIds(asList("entity id 1"))).thenReturn(new HashSet<String>(asList("entity id 1", "mother id 1")));
+        when(allEligibleCouples.findOpenByCaseIDs(asList("entity id 1"))).thenReturn(asList(updatedEC1));
+
+        controller.getClients();
+        Event.ENTITY_CHANGED.notifyListeners("mother id 1");
+        ECClients clients = controller.getClients();
+
+        assertEquals(asList(createECClient("entity id 2", "Woman B", "Husband B", "kavalu_hosur", 2),
+                createECClient("entity id 1", "Woman C", "Husband A", "Bherya", 1)), clients);
+        verify(allEligibleCouples, times(1)).all();
+        verify(allBeneficiaries).findOpenMothersByECIds(asList("entity id 1"));
+    }
+
     private ECClient createECClient(String entityId, String name, String husbandName, String village, Integer ecNumber) {
         return new ECClient(entityId, name, husbandName, village, ecNumber)
                 .withPhotoPath("../../img/woman-placeholder.png")
@@ -123,13 +185,12 @@ public class ECSmartRegisterControllerTest {
     }
 
     @Test
-    public void shouldAddYoungestTwoChildrenToECClient() throws Exception {
+    public void shouldAddYoungestTwoChildrenOfEachECToECClient() throws Exception {
         EligibleCouple ec1 = new EligibleCouple("entity id 1", "Woman A", "Husband A", "1", "Bherya", null, emptyDetails);
-        Child firstChild = new Child("child id 1", "mother id 1", "1234567", "2010-01-01", "female", emptyDetails);
         Child secondChild = new Child("child id 2", "mother id 1", "1234568", "2011-01-01", "female", emptyDetails);
         Child thirdChild = new Child("child id 3", "mother id 1", "1234569", "2012-01-01", "male", emptyDetails);
         when(allEligibleCouples.all()).thenReturn(asList(ec1));
-        when(allBeneficiaries.findAllChildrenByECId("entity id 1")).thenReturn(asList(firstChild, secondChild, thirdChild));
+        when(allBeneficiaries.allYoungestOpenChildrenByECId(2)).thenReturn(mapOf("entity id 1", asList(secondChild, thirdChild)));
         ECClient expectedClient1 = createECClient("entity id 1", "Woman A", "Husband A", "Bherya", 1)
                 .withChildren(asList(new ECChildClient("child id 2", "female", "2011-01-01"), new ECChildClient("child id 3", "male", "2012-01-01")));
 
@@ -145,7 +206,6 @@ public class ECSmartRegisterControllerTest {
         EligibleCouple ec1 = new EligibleCouple("entity id 1", "Woman A", "Husband A", "1", "Bherya", null,
                 create("registrationDate", "2013-02-02").put("currentMethod", "none").map());
         when(allEligibleCouples.all()).thenReturn(asList(ec1));
-        when(allBeneficiaries.findMotherWithOpenStatusByECId("entity id 1")).thenReturn(null);
         ECClient expectedClient1 = createECClient("entity id 1", "Woman A", "Husband A", "Bherya", 1)
                 .withFPMethod("none")
                 .withStatus(create("type", "ec").put("date", "2013-02-02").map());
@@ -162,7 +222,6 @@ public class ECSmartRegisterControllerTest {
         EligibleCouple ec1 = new EligibleCouple("entity id 1", "Woman A", "Husband A", "1", "Bherya", null,
                 create("familyPlanningMethodChangeDate", "2013-02-02").put("currentMethod", "condom").map());
         when(allEligibleCouples.all()).thenReturn(asList(ec1));
-        when(allBeneficiaries.findMotherWithOpenStatusByECId("entity id 1")).thenReturn(null);
         ECClient expectedClient1 = createECClient("entity id 1", "Woman A", "Husband A", "Bherya", 1)
                 .withFamilyPlanningMethodChangeDate("2013-02-02")
                 .withFPMethod("condom")
@@ -180,7 +239,7 @@ public class ECSmartRegisterControllerTest {
         EligibleCouple ec1 = new EligibleCouple("entity id 1", "Woman A", "Husband A", "1", "Bherya", null, emptyDetails);
         Mother mother = new Mother("mother id 1", "entity id 1", "thayi card 1", "2013-01-01").withType("anc").withDetails(mapOf("edd", "Sat, 12 Oct 2013 00:00:00 GMT"));
         when(allEligibleCouples.all()).thenReturn(asList(ec1));
-        when(allBeneficiaries.findMotherWithOpenStatusByECId("entity id 1")).thenReturn(mother);
+        when(allBeneficiaries.allOpenMothersByECId()).thenReturn(mapOf("entity id 1", mother));
         ECClient expectedClient1 = createECClient("entity id 1", "Woman A", "Husband A", "Bherya", 1)
                 .withStatus(create("date", "2013-01-01").put("edd", "2013-10-12").put("type", "anc").map());
 
@@ -196,7 +255,7 @@ public class ECSmartRegisterControllerTest {
         EligibleCouple ec1 = new EligibleCouple("entity id 1", "Woman A", "Husband A", "1", "Bherya", null, mapOf("currentMethod", "none"));
         Mother mother = new Mother("mother id 1", "entity id 1", "thayi card 1", "2013-01-01").withType("pnc");
         when(allEligibleCouples.all()).thenReturn(asList(ec1));
-        when(allBeneficiaries.findMotherWithOpenStatusByECId("entity id 1")).thenReturn(mother);
+        when(allBeneficiaries.allOpenMothersByECId()).thenReturn(mapOf("entity id 1", mother));
         ECClient expectedClient1 = createECClient("entity id 1", "Woman A", "Husband A", "Bherya", 1).withFPMethod("none")
                 .withStatus(create("date", "2013-01-01").put("type", "pnc").map());
 
@@ -213,7 +272,7 @@ public class ECSmartRegisterControllerTest {
                 create("familyPlanningMethodChangeDate", "2013-01-01").put("currentMethod", "condom").map());
         Mother mother = new Mother("mother id 1", "entity id 1", "thayi card 1", "2013-01-01").withType("pnc");
         when(allEligibleCouples.all()).thenReturn(asList(ec1));
-        when(allBeneficiaries.findMotherWithOpenStatusByECId("entity id 1")).thenReturn(mother);
+        when(allBeneficiaries.allOpenMothersByECId()).thenReturn(mapOf("entity id 1", mother));
         ECClient expectedClient1 = createECClient("entity id 1", "Woman A", "Husband A", "Bherya", 1).withFPMethod("condom")
                 .withFamilyPlanningMethodChangeDate("2013-01-01")
                 .withFPMethod("condom")
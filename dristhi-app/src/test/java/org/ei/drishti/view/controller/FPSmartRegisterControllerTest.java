@@ -6,6 +6,7 @@ import org.ei.drishti.domain.Alert;
 import org.ei.drishti.domain.EligibleCouple;
 import org.ei.drishti.repository.AllBeneficiaries;
 import org.ei.drishti.repository.AllEligibleCouples;
+import org.ei.drishti.repository.UnitOfWork;
 import org.ei.drishti.service.AlertService;
 import org.ei.drishti.util.Cache;
 import org.ei.drishti.util.EasyMap;
@@ -29,7 +30,12 @@ import static junit.framework.Assert.assertEquals;
 import static org.ei.drishti.dto.AlertStatus.normal;
 import static org.ei.drishti.dto.AlertStatus.urgent;
 import static org.ei.drishti.util.EasyMap.create;
+import static org.ei.drishti.util.EasyMap.mapOf;
+import static org.ei.drishti.util.UnitOfWorkAnswer.runsUnitOfWork;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -65,6 +71,7 @@ public class FPSmartRegisterControllerTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
+        when(allEligibleCouples.inReadTransaction(any(UnitOfWork.class))).thenAnswer(runsUnitOfWork());
         currentContext = Context.getInstance();
         Context.setInstance(context);
         emptyDetails = Collections.emptyMap();
@@ -113,7 +120,7 @@ public class FPSmartRegisterControllerTest {
                 .map();
         EligibleCouple ec = new EligibleCouple("EC Case 1", "Woman A", "Husband A", "EC Number 1", "Bherya", "Bherya SC", details)
                 .withPhotoPath("new photo path");
-        when(allEligibleCouples.all()).thenReturn(asList(ec));
+        when(allEligibleCouples.allNonPregnant()).thenReturn(asList(ec));
         FPClient expectedFPClient = new FPClient("EC Case 1", "Woman A", "Husband A", "Bherya", "EC Number 1")
                 .withAge("22")
                 .withFPMethod("condom")
@@ -153,12 +160,12 @@ public class FPSmartRegisterControllerTest {
     public void shouldCreateFPClientsWithOCPRefillAlert() throws Exception {
         EligibleCouple ec = new EligibleCouple("entity id 1", "Woman C", "Husband C", "EC Number 3", "Bherya", "Bherya SC", emptyDetails);
         Alert ocpRefillAlert = new Alert("entity id 1", "OCP Refill", "OCP Refill", normal, "2013-01-01", "2013-02-01");
-        when(allEligibleCouples.all()).thenReturn(asList(ec));
-        when(alertService.findByEntityIdAndAlertNames("entity id 1", EC_ALERTS)).thenReturn(asList(ocpRefillAlert));
+        when(allEligibleCouples.allNonPregnant()).thenReturn(asList(ec));
+        when(alertService.findByEntityIdsAndAlertNames(asList("entity id 1"), EC_ALERTS)).thenReturn(mapOf("entity id 1", asList(ocpRefillAlert)));
 
         FPClients actualClients = controller.getClients();
 
-        verify(alertService).findByEntityIdAndAlertNames("entity id 1", EC_ALERTS);
+        verify(alertService).findByEntityIdsAndAlertNames(asList("entity id 1"), EC_ALERTS);
         AlertDTO expectedAlertDto = new AlertDTO("OCP Refill", "normal", "2013-01-01");
         FPClient expectedEC = createFPClient("entity id 1", "Woman C", "Husband C", "Bherya", "EC Number 3").withAlerts(asList(expectedAlertDto)).withNumberOfAbortions("0").withNumberOfPregnancies("0").withNumberOfStillBirths("0").withNumberOfLivingChildren("0").withParity("0");
         assertEquals(asList(expectedEC), actualClients);
@@ -168,13 +175,13 @@ public class FPSmartRegisterControllerTest {
     public void shouldCreateFPClientsWithRefillFollowUps() throws Exception {
         EligibleCouple ec = new EligibleCouple("entity id 1", "Woman C", "Husband C", "EC Number 3", "Bherya", "Bherya SC", EasyMap.create("currentMethod", "condom").map());
         Alert condomRefillAlert = new Alert("entity id 1", "Condom Refill", "Condom Refill", urgent, "2013-01-01", "2013-02-01");
-        when(allEligibleCouples.all()).thenReturn(asList(ec));
-        when(alertService.findByEntityIdAndAlertNames("entity id 1", EC_ALERTS)).thenReturn(asList(condomRefillAlert));
+        when(allEligibleCouples.allNonPregnant()).thenReturn(asList(ec));
+        when(alertService.findByEntityIdsAndAlertNames(asList("entity id 1"), EC_ALERTS)).thenReturn(mapOf("entity id 1", asList(condomRefillAlert)));
         when(context.getStringResource(R.string.str_refill)).thenReturn("refill");
 
         FPClients clients = controller.getClients();
 
-        verify(alertService).findByEntityIdAndAlertNames("entity id 1", EC_ALERTS);
+        verify(alertService).findByEntityIdsAndAlertNames(asList("entity id 1"), EC_ALERTS);
 
         AlertDTO expectedAlertDto = new AlertDTO("Condom Refill", "urgent", "2013-01-01");
         FPClient expectedEC = createFPClient("entity id 1", "Woman C", "Husband C", "Bherya", "EC Number 3")
@@ -190,17 +197,14 @@ public class FPSmartRegisterControllerTest {
     }
 
     @Test
-    public void shouldNotIncludePregnantECsWhenFPClientsIsCreated() throws Exception {
+    public void shouldCreateFPClientsOnlyFromNonPregnantECs() throws Exception {
         EligibleCouple ec = new EligibleCouple("entity id 1", "Woman C", "Husband C", "EC Number 3", "Bherya", "Bherya SC", emptyDetails);
-        EligibleCouple pregnantEC = new EligibleCouple("entity id 2", "Woman D", "Husband D", "EC Number 4", "Bherya", "Bherya SC", emptyDetails);
-        when(allEligibleCouples.all()).thenReturn(asList(ec, pregnantEC));
-        when(allBeneficiaries.isPregnant("entity id 1")).thenReturn(false);
-        when(allBeneficiaries.isPregnant("entity id 2")).thenReturn(true);
+        when(allEligibleCouples.allNonPregnant()).thenReturn(asList(ec));
 
         FPClients actualClients = controller.getClients();
 
-        verify(allBeneficiaries).isPregnant("entity id 1");
-        verify(allBeneficiaries).isPregnant("entity id 2");
+        verify(allEligibleCouples, never()).all();
+        verifyZeroInteractions(allBeneficiaries);
         FPClient expectedEC = createFPClient("entity id 1", "Woman C", "Husband C", "Bherya", "EC Number 3").withNumberOfAbortions("0").withNumberOfPregnancies("0").withNumberOfStillBirths("0").withNumberOfLivingChildren("0").withParity("0");
         assertEquals(asList(expectedEC), actualClients);
     }
@@ -4,6 +4,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.ei.drishti.domain.*;
 import org.ei.drishti.repository.AllBeneficiaries;
 import org.ei.drishti.repository.AllEligibleCouples;
+import org.ei.drishti.repository.UnitOfWork;
 import org.ei.drishti.service.AlertService;
 import org.ei.drishti.service.ServiceProvidedService;
 import org.ei.drishti.util.Cache;
@@ -32,6 +33,7 @@ import static junit.framework.Assert.assertEquals;
 import static org.ei.drishti.dto.AlertStatus.normal;
 import static org.ei.drishti.util.EasyMap.create;
 import static org.ei.drishti.util.EasyMap.mapOf;
+import static org.ei.drishti.util.UnitOfWorkAnswer.runsUnitOfWork;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -62,6 +64,7 @@ public class PNCSmartRegisterControllerTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
+        when(allBeneficiaries.inReadTransaction(any(UnitOfWork.class))).thenAnswer(runsUnitOfWork());
         emptyMap = Collections.emptyMap();
         controller = new PNCSmartRegisterController(serviceProvidedService, alertService, allEligibleCouples, allBeneficiaries, new Cache<String>(), new Cache<PNCClients>(), preProcessor);
     }
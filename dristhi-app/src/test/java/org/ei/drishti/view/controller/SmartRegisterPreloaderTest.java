@@ -0,0 +1,107 @@
+package org.ei.drishti.view.controller;
+
+import org.ei.drishti.view.contract.ECClients;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static org.ei.drishti.domain.FetchStatus.fetched;
+import static org.ei.drishti.domain.FetchStatus.nothingFetched;
+import static org.ei.drishti.event.Event.ON_DATA_FETCHED;
+import static org.ei.drishti.event.Event.ON_LOGOUT;
+import static org.ei.drishti.event.Event.SYNC_COMPLETED;
+import static org.ei.drishti.view.controller.PreloadTarget.*;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class SmartRegisterPreloaderTest {
+    @Mock
+    private ANMController anmController;
+    @Mock
+    private ECSmartRegisterController ecSmartRegisterController;
+    @Mock
+    private FPSmartRegisterController fpSmartRegisterController;
+    @Mock
+    private ANCSmartRegisterController ancSmartRegisterController;
+    @Mock
+    private PNCSmartRegisterController pncSmartRegisterController;
+    @Mock
+    private ChildSmartRegisterController childSmartRegisterController;
+    private SmartRegisterPreloader preloader;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        preloader = new SmartRegisterPreloader(anmController, ecSmartRegisterController, fpSmartRegisterController,
+                ancSmartRegisterController, pncSmartRegisterController, childSmartRegisterController, sameThreadExecutor());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ON_LOGOUT.notifyListeners(true);
+    }
+
+    @Test
+    public void shouldRebuildRegistersAndHomeCountsInOrderOfRecentUsageOnceSyncCompletesAfterDataWasFetched() throws Exception {
+        preloader.markUsed(child);
+        preloader.markUsed(home);
+        preloader.markUsed(anc);
+
+        ON_DATA_FETCHED.notifyListeners(fetched);
+        verifyZeroInteractions(anmController, ancSmartRegisterController, childSmartRegisterController);
+        SYNC_COMPLETED.notifyListeners(true);
+
+        InOrder inOrder = inOrder(anmController, ecSmartRegisterController, fpSmartRegisterController,
+                ancSmartRegisterController, pncSmartRegisterController, childSmartRegisterController);
+        inOrder.verify(ancSmartRegisterController).getClients();
+        inOrder.verify(anmController).getHomeContext();
+        inOrder.verify(childSmartRegisterController).getClients();
+        inOrder.verify(ecSmartRegisterController).getClients();
+        inOrder.verify(fpSmartRegisterController).getClients();
+        inOrder.verify(pncSmartRegisterController).getClients();
+    }
+
+    @Test
+    public void shouldRebuildOnlyOnceForSeveralFetchesInASync() throws Exception {
+        ON_DATA_FETCHED.notifyListeners(fetched);
+        ON_DATA_FETCHED.notifyListeners(fetched);
+        SYNC_COMPLETED.notifyListeners(true);
+        SYNC_COMPLETED.notifyListeners(true);
+
+        verify(ecSmartRegisterController, times(1)).getClients();
+        verify(anmController, times(1)).getHomeContext();
+    }
+
+    @Test
+    public void shouldNotRebuildWhenNothingWasFetched() throws Exception {
+        ON_DATA_FETCHED.notifyListeners(nothingFetched);
+        SYNC_COMPLETED.notifyListeners(true);
+
+        verifyZeroInteractions(anmController, ecSmartRegisterController, fpSmartRegisterController,
+                ancSmartRegisterController, pncSmartRegisterController, childSmartRegisterController);
+    }
+
+    @Test
+    public void shouldStopRebuildingWhenUserLogsOut() throws Exception {
+        preloader.markUsed(ec);
+        when(ecSmartRegisterController.getClients()).thenAnswer(new Answer<ECClients>() {
+            @Override
+            public ECClients answer(InvocationOnMock invocation) throws Throwable {
+                ON_LOGOUT.notifyListeners(true);
+                return new ECClients();
+            }
+        });
+
+        ON_DATA_FETCHED.notifyListeners(fetched);
+        SYNC_COMPLETED.notifyListeners(true);
+
+        verify(ecSmartRegisterController).getClients();
+        verifyZeroInteractions(anmController, fpSmartRegisterController, ancSmartRegisterController,
+                pncSmartRegisterController, childSmartRegisterController);
+    }
+}